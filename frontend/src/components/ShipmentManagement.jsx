@@ -3,6 +3,7 @@ import axios from 'axios';
 import { FaPlus, FaEye, FaMapMarkerAlt } from 'react-icons/fa';
 import LocationPicker from './LocationPicker';
 import ShipmentSummary from './ShipmentSummary';
+import { getAllPages } from '../services/api';
 import { generateTrackingNumber } from '../utils/trackingNumberGenerator';
 
 const API_BASE_URL = process.env.REACT_APP_API_URL || 'http://localhost:8080';
@@ -69,8 +70,8 @@ const ShipmentManagement = () => {
     try {
       setLoading(true);
       const [shipmentsRes, orgsRes] = await Promise.all([
-        axios.get(`${API_BASE_URL}/api/admin/shipments`, { headers: DEV_ADMIN_HEADERS }),
-        axios.get(`${API_BASE_URL}/api/admin/organizations`, { headers: DEV_ADMIN_HEADERS }).catch(() => ({ data: [] }))
+        getAllPages(`${API_BASE_URL}/api/admin/shipments`, { headers: DEV_ADMIN_HEADERS }),
+        getAllPages(`${API_BASE_URL}/api/admin/organizations`, { headers: DEV_ADMIN_HEADERS }).catch(() => ({ data: [] }))
       ]);
       setShipments(Array.isArray(shipmentsRes.data) ? shipmentsRes.data : []);
       setOrganizations(Array.isArray(orgsRes.data) ? orgsRes.data : []);
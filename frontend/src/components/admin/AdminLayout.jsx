@@ -3,6 +3,7 @@ import { Link, useLocation, useNavigate } from 'react-router-dom';
 import { LayoutDashboard, Users, Building2, Truck, Car, Package, Warehouse, Boxes, Layers, Map, SatelliteDish, LogOut, XCircle, Bell } from 'lucide-react';
 import axios from 'axios';
 import Logo from '../Logo';
+import { getAllPages } from '../../services/api';
 const API_BASE_URL = process.env.REACT_APP_API_URL || 'http://localhost:8080';
 const DEV_ADMIN_HEADERS = { Authorization: 'Bearer dev-admin-token' };
 
@@ -46,7 +47,7 @@ const AdminLayout = ({ title, children }) => {
   const fetchNotifications = async () => {
     setLoadingNotif(true);
     try {
-      const { data } = await axios.get(`${API_BASE_URL}/api/admin/notifications`, { headers: DEV_ADMIN_HEADERS });
+      const { data } = await getAllPages(`${API_BASE_URL}/api/admin/notifications`, { headers: DEV_ADMIN_HEADERS });
       setNotifications(Array.isArray(data) ? data.slice(0, 10) : []);
     } catch (_) { /* noop */ }
     finally { setLoadingNotif(false); }
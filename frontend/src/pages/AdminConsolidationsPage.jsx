@@ -1,6 +1,7 @@
 import React, { useEffect, useState } from 'react';
 import axios from 'axios';
 import AdminLayout from '../components/admin/AdminLayout';
+import { getAllPages } from '../services/api';
 
 const API_BASE_URL = process.env.REACT_APP_API_URL || 'http://localhost:8080';
 const DEV_ADMIN_HEADERS = { Authorization: 'Bearer dev-admin-token' };
@@ -31,9 +32,9 @@ const AdminConsolidationsPage = () => {
         const whUrl = org ? '/api/org/warehouses' : '/api/admin/warehouses';
         const headers = org ? ORG_HEADERS() : DEV_ADMIN_HEADERS;
         const [addrRes, shipRes, whRes] = await Promise.all([
-          axios.get(`${API_BASE_URL}${addrsUrl}`, { headers }),
-          axios.get(`${API_BASE_URL}${shipsUrl}`, { headers }),
-          axios.get(`${API_BASE_URL}${whUrl}`, { headers })
+          getAllPages(`${API_BASE_URL}${addrsUrl}`, { headers }),
+          getAllPages(`${API_BASE_URL}${shipsUrl}`, { headers }),
+          getAllPages(`${API_BASE_URL}${whUrl}`, { headers })
         ]);
         setAddresses(Array.isArray(addrRes.data) ? addrRes.data : []);
         setShipments(Array.isArray(shipRes.data) ? shipRes.data : []);
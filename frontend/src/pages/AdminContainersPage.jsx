@@ -1,7 +1,7 @@
 import React, { useState, useEffect } from 'react';
 import axios from 'axios';
 import AdminLayout from '../components/admin/AdminLayout';
-import { API_BASE_URL } from '../services/api';
+import { API_BASE_URL, getAllPages } from '../services/api';
 
 const AdminContainersPage = () => {
   const [containers, setContainers] = useState([]);
@@ -26,8 +26,8 @@ const AdminContainersPage = () => {
       const contPath = headers.Authorization === 'Bearer org-admin-token' ? '/api/org/containers' : '/api/admin/containers';
       const whPath = headers.Authorization === 'Bearer org-admin-token' ? '/api/org/warehouses' : '/api/admin/warehouses';
       const [cont, wh] = await Promise.all([
-        axios.get(`${API_BASE_URL}${contPath}`, { headers }),
-        axios.get(`${API_BASE_URL}${whPath}`, { headers })
+        getAllPages(`${API_BASE_URL}${contPath}`, { headers }),
+        getAllPages(`${API_BASE_URL}${whPath}`, { headers })
       ]);
       setContainers(cont.data || []);
       setWarehouses(wh.data || []);
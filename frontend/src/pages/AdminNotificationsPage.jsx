@@ -1,6 +1,7 @@
 import React, { useEffect, useState } from 'react';
 import axios from 'axios';
 import AdminLayout from '../components/admin/AdminLayout';
+import { getAllPages } from '../services/api';
 
 const API_BASE_URL = process.env.REACT_APP_API_URL || 'http://localhost:8080';
 
@@ -12,7 +13,7 @@ const AdminNotificationsPage = () => {
   const load = async () => {
     setLoading(true);
     try {
-      const { data } = await axios.get(`${API_BASE_URL}/api/admin/notifications`, { headers });
+      const { data } = await getAllPages(`${API_BASE_URL}/api/admin/notifications`, { headers });
       setItems(Array.isArray(data) ? data : []);
     } finally { setLoading(false); }
   };
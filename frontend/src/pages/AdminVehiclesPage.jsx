@@ -1,6 +1,6 @@
 import React, { useEffect, useMemo, useState } from 'react';
 import AdminLayout from '../components/admin/AdminLayout';
-import { adminAPI } from '../services/api';
+import { adminAPI, getAllPages } from '../services/api';
 import { toast } from 'react-hot-toast';
 import LocationPicker from '../components/LocationPicker';
 import { FaMapMarkerAlt } from 'react-icons/fa';
@@ -54,9 +54,9 @@ const AdminVehiclesPage = () => {
       const usersPath = '/api/admin/users';
       const orgsPath = '/api/admin/organizations';
       const [vehRes, orgRes, userRes] = await Promise.all([
-        fetch(`${base}${vehPath}`, { headers }).then(r=>r.json()),
-        fetch(`${base}${orgsPath}`, { headers: { Authorization: 'Bearer dev-admin-token' } }).then(r=>r.json()),
-        fetch(`${base}${usersPath}`, { headers: { Authorization: 'Bearer dev-admin-token' } }).then(r=>r.json()),
+        getAllPages(`${base}${vehPath}`, { headers }).then(r=>r.data),
+        getAllPages(`${base}${orgsPath}`, { headers: { Authorization: 'Bearer dev-admin-token' } }).then(r=>r.data),
+        getAllPages(`${base}${usersPath}`, { headers: { Authorization: 'Bearer dev-admin-token' } }).then(r=>r.data),
       ]);
       setVehicles(Array.isArray(vehRes) ? vehRes : (vehRes?.data || []));
       setOrgs(Array.isArray(orgRes) ? orgRes : (orgRes?.data || []));
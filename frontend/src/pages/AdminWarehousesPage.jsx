@@ -1,7 +1,7 @@
 import React, { useState, useEffect } from 'react';
 import axios from 'axios';
 import AdminLayout from '../components/admin/AdminLayout';
-import { API_BASE_URL } from '../services/api';
+import { API_BASE_URL, getAllPages } from '../services/api';
 import LocationPicker from '../components/LocationPicker';
 import { FaMapMarkerAlt } from 'react-icons/fa';
 
@@ -25,9 +25,9 @@ const AdminWarehousesPage = () => {
     setLoading(true);
     try {
       const path = headers.Authorization === 'Bearer org-admin-token' ? '/api/org/warehouses' : '/api/admin/warehouses';
-      const { data } = await axios.get(`${API_BASE_URL}${path}`, { headers });
+      const { data } = await getAllPages(`${API_BASE_URL}${path}`, { headers });
       setWarehouses(data);
-      const usersRes = await axios.get(`${API_BASE_URL}/api/admin/users`, { headers });
+      const usersRes = await getAllPages(`${API_BASE_URL}/api/admin/users`, { headers });
       const warehouseManagers = (usersRes.data || []).filter(u => u.userRole === 'WAREHOUSE_MANAGER');
       setUsers(warehouseManagers);
     } finally {
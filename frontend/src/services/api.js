@@ -37,6 +37,20 @@ api.interceptors.response.use(
   }
 );
 
+// Admin list endpoints return one page per request and put the next page's cursor in the
+// X-Next-Cursor header; follow it so callers still get the whole list in response.data
+export const getAllPages = async (url, config = {}) => {
+  const items = [];
+  let cursor;
+  let res;
+  do {
+    res = await axios.get(url, { ...config, params: { ...config.params, limit: 500, ...(cursor ? { cursor } : {}) } });
+    if (Array.isArray(res.data)) items.push(...res.data);
+    cursor = res.headers['x-next-cursor'];
+  } while (cursor);
+  return { ...res, data: items };
+};
+
 // Auth API
 export const authAPI = {
   login: (username, password) => {
@@ -102,24 +116,24 @@ export const shipmentAPI = {
 // Admin API (dev-only with static bearer)
 const DEV_ADMIN_HEADERS = { Authorization: 'Bearer dev-admin-token' };
 export const adminAPI = {
-  listOrganizations: () => axios.get(`${API_BASE_URL}/api/admin/organizations`, { headers: DEV_ADMIN_HEADERS }),
+  listOrganizations: () => getAllPages(`${API_BASE_URL}/api/admin/organizations`, { headers: DEV_ADMIN_HEADERS }),
   createOrganization: (data) => axios.post(`${API_BASE_URL}/api/admin/organizations`, data, { headers: { ...DEV_ADMIN_HEADERS, 'Content-Type': 'application/json' } }),
   updateOrganization: (id, data) => axios.put(`${API_BASE_URL}/api/admin/organizations/${id}`, data, { headers: { ...DEV_ADMIN_HEADERS, 'Content-Type': 'application/json' } }),
   deleteOrganization: (id) => axios.delete(`${API_BASE_URL}/api/admin/organizations/${id}`, { headers: DEV_ADMIN_HEADERS }),
-  listUsers: () => axios.get(`${API_BASE_URL}/api/admin/users`, { headers: DEV_ADMIN_HEADERS }),
+  listUsers: () => getAllPages(`${API_BASE_URL}/api/admin/users`, { headers: DEV_ADMIN_HEADERS }),
   setUserRole: (id, userRole) => axios.post(`${API_BASE_URL}/api/admin/users/${id}/role`, { userRole }, { headers: { ...DEV_ADMIN_HEADERS, 'Content-Type': 'application/json' } }),
   setUserOrganization: (id, organizationId) => axios.post(`${API_BASE_URL}/api/admin/users/${id}/organization`, { organizationId }, { headers: { ...DEV_ADMIN_HEADERS, 'Content-Type': 'application/json' } }),
   activateUser: (id) => axios.post(`${API_BASE_URL}/api/admin/users/${id}/activate`, {}, { headers: DEV_ADMIN_HEADERS }),
   deactivateUser: (id) => axios.post(`${API_BASE_URL}/api/admin/users/${id}/deactivate`, {}, { headers: DEV_ADMIN_HEADERS }),
   deleteUser: (id) => axios.delete(`${API_BASE_URL}/api/admin/users/${id}`, { headers: DEV_ADMIN_HEADERS }),
-  listShipments: () => axios.get(`${API_BASE_URL}/api/admin/shipments`, { headers: DEV_ADMIN_HEADERS }),
+  listShipments: () => getAllPages(`${API_BASE_URL}/api/admin/shipments`, { headers: DEV_ADMIN_HEADERS }),
   acceptShipment: (id, driverUserId) => axios.post(`${API_BASE_URL}/api/admin/shipments/${id}/accept`, { driverUserId }, { headers: { ...DEV_ADMIN_HEADERS, 'Content-Type': 'application/json' } }),
   rejectShipment: (id) => axios.post(`${API_BASE_URL}/api/admin/shipments/${id}/reject`, {}, { headers: { ...DEV_ADMIN_HEADERS, 'Content-Type': 'application/json' } }),
-  listVehicles: () => axios.get(`${API_BASE_URL}/api/admin/vehicles`, { headers: DEV_ADMIN_HEADERS }),
+  listVehicles: () => getAllPages(`${API_BASE_URL}/api/admin/vehicles`, { headers: DEV_ADMIN_HEADERS }),
   createVehicle: (data) => axios.post(`${API_BASE_URL}/api/admin/vehicles`, data, { headers: { ...DEV_ADMIN_HEADERS, 'Content-Type': 'application/json' } }),
   updateVehicle: (id, data) => axios.put(`${API_BASE_URL}/api/admin/vehicles/${id}`, data, { headers: { ...DEV_ADMIN_HEADERS, 'Content-Type': 'application/json' } }),
   deleteVehicle: (id) => axios.delete(`${API_BASE_URL}/api/admin/vehicles/${id}`, { headers: DEV_ADMIN_HEADERS }),
-  listDrivers: () => axios.get(`${API_BASE_URL}/api/admin/drivers`, { headers: DEV_ADMIN_HEADERS }),
+  listDrivers: () => getAllPages(`${API_BASE_URL}/api/admin/drivers`, { headers: DEV_ADMIN_HEADERS }),
   createDriver: (data) => axios.post(`${API_BASE_URL}/api/admin/drivers`, data, { headers: { ...DEV_ADMIN_HEADERS, 'Content-Type': 'application/json' } }),
   updateDriver: (id, data) => axios.put(`${API_BASE_URL}/api/admin/drivers/${id}`, data, { headers: { ...DEV_ADMIN_HEADERS, 'Content-Type': 'application/json' } }),
   deleteDriver: (id) => axios.delete(`${API_BASE_URL}/api/admin/drivers/${id}`, { headers: DEV_ADMIN_HEADERS }),
@@ -137,7 +151,7 @@ export const orgAdminAPI = {
   activateUser: (id) => axios.post(`${API_BASE_URL}/api/org/users/${id}/activate`, {}, { headers: ORG_ADMIN_HEADERS() }),
   deactivateUser: (id) => axios.post(`${API_BASE_URL}/api/org/users/${id}/deactivate`, {}, { headers: ORG_ADMIN_HEADERS() }),
   deleteUser: (id) => axios.delete(`${API_BASE_URL}/api/org/users/${id}`, { headers: ORG_ADMIN_HEADERS() }),
-  listShipments: () => axios.get(`${API_BASE_URL}/api/org/shipments`, { headers: ORG_ADMIN_HEADERS() }),
+  listShipments: () => getAllPages(`${API_BASE_URL}/api/org/shipments`, { headers: ORG_ADMIN_HEADERS() }),
   acceptShipment: (id, driverUserId) => axios.post(`${API_BASE_URL}/api/org/shipments/${id}/accept`, { driverUserId }, { headers: { ...ORG_ADMIN_HEADERS(), 'Content-Type': 'application/json' } }),
   rejectShipment: (id) => axios.post(`${API_BASE_URL}/api/org/shipments/${id}/reject`, {}, { headers: { ...ORG_ADMIN_HEADERS(), 'Content-Type': 'application/json' } }),
   listDrivers: () => axios.get(`${API_BASE_URL}/api/org/drivers`, { headers: ORG_ADMIN_HEADERS() }),
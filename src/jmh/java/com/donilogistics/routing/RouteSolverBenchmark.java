@@ -0,0 +1,41 @@
+package com.donilogistics.routing;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RouteSolverBenchmark {
+
+    @Param({"10", "50", "200"})
+    public int stops;
+
+    private RoutingProblem problem;
+    private final LocalSearchRouteSolver solver = new LocalSearchRouteSolver();
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(7);
+        int n = stops + 2;
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int i = 0; i < n; i++) {
+            lat[i] = 8.85 + rnd.nextDouble() * 0.3;
+            lon[i] = 38.65 + rnd.nextDouble() * 0.3;
+        }
+        problem = new RoutingProblem(DistanceMatrix.haversine(lat, lon, 40, 1.3), 0, n - 1);
+        for (int i = 1; i < n - 1; i++) {
+            problem.setDemand(i, 50 + rnd.nextInt(200), 0.1 + rnd.nextDouble());
+            problem.setServiceSeconds(i, 300);
+            if (i % 5 == 0) problem.setTimeWindow(i, 0, 3600 + rnd.nextInt(4 * 3600));
+        }
+    }
+
+    @Benchmark
+    public RoutingSolution solve() {
+        return solver.solve(problem, 2000);
+    }
+}
@@ -0,0 +1,29 @@
+package com.donilogistics.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+@Configuration
+@ConditionalOnProperty(name = "app.events.kafka.enabled", havingValue = "true")
+public class KafkaTopicsConfig {
+
+    @Value("${app.events.kafka.partitions:12}")
+    private int partitions;
+
+    @Value("${app.events.kafka.replicas:1}")
+    private int replicas;
+
+    @Bean
+    public NewTopic trackingLocationTopic(@Value("${app.events.kafka.location-topic:doni.tracking.location}") String name) {
+        return TopicBuilder.name(name).partitions(partitions).replicas(replicas).build();
+    }
+
+    @Bean
+    public NewTopic shipmentStatusTopic(@Value("${app.events.kafka.status-topic:doni.shipment.status}") String name) {
+        return TopicBuilder.name(name).partitions(partitions).replicas(replicas).build();
+    }
+}
@@ -1,15 +1,74 @@
 package com.donilogistics.config;
 
+import com.donilogistics.entity.User;
+import com.donilogistics.entity.UserRole;
+import io.jmix.core.DataManager;
+import io.jmix.core.security.SystemAuthenticator;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.security.Principal;
+import java.util.Map;
+import java.util.UUID;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private static final String DEV_ADMIN_BEARER = "Bearer dev-admin-token";
+    private static final String ORG_ADMIN_BEARER = "Bearer org-admin-token";
+    // The id AuthController hands out for the built-in admin login
+    private static final String DEV_ADMIN_USER_ID = "00000000-0000-0000-0000-000000000001";
+    private static final String PRINCIPAL_ATTRIBUTE = "doni.principal";
+    private static final String ORG_TOPIC_PREFIX = "/topic/org/";
+
+    /**
+     * The session user: the built-in admin, or an organization admin of {@link #getOrganizationId()}.
+     */
+    public static final class SessionPrincipal implements Principal {
+        private final String name;
+        private final UUID organizationId;
+        private final boolean devAdmin;
+
+        SessionPrincipal(String name, UUID organizationId, boolean devAdmin) {
+            this.name = name;
+            this.organizationId = organizationId;
+            this.devAdmin = devAdmin;
+        }
+
+        @Override
+        public String getName() { return name; }
+        public UUID getOrganizationId() { return organizationId; }
+        public boolean isDevAdmin() { return devAdmin; }
+    }
+
+    private final DataManager dataManager;
+    private final SystemAuthenticator systemAuthenticator;
+
+    public WebSocketConfig(DataManager dataManager, SystemAuthenticator systemAuthenticator) {
+        this.dataManager = dataManager;
+        this.systemAuthenticator = systemAuthenticator;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         // Enable simple broker for sending messages to clients
@@ -27,10 +86,107 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         // Register STOMP endpoints
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("*")
+                .setHandshakeHandler(new UserIdHandshakeHandler())
+                .addInterceptors(new TokenHandshakeInterceptor())
                 .withSockJS();
         
         // Register WebSocket endpoint without SockJS fallback
         registry.addEndpoint("/ws-websocket")
-                .setAllowedOriginPatterns("*");
+                .setAllowedOriginPatterns("*")
+                .setHandshakeHandler(new UserIdHandshakeHandler())
+                .addInterceptors(new TokenHandshakeInterceptor());
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(new SubscriptionAuthorizationInterceptor());
+    }
+
+    /**
+     * Checks the same static bearers as the REST controllers, from the Authorization header or a ?token=
+     * parameter (browsers cannot set headers on a WebSocket handshake). The dev admin token connects as the
+     * built-in admin; the org admin token also needs X-Admin-User-Id or ?adminUserId= naming an
+     * organization admin, who becomes the session user. Any other handshake is refused with 401.
+     */
+    class TokenHandshakeInterceptor implements HandshakeInterceptor {
+        @Override
+        public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response, WebSocketHandler wsHandler,
+                                       Map<String, Object> attributes) {
+            MultiValueMap<String, String> query = UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams();
+            String auth = request.getHeaders().getFirst("Authorization");
+            if (auth == null && query.getFirst("token") != null) auth = "Bearer " + query.getFirst("token");
+            String adminUserId = request.getHeaders().getFirst("X-Admin-User-Id");
+            if (adminUserId == null) adminUserId = query.getFirst("adminUserId");
+
+            SessionPrincipal principal = authenticate(auth, adminUserId);
+            if (principal == null) {
+                response.setStatusCode(HttpStatus.UNAUTHORIZED);
+                return false;
+            }
+            attributes.put(PRINCIPAL_ATTRIBUTE, principal);
+            return true;
+        }
+
+        @Override
+        public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response, WebSocketHandler wsHandler, Exception exception) {
+        }
+    }
+
+    private SessionPrincipal authenticate(String auth, String adminUserId) {
+        if (auth == null) return null;
+        String bearer = auth.trim();
+        if (bearer.equals(DEV_ADMIN_BEARER)) return new SessionPrincipal(DEV_ADMIN_USER_ID, null, true);
+        if (!bearer.equals(ORG_ADMIN_BEARER) || adminUserId == null || adminUserId.isBlank()) return null;
+        try {
+            UUID id = UUID.fromString(adminUserId.trim());
+            return systemAuthenticator.withSystem(() -> dataManager.load(User.class).id(id).optional())
+                    .filter(u -> u.getUserRole() == UserRole.ORGANIZATION_ADMIN && u.getOrganization() != null)
+                    .map(u -> new SessionPrincipal(u.getId().toString(), u.getOrganization().getId(), false))
+                    .orElse(null);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Names the session after the user {@link TokenHandshakeInterceptor} authenticated, so
+     * /user/queue/... destinations resolve to that user.
+     */
+    static class UserIdHandshakeHandler extends DefaultHandshakeHandler {
+        @Override
+        protected Principal determineUser(ServerHttpRequest request, WebSocketHandler wsHandler, Map<String, Object> attributes) {
+            Object principal = attributes.get(PRINCIPAL_ATTRIBUTE);
+            if (principal instanceof SessionPrincipal user) return user;
+            return super.determineUser(request, wsHandler, attributes);
+        }
+    }
+
+    /**
+     * LivePushService sends every organization's traffic to the global /topic/... destinations, so only
+     * the dev admin may subscribe to those or to raw /queue/... destinations. An organization admin gets
+     * /topic/org/{own organization id}/... and their own /user/... queues. A refused SUBSCRIBE ends the
+     * session with an ERROR frame.
+     */
+    static class SubscriptionAuthorizationInterceptor implements ChannelInterceptor {
+        @Override
+        public Message<?> preSend(Message<?> message, MessageChannel channel) {
+            StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+            if (accessor == null || accessor.getCommand() != StompCommand.SUBSCRIBE) return message;
+            String destination = accessor.getDestination();
+            if (!(accessor.getUser() instanceof SessionPrincipal user) || destination == null || !canSubscribe(user, destination)) {
+                throw new MessageDeliveryException(message, "Not allowed to subscribe to " + destination);
+            }
+            return message;
+        }
+
+        static boolean canSubscribe(SessionPrincipal user, String destination) {
+            if (user.isDevAdmin()) return true;
+            if (destination.startsWith("/user/")) return true;
+            if (!destination.startsWith(ORG_TOPIC_PREFIX) || user.getOrganizationId() == null) return false;
+            String rest = destination.substring(ORG_TOPIC_PREFIX.length());
+            int slash = rest.indexOf('/');
+            String orgId = slash < 0 ? rest : rest.substring(0, slash);
+            return orgId.equals(user.getOrganizationId().toString());
+        }
     }
 }
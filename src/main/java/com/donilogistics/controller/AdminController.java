@@ -7,6 +7,7 @@ import com.donilogistics.entity.User;
 import com.donilogistics.entity.UserRole;
 import com.donilogistics.entity.DriverProfile;
 import io.jmix.core.DataManager;
+import io.jmix.core.FetchPlan;
 import io.jmix.core.FileRef;
 import io.jmix.core.FileStorage;
 import io.jmix.core.FileStorageLocator;
@@ -21,7 +22,25 @@ import com.donilogistics.entity.NotificationChannel;
 import com.donilogistics.entity.NotificationType;
 import com.donilogistics.service.NotificationService;
 import com.donilogistics.service.ConsolidationService;
+import com.donilogistics.service.EmailOutboxDispatcher;
+import com.donilogistics.service.EtaService;
 import com.donilogistics.service.GraphHopperService;
+import com.donilogistics.service.FleetLocationIndex;
+import com.donilogistics.service.GeofenceService;
+import com.donilogistics.service.GpsPing;
+import com.donilogistics.service.ListingService;
+import com.donilogistics.service.OffRouteService;
+import com.donilogistics.service.LivePushService;
+import com.donilogistics.service.ProximityQueryService;
+import com.donilogistics.service.PublicTrackingCache;
+import com.donilogistics.service.RetentionService;
+import com.donilogistics.service.ShipmentQueryService;
+import com.donilogistics.service.TrackingNumberFilter;
+import com.donilogistics.service.ViewportStreamService;
+import com.donilogistics.ratelimit.RateLimitFilter;
+import com.donilogistics.trackstore.TrackStore;
+import com.donilogistics.events.ShipmentStatusChange;
+import com.donilogistics.events.TrackingEventBus;
 
 import java.io.InputStream;
 import java.util.*;
@@ -31,9 +50,10 @@ import jakarta.persistence.PersistenceContext;
 
 @RestController
 @RequestMapping("/api/admin")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = AdminController.NEXT_CURSOR_HEADER)
 public class AdminController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
     private static final String DEV_ADMIN_BEARER = "Bearer dev-admin-token";
     private static final Logger log = LoggerFactory.getLogger(AdminController.class);
 
@@ -45,8 +65,24 @@ public class AdminController {
     private final ConsolidationService consolidationService;
     private final PasswordEncoder passwordEncoder;
     private final GraphHopperService graphHopperService;
-
-    public AdminController(DataManager dataManager, SystemAuthenticator systemAuthenticator, FileStorageLocator fileStorageLocator, NotificationService notificationService, ConsolidationService consolidationService, PasswordEncoder passwordEncoder, GraphHopperService graphHopperService) {
+    private final TrackingEventBus trackingEventBus;
+    private final FleetLocationIndex fleetLocationIndex;
+    private final ProximityQueryService proximityQueryService;
+    private final ShipmentQueryService shipmentQueryService;
+    private final ListingService listingService;
+    private final LivePushService livePushService;
+    private final ViewportStreamService viewportStreamService;
+    private final EmailOutboxDispatcher emailOutboxDispatcher;
+    private final RetentionService retentionService;
+    private final GeofenceService geofenceService;
+    private final TrackStore trackStore;
+    private final EtaService etaService;
+    private final OffRouteService offRouteService;
+    private final PublicTrackingCache publicTrackingCache;
+    private final TrackingNumberFilter trackingNumberFilter;
+    private final RateLimitFilter rateLimitFilter;
+
+    public AdminController(DataManager dataManager, SystemAuthenticator systemAuthenticator, FileStorageLocator fileStorageLocator, NotificationService notificationService, ConsolidationService consolidationService, PasswordEncoder passwordEncoder, GraphHopperService graphHopperService, TrackingEventBus trackingEventBus, FleetLocationIndex fleetLocationIndex, ProximityQueryService proximityQueryService, ShipmentQueryService shipmentQueryService, ListingService listingService, LivePushService livePushService, ViewportStreamService viewportStreamService, EmailOutboxDispatcher emailOutboxDispatcher, RetentionService retentionService, GeofenceService geofenceService, TrackStore trackStore, EtaService etaService, OffRouteService offRouteService, PublicTrackingCache publicTrackingCache, TrackingNumberFilter trackingNumberFilter, RateLimitFilter rateLimitFilter) {
         this.dataManager = dataManager;
         this.systemAuthenticator = systemAuthenticator;
         this.fileStorageLocator = fileStorageLocator;
@@ -54,22 +90,106 @@ public class AdminController {
         this.consolidationService = consolidationService;
         this.passwordEncoder = passwordEncoder;
         this.graphHopperService = graphHopperService;
+        this.trackingEventBus = trackingEventBus;
+        this.fleetLocationIndex = fleetLocationIndex;
+        this.proximityQueryService = proximityQueryService;
+        this.shipmentQueryService = shipmentQueryService;
+        this.listingService = listingService;
+        this.livePushService = livePushService;
+        this.viewportStreamService = viewportStreamService;
+        this.emailOutboxDispatcher = emailOutboxDispatcher;
+        this.retentionService = retentionService;
+        this.geofenceService = geofenceService;
+        this.trackStore = trackStore;
+        this.etaService = etaService;
+        this.offRouteService = offRouteService;
+        this.publicTrackingCache = publicTrackingCache;
+        this.trackingNumberFilter = trackingNumberFilter;
+        this.rateLimitFilter = rateLimitFilter;
     }
 
     @PersistenceContext
     private EntityManager entityManager;
 
+    // List endpoints: whitelisted sorts and the references each DTO touches, loaded with the page
+    private static final ListingService.Spec<com.donilogistics.entity.Warehouse> WAREHOUSE_LISTING =
+            ListingService.Spec.of(com.donilogistics.entity.Warehouse.class)
+                    .sortable("name", "code", "createdAt").defaultSort("name")
+                    .fetchPlan(fp -> fp.addFetchPlan(FetchPlan.BASE).add("organization", FetchPlan.BASE));
+    private static final ListingService.Spec<Vehicle> VEHICLE_LISTING =
+            ListingService.Spec.of(Vehicle.class)
+                    .sortable("licensePlate", "createdDate").defaultSort("licensePlate")
+                    .fetchPlan(fp -> fp.addFetchPlan(FetchPlan.BASE)
+                            .add("organization", FetchPlan.BASE)
+                            .add("assignedDriver", FetchPlan.BASE));
+    private static final ListingService.Spec<com.donilogistics.entity.Notification> NOTIFICATION_LISTING =
+            ListingService.Spec.of(com.donilogistics.entity.Notification.class)
+                    .sortable("createdAt").defaultSort("-createdAt")
+                    .fetchPlan(fp -> fp.addFetchPlan(FetchPlan.BASE)
+                            .add("recipient", FetchPlan.BASE)
+                            .add("shipment", FetchPlan.BASE)
+                            .add("organization", FetchPlan.BASE));
+    private static final ListingService.Spec<com.donilogistics.entity.Container> CONTAINER_LISTING =
+            ListingService.Spec.of(com.donilogistics.entity.Container.class)
+                    .sortable("containerNumber", "createdAt").defaultSort("containerNumber")
+                    .fetchPlan(fp -> fp.addFetchPlan(FetchPlan.BASE)
+                            .add("organization", FetchPlan.BASE)
+                            .add("currentWarehouse", FetchPlan.BASE));
+    private static final ListingService.Spec<DriverProfile> DRIVER_LISTING =
+            ListingService.Spec.of(DriverProfile.class)
+                    .sortable("lastSeen", "hiredDate", "drivingLicenseNumber").defaultSort("-lastSeen")
+                    .fetchPlan(fp -> fp.addFetchPlan(FetchPlan.BASE)
+                            .add("user", FetchPlan.BASE)
+                            .add("organization", FetchPlan.BASE));
+    private static final ListingService.Spec<Organization> ORGANIZATION_LISTING =
+            ListingService.Spec.of(Organization.class)
+                    .sortable("name", "code", "createdDate").defaultSort("name");
+    private static final ListingService.Spec<User> USER_LISTING =
+            ListingService.Spec.of(User.class)
+                    .sortable("username", "email").defaultSort("username")
+                    .fetchPlan(fp -> fp.addFetchPlan(FetchPlan.BASE).add("organization", FetchPlan.BASE));
+    private static final ListingService.Spec<com.donilogistics.entity.Address> ADDRESS_LISTING =
+            ListingService.Spec.of(com.donilogistics.entity.Address.class)
+                    .sortable("city", "name").defaultSort("city")
+                    .fetchPlan(fp -> fp.addFetchPlan(FetchPlan.BASE).add("organization", FetchPlan.BASE));
+    private static final ListingService.Spec<com.donilogistics.entity.Consolidation> CONSOLIDATION_LISTING =
+            ListingService.Spec.of(com.donilogistics.entity.Consolidation.class)
+                    .sortable("createdAt", "plannedDepartureTime").defaultSort("-createdAt")
+                    .fetchPlan(fp -> fp.addFetchPlan(FetchPlan.BASE)
+                            .add("originWarehouse", FetchPlan.BASE)
+                            .add("destWarehouse", FetchPlan.BASE)
+                            .add("organization", FetchPlan.BASE));
+
     private boolean isDevAdmin(String authHeader) {
         return authHeader != null && authHeader.trim().equals(DEV_ADMIN_BEARER);
     }
 
+    // One page of entities mapped to DTOs; the next page's cursor goes in the X-Next-Cursor header
+    private <E> ResponseEntity<?> listPage(ListingService.Spec<E> spec, ListingService.Criteria criteria,
+                                           String sort, String cursor, int limit,
+                                           java.util.function.Function<E, Map<String, Object>> toDto) {
+        ListingService.Page<E> page;
+        try {
+            page = listingService.list(spec, criteria, sort, cursor, limit);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+        if (page.getNextCursor() != null) ok.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        return ok.body(page.getItems().stream().map(toDto).collect(Collectors.toList()));
+    }
+
     // ===== Warehouses =====
     @GetMapping("/warehouses")
-    public ResponseEntity<?> listWarehouses(@RequestHeader(value = "Authorization", required = false) String auth) {
+    public ResponseEntity<?> listWarehouses(@RequestHeader(value = "Authorization", required = false) String auth,
+                                            @RequestParam(value = "organizationId", required = false) UUID organizationId,
+                                            @RequestParam(value = "sort", required = false) String sort,
+                                            @RequestParam(value = "cursor", required = false) String cursor,
+                                            @RequestParam(value = "limit", defaultValue = "100") int limit) {
         if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
         return systemAuthenticator.withSystem(() -> {
-            List<com.donilogistics.entity.Warehouse> warehouses = dataManager.load(com.donilogistics.entity.Warehouse.class).all().list();
-            List<Map<String, Object>> dto = warehouses.stream().map(w -> {
+            ListingService.Criteria criteria = new ListingService.Criteria().eq("organization.id", organizationId);
+            return listPage(WAREHOUSE_LISTING, criteria, sort, cursor, limit, w -> {
                 Map<String, Object> m = new HashMap<>();
                 m.put("id", w.getId());
                 m.put("name", w.getName());
@@ -90,8 +210,7 @@ public class AdminController {
                 m.put("contactPhone", w.getContactPhone());
                 if (w.getOrganization() != null) m.put("organization", Map.of("id", w.getOrganization().getId(), "name", w.getOrganization().getName()));
                 return m;
-            }).collect(Collectors.toList());
-            return ResponseEntity.ok(dto);
+            });
         });
     }
 
@@ -198,11 +317,15 @@ public class AdminController {
 
     // ===== Vehicles =====
     @GetMapping("/vehicles")
-    public ResponseEntity<?> listVehicles(@RequestHeader(value = "Authorization", required = false) String auth) {
+    public ResponseEntity<?> listVehicles(@RequestHeader(value = "Authorization", required = false) String auth,
+                                          @RequestParam(value = "organizationId", required = false) UUID organizationId,
+                                          @RequestParam(value = "sort", required = false) String sort,
+                                          @RequestParam(value = "cursor", required = false) String cursor,
+                                          @RequestParam(value = "limit", defaultValue = "100") int limit) {
         if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
         return systemAuthenticator.withSystem(() -> {
-            List<Vehicle> vehicles = dataManager.load(Vehicle.class).all().list();
-            List<Map<String, Object>> dto = vehicles.stream().map(v -> {
+            ListingService.Criteria criteria = new ListingService.Criteria().eq("organization.id", organizationId);
+            return listPage(VEHICLE_LISTING, criteria, sort, cursor, limit, v -> {
                 Map<String, Object> m = new HashMap<>();
                 m.put("id", v.getId());
                 m.put("licensePlate", v.getLicensePlate());
@@ -231,8 +354,7 @@ public class AdminController {
                     m.put("assignedDriver", Map.of("id", v.getAssignedDriver().getId(), "username", v.getAssignedDriver().getUsername()));
                 }
                 return m;
-            }).collect(Collectors.toList());
-            return ResponseEntity.ok(dto);
+            });
         });
     }
 
@@ -271,6 +393,7 @@ public class AdminController {
             // FileRefs
             setVehicleFileRefsFromBody(v, body);
             Vehicle saved = dataManager.save(v);
+            fleetLocationIndex.upsertVehicle(saved);
             return ResponseEntity.ok(Map.of("id", saved.getId()));
         });
     }
@@ -320,7 +443,7 @@ public class AdminController {
             }
             // FileRefs
             setVehicleFileRefsFromBody(v, body);
-            dataManager.save(v);
+            fleetLocationIndex.upsertVehicle(dataManager.save(v));
             return ResponseEntity.ok(Map.of("success", true));
         });
     }
@@ -331,6 +454,7 @@ public class AdminController {
         if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
         return systemAuthenticator.withSystem(() -> {
             dataManager.remove(Id.of(id, Vehicle.class));
+            fleetLocationIndex.removeVehicle(id);
             return ResponseEntity.ok(Map.of("success", true));
         });
     }
@@ -448,24 +572,47 @@ public class AdminController {
         }
     }
 
+    @PostMapping(value = "/notifications/bulk", consumes = "application/json", produces = "application/json")
+    public ResponseEntity<?> sendBulkNotification(@RequestHeader(value = "Authorization", required = false) String auth,
+                                                  @RequestBody Map<String, Object> body) {
+        if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+        try {
+            UUID shipmentId = body.get("shipmentId") != null && !Objects.toString(body.get("shipmentId")).isBlank()
+                    ? java.util.UUID.fromString(Objects.toString(body.get("shipmentId"))) : null;
+            UUID orgId = body.get("organizationId") != null && !Objects.toString(body.get("organizationId")).isBlank()
+                    ? java.util.UUID.fromString(Objects.toString(body.get("organizationId"))) : null;
+            String title = Objects.toString(body.getOrDefault("title", ""));
+            String message = Objects.toString(body.getOrDefault("message", ""));
+            NotificationType type = NotificationType.valueOf(Objects.toString(body.getOrDefault("type", "GENERAL")));
+            NotificationChannel channel = NotificationChannel.valueOf(Objects.toString(body.getOrDefault("channel", "IN_APP")));
+            Map<UUID, UUID> sent;
+            if (body.get("recipientUserIds") instanceof List<?> raw) {
+                List<UUID> recipients = new ArrayList<>();
+                for (Object r : raw) recipients.add(UUID.fromString(Objects.toString(r)));
+                sent = notificationService.notifyUsers(recipients, title, message, type, channel, shipmentId, orgId);
+            } else if (orgId != null) {
+                // No explicit recipients: alert every active user of the organization
+                sent = notificationService.notifyOrganization(orgId, title, message, type, channel, shipmentId);
+            } else {
+                return ResponseEntity.badRequest().body(Map.of("error", "recipientUserIds or organizationId required"));
+            }
+            return ResponseEntity.ok(Map.of("sent", sent.size(), "ids", sent));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     // ===== Notifications =====
     @GetMapping("/notifications")
     public ResponseEntity<?> listNotifications(@RequestHeader(value = "Authorization", required = false) String auth,
-                                               @RequestParam(value = "recipientUserId", required = false) UUID recipientUserId) {
+                                               @RequestParam(value = "recipientUserId", required = false) UUID recipientUserId,
+                                               @RequestParam(value = "sort", required = false) String sort,
+                                               @RequestParam(value = "cursor", required = false) String cursor,
+                                               @RequestParam(value = "limit", defaultValue = "100") int limit) {
         if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
         return systemAuthenticator.withSystem(() -> {
-            List<com.donilogistics.entity.Notification> list;
-            if (recipientUserId != null) {
-                list = dataManager.load(com.donilogistics.entity.Notification.class)
-                        .query("select n from Notification n where n.recipient.id = :rid order by n.createdAt desc")
-                        .parameter("rid", recipientUserId)
-                        .list();
-            } else {
-                list = dataManager.load(com.donilogistics.entity.Notification.class)
-                        .query("select n from Notification n order by n.createdAt desc")
-                        .list();
-            }
-            List<Map<String, Object>> dto = list.stream().map(n -> {
+            ListingService.Criteria criteria = new ListingService.Criteria().eq("recipient.id", recipientUserId);
+            return listPage(NOTIFICATION_LISTING, criteria, sort, cursor, limit, n -> {
                 Map<String, Object> m = new HashMap<>();
                 m.put("id", n.getId());
                 m.put("title", n.getTitle());
@@ -479,18 +626,28 @@ public class AdminController {
                 if (n.getShipment() != null) m.put("shipment", Map.of("id", n.getShipment().getId(), "trackingNumber", n.getShipment().getTrackingNumber()));
                 if (n.getOrganization() != null) m.put("organization", Map.of("id", n.getOrganization().getId(), "name", n.getOrganization().getName()));
                 return m;
-            }).collect(Collectors.toList());
-            return ResponseEntity.ok(dto);
+            });
         });
     }
 
+    @GetMapping("/notifications/unread")
+    public ResponseEntity<?> unreadNotificationCounts(@RequestHeader(value = "Authorization", required = false) String auth,
+                                                      @RequestParam("recipientUserId") UUID recipientUserId) {
+        if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+        return ResponseEntity.ok(notificationService.unreadCounts(recipientUserId));
+    }
+
     // ===== Containers =====
     @GetMapping("/containers")
-    public ResponseEntity<?> listContainers(@RequestHeader(value = "Authorization", required = false) String auth) {
+    public ResponseEntity<?> listContainers(@RequestHeader(value = "Authorization", required = false) String auth,
+                                            @RequestParam(value = "organizationId", required = false) UUID organizationId,
+                                            @RequestParam(value = "sort", required = false) String sort,
+                                            @RequestParam(value = "cursor", required = false) String cursor,
+                                            @RequestParam(value = "limit", defaultValue = "100") int limit) {
         if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
         return systemAuthenticator.withSystem(() -> {
-            List<com.donilogistics.entity.Container> containers = dataManager.load(com.donilogistics.entity.Container.class).all().list();
-            List<Map<String, Object>> dto = containers.stream().map(c -> {
+            ListingService.Criteria criteria = new ListingService.Criteria().eq("organization.id", organizationId);
+            return listPage(CONTAINER_LISTING, criteria, sort, cursor, limit, c -> {
                 Map<String, Object> m = new HashMap<>();
                 m.put("id", c.getId());
                 m.put("containerNumber", c.getContainerNumber());
@@ -507,8 +664,7 @@ public class AdminController {
                 if (c.getOrganization() != null) m.put("organization", Map.of("id", c.getOrganization().getId(), "name", c.getOrganization().getName()));
                 if (c.getCurrentWarehouse() != null) m.put("currentWarehouse", Map.of("id", c.getCurrentWarehouse().getId(), "name", c.getCurrentWarehouse().getName()));
                 return m;
-            }).collect(Collectors.toList());
-            return ResponseEntity.ok(dto);
+            });
         });
     }
 
@@ -530,10 +686,25 @@ public class AdminController {
             com.donilogistics.entity.DriverProfile d = dataManager.load(com.donilogistics.entity.DriverProfile.class).id(driverId).optional().orElse(null);
             if (d == null) return ResponseEntity.status(404).body(Map.of("error", "driver not found"));
             try {
+                if (body.get("latitude") != null && body.get("longitude") != null) {
+                    // Full fixes go through the event bus; persistence to TrackingEvent history happens downstream
+                    GpsPing ping = new GpsPing(null, driverId,
+                            Double.parseDouble(Objects.toString(body.get("latitude"))),
+                            Double.parseDouble(Objects.toString(body.get("longitude"))),
+                            java.time.LocalDateTime.now(), com.donilogistics.entity.TrackingSource.DRIVER_APP);
+                    if (!ping.isValid()) return ResponseEntity.badRequest().body(Map.of("error", "invalid coordinates"));
+                    ping.organizationId = d.getOrganization() != null ? d.getOrganization().getId() : null;
+                    if (!trackingEventBus.publishLocation(ping)) {
+                        return ResponseEntity.status(503).header("Retry-After", "1").body(Map.of("error", "tracking event queue full"));
+                    }
+                    return ResponseEntity.ok(Map.of("success", true));
+                }
                 if (body.get("latitude") != null) d.setCurrentLatitude(new java.math.BigDecimal(Objects.toString(body.get("latitude"))));
                 if (body.get("longitude") != null) d.setCurrentLongitude(new java.math.BigDecimal(Objects.toString(body.get("longitude"))));
                 d.setLastSeen(java.time.LocalDateTime.now());
-                dataManager.save(d);
+                DriverProfile saved = dataManager.save(d);
+                fleetLocationIndex.upsertDriver(saved);
+                livePushService.pushDriver(saved);
                 return ResponseEntity.ok(Map.of("success", true));
             } catch (Exception e) {
                 return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -616,11 +787,18 @@ public class AdminController {
 
     // ===== Driver Profiles =====
     @GetMapping("/drivers")
-    public ResponseEntity<?> listDrivers(@RequestHeader(value = "Authorization", required = false) String auth) {
+    public ResponseEntity<?> listDrivers(@RequestHeader(value = "Authorization", required = false) String auth,
+                                         @RequestParam(value = "organizationId", required = false) UUID organizationId,
+                                         @RequestParam(value = "active", required = false) Boolean active,
+                                         @RequestParam(value = "sort", required = false) String sort,
+                                         @RequestParam(value = "cursor", required = false) String cursor,
+                                         @RequestParam(value = "limit", defaultValue = "100") int limit) {
         if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
         return systemAuthenticator.withSystem(() -> {
-            List<DriverProfile> drivers = dataManager.load(DriverProfile.class).all().list();
-            List<Map<String, Object>> dto = drivers.stream().map(d -> {
+            ListingService.Criteria criteria = new ListingService.Criteria()
+                    .eq("organization.id", organizationId)
+                    .eq("active", active);
+            return listPage(DRIVER_LISTING, criteria, sort, cursor, limit, d -> {
                 Map<String, Object> m = new HashMap<>();
                 m.put("id", d.getId());
                 m.put("bloodType", d.getBloodType());
@@ -639,8 +817,7 @@ public class AdminController {
                 if (d.getUser() != null) m.put("user", Map.of("id", d.getUser().getId(), "username", d.getUser().getUsername(), "email", d.getUser().getEmail()));
                 if (d.getOrganization() != null) m.put("organization", Map.of("id", d.getOrganization().getId(), "name", d.getOrganization().getName()));
                 return m;
-            }).collect(Collectors.toList());
-            return ResponseEntity.ok(dto);
+            });
         });
     }
 
@@ -664,6 +841,8 @@ public class AdminController {
             // FileRefs
             setDriverFileRefsFromBody(d, body);
             DriverProfile saved = dataManager.save(d);
+            fleetLocationIndex.upsertDriver(saved);
+            livePushService.pushDriver(saved);
             return ResponseEntity.ok(Map.of("id", saved.getId()));
         });
     }
@@ -692,7 +871,9 @@ public class AdminController {
             if (body.containsKey("active")) d.setActive(Boolean.valueOf(Objects.toString(body.get("active"))));
             // FileRefs
             setDriverFileRefsFromBody(d, body);
-            dataManager.save(d);
+            DriverProfile saved = dataManager.save(d);
+            fleetLocationIndex.upsertDriver(saved);
+            livePushService.pushDriver(saved);
             return ResponseEntity.ok(Map.of("success", true));
         });
     }
@@ -703,16 +884,21 @@ public class AdminController {
         if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
         return systemAuthenticator.withSystem(() -> {
             dataManager.remove(Id.of(id, DriverProfile.class));
+            fleetLocationIndex.removeDriver(id);
             return ResponseEntity.ok(Map.of("success", true));
         });
     }
 
     @GetMapping("/organizations")
-    public ResponseEntity<?> listOrganizations(@RequestHeader(value = "Authorization", required = false) String auth) {
+    public ResponseEntity<?> listOrganizations(@RequestHeader(value = "Authorization", required = false) String auth,
+                                               @RequestParam(value = "active", required = false) Boolean active,
+                                               @RequestParam(value = "sort", required = false) String sort,
+                                               @RequestParam(value = "cursor", required = false) String cursor,
+                                               @RequestParam(value = "limit", defaultValue = "100") int limit) {
         if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
         return systemAuthenticator.withSystem(() -> {
-            List<Organization> orgs = dataManager.load(Organization.class).all().list();
-            List<Map<String, Object>> dto = orgs.stream().map(o -> {
+            ListingService.Criteria criteria = new ListingService.Criteria().eq("active", active);
+            return listPage(ORGANIZATION_LISTING, criteria, sort, cursor, limit, o -> {
                 Map<String, Object> m = new HashMap<>();
                 m.put("id", o.getId());
                 m.put("name", o.getName());
@@ -726,8 +912,7 @@ public class AdminController {
                 m.put("businessLicenseNumber", o.getBusinessLicenseNumber());
                 m.put("registrationDocument", o.getRegistrationDocument());
                 return m;
-            }).collect(Collectors.toList());
-            return ResponseEntity.ok(dto);
+            });
         });
     }
 
@@ -735,8 +920,8 @@ public class AdminController {
     public ResponseEntity<?> metrics(@RequestHeader(value = "Authorization", required = false) String auth) {
         if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
         return systemAuthenticator.withSystem(() -> {
-            long orgs = dataManager.load(Organization.class).all().list().size();
-            long users = dataManager.load(User.class).all().list().size();
+            long orgs = dataManager.loadValue("select count(o) from Organization o", Long.class).one();
+            long users = dataManager.loadValue("select count(u) from User u", Long.class).one();
             Map<String, Object> m = new HashMap<>();
             m.put("organizations", orgs);
             m.put("users", users);
@@ -802,11 +987,15 @@ public class AdminController {
     }
 
     @GetMapping("/users")
-    public ResponseEntity<?> listUsers(@RequestHeader(value = "Authorization", required = false) String auth) {
+    public ResponseEntity<?> listUsers(@RequestHeader(value = "Authorization", required = false) String auth,
+                                       @RequestParam(value = "organizationId", required = false) UUID organizationId,
+                                       @RequestParam(value = "sort", required = false) String sort,
+                                       @RequestParam(value = "cursor", required = false) String cursor,
+                                       @RequestParam(value = "limit", defaultValue = "100") int limit) {
         if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
         return systemAuthenticator.withSystem(() -> {
-            List<User> users = dataManager.load(User.class).all().list();
-            List<Map<String, Object>> dto = users.stream().map(u -> {
+            ListingService.Criteria criteria = new ListingService.Criteria().eq("organization.id", organizationId);
+            return listPage(USER_LISTING, criteria, sort, cursor, limit, u -> {
                 Map<String, Object> m = new HashMap<>();
                 m.put("id", u.getId());
                 m.put("username", u.getUsername());
@@ -817,8 +1006,7 @@ public class AdminController {
                     m.put("organization", Map.of("id", u.getOrganization().getId(), "name", u.getOrganization().getName()));
                 }
                 return m;
-            }).collect(Collectors.toList());
-            return ResponseEntity.ok(dto);
+            });
         });
     }
 
@@ -880,6 +1068,7 @@ public class AdminController {
                 if (org != null) d.setOrganization(org);
                 d.setActive(true);
                 d = dataManager.save(d);
+                livePushService.pushDriver(d);
 
                 Map<String, Object> res = new HashMap<>();
                 res.put("userId", user.getId());
@@ -950,11 +1139,35 @@ public class AdminController {
 
     // ===== Shipments =====
     @GetMapping("/shipments")
-    public ResponseEntity<?> listShipments(@RequestHeader(value = "Authorization", required = false) String auth) {
+    public ResponseEntity<?> listShipments(@RequestHeader(value = "Authorization", required = false) String auth,
+                                           @RequestParam(value = "status", required = false) String status,
+                                           @RequestParam(value = "customerId", required = false) UUID customerId,
+                                           @RequestParam(value = "assignedDriverId", required = false) UUID assignedDriverId,
+                                           @RequestParam(value = "createdFrom", required = false) String createdFrom,
+                                           @RequestParam(value = "createdTo", required = false) String createdTo,
+                                           @RequestParam(value = "sort", required = false) String sort,
+                                           @RequestParam(value = "cursor", required = false) String cursor,
+                                           @RequestParam(value = "limit", defaultValue = "100") int limit) {
         if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+        ShipmentQueryService.Filter filter = new ShipmentQueryService.Filter();
+        try {
+            filter.statuses = ShipmentQueryService.parseStatuses(status);
+            filter.createdFrom = ShipmentQueryService.parseDateTime(createdFrom, false);
+            filter.createdTo = ShipmentQueryService.parseDateTime(createdTo, true);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        filter.customerId = customerId;
+        filter.assignedDriverId = assignedDriverId;
         return systemAuthenticator.withSystem(() -> {
-            List<com.donilogistics.entity.Shipment> shipments = dataManager.load(com.donilogistics.entity.Shipment.class).all().list();
-            log.info("GET /api/admin/shipments -> {} records", shipments.size());
+            ListingService.Page<com.donilogistics.entity.Shipment> page;
+            try {
+                page = shipmentQueryService.list(filter, sort, cursor, limit);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+            List<com.donilogistics.entity.Shipment> shipments = page.getItems();
+            log.debug("GET /api/admin/shipments -> {} records", shipments.size());
             List<Map<String, Object>> dto = shipments.stream().map(s -> {
                 Map<String, Object> m = new HashMap<>();
                 m.put("id", s.getId());
@@ -979,10 +1192,65 @@ public class AdminController {
                 ));
                 return m;
             }).collect(Collectors.toList());
-            return ResponseEntity.ok(dto);
+            ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+            if (page.getNextCursor() != null) ok.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+            return ok.body(dto);
         });
     }
 
+    // Shipments whose delivery (or pickup, by=pickup) address is within radiusKm of (lat, lon)
+    @GetMapping("/shipments/near")
+    public ResponseEntity<?> shipmentsNear(@RequestHeader(value = "Authorization", required = false) String auth,
+                                           @RequestParam("lat") double lat,
+                                           @RequestParam("lon") double lon,
+                                           @RequestParam(value = "radiusKm", defaultValue = "10") double radiusKm,
+                                           @RequestParam(value = "by", defaultValue = "delivery") String by,
+                                           @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+        if (lat < -90 || lat > 90 || lon < -180 || lon > 180 || radiusKm <= 0) return ResponseEntity.badRequest().body(Map.of("error", "invalid coordinates or radius"));
+        boolean byPickup = by.equalsIgnoreCase("pickup");
+        List<Map<String, Object>> dto = proximityQueryService.findShipmentsNear(lat, lon, radiusKm, byPickup, Math.max(1, Math.min(limit, 1000))).stream().map(h -> {
+            com.donilogistics.entity.Shipment s = h.getEntity();
+            com.donilogistics.entity.Address a = byPickup ? s.getPickupAddress() : s.getDeliveryAddress();
+            Map<String, Object> m = new HashMap<>();
+            m.put("id", s.getId());
+            m.put("trackingNumber", s.getTrackingNumber());
+            m.put("status", s.getStatus() != null ? s.getStatus().name() : null);
+            m.put("weightKg", s.getWeightKg());
+            m.put("distanceMeters", Math.round(h.getDistanceMeters()));
+            Map<String, Object> addr = new HashMap<>();
+            addr.put("id", a.getId());
+            addr.put("city", a.getCity());
+            addr.put("latitude", a.getLatitude());
+            addr.put("longitude", a.getLongitude());
+            m.put(byPickup ? "pickupAddress" : "deliveryAddress", addr);
+            return m;
+        }).collect(Collectors.toList());
+        return ResponseEntity.ok(dto);
+    }
+
+    @GetMapping("/warehouses/near")
+    public ResponseEntity<?> warehousesNear(@RequestHeader(value = "Authorization", required = false) String auth,
+                                            @RequestParam("lat") double lat,
+                                            @RequestParam("lon") double lon,
+                                            @RequestParam(value = "radiusKm", defaultValue = "25") double radiusKm,
+                                            @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+        if (lat < -90 || lat > 90 || lon < -180 || lon > 180 || radiusKm <= 0) return ResponseEntity.badRequest().body(Map.of("error", "invalid coordinates or radius"));
+        List<Map<String, Object>> dto = proximityQueryService.findWarehousesNear(lat, lon, radiusKm, Math.max(1, Math.min(limit, 1000))).stream().map(h -> {
+            com.donilogistics.entity.Warehouse w = h.getEntity();
+            Map<String, Object> m = new HashMap<>();
+            m.put("id", w.getId());
+            m.put("name", w.getName());
+            m.put("code", w.getCode());
+            m.put("latitude", w.getLatitude());
+            m.put("longitude", w.getLongitude());
+            m.put("distanceMeters", Math.round(h.getDistanceMeters()));
+            return m;
+        }).collect(Collectors.toList());
+        return ResponseEntity.ok(dto);
+    }
+
     // Assign shipment to a driver (accept)
     @PostMapping(value = "/shipments/{id}/accept", consumes = "application/json", produces = "application/json")
     public ResponseEntity<?> acceptShipment(@RequestHeader(value = "Authorization", required = false) String auth,
@@ -1112,17 +1380,8 @@ public class AdminController {
                 response.put("commodityType", saved.getCommodityType());
                 response.put("weightKg", saved.getWeightKg());
                 response.put("createdAt", saved.getCreatedAt());
-                // fire a notification to org admins / warehouse managers if available
-                try {
-                    UUID orgId = saved.getCustomer() != null ? saved.getCustomer().getId() : null;
-                    notificationService.notifyUser(null,
-                            "New shipment created",
-                            "Shipment " + (saved.getTrackingNumber() != null ? saved.getTrackingNumber() : "") + " has been created.",
-                            NotificationType.SHIPMENT_STATUS,
-                            NotificationChannel.IN_APP,
-                            saved.getId(),
-                            orgId);
-                } catch (Exception ignored) {}
+                // notification to org admins / warehouse managers is raised by the bus consumers
+                trackingEventBus.publishStatusChange(ShipmentStatusChange.of(saved, null));
                 return ResponseEntity.ok(response);
             } catch (Exception e) {
                 log.error("Failed to create shipment", e);
@@ -1152,9 +1411,11 @@ public class AdminController {
             if (body.get("consolidationPriority") != null) try { s.setConsolidationPriority(Integer.valueOf(body.get("consolidationPriority").toString())); } catch (Exception ignored) {}
             if (body.get("ecoMode") != null) s.setEcoMode(com.donilogistics.entity.EcoMode.valueOf(Objects.toString(body.get("ecoMode"))));
             if (body.get("routingPreferences") != null) s.setRoutingPreferences(Objects.toString(body.get("routingPreferences"), ""));
+            com.donilogistics.entity.ShipmentStatus previousStatus = s.getStatus();
             if (body.get("status") != null) s.setStatus(com.donilogistics.entity.ShipmentStatus.valueOf(Objects.toString(body.get("status"))));
             
-            dataManager.save(s);
+            com.donilogistics.entity.Shipment saved = dataManager.save(s);
+            if (saved.getStatus() != previousStatus) trackingEventBus.publishStatusChange(ShipmentStatusChange.of(saved, previousStatus));
             return ResponseEntity.ok(Map.of("message", "shipment updated"));
         });
     }
@@ -1173,11 +1434,15 @@ public class AdminController {
 
     // ===== Addresses =====
     @GetMapping("/addresses")
-    public ResponseEntity<?> listAddresses(@RequestHeader(value = "Authorization", required = false) String auth) {
+    public ResponseEntity<?> listAddresses(@RequestHeader(value = "Authorization", required = false) String auth,
+                                           @RequestParam(value = "organizationId", required = false) UUID organizationId,
+                                           @RequestParam(value = "sort", required = false) String sort,
+                                           @RequestParam(value = "cursor", required = false) String cursor,
+                                           @RequestParam(value = "limit", defaultValue = "100") int limit) {
         if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
         return systemAuthenticator.withSystem(() -> {
-            List<com.donilogistics.entity.Address> addresses = dataManager.load(com.donilogistics.entity.Address.class).all().list();
-            List<Map<String, Object>> dto = addresses.stream().map(a -> {
+            ListingService.Criteria criteria = new ListingService.Criteria().eq("organization.id", organizationId);
+            return listPage(ADDRESS_LISTING, criteria, sort, cursor, limit, a -> {
                 Map<String, Object> m = new HashMap<>();
                 m.put("id", a.getId());
                 m.put("name", a.getName());
@@ -1197,18 +1462,21 @@ public class AdminController {
                     m.put("organization", Map.of("id", a.getOrganization().getId(), "name", a.getOrganization().getName()));
                 }
                 return m;
-            }).collect(Collectors.toList());
-            return ResponseEntity.ok(dto);
+            });
         });
     }
 
     // ===== Consolidations =====
     @GetMapping("/consolidations")
-    public ResponseEntity<?> listConsolidations(@RequestHeader(value = "Authorization", required = false) String auth) {
+    public ResponseEntity<?> listConsolidations(@RequestHeader(value = "Authorization", required = false) String auth,
+                                                @RequestParam(value = "organizationId", required = false) UUID organizationId,
+                                                @RequestParam(value = "sort", required = false) String sort,
+                                                @RequestParam(value = "cursor", required = false) String cursor,
+                                                @RequestParam(value = "limit", defaultValue = "100") int limit) {
         if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
         return systemAuthenticator.withSystem(() -> {
-            List<com.donilogistics.entity.Consolidation> consolidations = dataManager.load(com.donilogistics.entity.Consolidation.class).all().list();
-            List<Map<String, Object>> dto = consolidations.stream().map(c -> {
+            ListingService.Criteria criteria = new ListingService.Criteria().eq("organization.id", organizationId);
+            return listPage(CONSOLIDATION_LISTING, criteria, sort, cursor, limit, c -> {
                 Map<String, Object> m = new HashMap<>();
                 m.put("id", c.getId());
                 m.put("status", c.getStatus());
@@ -1231,8 +1499,7 @@ public class AdminController {
                     m.put("organization", Map.of("id", c.getOrganization().getId(), "name", c.getOrganization().getName()));
                 }
                 return m;
-            }).collect(Collectors.toList());
-            return ResponseEntity.ok(dto);
+            });
         });
     }
 
@@ -1344,6 +1611,8 @@ public class AdminController {
                 m.put("lat", s.getLat());
                 m.put("lon", s.getLon());
                 m.put("stopType", s.getStopType());
+                m.put("arrivedAt", s.getArrivedAt());
+                m.put("departedAt", s.getDepartedAt());
                 if (s.getShipment() != null) {
                     m.put("shipment", Map.of("id", s.getShipment().getId(), "trackingNumber", s.getShipment().getTrackingNumber()));
                 }
@@ -1391,6 +1660,176 @@ public class AdminController {
         });
     }
 
+    // ===== Fleet proximity (live spatial index) =====
+    @GetMapping("/fleet/nearest")
+    public ResponseEntity<?> nearestFleet(@RequestHeader(value = "Authorization", required = false) String auth,
+                                          @RequestParam("lat") double lat,
+                                          @RequestParam("lon") double lon,
+                                          @RequestParam(value = "type", defaultValue = "drivers") String type,
+                                          @RequestParam(value = "k", defaultValue = "5") int k,
+                                          @RequestParam(value = "radiusKm", required = false) Double radiusKm) {
+        if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+        if (lat < -90 || lat > 90 || lon < -180 || lon > 180) return ResponseEntity.badRequest().body(Map.of("error", "invalid coordinates"));
+        int limit = Math.max(1, Math.min(k, 500));
+        double radiusMeters = radiusKm != null ? radiusKm * 1000.0 : Double.MAX_VALUE;
+        List<Map<String, Object>> dto = new ArrayList<>();
+        if (type.equalsIgnoreCase("vehicles")) {
+            for (var n : fleetLocationIndex.nearestVehicles(lat, lon, limit, radiusMeters, null)) {
+                Map<String, Object> m = new HashMap<>();
+                m.put("vehicleId", n.getId());
+                m.put("licensePlate", n.getValue().licensePlate);
+                m.put("assignedDriverId", n.getValue().assignedDriverUserId);
+                m.put("latitude", n.getLat());
+                m.put("longitude", n.getLon());
+                m.put("distanceMeters", Math.round(n.getDistanceMeters()));
+                dto.add(m);
+            }
+        } else {
+            for (var n : fleetLocationIndex.nearestDrivers(lat, lon, limit, radiusMeters, d -> d.active)) {
+                Map<String, Object> m = new HashMap<>();
+                m.put("driverId", n.getId());
+                m.put("userId", n.getValue().userId);
+                m.put("latitude", n.getLat());
+                m.put("longitude", n.getLon());
+                m.put("distanceMeters", Math.round(n.getDistanceMeters()));
+                dto.add(m);
+            }
+        }
+        return ResponseEntity.ok(dto);
+    }
+
+    @GetMapping("/fleet/index/stats")
+    public ResponseEntity<?> fleetIndexStats(@RequestHeader(value = "Authorization", required = false) String auth) {
+        if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+        return ResponseEntity.ok(fleetLocationIndex.stats());
+    }
+
+    @GetMapping("/fleet/stream/stats")
+    public ResponseEntity<?> fleetStreamStats(@RequestHeader(value = "Authorization", required = false) String auth) {
+        if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+        return ResponseEntity.ok(viewportStreamService.stats());
+    }
+
+    @GetMapping("/geofence/stats")
+    public ResponseEntity<?> geofenceStats(@RequestHeader(value = "Authorization", required = false) String auth) {
+        if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+        return ResponseEntity.ok(geofenceService.stats());
+    }
+
+    @GetMapping("/trackstore/stats")
+    public ResponseEntity<?> trackStoreStats(@RequestHeader(value = "Authorization", required = false) String auth) {
+        if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+        return ResponseEntity.ok(trackStore.stats());
+    }
+
+    @GetMapping("/eta/stats")
+    public ResponseEntity<?> etaStats(@RequestHeader(value = "Authorization", required = false) String auth) {
+        if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+        return ResponseEntity.ok(etaService.stats());
+    }
+
+    @GetMapping("/offroute/stats")
+    public ResponseEntity<?> offRouteStats(@RequestHeader(value = "Authorization", required = false) String auth) {
+        if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+        return ResponseEntity.ok(offRouteService.stats());
+    }
+
+    @GetMapping("/retention/stats")
+    public ResponseEntity<?> retentionStats(@RequestHeader(value = "Authorization", required = false) String auth) {
+        if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+        return ResponseEntity.ok(retentionService.stats());
+    }
+
+    @PostMapping("/retention/run")
+    public ResponseEntity<?> runRetention(@RequestHeader(value = "Authorization", required = false) String auth) {
+        if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+        Map<String, Object> result = retentionService.run();
+        if (result == null) return ResponseEntity.status(409).body(Map.of("error", "retention run already in progress"));
+        return ResponseEntity.ok(result);
+    }
+
+    // Archived history: day range is inclusive and defaults to the last 30 days
+    @GetMapping("/archive/notifications")
+    public ResponseEntity<?> archivedNotifications(@RequestHeader(value = "Authorization", required = false) String auth,
+                                                   @RequestParam(value = "recipientUserId", required = false) UUID recipientUserId,
+                                                   @RequestParam(value = "from", required = false) String from,
+                                                   @RequestParam(value = "to", required = false) String to,
+                                                   @RequestParam(value = "limit", defaultValue = "500") int limit) {
+        if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+        return readArchive(RetentionService.ArchivedTable.NOTIFICATION, "RECIPIENT_USER_ID", recipientUserId, from, to, limit);
+    }
+
+    @GetMapping("/archive/tracking-events")
+    public ResponseEntity<?> archivedTrackingEvents(@RequestHeader(value = "Authorization", required = false) String auth,
+                                                    @RequestParam(value = "vehicleId", required = false) UUID vehicleId,
+                                                    @RequestParam(value = "driverId", required = false) UUID driverId,
+                                                    @RequestParam(value = "shipmentId", required = false) UUID shipmentId,
+                                                    @RequestParam(value = "from", required = false) String from,
+                                                    @RequestParam(value = "to", required = false) String to,
+                                                    @RequestParam(value = "limit", defaultValue = "500") int limit) {
+        if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+        String column = vehicleId != null ? "VEHICLE_ID" : driverId != null ? "DRIVER_ID" : shipmentId != null ? "SHIPMENT_ID" : null;
+        UUID value = vehicleId != null ? vehicleId : driverId != null ? driverId : shipmentId;
+        return readArchive(RetentionService.ArchivedTable.TRACKING_EVENT, column, value, from, to, limit);
+    }
+
+    private ResponseEntity<?> readArchive(RetentionService.ArchivedTable table, String column, UUID value, String from, String to, int limit) {
+        try {
+            java.time.LocalDate toDay = to != null && !to.isBlank() ? java.time.LocalDate.parse(to) : java.time.LocalDate.now();
+            java.time.LocalDate fromDay = from != null && !from.isBlank() ? java.time.LocalDate.parse(from) : toDay.minusDays(30);
+            int size = Math.max(1, Math.min(limit, ListingService.MAX_LIMIT * 10));
+            return ResponseEntity.ok(retentionService.readArchive(table, fromDay, toDay, column, value, size));
+        } catch (java.time.format.DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "invalid date: " + e.getParsedString()));
+        }
+    }
+
+    @GetMapping("/mail/outbox/stats")
+    public ResponseEntity<?> mailOutboxStats(@RequestHeader(value = "Authorization", required = false) String auth) {
+        if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+        return ResponseEntity.ok(emailOutboxDispatcher.stats());
+    }
+
+    @PostMapping("/mail/outbox/{id}/retry")
+    public ResponseEntity<?> retryOutboxEmail(@RequestHeader(value = "Authorization", required = false) String auth,
+                                              @PathVariable("id") UUID id) {
+        if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+        if (!emailOutboxDispatcher.revive(id)) return ResponseEntity.status(404).body(Map.of("error", "no dead-lettered email with this id"));
+        return ResponseEntity.ok(Map.of("success", true));
+    }
+
+    @GetMapping("/routing/cache/stats")
+    public ResponseEntity<?> routingCacheStats(@RequestHeader(value = "Authorization", required = false) String auth) {
+        if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+        return ResponseEntity.ok(graphHopperService.cacheStats());
+    }
+
+    @GetMapping("/public/tracking-cache/stats")
+    public ResponseEntity<?> publicTrackingCacheStats(@RequestHeader(value = "Authorization", required = false) String auth) {
+        if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+        return ResponseEntity.ok(publicTrackingCache.stats());
+    }
+
+    @GetMapping("/public/tracking-filter/stats")
+    public ResponseEntity<?> trackingFilterStats(@RequestHeader(value = "Authorization", required = false) String auth) {
+        if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+        return ResponseEntity.ok(trackingNumberFilter.stats());
+    }
+
+    @PostMapping("/public/tracking-filter/rebuild")
+    public ResponseEntity<?> rebuildTrackingFilter(@RequestHeader(value = "Authorization", required = false) String auth) {
+        if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+        long loaded = trackingNumberFilter.rebuild();
+        if (loaded < 0) return ResponseEntity.status(409).body(Map.of("error", "filter is disabled, already rebuilding or the rebuild failed"));
+        return ResponseEntity.ok(Map.of("success", true, "loaded", loaded));
+    }
+
+    @GetMapping("/ratelimit/stats")
+    public ResponseEntity<?> rateLimitStats(@RequestHeader(value = "Authorization", required = false) String auth) {
+        if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+        return ResponseEntity.ok(rateLimitFilter.stats());
+    }
+
     @PostMapping(value = "/route-plans/{id}/broadcast", consumes = "application/json", produces = "application/json")
     public ResponseEntity<?> broadcastRoutePlan(@RequestHeader(value = "Authorization", required = false) String auth,
                                                 @PathVariable("id") UUID id,
@@ -1417,91 +1856,85 @@ public class AdminController {
 
             List<Map<String, Object>> notified = new ArrayList<>();
 
+            double radiusMeters = Double.MAX_VALUE;
+            if (body != null && body.get("radiusKm") != null) {
+                try { radiusMeters = Double.parseDouble(Objects.toString(body.get("radiusKm"))) * 1000.0; } catch (Exception ignored) {}
+            }
+
             if (audience.equalsIgnoreCase("both") || audience.equalsIgnoreCase("drivers")) {
-                // Find nearest drivers
-                List<com.donilogistics.entity.DriverProfile> drivers = dataManager.load(com.donilogistics.entity.DriverProfile.class).all().list();
-                List<com.donilogistics.entity.DriverProfile> eligible = new ArrayList<>();
-                for (var d : drivers) {
-                    if (d.getActive() != null && d.getActive() && d.getCurrentLatitude() != null && d.getCurrentLongitude() != null && d.getUser() != null) {
-                        eligible.add(d);
-                    }
+                // Nearest active drivers from the live spatial index, notified in one batch
+                var nearest = fleetLocationIndex.nearestDrivers(oLat.doubleValue(), oLon.doubleValue(), limit, radiusMeters,
+                        d -> d.active && d.userId != null);
+                List<UUID> recipients = new ArrayList<>();
+                for (var n : nearest) recipients.add(n.getValue().userId);
+                Map<UUID, UUID> sent = Map.of();
+                try {
+                    sent = notificationService.notifyUsers(
+                            recipients,
+                            "New route opportunity",
+                            "Route " + plan.getName() + " starting near you. Plan ID: " + plan.getId(),
+                            com.donilogistics.entity.NotificationType.DRIVER_ASSIGNMENT,
+                            com.donilogistics.entity.NotificationChannel.IN_APP,
+                            null,
+                            null
+                    );
+                } catch (Exception e) {
+                    log.warn("Route broadcast to drivers failed for plan {}: {}", id, e.getMessage());
                 }
-                eligible.sort((a, b) -> Double.compare(
-                        haversine(oLat.doubleValue(), oLon.doubleValue(), a.getCurrentLatitude().doubleValue(), a.getCurrentLongitude().doubleValue()),
-                        haversine(oLat.doubleValue(), oLon.doubleValue(), b.getCurrentLatitude().doubleValue(), b.getCurrentLongitude().doubleValue())
-                ));
-                int count = Math.min(limit, eligible.size());
-                for (int i = 0; i < count; i++) {
-                    var d = eligible.get(i);
-                    try {
-                        UUID notifId = notificationService.notifyUser(
-                                d.getUser().getId(),
-                                "New route opportunity",
-                                "Route " + plan.getName() + " starting near you. Plan ID: " + plan.getId(),
-                                com.donilogistics.entity.NotificationType.DRIVER_ASSIGNMENT,
-                                com.donilogistics.entity.NotificationChannel.IN_APP,
-                                null,
-                                null
-                        );
-                        notified.add(Map.of(
-                                "type", "driver",
-                                "driverId", d.getId(),
-                                "userId", d.getUser().getId(),
-                                "notificationId", notifId
-                        ));
-                    } catch (Exception ignored) {}
+                for (var n : nearest) {
+                    var d = n.getValue();
+                    UUID notifId = sent.get(d.userId);
+                    if (notifId == null) continue;
+                    notified.add(Map.of(
+                            "type", "driver",
+                            "driverId", d.driverId,
+                            "userId", d.userId,
+                            "distanceMeters", Math.round(n.getDistanceMeters()),
+                            "notificationId", notifId
+                    ));
                 }
             }
 
             if (audience.equalsIgnoreCase("both") || audience.equalsIgnoreCase("vehicles")) {
-                // Find nearest vehicles (optionally notify assigned drivers)
-                List<com.donilogistics.entity.Vehicle> vehicles = dataManager.load(com.donilogistics.entity.Vehicle.class).all().list();
-                vehicles.sort((a, b) -> Double.compare(
-                        haversine(oLat.doubleValue(), oLon.doubleValue(), a.getCurrentLatitude() != null ? a.getCurrentLatitude() : 0.0, a.getCurrentLongitude() != null ? a.getCurrentLongitude() : 0.0),
-                        haversine(oLat.doubleValue(), oLon.doubleValue(), b.getCurrentLatitude() != null ? b.getCurrentLatitude() : 0.0, b.getCurrentLongitude() != null ? b.getCurrentLongitude() : 0.0)
-                ));
-                int sent = 0;
-                for (var v : vehicles) {
-                    if (v.getAssignedDriver() != null && v.getCurrentLatitude() != null && v.getCurrentLongitude() != null) {
-                        try {
-                            UUID notifId = notificationService.notifyUser(
-                                    v.getAssignedDriver().getId(),
-                                    "Vehicle nearby route",
-                                    "Route " + plan.getName() + " near vehicle " + v.getLicensePlate() + ". Plan ID: " + plan.getId(),
-                                    com.donilogistics.entity.NotificationType.DRIVER_ASSIGNMENT,
-                                    com.donilogistics.entity.NotificationChannel.IN_APP,
-                                    null,
-                                    null
-                            );
-                            notified.add(Map.of(
-                                    "type", "vehicle",
-                                    "vehicleId", v.getId(),
-                                    "assignedDriverId", v.getAssignedDriver().getId(),
-                                    "notificationId", notifId
-                            ));
-                            sent++;
-                            if (sent >= limit) break;
-                        } catch (Exception ignored) {}
-                    }
+                // Nearest vehicles with an assigned driver; one message per driver (closest vehicle wins)
+                var nearest = fleetLocationIndex.nearestVehicles(oLat.doubleValue(), oLon.doubleValue(), limit, radiusMeters,
+                        v -> v.assignedDriverUserId != null);
+                Map<UUID, String> messages = new LinkedHashMap<>();
+                for (var n : nearest) {
+                    var v = n.getValue();
+                    messages.putIfAbsent(v.assignedDriverUserId,
+                            "Route " + plan.getName() + " near vehicle " + v.licensePlate + ". Plan ID: " + plan.getId());
+                }
+                Map<UUID, UUID> sent = Map.of();
+                try {
+                    sent = notificationService.notifyUsers(
+                            messages,
+                            "Vehicle nearby route",
+                            com.donilogistics.entity.NotificationType.DRIVER_ASSIGNMENT,
+                            com.donilogistics.entity.NotificationChannel.IN_APP,
+                            null,
+                            null
+                    );
+                } catch (Exception e) {
+                    log.warn("Route broadcast to vehicles failed for plan {}: {}", id, e.getMessage());
+                }
+                for (var n : nearest) {
+                    var v = n.getValue();
+                    UUID notifId = sent.get(v.assignedDriverUserId);
+                    if (notifId == null) continue;
+                    notified.add(Map.of(
+                            "type", "vehicle",
+                            "vehicleId", v.vehicleId,
+                            "assignedDriverId", v.assignedDriverUserId,
+                            "distanceMeters", Math.round(n.getDistanceMeters()),
+                            "notificationId", notifId
+                    ));
                 }
             }
 
             return ResponseEntity.ok(Map.of("sent", notified.size(), "details", notified));
         });
     }
-
-    private static double haversine(double lat1, double lon1, double lat2, double lon2) {
-        double R = 6371e3;
-        double phi1 = Math.toRadians(lat1);
-        double phi2 = Math.toRadians(lat2);
-        double dphi = Math.toRadians(lat2 - lat1);
-        double dlambda = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(dphi / 2) * Math.sin(dphi / 2)
-                + Math.cos(phi1) * Math.cos(phi2)
-                * Math.sin(dlambda / 2) * Math.sin(dlambda / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        return R * c;
-    }
 }
 
 
@@ -0,0 +1,55 @@
+package com.donilogistics.controller;
+
+import com.donilogistics.config.WebSocketConfig;
+import com.donilogistics.service.ViewportStreamService;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.stereotype.Controller;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * STOMP entry points for the live fleet map. Clients subscribe to /user/queue/fleet/viewport and
+ * send their map bounds to /app/fleet/viewport whenever the map is moved:
+ * {"minLat", "minLon", "maxLat", "maxLon", "organizationId"?, "rateHz"?}. Organization admins always
+ * get their own organization's fleet; only the dev admin may pick one with organizationId, or leave it
+ * out for the whole fleet.
+ */
+@Controller
+public class FleetStreamController {
+
+    private final ViewportStreamService viewportStreamService;
+
+    public FleetStreamController(ViewportStreamService viewportStreamService) {
+        this.viewportStreamService = viewportStreamService;
+    }
+
+    @MessageMapping("/fleet/viewport")
+    public void viewport(@Payload Map<String, Object> body, SimpMessageHeaderAccessor headers) {
+        if (!(headers.getUser() instanceof WebSocketConfig.SessionPrincipal user)) return;
+        UUID orgId;
+        if (user.isDevAdmin()) {
+            orgId = body.get("organizationId") != null && !Objects.toString(body.get("organizationId")).isBlank()
+                    ? UUID.fromString(Objects.toString(body.get("organizationId"))) : null;
+        } else if (user.getOrganizationId() != null) {
+            orgId = user.getOrganizationId();
+        } else {
+            return;
+        }
+        Double rateHz = body.get("rateHz") != null ? Double.valueOf(Objects.toString(body.get("rateHz"))) : null;
+        viewportStreamService.subscribe(headers.getSessionId(),
+                Double.parseDouble(Objects.toString(body.get("minLat"))),
+                Double.parseDouble(Objects.toString(body.get("minLon"))),
+                Double.parseDouble(Objects.toString(body.get("maxLat"))),
+                Double.parseDouble(Objects.toString(body.get("maxLon"))),
+                orgId, rateHz);
+    }
+
+    @MessageMapping("/fleet/viewport/close")
+    public void close(SimpMessageHeaderAccessor headers) {
+        viewportStreamService.unsubscribe(headers.getSessionId());
+    }
+}
@@ -3,7 +3,14 @@ package com.donilogistics.controller;
 import com.donilogistics.entity.User;
 import com.donilogistics.entity.UserRole;
 import com.donilogistics.entity.Organization;
+import com.donilogistics.events.ShipmentStatusChange;
+import com.donilogistics.events.TrackingEventBus;
 import com.donilogistics.service.ConsolidationService;
+import com.donilogistics.service.FleetLocationIndex;
+import com.donilogistics.service.GpsPing;
+import com.donilogistics.service.ListingService;
+import com.donilogistics.service.LivePushService;
+import com.donilogistics.service.ShipmentQueryService;
 import io.jmix.core.FileRef;
 import io.jmix.core.FileStorage;
 import io.jmix.core.FileStorageLocator;
@@ -18,7 +25,7 @@ import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/org")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = AdminController.NEXT_CURSOR_HEADER)
 public class OrgAdminController {
 
     private static final String ORG_ADMIN_BEARER = "Bearer org-admin-token";
@@ -27,12 +34,20 @@ public class OrgAdminController {
     private final SystemAuthenticator systemAuthenticator;
     private final FileStorageLocator fileStorageLocator;
     private final ConsolidationService consolidationService;
+    private final TrackingEventBus trackingEventBus;
+    private final FleetLocationIndex fleetLocationIndex;
+    private final ShipmentQueryService shipmentQueryService;
+    private final LivePushService livePushService;
 
-    public OrgAdminController(DataManager dataManager, SystemAuthenticator systemAuthenticator, FileStorageLocator fileStorageLocator, ConsolidationService consolidationService) {
+    public OrgAdminController(DataManager dataManager, SystemAuthenticator systemAuthenticator, FileStorageLocator fileStorageLocator, ConsolidationService consolidationService, TrackingEventBus trackingEventBus, FleetLocationIndex fleetLocationIndex, ShipmentQueryService shipmentQueryService, LivePushService livePushService) {
         this.dataManager = dataManager;
         this.systemAuthenticator = systemAuthenticator;
         this.fileStorageLocator = fileStorageLocator;
         this.consolidationService = consolidationService;
+        this.trackingEventBus = trackingEventBus;
+        this.fleetLocationIndex = fleetLocationIndex;
+        this.shipmentQueryService = shipmentQueryService;
+        this.livePushService = livePushService;
     }
 
     private Optional<User> authenticateOrgAdmin(String authHeader, String adminUserIdHeader) {
@@ -156,16 +171,37 @@ public class OrgAdminController {
     // ===== Organization-scoped Shipments =====
     @GetMapping("/shipments")
     public ResponseEntity<?> listShipments(@RequestHeader(value = "Authorization", required = false) String auth,
-                                           @RequestHeader(value = "X-Admin-User-Id", required = false) String adminUserId) {
+                                           @RequestHeader(value = "X-Admin-User-Id", required = false) String adminUserId,
+                                           @RequestParam(value = "status", required = false) String status,
+                                           @RequestParam(value = "customerId", required = false) UUID customerId,
+                                           @RequestParam(value = "assignedDriverId", required = false) UUID assignedDriverId,
+                                           @RequestParam(value = "createdFrom", required = false) String createdFrom,
+                                           @RequestParam(value = "createdTo", required = false) String createdTo,
+                                           @RequestParam(value = "sort", required = false) String sort,
+                                           @RequestParam(value = "cursor", required = false) String cursor,
+                                           @RequestParam(value = "limit", defaultValue = "100") int limit) {
         Optional<User> adminOpt = authenticateOrgAdmin(auth, adminUserId);
         if (adminOpt.isEmpty()) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
         User admin = adminOpt.get();
-        UUID orgId = admin.getOrganization().getId();
+        ShipmentQueryService.Filter filter = new ShipmentQueryService.Filter();
+        try {
+            filter.statuses = ShipmentQueryService.parseStatuses(status);
+            filter.createdFrom = ShipmentQueryService.parseDateTime(createdFrom, false);
+            filter.createdTo = ShipmentQueryService.parseDateTime(createdTo, true);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        filter.customerId = customerId;
+        filter.assignedDriverId = assignedDriverId;
+        filter.organizationId = admin.getOrganization().getId();
         return systemAuthenticator.withSystem(() -> {
-            List<com.donilogistics.entity.Shipment> shipments = dataManager.load(com.donilogistics.entity.Shipment.class)
-                    .query("select s from Shipment s left join s.createdByUser cu left join cu.organization cuo where (s.customer.id = :orgId) or (cuo.id = :orgId)")
-                    .parameter("orgId", orgId)
-                    .list();
+            ListingService.Page<com.donilogistics.entity.Shipment> page;
+            try {
+                page = shipmentQueryService.list(filter, sort, cursor, limit);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+            List<com.donilogistics.entity.Shipment> shipments = page.getItems();
             List<Map<String, Object>> dto = shipments.stream().map(s -> {
                 Map<String, Object> m = new HashMap<>();
                 m.put("id", s.getId());
@@ -182,7 +218,9 @@ public class OrgAdminController {
                 if (s.getDeliveryAddress() != null) m.put("deliveryAddress", Map.of("id", s.getDeliveryAddress().getId(), "city", s.getDeliveryAddress().getCity(), "country", s.getDeliveryAddress().getCountry()));
                 return m;
             }).collect(Collectors.toList());
-            return ResponseEntity.ok(dto);
+            ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+            if (page.getNextCursor() != null) ok.header(AdminController.NEXT_CURSOR_HEADER, page.getNextCursor());
+            return ok.body(dto);
         });
     }
 
@@ -207,8 +245,10 @@ public class OrgAdminController {
                 User driverUser = dataManager.load(User.class).id(java.util.UUID.fromString(driverUserIdStr)).one();
                 s.setAssignedDriver(driverUser);
                 s.setAssignedAt(java.time.LocalDateTime.now());
+                com.donilogistics.entity.ShipmentStatus previousStatus = s.getStatus();
                 s.setStatus(com.donilogistics.entity.ShipmentStatus.READY_FOR_CONSOLIDATION);
-                dataManager.save(s);
+                com.donilogistics.entity.Shipment saved = dataManager.save(s);
+                if (previousStatus != saved.getStatus()) trackingEventBus.publishStatusChange(ShipmentStatusChange.of(saved, previousStatus));
                 return ResponseEntity.ok(Map.of("success", true));
             } catch (Exception e) {
                 return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -231,8 +271,10 @@ public class OrgAdminController {
             }
             s.setAssignedDriver(null);
             s.setAssignedAt(null);
+            com.donilogistics.entity.ShipmentStatus previousStatus = s.getStatus();
             s.setStatus(com.donilogistics.entity.ShipmentStatus.CREATED);
-            dataManager.save(s);
+            com.donilogistics.entity.Shipment saved = dataManager.save(s);
+            if (previousStatus != saved.getStatus()) trackingEventBus.publishStatusChange(ShipmentStatusChange.of(saved, previousStatus));
             return ResponseEntity.ok(Map.of("success", true));
         });
     }
@@ -278,10 +320,24 @@ public class OrgAdminController {
                 return ResponseEntity.status(403).body(Map.of("error", "forbidden"));
             }
             try {
+                if (body.get("latitude") != null && body.get("longitude") != null) {
+                    GpsPing ping = new GpsPing(null, driverId,
+                            Double.parseDouble(Objects.toString(body.get("latitude"))),
+                            Double.parseDouble(Objects.toString(body.get("longitude"))),
+                            java.time.LocalDateTime.now(), com.donilogistics.entity.TrackingSource.DRIVER_APP);
+                    if (!ping.isValid()) return ResponseEntity.badRequest().body(Map.of("error", "invalid coordinates"));
+                    ping.organizationId = admin.getOrganization().getId();
+                    if (!trackingEventBus.publishLocation(ping)) {
+                        return ResponseEntity.status(503).header("Retry-After", "1").body(Map.of("error", "tracking event queue full"));
+                    }
+                    return ResponseEntity.ok(Map.of("success", true));
+                }
                 if (body.get("latitude") != null) d.setCurrentLatitude(new java.math.BigDecimal(Objects.toString(body.get("latitude"))));
                 if (body.get("longitude") != null) d.setCurrentLongitude(new java.math.BigDecimal(Objects.toString(body.get("longitude"))));
                 d.setLastSeen(java.time.LocalDateTime.now());
-                dataManager.save(d);
+                com.donilogistics.entity.DriverProfile saved = dataManager.save(d);
+                fleetLocationIndex.upsertDriver(saved);
+                livePushService.pushDriver(saved);
                 return ResponseEntity.ok(Map.of("success", true));
             } catch (Exception e) {
                 return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -349,6 +405,7 @@ public class OrgAdminController {
                 } catch (Exception ignored) {}
             }
             com.donilogistics.entity.Vehicle saved = dataManager.save(v);
+            fleetLocationIndex.upsertVehicle(saved);
             return ResponseEntity.ok(Map.of("id", saved.getId()));
         });
     }
@@ -393,7 +450,7 @@ public class OrgAdminController {
                     } catch (Exception ignored) {}
                 }
             }
-            dataManager.save(v);
+            fleetLocationIndex.upsertVehicle(dataManager.save(v));
             return ResponseEntity.ok(Map.of("success", true));
         });
     }
@@ -412,6 +469,7 @@ public class OrgAdminController {
                 return ResponseEntity.status(403).body(Map.of("error", "forbidden"));
             }
             dataManager.remove(Id.of(id, com.donilogistics.entity.Vehicle.class));
+            fleetLocationIndex.removeVehicle(id);
             return ResponseEntity.ok(Map.of("success", true));
         });
     }
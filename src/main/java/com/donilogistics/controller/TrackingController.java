@@ -0,0 +1,126 @@
+package com.donilogistics.controller;
+
+import com.donilogistics.service.GpsPing;
+import com.donilogistics.service.TrackReplayService;
+import com.donilogistics.service.TrackingIngestionService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/tracking")
+@CrossOrigin(origins = "*")
+public class TrackingController {
+
+    private static final String DEV_ADMIN_BEARER = "Bearer dev-admin-token";
+
+    private final TrackingIngestionService trackingIngestionService;
+    private final TrackReplayService trackReplayService;
+
+    @Value("${app.tracking.replay.max-days:31}")
+    private long replayMaxDays;
+
+    @Value("${app.tracking.replay.max-points:100000}")
+    private int replayMaxPoints;
+
+    public TrackingController(TrackingIngestionService trackingIngestionService, TrackReplayService trackReplayService) {
+        this.trackingIngestionService = trackingIngestionService;
+        this.trackReplayService = trackReplayService;
+    }
+
+    private boolean isDevAdmin(String authHeader) {
+        return authHeader != null && authHeader.trim().equals(DEV_ADMIN_BEARER);
+    }
+
+    // Devices post pings in batches; they are buffered and persisted asynchronously
+    @PostMapping(value = "/pings", consumes = "application/json", produces = "application/json")
+    public ResponseEntity<?> ingestPings(@RequestHeader(value = "Authorization", required = false) String auth,
+                                         @RequestBody List<GpsPing> pings) {
+        if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+        if (pings == null || pings.isEmpty()) return ResponseEntity.badRequest().body(Map.of("error", "no pings"));
+        int accepted = trackingIngestionService.submitAll(pings);
+        int notAccepted = pings.size() - accepted;
+        if (accepted == 0) {
+            return ResponseEntity.status(503).header("Retry-After", "1")
+                    .body(Map.of("accepted", 0, "dropped", notAccepted));
+        }
+        return ResponseEntity.accepted().body(Map.of("accepted", accepted, "dropped", notAccepted));
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<?> stats(@RequestHeader(value = "Authorization", required = false) String auth) {
+        if (!isDevAdmin(auth)) return ResponseEntity.status(401).body(Map.of("error", "unauthorized"));
+        return ResponseEntity.ok(trackingIngestionService.stats());
+    }
+
+    // Streams positions for [from, to) as NDJSON, or as server-sent events with format=sse or Accept: text/event-stream
+    @GetMapping("/replay/vehicles/{vehicleId}")
+    public ResponseEntity<StreamingResponseBody> replayVehicle(@RequestHeader(value = "Authorization", required = false) String auth,
+                                                               @RequestHeader(value = "Accept", required = false) String accept,
+                                                               @PathVariable UUID vehicleId,
+                                                               @RequestParam String from,
+                                                               @RequestParam(required = false) String to,
+                                                               @RequestParam(defaultValue = "2000") int maxPoints,
+                                                               @RequestParam(required = false) String format) {
+        return replay(auth, accept, from, to, maxPoints, format,
+                (f, t, n, fmt, out) -> trackReplayService.replayVehicle(vehicleId, f, t, n, fmt, out));
+    }
+
+    @GetMapping("/replay/shipments/{shipmentId}")
+    public ResponseEntity<StreamingResponseBody> replayShipment(@RequestHeader(value = "Authorization", required = false) String auth,
+                                                                @RequestHeader(value = "Accept", required = false) String accept,
+                                                                @PathVariable UUID shipmentId,
+                                                                @RequestParam String from,
+                                                                @RequestParam(required = false) String to,
+                                                                @RequestParam(defaultValue = "2000") int maxPoints,
+                                                                @RequestParam(required = false) String format) {
+        return replay(auth, accept, from, to, maxPoints, format,
+                (f, t, n, fmt, out) -> trackReplayService.replayShipment(shipmentId, f, t, n, fmt, out));
+    }
+
+    private interface ReplayCall {
+        void run(LocalDateTime from, LocalDateTime to, int maxPoints, TrackReplayService.Format format, OutputStream out) throws IOException;
+    }
+
+    private ResponseEntity<StreamingResponseBody> replay(String auth, String accept, String fromRaw, String toRaw, int maxPoints,
+                                                         String formatRaw, ReplayCall call) {
+        if (!isDevAdmin(auth)) return jsonError(401, "unauthorized");
+        LocalDateTime from, to;
+        try {
+            from = LocalDateTime.parse(fromRaw);
+            to = toRaw != null && !toRaw.isBlank() ? LocalDateTime.parse(toRaw) : LocalDateTime.now();
+        } catch (DateTimeParseException e) {
+            return jsonError(400, "from/to must be ISO local date-times");
+        }
+        if (!to.isAfter(from)) return jsonError(400, "to must be after from");
+        if (Duration.between(from, to).toDays() > replayMaxDays) return jsonError(400, "range exceeds " + replayMaxDays + " days");
+        int points = Math.max(1, Math.min(maxPoints, replayMaxPoints));
+        boolean sse = "sse".equalsIgnoreCase(formatRaw)
+                || (formatRaw == null && accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE));
+        TrackReplayService.Format format = sse ? TrackReplayService.Format.SSE : TrackReplayService.Format.NDJSON;
+        LocalDateTime f = from, t = to;
+        StreamingResponseBody body = out -> call.run(f, t, points, format, out);
+        return ResponseEntity.ok()
+                .contentType(sse ? MediaType.TEXT_EVENT_STREAM : MediaType.APPLICATION_NDJSON)
+                .header("Cache-Control", "no-cache")
+                .header("X-Accel-Buffering", "no")
+                .body(body);
+    }
+
+    private static ResponseEntity<StreamingResponseBody> jsonError(int status, String message) {
+        byte[] json = ("{\"error\":\"" + message + "\"}").getBytes(StandardCharsets.UTF_8);
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(out -> out.write(json));
+    }
+}
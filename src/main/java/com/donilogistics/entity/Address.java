@@ -1,6 +1,8 @@
 package com.donilogistics.entity;
 
+import com.donilogistics.geo.GeoHash;
 import io.jmix.core.entity.annotation.JmixGeneratedValue;
+import io.jmix.core.entity.annotation.PublishEntityChangedEvents;
 import io.jmix.core.metamodel.annotation.InstanceName;
 import io.jmix.core.metamodel.annotation.JmixEntity;
 import jakarta.persistence.*;
@@ -10,6 +12,7 @@ import java.math.BigDecimal;
 import java.util.UUID;
 
 @JmixEntity
+@PublishEntityChangedEvents
 @Entity
 @Table(name = "ADDRESS", indexes = {
         @Index(name = "IDX_ADDRESS_ON_GEOHASH", columnList = "GEOHASH"),
@@ -171,6 +174,12 @@ public class Address {
         this.longitude = longitude;
     }
 
+    @PrePersist
+    @PreUpdate
+    protected void updateGeohash() {
+        geohash = GeoHash.of(latitude, longitude);
+    }
+
     public String getGeohash() {
         return geohash;
     }
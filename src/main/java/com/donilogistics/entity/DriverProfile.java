@@ -1,5 +1,6 @@
 package com.donilogistics.entity;
 
+import com.donilogistics.geo.GeoHash;
 import io.jmix.core.FileRef;
 import io.jmix.core.entity.annotation.JmixGeneratedValue;
 import io.jmix.core.metamodel.annotation.JmixEntity;
@@ -13,7 +14,8 @@ import java.util.UUID;
 @Entity
 @Table(name = "DRIVER_PROFILE", indexes = {
         @Index(name = "IDX_DRIVER_PROFILE_ON_USER", columnList = "USER_ID", unique = true),
-        @Index(name = "IDX_DRIVER_PROFILE_ON_ORGANIZATION", columnList = "ORGANIZATION_ID")
+        @Index(name = "IDX_DRIVER_PROFILE_ON_ORGANIZATION", columnList = "ORGANIZATION_ID"),
+        @Index(name = "IDX_DRIVER_PROFILE_ON_GEOHASH", columnList = "GEOHASH")
 })
 public class DriverProfile {
 
@@ -75,6 +77,15 @@ public class DriverProfile {
     @Column(name = "LAST_SEEN")
     private LocalDateTime lastSeen;
 
+    @Column(name = "GEOHASH", length = 12)
+    private String geohash;
+
+    @PrePersist
+    @PreUpdate
+    protected void updateGeohash() {
+        geohash = GeoHash.of(currentLatitude, currentLongitude);
+    }
+
     public UUID getId() {
         return id;
     }
@@ -210,6 +221,12 @@ public class DriverProfile {
     public void setLastSeen(LocalDateTime lastSeen) {
         this.lastSeen = lastSeen;
     }
-}
 
+    public String getGeohash() {
+        return geohash;
+    }
 
+    public void setGeohash(String geohash) {
+        this.geohash = geohash;
+    }
+}
@@ -0,0 +1,91 @@
+package com.donilogistics.entity;
+
+import io.jmix.core.entity.annotation.JmixGeneratedValue;
+import io.jmix.core.metamodel.annotation.JmixEntity;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * An email queued in the same transaction as the change that triggered it and delivered later by
+ * {@code EmailOutboxDispatcher}.
+ */
+@JmixEntity
+@Table(name = "EMAIL_OUTBOX", indexes = {
+        @Index(name = "IDX_EMAIL_OUTBOX_ON_STATUS_NEXT", columnList = "STATUS, NEXT_ATTEMPT_AT")
+})
+@Entity
+public class EmailOutbox {
+    @JmixGeneratedValue
+    @Column(name = "ID", nullable = false)
+    @Id
+    private UUID id;
+
+    @Version
+    @Column(name = "VERSION", nullable = false)
+    private Integer version;
+
+    @NotNull
+    @Column(name = "RECIPIENT", nullable = false)
+    private String recipient;
+
+    @Column(name = "SUBJECT", length = 500)
+    private String subject;
+
+    @Lob
+    @Column(name = "BODY")
+    private String body;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "STATUS", nullable = false, length = 20)
+    private EmailOutboxStatus status = EmailOutboxStatus.PENDING;
+
+    @Column(name = "ATTEMPTS", nullable = false)
+    private Integer attempts = 0;
+
+    @NotNull
+    @Column(name = "NEXT_ATTEMPT_AT", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "LAST_ERROR", length = 1000)
+    private String lastError;
+
+    @Column(name = "CREATED_AT")
+    private LocalDateTime createdAt;
+
+    @Column(name = "SENT_AT")
+    private LocalDateTime sentAt;
+
+    @PrePersist
+    public void prePersist() {
+        LocalDateTime now = LocalDateTime.now();
+        if (createdAt == null) createdAt = now;
+        if (nextAttemptAt == null) nextAttemptAt = now;
+    }
+
+    public UUID getId() { return id; }
+    public void setId(UUID id) { this.id = id; }
+    public Integer getVersion() { return version; }
+    public void setVersion(Integer version) { this.version = version; }
+    public String getRecipient() { return recipient; }
+    public void setRecipient(String recipient) { this.recipient = recipient; }
+    public String getSubject() { return subject; }
+    public void setSubject(String subject) { this.subject = subject; }
+    public String getBody() { return body; }
+    public void setBody(String body) { this.body = body; }
+    public EmailOutboxStatus getStatus() { return status; }
+    public void setStatus(EmailOutboxStatus status) { this.status = status; }
+    public Integer getAttempts() { return attempts; }
+    public void setAttempts(Integer attempts) { this.attempts = attempts; }
+    public LocalDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    public LocalDateTime getSentAt() { return sentAt; }
+    public void setSentAt(LocalDateTime sentAt) { this.sentAt = sentAt; }
+}
@@ -0,0 +1,8 @@
+package com.donilogistics.entity;
+
+public enum EmailOutboxStatus {
+    PENDING,
+    SENDING,
+    SENT,
+    DEAD
+}
@@ -11,7 +11,8 @@ import java.util.UUID;
 @Entity
 @Table(name = "NOTIFICATION", indexes = {
         @Index(name = "IDX_NOTIFICATION_ON_RECIPIENT", columnList = "RECIPIENT_USER_ID"),
-        @Index(name = "IDX_NOTIFICATION_ON_CREATED_AT", columnList = "CREATED_AT")
+        @Index(name = "IDX_NOTIFICATION_ON_CREATED_AT", columnList = "CREATED_AT"),
+        @Index(name = "IDX_NOTIFICATION_ON_RECIPIENT_READ", columnList = "RECIPIENT_USER_ID, READ_")
 })
 public class Notification {
 
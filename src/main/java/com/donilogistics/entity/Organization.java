@@ -2,6 +2,7 @@ package com.donilogistics.entity;
 
 import io.jmix.core.FileRef;
 import io.jmix.core.entity.annotation.JmixGeneratedValue;
+import io.jmix.core.entity.annotation.PublishEntityChangedEvents;
 import io.jmix.core.metamodel.annotation.InstanceName;
 import io.jmix.core.metamodel.annotation.JmixEntity;
 import jakarta.persistence.*;
@@ -10,6 +11,7 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @JmixEntity
+@PublishEntityChangedEvents
 @Entity
 @Table(name = "ORGANIZATION", indexes = {
         @Index(name = "IDX_ORGANIZATION_ON_NAME", columnList = "NAME", unique = true),
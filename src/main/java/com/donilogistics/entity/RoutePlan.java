@@ -1,5 +1,6 @@
 package com.donilogistics.entity;
 
+import com.donilogistics.geo.GeoHash;
 import io.jmix.core.entity.annotation.JmixGeneratedValue;
 import io.jmix.core.metamodel.annotation.JmixEntity;
 import jakarta.persistence.*;
@@ -10,7 +11,9 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @JmixEntity
-@Table(name = "ROUTE_PLAN")
+@Table(name = "ROUTE_PLAN", indexes = {
+        @Index(name = "IDX_ROUTE_PLAN_ON_GEOHASH", columnList = "GEOHASH")
+})
 @Entity
 public class RoutePlan {
     @JmixGeneratedValue
@@ -48,6 +51,9 @@ public class RoutePlan {
     @Column(name = "CURRENT_LONGITUDE", precision = 10, scale = 6)
     private BigDecimal currentLongitude;
 
+    @Column(name = "GEOHASH", length = 12)
+    private String geohash;
+
     @Column(name = "LAST_SEEN")
     private LocalDateTime lastSeen;
 
@@ -83,11 +89,13 @@ public class RoutePlan {
     protected void onCreate() {
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
+        geohash = GeoHash.of(currentLatitude, currentLongitude);
     }
 
     @PreUpdate
     protected void onUpdate() {
         updatedAt = LocalDateTime.now();
+        geohash = GeoHash.of(currentLatitude, currentLongitude);
     }
 
     public UUID getId() {
@@ -170,6 +178,14 @@ public class RoutePlan {
         this.currentLongitude = currentLongitude;
     }
 
+    public String getGeohash() {
+        return geohash;
+    }
+
+    public void setGeohash(String geohash) {
+        this.geohash = geohash;
+    }
+
     public LocalDateTime getLastSeen() {
         return lastSeen;
     }
@@ -5,6 +5,7 @@ import io.jmix.core.metamodel.annotation.JmixEntity;
 import jakarta.persistence.*;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.UUID;
 
 @JmixEntity
@@ -46,6 +47,28 @@ public class RouteStop {
     @Column(name = "STOP_TYPE", length = 20)
     private RouteStopType stopType;
 
+    @Column(name = "ARRIVED_AT")
+    private LocalDateTime arrivedAt;
+
+    @Column(name = "DEPARTED_AT")
+    private LocalDateTime departedAt;
+
+    public LocalDateTime getArrivedAt() {
+        return arrivedAt;
+    }
+
+    public void setArrivedAt(LocalDateTime arrivedAt) {
+        this.arrivedAt = arrivedAt;
+    }
+
+    public LocalDateTime getDepartedAt() {
+        return departedAt;
+    }
+
+    public void setDepartedAt(LocalDateTime departedAt) {
+        this.departedAt = departedAt;
+    }
+
     public RouteStopType getStopType() {
         return stopType;
     }
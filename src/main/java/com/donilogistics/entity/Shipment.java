@@ -1,6 +1,7 @@
 package com.donilogistics.entity;
 
 import io.jmix.core.entity.annotation.JmixGeneratedValue;
+import io.jmix.core.entity.annotation.PublishEntityChangedEvents;
 import io.jmix.core.metamodel.annotation.JmixEntity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
@@ -12,7 +13,11 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @JmixEntity
-@Table(name = "SHIPMENT")
+@PublishEntityChangedEvents
+@Table(name = "SHIPMENT", indexes = {
+        @Index(name = "IDX_SHIPMENT_ON_CREATED_AT_ID", columnList = "CREATED_AT, ID"),
+        @Index(name = "IDX_SHIPMENT_ON_DRIVER_CREATED_AT", columnList = "ASSIGNED_DRIVER_ID, CREATED_AT")
+})
 @Entity
 public class Shipment {
     @JmixGeneratedValue
@@ -10,7 +10,12 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @JmixEntity
-@Table(name = "TRACKING_EVENT")
+@Table(name = "TRACKING_EVENT", indexes = {
+        @Index(name = "IDX_TRACKING_EVENT_ON_VEHICLE_TIME", columnList = "VEHICLE_ID, RECORDED_AT"),
+        @Index(name = "IDX_TRACKING_EVENT_ON_DRIVER_TIME", columnList = "DRIVER_ID, RECORDED_AT"),
+        @Index(name = "IDX_TRACKING_EVENT_ON_SHIPMENT_TIME", columnList = "SHIPMENT_ID, RECORDED_AT"),
+        @Index(name = "IDX_TRACKING_EVENT_ON_RECORDED_AT", columnList = "RECORDED_AT")
+})
 @Entity
 public class TrackingEvent {
     @JmixGeneratedValue
@@ -30,6 +35,14 @@ public class TrackingEvent {
     @JoinColumn(name = "CONSOLIDATION_ID")
     private Consolidation consolidation;
 
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "VEHICLE_ID")
+    private Vehicle vehicle;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "DRIVER_ID")
+    private DriverProfile driver;
+
     @NotNull
     @Enumerated(EnumType.STRING)
     @Column(name = "EVENT_TYPE", nullable = false, length = 50)
@@ -112,6 +125,22 @@ public class TrackingEvent {
         this.consolidation = consolidation;
     }
 
+    public Vehicle getVehicle() {
+        return vehicle;
+    }
+
+    public void setVehicle(Vehicle vehicle) {
+        this.vehicle = vehicle;
+    }
+
+    public DriverProfile getDriver() {
+        return driver;
+    }
+
+    public void setDriver(DriverProfile driver) {
+        this.driver = driver;
+    }
+
     public TrackingEventType getEventType() {
         return eventType;
     }
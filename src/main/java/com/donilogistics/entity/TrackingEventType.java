@@ -6,5 +6,6 @@ public enum TrackingEventType {
     SENSOR,
     ETA,
     ARRIVAL,
-    DEPARTURE
+    DEPARTURE,
+    OFF_ROUTE
 }
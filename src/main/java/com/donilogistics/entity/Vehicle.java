@@ -1,5 +1,6 @@
 package com.donilogistics.entity;
 
+import com.donilogistics.geo.GeoHash;
 import io.jmix.core.FileRef;
 import io.jmix.core.entity.annotation.JmixGeneratedValue;
 import io.jmix.core.metamodel.annotation.InstanceName;
@@ -15,7 +16,8 @@ import java.util.UUID;
 @Entity
 @Table(name = "VEHICLE", indexes = {
         @Index(name = "IDX_VEHICLE_ON_LICENSE_PLATE", columnList = "LICENSE_PLATE", unique = true),
-        @Index(name = "IDX_VEHICLE_ON_ORGANIZATION", columnList = "ORGANIZATION_ID")
+        @Index(name = "IDX_VEHICLE_ON_ORGANIZATION", columnList = "ORGANIZATION_ID"),
+        @Index(name = "IDX_VEHICLE_ON_GEOHASH", columnList = "GEOHASH")
 })
 public class Vehicle {
 
@@ -90,6 +92,9 @@ public class Vehicle {
     @Column(name = "CURRENT_LONGITUDE")
     private Double currentLongitude;
 
+    @Column(name = "LAST_SEEN")
+    private LocalDateTime lastSeen;
+
     @Column(name = "GPS_TRACKING_ENABLED")
     private Boolean gpsTrackingEnabled = false;
 
@@ -120,6 +125,15 @@ public class Vehicle {
     @Column(name = "LAST_MODIFIED_BY")
     private String lastModifiedBy;
 
+    @Column(name = "GEOHASH", length = 12)
+    private String geohash;
+
+    @PrePersist
+    @PreUpdate
+    protected void updateGeohash() {
+        geohash = GeoHash.of(currentLatitude, currentLongitude);
+    }
+
     public UUID getId() {
         return id;
     }
@@ -359,4 +373,20 @@ public class Vehicle {
     public void setLastModifiedBy(String lastModifiedBy) {
         this.lastModifiedBy = lastModifiedBy;
     }
+
+    public LocalDateTime getLastSeen() {
+        return lastSeen;
+    }
+
+    public void setLastSeen(LocalDateTime lastSeen) {
+        this.lastSeen = lastSeen;
+    }
+
+    public String getGeohash() {
+        return geohash;
+    }
+
+    public void setGeohash(String geohash) {
+        this.geohash = geohash;
+    }
 }
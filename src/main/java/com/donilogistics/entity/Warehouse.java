@@ -1,5 +1,6 @@
 package com.donilogistics.entity;
 
+import com.donilogistics.geo.GeoHash;
 import io.jmix.core.entity.annotation.JmixGeneratedValue;
 import io.jmix.core.metamodel.annotation.InstanceName;
 import io.jmix.core.metamodel.annotation.JmixEntity;
@@ -14,7 +15,8 @@ import java.util.UUID;
 @Table(name = "WAREHOUSE", indexes = {
         @Index(name = "IDX_WAREHOUSE_ON_CODE", columnList = "CODE", unique = true),
         @Index(name = "IDX_WAREHOUSE_ON_CITY", columnList = "CITY"),
-        @Index(name = "IDX_WAREHOUSE_ON_ORGANIZATION", columnList = "ORGANIZATION_ID")
+        @Index(name = "IDX_WAREHOUSE_ON_ORGANIZATION", columnList = "ORGANIZATION_ID"),
+        @Index(name = "IDX_WAREHOUSE_ON_GEOHASH", columnList = "GEOHASH")
 })
 public class Warehouse {
 
@@ -40,6 +42,9 @@ public class Warehouse {
     @Column(name = "LONGITUDE", precision = 19, scale = 6)
     private BigDecimal longitude;
 
+    @Column(name = "GEOHASH", length = 12)
+    private String geohash;
+
     @Column(name = "ADDRESS_LINE1")
     private String addressLine1;
 
@@ -94,11 +99,13 @@ public class Warehouse {
     public void prePersist() {
         this.createdAt = LocalDateTime.now();
         this.updatedAt = this.createdAt;
+        this.geohash = GeoHash.of(latitude, longitude);
     }
 
     @PreUpdate
     public void preUpdate() {
         this.updatedAt = LocalDateTime.now();
+        this.geohash = GeoHash.of(latitude, longitude);
     }
 
     public UUID getId() { return id; }
@@ -113,6 +120,8 @@ public class Warehouse {
     public void setLatitude(BigDecimal latitude) { this.latitude = latitude; }
     public BigDecimal getLongitude() { return longitude; }
     public void setLongitude(BigDecimal longitude) { this.longitude = longitude; }
+    public String getGeohash() { return geohash; }
+    public void setGeohash(String geohash) { this.geohash = geohash; }
     public String getAddressLine1() { return addressLine1; }
     public void setAddressLine1(String addressLine1) { this.addressLine1 = addressLine1; }
     public String getAddressLine2() { return addressLine2; }
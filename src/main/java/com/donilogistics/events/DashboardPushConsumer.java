@@ -0,0 +1,28 @@
+package com.donilogistics.events;
+
+import com.donilogistics.service.GpsPing;
+import com.donilogistics.service.LivePushService;
+import org.springframework.stereotype.Component;
+
+/**
+ * Relays bus traffic to the STOMP broker for live dashboards.
+ */
+@Component
+public class DashboardPushConsumer implements TrackingEventConsumer {
+
+    private final LivePushService livePushService;
+
+    public DashboardPushConsumer(LivePushService livePushService) {
+        this.livePushService = livePushService;
+    }
+
+    @Override
+    public void onLocation(GpsPing ping) {
+        livePushService.pushLocation(ping);
+    }
+
+    @Override
+    public void onStatusChange(ShipmentStatusChange change) {
+        livePushService.pushShipmentStatus(change);
+    }
+}
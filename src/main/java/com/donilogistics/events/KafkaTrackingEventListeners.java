@@ -0,0 +1,68 @@
+package com.donilogistics.events;
+
+import com.donilogistics.service.GpsPing;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Kafka side of the tracking event bus. Every downstream concern reads the topics in its own
+ * consumer group, so a slow notification write never holds back persistence or dashboards.
+ */
+@Component
+@ConditionalOnProperty(name = "app.events.kafka.enabled", havingValue = "true")
+public class KafkaTrackingEventListeners {
+
+    private static final Logger log = LoggerFactory.getLogger(KafkaTrackingEventListeners.class);
+
+    private final ObjectMapper objectMapper;
+    private final LocationPersistenceConsumer persistenceConsumer;
+    private final ShipmentNotificationConsumer notificationConsumer;
+    private final DashboardPushConsumer dashboardConsumer;
+
+    public KafkaTrackingEventListeners(ObjectMapper objectMapper,
+                                       LocationPersistenceConsumer persistenceConsumer,
+                                       ShipmentNotificationConsumer notificationConsumer,
+                                       DashboardPushConsumer dashboardConsumer) {
+        this.objectMapper = objectMapper;
+        this.persistenceConsumer = persistenceConsumer;
+        this.notificationConsumer = notificationConsumer;
+        this.dashboardConsumer = dashboardConsumer;
+    }
+
+    @KafkaListener(id = "doni-persistence", groupId = "doni-persistence", topics = "${app.events.kafka.location-topic:doni.tracking.location}")
+    public void persistLocation(String json) {
+        GpsPing ping = read(json, GpsPing.class);
+        if (ping != null) persistenceConsumer.onLocation(ping);
+    }
+
+    @KafkaListener(id = "doni-notifications", groupId = "doni-notifications", topics = "${app.events.kafka.status-topic:doni.shipment.status}")
+    public void notifyStatusChange(String json) {
+        ShipmentStatusChange change = read(json, ShipmentStatusChange.class);
+        if (change != null) notificationConsumer.onStatusChange(change);
+    }
+
+    @KafkaListener(id = "doni-dashboard-location", groupId = "doni-dashboard-location", topics = "${app.events.kafka.location-topic:doni.tracking.location}")
+    public void pushLocation(String json) {
+        GpsPing ping = read(json, GpsPing.class);
+        if (ping != null) dashboardConsumer.onLocation(ping);
+    }
+
+    @KafkaListener(id = "doni-dashboard-status", groupId = "doni-dashboard-status", topics = "${app.events.kafka.status-topic:doni.shipment.status}")
+    public void pushStatusChange(String json) {
+        ShipmentStatusChange change = read(json, ShipmentStatusChange.class);
+        if (change != null) dashboardConsumer.onStatusChange(change);
+    }
+
+    private <T> T read(String json, Class<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (Exception e) {
+            log.warn("Skipping malformed {} message: {}", type.getSimpleName(), e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.donilogistics.events;
+
+import com.donilogistics.service.GpsPing;
+import com.donilogistics.service.TrackingIngestionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+@Component
+public class LocationPersistenceConsumer implements TrackingEventConsumer {
+
+    private static final Logger log = LoggerFactory.getLogger(LocationPersistenceConsumer.class);
+
+    private final TrackingIngestionService trackingIngestionService;
+
+    public LocationPersistenceConsumer(TrackingIngestionService trackingIngestionService) {
+        this.trackingIngestionService = trackingIngestionService;
+    }
+
+    @Override
+    public void onLocation(GpsPing ping) {
+        if (!trackingIngestionService.submit(ping)) {
+            log.warn("Location for driver={} vehicle={} was not accepted by ingestion", ping.driverId, ping.vehicleId);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.donilogistics.events;
+
+import com.donilogistics.entity.NotificationChannel;
+import com.donilogistics.entity.NotificationType;
+import com.donilogistics.service.NotificationService;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ShipmentNotificationConsumer implements TrackingEventConsumer {
+
+    private final NotificationService notificationService;
+
+    public ShipmentNotificationConsumer(NotificationService notificationService) {
+        this.notificationService = notificationService;
+    }
+
+    @Override
+    public void onStatusChange(ShipmentStatusChange change) {
+        String tracking = change.trackingNumber != null ? change.trackingNumber : "";
+        if (change.isCreation()) {
+            notificationService.notifyUser(null,
+                    "New shipment created",
+                    "Shipment " + tracking + " has been created.",
+                    NotificationType.SHIPMENT_STATUS,
+                    NotificationChannel.IN_APP,
+                    change.shipmentId,
+                    change.organizationId);
+            return;
+        }
+        if (change.fromStatus == change.toStatus) return;
+        notificationService.notifyUser(change.assignedDriverUserId,
+                "Shipment status updated",
+                "Shipment " + tracking + " is now " + change.toStatus + ".",
+                NotificationType.SHIPMENT_STATUS,
+                NotificationChannel.IN_APP,
+                change.shipmentId,
+                change.organizationId);
+    }
+}
@@ -0,0 +1,41 @@
+package com.donilogistics.events;
+
+import com.donilogistics.entity.Shipment;
+import com.donilogistics.entity.ShipmentStatus;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Message published on every shipment status transition. {@code fromStatus} is null for newly created shipments.
+ */
+public class ShipmentStatusChange {
+    public UUID shipmentId;
+    public String trackingNumber;
+    public UUID organizationId;
+    public UUID assignedDriverUserId;
+    public ShipmentStatus fromStatus;
+    public ShipmentStatus toStatus;
+    public LocalDateTime changedAt;
+
+    public ShipmentStatusChange() {
+    }
+
+    public static ShipmentStatusChange of(Shipment shipment, ShipmentStatus fromStatus) {
+        ShipmentStatusChange c = new ShipmentStatusChange();
+        c.shipmentId = shipment.getId();
+        c.trackingNumber = shipment.getTrackingNumber();
+        c.organizationId = shipment.getCustomer() != null ? shipment.getCustomer().getId() : null;
+        c.assignedDriverUserId = shipment.getAssignedDriver() != null ? shipment.getAssignedDriver().getId() : null;
+        c.fromStatus = fromStatus;
+        c.toStatus = shipment.getStatus();
+        c.changedAt = LocalDateTime.now();
+        return c;
+    }
+
+    @JsonIgnore
+    public boolean isCreation() {
+        return fromStatus == null;
+    }
+}
@@ -0,0 +1,172 @@
+package com.donilogistics.events;
+
+import com.donilogistics.service.GpsPing;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Publishes location updates and shipment status transitions.
+ * With {@code app.events.kafka.enabled=true} messages go to partitioned Kafka topics keyed by
+ * vehicle/shipment id (so per-entity ordering is kept) and each consumer reads them in its own group.
+ * Otherwise the consumers are invoked off the request thread on app.events.local.lanes single-thread
+ * lanes; each key always hashes to the same lane, so events for one vehicle or shipment reach every
+ * consumer in publish order, as with the keyed topics. A lane holds at most
+ * app.events.local.lane-capacity pending events; when it is full the event is refused at publish time
+ * and the publish method returns false instead of running consumers on the caller's thread.
+ */
+@Service
+public class TrackingEventBus {
+
+    private static final Logger log = LoggerFactory.getLogger(TrackingEventBus.class);
+
+    private final ObjectProvider<KafkaTemplate<String, String>> kafkaTemplateProvider;
+    private final ObjectMapper objectMapper;
+    private final List<TrackingEventConsumer> consumers;
+    private final ExecutorService[] lanes;
+    private final Semaphore[] laneSlots;
+
+    @Value("${app.events.kafka.enabled:false}")
+    private boolean kafkaEnabled;
+
+    @Value("${app.events.kafka.location-topic:doni.tracking.location}")
+    private String locationTopic;
+
+    @Value("${app.events.kafka.status-topic:doni.shipment.status}")
+    private String statusTopic;
+
+    public TrackingEventBus(ObjectProvider<KafkaTemplate<String, String>> kafkaTemplateProvider,
+                            ObjectMapper objectMapper,
+                            List<TrackingEventConsumer> consumers,
+                            @Value("${app.events.local.lanes:4}") int laneCount,
+                            @Value("${app.events.local.lane-capacity:10000}") int laneCapacity) {
+        this.kafkaTemplateProvider = kafkaTemplateProvider;
+        this.objectMapper = objectMapper;
+        this.consumers = consumers;
+        this.lanes = new ExecutorService[Math.max(1, laneCount)];
+        this.laneSlots = new Semaphore[lanes.length];
+        for (int i = 0; i < lanes.length; i++) {
+            String name = "tracking-bus-" + (i + 1);
+            lanes[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+            });
+            laneSlots[i] = new Semaphore(laneCapacity);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ExecutorService lane : lanes) lane.shutdown();
+    }
+
+    /**
+     * @return false if the local lane for this device is full and the event was refused
+     */
+    public boolean publishLocation(GpsPing ping) {
+        UUID key = ping.vehicleId != null ? ping.vehicleId : ping.driverId != null ? ping.driverId : ping.shipmentId;
+        if (kafkaEnabled) {
+            afterCommit(() -> send(locationTopic, Objects.toString(key, null), ping), null);
+            return true;
+        }
+        return publishLocal(key, c -> c.onLocation(ping));
+    }
+
+    /**
+     * @return false if the local lane for this shipment is full and the event was refused
+     */
+    public boolean publishStatusChange(ShipmentStatusChange change) {
+        if (kafkaEnabled) {
+            afterCommit(() -> send(statusTopic, Objects.toString(change.shipmentId, null), change), null);
+            return true;
+        }
+        boolean accepted = publishLocal(change.shipmentId, c -> c.onStatusChange(change));
+        // The status itself is already saved by the caller; only the notifications are lost
+        if (!accepted) log.warn("Tracking event lane full, dropped status change to {} for shipment {}", change.toStatus, change.shipmentId);
+        return accepted;
+    }
+
+    // The lane slot is taken now, so a full lane is reported to the publisher rather than discovered after commit
+    private boolean publishLocal(UUID key, Consumer<TrackingEventConsumer> call) {
+        int lane = key == null ? 0 : Math.floorMod(key.hashCode(), lanes.length);
+        Semaphore slots = laneSlots[lane];
+        if (!slots.tryAcquire()) return false;
+        afterCommit(() -> {
+            try {
+                lanes[lane].execute(() -> {
+                    try {
+                        for (TrackingEventConsumer c : consumers) dispatch(c, () -> call.accept(c));
+                    } finally {
+                        slots.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Only after shutdown; the task never runs, so its slot is given back here
+                slots.release();
+                log.warn("Tracking event lane {} is shut down, dropped event for {}", lane, key);
+            }
+        }, slots::release);
+        return true;
+    }
+
+    // Publishing from inside a transaction must not announce changes that are later rolled back
+    private void afterCommit(Runnable action, Runnable onRollback) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED && onRollback != null) onRollback.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void send(String topic, String key, Object payload) {
+        KafkaTemplate<String, String> template = kafkaTemplateProvider.getIfAvailable();
+        if (template == null) {
+            log.warn("Kafka events enabled but no KafkaTemplate is configured; dropping message for {}", topic);
+            return;
+        }
+        try {
+            String json = objectMapper.writeValueAsString(payload);
+            template.send(topic, key, json).whenComplete((result, ex) -> {
+                if (ex != null) log.warn("Failed to publish to {} key={}: {}", topic, key, ex.getMessage());
+            });
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize event for {}", topic, e);
+        }
+    }
+
+    private void dispatch(TrackingEventConsumer consumer, Runnable call) {
+        try {
+            call.run();
+        } catch (Exception e) {
+            log.warn("{} failed to handle event: {}", consumer.getClass().getSimpleName(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.donilogistics.events;
+
+import com.donilogistics.service.GpsPing;
+
+/**
+ * A downstream subscriber of the tracking event bus. Each consumer is fed independently:
+ * with Kafka enabled it has its own consumer group, otherwise it is invoked on the bus executor.
+ */
+public interface TrackingEventConsumer {
+
+    default void onLocation(GpsPing ping) {
+    }
+
+    default void onStatusChange(ShipmentStatusChange change) {
+    }
+}
@@ -0,0 +1,298 @@
+package com.donilogistics.geo;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Thread-safe uniform lat/lon grid over moving points. Updates are O(1); k-nearest queries walk
+ * rings of cells outward from the query point and stop as soon as no unvisited ring can beat the
+ * current k-th best, so only a handful of cells are touched for dense fleets. When the grid is too
+ * sparse for ring walking to pay off the query falls back to a linear scan.
+ *
+ * @param <V> payload stored alongside each point
+ */
+public class GeoGridIndex<V> {
+
+    public static final class Entry<V> {
+        private final UUID id;
+        private final double lat;
+        private final double lon;
+        private final long cell;
+        private final V value;
+
+        Entry(UUID id, double lat, double lon, long cell, V value) {
+            this.id = id;
+            this.lat = lat;
+            this.lon = lon;
+            this.cell = cell;
+            this.value = value;
+        }
+
+        public UUID getId() { return id; }
+        public double getLat() { return lat; }
+        public double getLon() { return lon; }
+        public V getValue() { return value; }
+    }
+
+    public static final class Neighbor<V> {
+        private final Entry<V> entry;
+        private final double distanceMeters;
+
+        Neighbor(Entry<V> entry, double distanceMeters) {
+            this.entry = entry;
+            this.distanceMeters = distanceMeters;
+        }
+
+        public UUID getId() { return entry.id; }
+        public double getLat() { return entry.lat; }
+        public double getLon() { return entry.lon; }
+        public V getValue() { return entry.value; }
+        public double getDistanceMeters() { return distanceMeters; }
+    }
+
+    private final double cellDeg;
+    private final int rows;
+    private final int cols;
+    private final ConcurrentHashMap<UUID, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Set<UUID>> cells = new ConcurrentHashMap<>();
+
+    public GeoGridIndex(double cellDeg) {
+        if (cellDeg <= 0 || cellDeg > 10) throw new IllegalArgumentException("cellDeg must be in (0, 10]");
+        this.cellDeg = cellDeg;
+        this.rows = (int) Math.ceil(180.0 / cellDeg);
+        this.cols = (int) Math.ceil(360.0 / cellDeg);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public Entry<V> get(UUID id) {
+        return entries.get(id);
+    }
+
+    public void clear() {
+        entries.clear();
+        cells.clear();
+    }
+
+    public void put(UUID id, double lat, double lon, V value) {
+        long cell = cellOf(lat, lon);
+        entries.compute(id, (k, old) -> {
+            if (old != null && old.cell != cell) removeFromCell(old.cell, id);
+            addToCell(cell, id);
+            return new Entry<>(id, lat, lon, cell, value);
+        });
+    }
+
+    /**
+     * Moves an existing point, keeping its payload. Returns false if the id is not indexed.
+     */
+    public boolean move(UUID id, double lat, double lon) {
+        long cell = cellOf(lat, lon);
+        Entry<V> updated = entries.computeIfPresent(id, (k, old) -> {
+            if (old.cell != cell) {
+                removeFromCell(old.cell, id);
+                addToCell(cell, id);
+            }
+            return new Entry<>(id, lat, lon, cell, old.value);
+        });
+        return updated != null;
+    }
+
+    public void remove(UUID id) {
+        entries.computeIfPresent(id, (k, old) -> {
+            removeFromCell(old.cell, id);
+            return null;
+        });
+    }
+
+    /**
+     * Returns up to {@code k} points nearest to (lat, lon) within {@code maxRadiusMeters}, closest first.
+     */
+    public List<Neighbor<V>> nearest(double lat, double lon, int k, double maxRadiusMeters, Predicate<V> filter) {
+        if (k <= 0 || entries.isEmpty()) return List.of();
+        PriorityQueue<Neighbor<V>> best = new PriorityQueue<>(k + 1,
+                Comparator.comparingDouble((Neighbor<V> n) -> n.distanceMeters).reversed());
+        int row0 = row(lat);
+        int col0 = col(lon);
+        double cellHeightM = cellDeg * GeoUtils.METERS_PER_DEGREE_LAT;
+        int total = entries.size();
+        int seen = 0;
+        for (int r = 0; r <= rows; r++) {
+            if (r > 0 && (8L * r > total || 2 * r + 1 >= cols)) {
+                return linearNearest(lat, lon, k, maxRadiusMeters, filter);
+            }
+            // Nothing in ring r can be closer than (r - 1) full cells; cell width shrinks with latitude
+            double edgeLat = Math.min(89.9, Math.abs(lat) + r * cellDeg);
+            double minCellM = Math.min(cellHeightM, cellHeightM * Math.cos(Math.toRadians(edgeLat)));
+            double ringLowerBound = Math.max(0, r - 1) * minCellM;
+            if (ringLowerBound > maxRadiusMeters) break;
+            if (best.size() == k && best.peek().distanceMeters <= ringLowerBound) break;
+            for (long cell : ring(row0, col0, r)) {
+                Set<UUID> ids = cells.get(cell);
+                if (ids == null) continue;
+                for (UUID id : ids) {
+                    Entry<V> e = entries.get(id);
+                    if (e == null || e.cell != cell) continue;
+                    seen++;
+                    offer(best, e, lat, lon, k, maxRadiusMeters, filter);
+                }
+            }
+            if (seen >= total && r > 0) break;
+        }
+        return drain(best);
+    }
+
+    /**
+     * Returns all points within {@code radiusMeters} of (lat, lon), closest first.
+     */
+    public List<Neighbor<V>> withinRadius(double lat, double lon, double radiusMeters, Predicate<V> filter) {
+        List<Neighbor<V>> out = new ArrayList<>();
+        if (entries.isEmpty()) return out;
+        double dLat = radiusMeters / GeoUtils.METERS_PER_DEGREE_LAT;
+        double cosLat = Math.max(0.01, Math.cos(Math.toRadians(Math.min(89.9, Math.abs(lat) + dLat))));
+        double dLon = Math.min(180, dLat / cosLat);
+        int rMin = row(lat - dLat), rMax = row(lat + dLat);
+        int cSpan = (int) Math.ceil(dLon / cellDeg);
+        long cellCount = (long) (rMax - rMin + 1) * (2L * cSpan + 1);
+        if (cellCount > entries.size()) {
+            for (Entry<V> e : entries.values()) collectWithin(out, e, lat, lon, radiusMeters, filter);
+        } else {
+            int col0 = col(lon);
+            for (int r = rMin; r <= rMax; r++) {
+                for (int dc = -cSpan; dc <= cSpan; dc++) {
+                    long cell = key(r, col0 + dc);
+                    Set<UUID> ids = cells.get(cell);
+                    if (ids == null) continue;
+                    for (UUID id : ids) {
+                        Entry<V> e = entries.get(id);
+                        if (e != null && e.cell == cell) collectWithin(out, e, lat, lon, radiusMeters, filter);
+                    }
+                }
+            }
+        }
+        out.sort(Comparator.comparingDouble(n -> n.distanceMeters));
+        return out;
+    }
+
+    /**
+     * Returns all points inside the box. A box with minLon > maxLon crosses the antimeridian.
+     */
+    public List<Entry<V>> withinBox(double minLat, double minLon, double maxLat, double maxLon, Predicate<V> filter) {
+        List<Entry<V>> out = new ArrayList<>();
+        if (entries.isEmpty() || minLat > maxLat) return out;
+        int rMin = row(minLat), rMax = row(maxLat);
+        int cMin = col(minLon), cMax = col(maxLon);
+        int cSpan = Math.floorMod(cMax - cMin, cols) + 1;
+        if ((long) (rMax - rMin + 1) * cSpan > entries.size()) {
+            for (Entry<V> e : entries.values()) collectInBox(out, e, minLat, minLon, maxLat, maxLon, filter);
+            return out;
+        }
+        for (int r = rMin; r <= rMax; r++) {
+            for (int dc = 0; dc < cSpan; dc++) {
+                long cell = key(r, cMin + dc);
+                Set<UUID> ids = cells.get(cell);
+                if (ids == null) continue;
+                for (UUID id : ids) {
+                    Entry<V> e = entries.get(id);
+                    if (e != null && e.cell == cell) collectInBox(out, e, minLat, minLon, maxLat, maxLon, filter);
+                }
+            }
+        }
+        return out;
+    }
+
+    public static boolean inBox(double lat, double lon, double minLat, double minLon, double maxLat, double maxLon) {
+        if (lat < minLat || lat > maxLat) return false;
+        return minLon <= maxLon ? lon >= minLon && lon <= maxLon : lon >= minLon || lon <= maxLon;
+    }
+
+    private void collectInBox(List<Entry<V>> out, Entry<V> e, double minLat, double minLon, double maxLat, double maxLon, Predicate<V> filter) {
+        if (filter != null && !filter.test(e.value)) return;
+        if (inBox(e.lat, e.lon, minLat, minLon, maxLat, maxLon)) out.add(e);
+    }
+
+    private void collectWithin(List<Neighbor<V>> out, Entry<V> e, double lat, double lon, double radiusMeters, Predicate<V> filter) {
+        if (filter != null && !filter.test(e.value)) return;
+        double d = GeoUtils.haversineMeters(lat, lon, e.lat, e.lon);
+        if (d <= radiusMeters) out.add(new Neighbor<>(e, d));
+    }
+
+    private List<Neighbor<V>> linearNearest(double lat, double lon, int k, double maxRadiusMeters, Predicate<V> filter) {
+        PriorityQueue<Neighbor<V>> best = new PriorityQueue<>(k + 1,
+                Comparator.comparingDouble((Neighbor<V> n) -> n.distanceMeters).reversed());
+        for (Entry<V> e : entries.values()) offer(best, e, lat, lon, k, maxRadiusMeters, filter);
+        return drain(best);
+    }
+
+    private void offer(PriorityQueue<Neighbor<V>> best, Entry<V> e, double lat, double lon, int k, double maxRadiusMeters, Predicate<V> filter) {
+        if (filter != null && !filter.test(e.value)) return;
+        double d = GeoUtils.haversineMeters(lat, lon, e.lat, e.lon);
+        if (d > maxRadiusMeters) return;
+        if (best.size() < k) {
+            best.add(new Neighbor<>(e, d));
+        } else if (d < best.peek().distanceMeters) {
+            best.poll();
+            best.add(new Neighbor<>(e, d));
+        }
+    }
+
+    private List<Neighbor<V>> drain(PriorityQueue<Neighbor<V>> best) {
+        List<Neighbor<V>> out = new ArrayList<>(best);
+        out.sort(Comparator.comparingDouble(n -> n.distanceMeters));
+        return out;
+    }
+
+    private List<Long> ring(int row0, int col0, int r) {
+        if (r == 0) return List.of(key(row0, col0));
+        List<Long> out = new ArrayList<>(8 * r);
+        for (int dc = -r; dc <= r; dc++) {
+            addIfRowValid(out, row0 - r, col0 + dc);
+            addIfRowValid(out, row0 + r, col0 + dc);
+        }
+        for (int dr = -r + 1; dr <= r - 1; dr++) {
+            addIfRowValid(out, row0 + dr, col0 - r);
+            addIfRowValid(out, row0 + dr, col0 + r);
+        }
+        return out;
+    }
+
+    private void addIfRowValid(List<Long> out, int row, int col) {
+        if (row >= 0 && row < rows) out.add(key(row, col));
+    }
+
+    // Inside compute, so a concurrent removeFromCell cannot drop the set between lookup and add
+    private void addToCell(long cell, UUID id) {
+        cells.compute(cell, (c, ids) -> {
+            if (ids == null) ids = ConcurrentHashMap.newKeySet();
+            ids.add(id);
+            return ids;
+        });
+    }
+
+    private void removeFromCell(long cell, UUID id) {
+        cells.computeIfPresent(cell, (c, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private long cellOf(double lat, double lon) {
+        return key(row(lat), col(lon));
+    }
+
+    private int row(double lat) {
+        int r = (int) Math.floor((Math.max(-90, Math.min(90, lat)) + 90) / cellDeg);
+        return Math.min(rows - 1, Math.max(0, r));
+    }
+
+    private int col(double lon) {
+        return Math.floorMod((int) Math.floor((lon + 180) / cellDeg), cols);
+    }
+
+    private long key(int row, int col) {
+        return (long) row * cols + Math.floorMod(col, cols);
+    }
+}
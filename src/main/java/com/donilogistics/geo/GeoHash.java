@@ -0,0 +1,129 @@
+package com.donilogistics.geo;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Standard base-32 geohash encoding plus the neighbour/precision helpers needed for
+ * prefix-pruned proximity queries in SQL.
+ */
+public final class GeoHash {
+
+    /** Precision stored on entities: 9 characters is roughly a 5 m x 5 m cell. */
+    public static final int STORED_PRECISION = 9;
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    // Cell width/height in km at the equator for precisions 1..12
+    private static final double[] CELL_WIDTH_KM = {5009.4, 1252.3, 156.5, 39.1, 4.89, 1.22, 0.153, 0.0382, 0.00477, 0.00119, 0.000149, 0.0000372};
+    private static final double[] CELL_HEIGHT_KM = {4992.6, 624.1, 156.0, 19.5, 4.89, 0.61, 0.152, 0.019, 0.00477, 0.000596, 0.000149, 0.0000186};
+
+    private GeoHash() {
+    }
+
+    public static String encode(double lat, double lon, int precision) {
+        double latMin = -90, latMax = 90, lonMin = -180, lonMax = 180;
+        StringBuilder sb = new StringBuilder(precision);
+        boolean evenBit = true;
+        int bit = 0, ch = 0;
+        while (sb.length() < precision) {
+            if (evenBit) {
+                double mid = (lonMin + lonMax) / 2;
+                if (lon >= mid) { ch = (ch << 1) | 1; lonMin = mid; } else { ch <<= 1; lonMax = mid; }
+            } else {
+                double mid = (latMin + latMax) / 2;
+                if (lat >= mid) { ch = (ch << 1) | 1; latMin = mid; } else { ch <<= 1; latMax = mid; }
+            }
+            evenBit = !evenBit;
+            if (++bit == 5) {
+                sb.append(BASE32[ch]);
+                bit = 0;
+                ch = 0;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Geohash at {@link #STORED_PRECISION} for nullable coordinates, or null when they are missing/invalid.
+     */
+    public static String of(BigDecimal lat, BigDecimal lon) {
+        if (lat == null || lon == null) return null;
+        return of(lat.doubleValue(), lon.doubleValue());
+    }
+
+    public static String of(Double lat, Double lon) {
+        if (!GeoUtils.isValid(lat, lon)) return null;
+        return encode(lat, lon, STORED_PRECISION);
+    }
+
+    /**
+     * Returns {minLat, minLon, maxLat, maxLon} of the cell.
+     */
+    public static double[] bounds(String hash) {
+        double latMin = -90, latMax = 90, lonMin = -180, lonMax = 180;
+        boolean evenBit = true;
+        for (int i = 0; i < hash.length(); i++) {
+            int idx = indexOf(hash.charAt(i));
+            for (int n = 4; n >= 0; n--) {
+                int bitN = (idx >> n) & 1;
+                if (evenBit) {
+                    double mid = (lonMin + lonMax) / 2;
+                    if (bitN == 1) lonMin = mid; else lonMax = mid;
+                } else {
+                    double mid = (latMin + latMax) / 2;
+                    if (bitN == 1) latMin = mid; else latMax = mid;
+                }
+                evenBit = !evenBit;
+            }
+        }
+        return new double[]{latMin, lonMin, latMax, lonMax};
+    }
+
+    /**
+     * The cell itself followed by its (up to) eight neighbours, without duplicates near the poles.
+     */
+    public static List<String> cellAndNeighbors(String hash) {
+        double[] b = bounds(hash);
+        double dLat = b[2] - b[0];
+        double dLon = b[3] - b[1];
+        double cLat = (b[0] + b[2]) / 2;
+        double cLon = (b[1] + b[3]) / 2;
+        List<String> out = new ArrayList<>(9);
+        out.add(hash);
+        for (int i = -1; i <= 1; i++) {
+            for (int j = -1; j <= 1; j++) {
+                if (i == 0 && j == 0) continue;
+                double lat = cLat + i * dLat;
+                if (lat > 90 || lat < -90) continue;
+                double lon = cLon + j * dLon;
+                if (lon > 180) lon -= 360;
+                if (lon < -180) lon += 360;
+                String n = encode(lat, lon, hash.length());
+                if (!out.contains(n)) out.add(n);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Longest precision whose cells are at least {@code radiusKm} wide and tall at the given latitude,
+     * so a circle of that radius is always covered by a cell and its eight neighbours. Returns 0 when
+     * even a single-character cell is too small (no pruning possible).
+     */
+    public static int precisionForRadius(double radiusKm, double lat) {
+        double cos = Math.max(0.01, Math.cos(Math.toRadians(Math.min(89.9, Math.abs(lat)))));
+        for (int p = CELL_WIDTH_KM.length; p >= 1; p--) {
+            if (CELL_WIDTH_KM[p - 1] * cos >= radiusKm && CELL_HEIGHT_KM[p - 1] >= radiusKm) return p;
+        }
+        return 0;
+    }
+
+    private static int indexOf(char c) {
+        for (int i = 0; i < BASE32.length; i++) {
+            if (BASE32[i] == c) return i;
+        }
+        throw new IllegalArgumentException("Invalid geohash character: " + c);
+    }
+}
@@ -0,0 +1,29 @@
+package com.donilogistics.geo;
+
+/**
+ * Small spherical-earth helpers shared by the spatial index, routing and proximity code.
+ */
+public final class GeoUtils {
+
+    public static final double EARTH_RADIUS_M = 6371e3;
+    public static final double METERS_PER_DEGREE_LAT = Math.PI * EARTH_RADIUS_M / 180.0;
+
+    private GeoUtils() {
+    }
+
+    public static double haversineMeters(double lat1, double lon1, double lat2, double lon2) {
+        double phi1 = Math.toRadians(lat1);
+        double phi2 = Math.toRadians(lat2);
+        double dphi = Math.toRadians(lat2 - lat1);
+        double dlambda = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dphi / 2) * Math.sin(dphi / 2)
+                + Math.cos(phi1) * Math.cos(phi2)
+                * Math.sin(dlambda / 2) * Math.sin(dlambda / 2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return EARTH_RADIUS_M * c;
+    }
+
+    public static boolean isValid(Double lat, Double lon) {
+        return lat != null && lon != null && lat >= -90 && lat <= 90 && lon >= -180 && lon <= 180;
+    }
+}
@@ -0,0 +1,132 @@
+package com.donilogistics.geo;
+
+/**
+ * Nearest-segment lookup on a fixed polyline. Segments are kept in route order under an implicit
+ * balanced tree of lat/lon bounding boxes; because consecutive segments are spatially close the
+ * boxes stay tight, and a branch-and-bound descent touches O(log n) nodes for points near the line.
+ * A hint (the segment matched last time) seeds the bound, which makes tracking a moving vehicle
+ * along its route close to constant time. Distances use a local equirectangular projection around
+ * the query point, which is accurate well beyond off-route thresholds.
+ * Immutable after construction and safe to share between threads.
+ */
+public class PolylineIndex {
+
+    public static final class Match {
+        private final int segment;
+        private final double distanceMeters;
+
+        Match(int segment, double distanceMeters) {
+            this.segment = segment;
+            this.distanceMeters = distanceMeters;
+        }
+
+        public int getSegment() { return segment; }
+        public double getDistanceMeters() { return distanceMeters; }
+    }
+
+    private final double[] lat;
+    private final double[] lon;
+    private final int segments;
+    // Node bounding boxes of the implicit tree; node 1 is the root, children of k are 2k and 2k+1
+    private final double[] minLat, maxLat, minLon, maxLon;
+
+    public PolylineIndex(double[] lat, double[] lon) {
+        if (lat.length != lon.length || lat.length < 2) throw new IllegalArgumentException("polyline needs at least two points");
+        this.lat = lat.clone();
+        this.lon = lon.clone();
+        this.segments = lat.length - 1;
+        int size = 4 * segments;
+        minLat = new double[size];
+        maxLat = new double[size];
+        minLon = new double[size];
+        maxLon = new double[size];
+        build(1, 0, segments);
+    }
+
+    public int segmentCount() {
+        return segments;
+    }
+
+    private void build(int node, int from, int to) {
+        if (to - from == 1) {
+            minLat[node] = Math.min(lat[from], lat[from + 1]);
+            maxLat[node] = Math.max(lat[from], lat[from + 1]);
+            minLon[node] = Math.min(lon[from], lon[from + 1]);
+            maxLon[node] = Math.max(lon[from], lon[from + 1]);
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        build(2 * node, from, mid);
+        build(2 * node + 1, mid, to);
+        minLat[node] = Math.min(minLat[2 * node], minLat[2 * node + 1]);
+        maxLat[node] = Math.max(maxLat[2 * node], maxLat[2 * node + 1]);
+        minLon[node] = Math.min(minLon[2 * node], minLon[2 * node + 1]);
+        maxLon[node] = Math.max(maxLon[2 * node], maxLon[2 * node + 1]);
+    }
+
+    /**
+     * Nearest segment to (qLat, qLon).
+     *
+     * @param hint segment matched previously, or -1
+     */
+    public Match nearest(double qLat, double qLon, int hint) {
+        double cos = Math.max(0.01, Math.cos(Math.toRadians(qLat)));
+        double[] best = {Double.POSITIVE_INFINITY, -1};
+        if (hint >= 0 && hint < segments) {
+            for (int s = Math.max(0, hint - 1); s <= Math.min(segments - 1, hint + 1); s++) {
+                double d = segmentDistance(s, qLat, qLon, cos);
+                if (d < best[0]) {
+                    best[0] = d;
+                    best[1] = s;
+                }
+            }
+        }
+        search(1, 0, segments, qLat, qLon, cos, best);
+        return new Match((int) best[1], best[0]);
+    }
+
+    private void search(int node, int from, int to, double qLat, double qLon, double cos, double[] best) {
+        if (lowerBound(node, qLat, qLon) >= best[0]) return;
+        if (to - from == 1) {
+            double d = segmentDistance(from, qLat, qLon, cos);
+            if (d < best[0]) {
+                best[0] = d;
+                best[1] = from;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        int l = 2 * node, r = 2 * node + 1;
+        // Closer child first so the bound tightens before the other side is considered
+        if (lowerBound(l, qLat, qLon) <= lowerBound(r, qLat, qLon)) {
+            search(l, from, mid, qLat, qLon, cos, best);
+            search(r, mid, to, qLat, qLon, cos, best);
+        } else {
+            search(r, mid, to, qLat, qLon, cos, best);
+            search(l, from, mid, qLat, qLon, cos, best);
+        }
+    }
+
+    // Distance from the point to the box, using the smallest longitude scale inside the box so it never overestimates
+    private double lowerBound(int node, double qLat, double qLon) {
+        double dLat = Math.max(0, Math.max(minLat[node] - qLat, qLat - maxLat[node]));
+        double dLon = Math.max(0, Math.max(minLon[node] - qLon, qLon - maxLon[node]));
+        if (dLat == 0 && dLon == 0) return 0;
+        double maxAbsLat = Math.max(Math.abs(qLat), Math.max(Math.abs(minLat[node]), Math.abs(maxLat[node])));
+        double cosMin = Math.max(0.01, Math.cos(Math.toRadians(Math.min(90, maxAbsLat))));
+        double y = dLat * GeoUtils.METERS_PER_DEGREE_LAT;
+        double x = dLon * GeoUtils.METERS_PER_DEGREE_LAT * cosMin;
+        return Math.sqrt(x * x + y * y);
+    }
+
+    private double segmentDistance(int s, double qLat, double qLon, double cos) {
+        double m = GeoUtils.METERS_PER_DEGREE_LAT;
+        double ax = (lon[s] - qLon) * m * cos, ay = (lat[s] - qLat) * m;
+        double bx = (lon[s + 1] - qLon) * m * cos, by = (lat[s + 1] - qLat) * m;
+        double dx = bx - ax, dy = by - ay;
+        double len2 = dx * dx + dy * dy;
+        double t = len2 == 0 ? 0 : Math.max(0, Math.min(1, -(ax * dx + ay * dy) / len2));
+        double px = ax + t * dx, py = ay + t * dy;
+        return Math.sqrt(px * px + py * py);
+    }
+}
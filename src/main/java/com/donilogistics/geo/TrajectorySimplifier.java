@@ -0,0 +1,117 @@
+package com.donilogistics.geo;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Online dead-reckoning simplifier for position streams. Each track remembers its last stored point
+ * and the velocity observed there; a new point is stored only if extrapolating that velocity misses
+ * it by more than the tolerance, or if the last stored point is older than the keyframe interval.
+ * Straight constant-speed driving and standing still therefore cost one row per keyframe, while
+ * turns, stops and speed changes are kept. Decisions need O(1) time and memory per track.
+ * <p>
+ * Not thread-safe; meant to be driven by a single thread.
+ */
+public class TrajectorySimplifier {
+
+    private static final class Track {
+        // Last stored point and the velocity (m/s) it is extrapolated with
+        double lat, lon, vNorth, vEast;
+        long time;
+        // Last observed point, stored or not, used to derive velocity when the device reports none
+        double prevLat, prevLon;
+        long prevTime;
+        long touchedAt;
+    }
+
+    private final long keyframeMillis;
+    private final Map<UUID, Track> tracks = new HashMap<>();
+
+    public TrajectorySimplifier(long keyframeMillis) {
+        this.keyframeMillis = keyframeMillis;
+    }
+
+    /**
+     * Feeds one observation and returns whether it must be stored.
+     *
+     * @param speedKmh   reported speed, or null to derive it from the previous observation
+     * @param headingDeg reported heading, or null to derive it from the previous observation
+     */
+    public boolean offer(UUID trackId, double lat, double lon, long timeMillis, Double speedKmh, Double headingDeg,
+                         double toleranceMeters) {
+        Track t = tracks.get(trackId);
+        if (t == null) {
+            t = new Track();
+            tracks.put(trackId, t);
+            anchor(t, lat, lon, timeMillis, speedKmh, headingDeg);
+            return true;
+        }
+        t.touchedAt = System.currentTimeMillis();
+        long dtMillis = timeMillis - t.time;
+        // Late or duplicate timestamps cannot be extrapolated; store them and keep the current anchor
+        if (dtMillis <= 0 || timeMillis <= t.prevTime) return true;
+        boolean keep = dtMillis >= keyframeMillis;
+        if (!keep) {
+            double dt = dtMillis / 1000.0;
+            double predLat = t.lat + t.vNorth * dt / GeoUtils.METERS_PER_DEGREE_LAT;
+            double predLon = t.lon + t.vEast * dt / metersPerDegreeLon(t.lat);
+            keep = GeoUtils.haversineMeters(predLat, predLon, lat, lon) > toleranceMeters;
+        }
+        if (keep) {
+            anchor(t, lat, lon, timeMillis, speedKmh, headingDeg);
+        } else {
+            t.prevLat = lat;
+            t.prevLon = lon;
+            t.prevTime = timeMillis;
+        }
+        return keep;
+    }
+
+    private static void anchor(Track t, double lat, double lon, long timeMillis, Double speedKmh, Double headingDeg) {
+        if (speedKmh != null && headingDeg != null && !speedKmh.isNaN() && !headingDeg.isNaN()) {
+            double v = speedKmh / 3.6;
+            double h = Math.toRadians(headingDeg);
+            t.vNorth = v * Math.cos(h);
+            t.vEast = v * Math.sin(h);
+        } else if (t.prevTime > 0 && timeMillis > t.prevTime) {
+            double dt = (timeMillis - t.prevTime) / 1000.0;
+            t.vNorth = (lat - t.prevLat) * GeoUtils.METERS_PER_DEGREE_LAT / dt;
+            t.vEast = (lon - t.prevLon) * metersPerDegreeLon(lat) / dt;
+        } else {
+            t.vNorth = 0;
+            t.vEast = 0;
+        }
+        t.lat = lat;
+        t.lon = lon;
+        t.time = timeMillis;
+        t.prevLat = lat;
+        t.prevLon = lon;
+        t.prevTime = timeMillis;
+        t.touchedAt = System.currentTimeMillis();
+    }
+
+    private static double metersPerDegreeLon(double lat) {
+        return GeoUtils.METERS_PER_DEGREE_LAT * Math.max(0.01, Math.cos(Math.toRadians(lat)));
+    }
+
+    /**
+     * Forgets tracks that received nothing for {@code idleMillis}; their next point starts a new track.
+     */
+    public int prune(long idleMillis) {
+        long cutoff = System.currentTimeMillis() - idleMillis;
+        int removed = 0;
+        for (Iterator<Track> it = tracks.values().iterator(); it.hasNext(); ) {
+            if (it.next().touchedAt < cutoff) {
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public int size() {
+        return tracks.size();
+    }
+}
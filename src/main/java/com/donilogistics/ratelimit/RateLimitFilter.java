@@ -0,0 +1,172 @@
+package com.donilogistics.ratelimit;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Sheds load on the anonymous endpoints before security, body parsing, the database or BCrypt get
+ * involved. Each route has a token bucket per client (the remote address, or the first
+ * X-Forwarded-For hop when app.ratelimit.trust-forwarded-for is set) and optionally one shared
+ * bucket for all clients, so a burst spread over many addresses still cannot take the connection
+ * pool. Refused requests get 429 with Retry-After.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final String GLOBAL_KEY = "*";
+
+    static final class Route {
+        final String name;
+        final Predicate<HttpServletRequest> matches;
+        final TokenBucketLimiter perClient;
+        final TokenBucketLimiter global;
+
+        Route(String name, Predicate<HttpServletRequest> matches, TokenBucketLimiter perClient, TokenBucketLimiter global) {
+            this.name = name;
+            this.matches = matches;
+            this.perClient = perClient;
+            this.global = global;
+        }
+    }
+
+    @Value("${app.ratelimit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.ratelimit.trust-forwarded-for:false}")
+    private boolean trustForwardedFor;
+
+    @Value("${app.ratelimit.max-keys:100000}")
+    private int maxKeys;
+
+    @Value("${app.ratelimit.public.capacity:30}")
+    private int publicCapacity;
+
+    @Value("${app.ratelimit.public.refill-per-second:2}")
+    private double publicRefill;
+
+    @Value("${app.ratelimit.public.global-capacity:1000}")
+    private int publicGlobalCapacity;
+
+    @Value("${app.ratelimit.public.global-refill-per-second:500}")
+    private double publicGlobalRefill;
+
+    @Value("${app.ratelimit.login.capacity:5}")
+    private int loginCapacity;
+
+    @Value("${app.ratelimit.login.refill-per-second:0.1}")
+    private double loginRefill;
+
+    @Value("${app.ratelimit.login.global-capacity:50}")
+    private int loginGlobalCapacity;
+
+    @Value("${app.ratelimit.login.global-refill-per-second:20}")
+    private double loginGlobalRefill;
+
+    private List<Route> routes = List.of();
+
+    @PostConstruct
+    public void init() {
+        routes = List.of(
+                route("public", r -> path(r).startsWith("/api/public/"),
+                        publicCapacity, publicRefill, publicGlobalCapacity, publicGlobalRefill),
+                route("login", r -> "POST".equals(r.getMethod()) && "/api/auth/login".equals(path(r)),
+                        loginCapacity, loginRefill, loginGlobalCapacity, loginGlobalRefill));
+    }
+
+    // A zero global capacity or rate turns the shared bucket off for the route
+    private Route route(String name, Predicate<HttpServletRequest> matches, int capacity, double refill, int globalCapacity, double globalRefill) {
+        TokenBucketLimiter global = globalCapacity > 0 && globalRefill > 0 ? new TokenBucketLimiter(globalCapacity, globalRefill, 1) : null;
+        return new Route(name, matches, new TokenBucketLimiter(capacity, refill, maxKeys), global);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || "OPTIONS".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        for (Route route : routes) {
+            if (!route.matches.test(request)) continue;
+            long now = System.nanoTime();
+            long wait = route.perClient.tryAcquire(clientKey(request), now);
+            if (wait == 0 && route.global != null) wait = route.global.tryAcquire(GLOBAL_KEY, now);
+            if (wait > 0) {
+                reject(response, wait);
+                return;
+            }
+            break;
+        }
+        chain.doFilter(request, response);
+    }
+
+    private void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        long seconds = Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+        response.setStatus(429);
+        response.setHeader("Retry-After", Long.toString(seconds));
+        // The controllers allow any origin; without this a browser could not read the 429
+        response.setHeader("Access-Control-Allow-Origin", "*");
+        response.setContentType("application/json");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write("{\"error\":\"too many requests\",\"retryAfterSeconds\":" + seconds + "}");
+    }
+
+    private String clientKey(HttpServletRequest request) {
+        if (trustForwardedFor) {
+            String forwarded = request.getHeader("X-Forwarded-For");
+            if (forwarded != null && !forwarded.isBlank()) {
+                int comma = forwarded.indexOf(',');
+                return (comma < 0 ? forwarded : forwarded.substring(0, comma)).trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    @Scheduled(fixedDelayString = "${app.ratelimit.sweep-ms:60000}", initialDelayString = "${app.ratelimit.sweep-ms:60000}")
+    public void sweep() {
+        long now = System.nanoTime();
+        for (Route route : routes) route.perClient.sweep(now);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("enabled", enabled);
+        m.put("trustForwardedFor", trustForwardedFor);
+        Map<String, Object> byRoute = new LinkedHashMap<>();
+        for (Route route : routes) {
+            Map<String, Object> r = new LinkedHashMap<>();
+            r.put("capacity", route.perClient.getCapacity());
+            r.put("refillPerSecond", route.perClient.getRefillPerSecond());
+            r.put("activeClients", route.perClient.size());
+            r.put("allowed", route.perClient.getAllowed());
+            r.put("rejectedPerClient", route.perClient.getRejected());
+            if (route.global != null) {
+                r.put("globalCapacity", route.global.getCapacity());
+                r.put("globalRefillPerSecond", route.global.getRefillPerSecond());
+                r.put("rejectedGlobal", route.global.getRejected());
+            }
+            byRoute.put(route.name, r);
+        }
+        m.put("routes", byRoute);
+        return m;
+    }
+}
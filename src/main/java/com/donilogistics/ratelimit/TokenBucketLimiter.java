@@ -0,0 +1,91 @@
+package com.donilogistics.ratelimit;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets by key, one {@link AtomicLong} each and no locks. A bucket stores the time at which it
+ * will be full again (the generic cell rate algorithm form of a token bucket): taking a token pushes
+ * that time one refill interval further, and the take is refused when it would end up more than
+ * {@code capacity} intervals ahead of now. Full buckets carry no information and are dropped by
+ * {@link #sweep(long)}. Past {@code maxKeys} live buckets, new keys share one overflow bucket.
+ * Times are {@link System#nanoTime()} values, passed in by the caller.
+ */
+public class TokenBucketLimiter {
+
+    static final String OVERFLOW_KEY = "~overflow";
+
+    private final int capacity;
+    private final double refillPerSecond;
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final int maxKeys;
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    private final AtomicLong allowed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public TokenBucketLimiter(int capacity, double refillPerSecond, int maxKeys) {
+        if (capacity < 1 || refillPerSecond <= 0) throw new IllegalArgumentException("capacity and refill rate must be positive");
+        this.capacity = capacity;
+        this.refillPerSecond = refillPerSecond;
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / refillPerSecond));
+        this.burstNanos = intervalNanos * capacity;
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Takes one token from the key's bucket.
+     *
+     * @return 0 if a token was taken, otherwise nanoseconds until one will be available
+     */
+    public long tryAcquire(String key, long nowNanos) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(buckets.size() >= maxKeys ? OVERFLOW_KEY : key, k -> new AtomicLong(nowNanos));
+        }
+        while (true) {
+            long full = bucket.get();
+            long base = full - nowNanos < 0 ? nowNanos : full;
+            long next = base + intervalNanos;
+            long ahead = next - nowNanos;
+            if (ahead > burstNanos) {
+                rejected.incrementAndGet();
+                return ahead - burstNanos;
+            }
+            if (bucket.compareAndSet(full, next)) {
+                allowed.incrementAndGet();
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Drops buckets that have refilled completely.
+     */
+    public int sweep(long nowNanos) {
+        int before = buckets.size();
+        buckets.values().removeIf(b -> b.get() - nowNanos <= 0);
+        return before - buckets.size();
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public double getRefillPerSecond() {
+        return refillPerSecond;
+    }
+
+    public long getAllowed() {
+        return allowed.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+}
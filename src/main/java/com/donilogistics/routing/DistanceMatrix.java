@@ -0,0 +1,100 @@
+package com.donilogistics.routing;
+
+import com.donilogistics.geo.GeoUtils;
+
+import java.util.Arrays;
+
+/**
+ * Square travel-time/distance matrix over the nodes of a routing problem, kept as primitive arrays.
+ * Entries may be asymmetric (road networks usually are).
+ */
+public class DistanceMatrix {
+
+    private final double[][] durationsSeconds;
+    private final double[][] distancesMeters;
+    private final String source;
+
+    public DistanceMatrix(double[][] durationsSeconds, double[][] distancesMeters, String source) {
+        if (durationsSeconds.length != distancesMeters.length) {
+            throw new IllegalArgumentException("durations and distances must have the same size");
+        }
+        this.durationsSeconds = durationsSeconds;
+        this.distancesMeters = distancesMeters;
+        this.source = source;
+    }
+
+    /**
+     * Straight-line estimate: haversine distance scaled by a road detour factor, driven at a constant speed.
+     * Trigonometry is hoisted into per-point arrays so the O(n^2) inner loop is only multiplies and one asin.
+     */
+    public static DistanceMatrix haversine(double[] lat, double[] lon, double speedKmh, double roadFactor) {
+        int n = lat.length;
+        double[] latRad = new double[n];
+        double[] lonRad = new double[n];
+        double[] cosLat = new double[n];
+        for (int i = 0; i < n; i++) {
+            latRad[i] = Math.toRadians(lat[i]);
+            lonRad[i] = Math.toRadians(lon[i]);
+            cosLat[i] = Math.cos(latRad[i]);
+        }
+        double[][] dur = new double[n][n];
+        double[][] dist = new double[n][n];
+        double scale = 2 * GeoUtils.EARTH_RADIUS_M * roadFactor;
+        double secondsPerMeter = 3.6 / speedKmh;
+        for (int i = 0; i < n; i++) {
+            double[] distRow = dist[i];
+            double[] durRow = dur[i];
+            for (int j = i + 1; j < n; j++) {
+                double sLat = Math.sin((latRad[j] - latRad[i]) * 0.5);
+                double sLon = Math.sin((lonRad[j] - lonRad[i]) * 0.5);
+                double a = sLat * sLat + cosLat[i] * cosLat[j] * sLon * sLon;
+                double d = scale * Math.asin(Math.sqrt(Math.min(1.0, a)));
+                distRow[j] = dist[j][i] = d;
+                durRow[j] = dur[j][i] = d * secondsPerMeter;
+            }
+        }
+        return new DistanceMatrix(dur, dist, "haversine");
+    }
+
+    /**
+     * Copy with one extra node appended (index {@code size()}) that is zero seconds and meters from and to
+     * every other node. Used as the start when a route has no fixed origin, so every real node stays a stop
+     * and the solver picks the best first stop.
+     */
+    public DistanceMatrix withFreeStart() {
+        int n = size();
+        double[][] dur = new double[n + 1][];
+        double[][] dist = new double[n + 1][];
+        for (int i = 0; i < n; i++) {
+            dur[i] = Arrays.copyOf(durationsSeconds[i], n + 1);
+            dist[i] = Arrays.copyOf(distancesMeters[i], n + 1);
+        }
+        dur[n] = new double[n + 1];
+        dist[n] = new double[n + 1];
+        return new DistanceMatrix(dur, dist, source);
+    }
+
+    public int size() {
+        return durationsSeconds.length;
+    }
+
+    public double duration(int from, int to) {
+        return durationsSeconds[from][to];
+    }
+
+    public double distance(int from, int to) {
+        return distancesMeters[from][to];
+    }
+
+    public double[][] getDurationsSeconds() {
+        return durationsSeconds;
+    }
+
+    public double[][] getDistancesMeters() {
+        return distancesMeters;
+    }
+
+    public String getSource() {
+        return source;
+    }
+}
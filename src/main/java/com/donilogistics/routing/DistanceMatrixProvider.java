@@ -0,0 +1,26 @@
+package com.donilogistics.routing;
+
+/**
+ * Source of travel times and distances between a set of points. Implementations may be remote
+ * (road routing APIs) or in-process; {@link #supports} tells callers when to fall back.
+ */
+public interface DistanceMatrixProvider {
+
+    String getName();
+
+    /**
+     * False when this call would exceed the provider's limits (e.g. a per-request point cap).
+     */
+    default boolean supports(double[] lat, double[] lon) {
+        return true;
+    }
+
+    /**
+     * False when the provider cannot be used at all (e.g. missing API key).
+     */
+    default boolean isAvailable() {
+        return true;
+    }
+
+    DistanceMatrix compute(double[] lat, double[] lon);
+}
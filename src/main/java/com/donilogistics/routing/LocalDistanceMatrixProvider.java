@@ -0,0 +1,39 @@
+package com.donilogistics.routing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process provider: great-circle distance times a road detour factor at an average speed.
+ * Needs no network, so it is the fallback for air-gapped deployments and tests.
+ */
+@Component
+public class LocalDistanceMatrixProvider implements DistanceMatrixProvider {
+
+    public static final String NAME = "local";
+
+    @Value("${app.routing.local.speed-kmh:40}")
+    private double speedKmh = 40;
+
+    @Value("${app.routing.local.road-factor:1.3}")
+    private double roadFactor = 1.3;
+
+    public LocalDistanceMatrixProvider() {
+    }
+
+    public LocalDistanceMatrixProvider(double speedKmh, double roadFactor) {
+        this.speedKmh = speedKmh;
+        this.roadFactor = roadFactor;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public DistanceMatrix compute(double[] lat, double[] lon) {
+        if (lat.length != lon.length) throw new IllegalArgumentException("lat and lon must have the same length");
+        return DistanceMatrix.haversine(lat, lon, speedKmh, roadFactor);
+    }
+}
@@ -0,0 +1,222 @@
+package com.donilogistics.routing;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Cheapest-insertion construction followed by 2-opt and Or-opt local search (first improvement)
+ * until no move improves the objective or the time budget runs out.
+ * <p>
+ * Objective = route duration (driving + waiting + service) + latenessWeight * total lateness.
+ * Stops that do not fit the vehicle capacity are left unassigned, lowest priority first.
+ */
+@Component
+public class LocalSearchRouteSolver implements RouteSolver {
+
+    public static final String NAME = "cheapest-insertion+2opt+oropt";
+
+    private static final int MAX_OR_OPT_SEGMENT = 3;
+
+    @Override
+    public RoutingSolution solve(RoutingProblem problem, long timeBudgetMs) {
+        long started = System.nanoTime();
+        long deadline = started + Math.max(1, timeBudgetMs) * 1_000_000L;
+
+        List<Integer> unassigned = new ArrayList<>();
+        List<Integer> selected = selectWithinCapacity(problem, unassigned);
+        int[] route = construct(problem, selected);
+
+        Search search = new Search(problem, route, deadline);
+        search.run();
+
+        double[] arrivals = new double[route.length];
+        double[] totals = evaluate(problem, search.route, arrivals);
+        double distance = 0;
+        for (int i = 1; i < search.route.length; i++) {
+            distance += problem.getMatrix().distance(search.route[i - 1], search.route[i]);
+        }
+        long solveTimeMs = (System.nanoTime() - started) / 1_000_000L;
+        return new RoutingSolution(search.route, unassigned, arrivals, totals[0], distance, totals[1], totals[2],
+                search.evaluations, solveTimeMs, NAME);
+    }
+
+    // Keep the highest-priority stops (closest to the start on ties) while both capacities allow
+    private List<Integer> selectWithinCapacity(RoutingProblem p, List<Integer> unassigned) {
+        List<Integer> stops = new ArrayList<>();
+        for (int i = 0; i < p.size(); i++) {
+            if (p.isStop(i)) stops.add(i);
+        }
+        if (p.getCapacityKg() == Double.POSITIVE_INFINITY && p.getCapacityM3() == Double.POSITIVE_INFINITY) {
+            return stops;
+        }
+        stops.sort(Comparator.comparingInt((Integer i) -> -p.getPriority(i))
+                .thenComparingDouble(i -> p.getMatrix().duration(p.getStart(), i)));
+        double kg = 0, m3 = 0;
+        List<Integer> selected = new ArrayList<>();
+        for (int s : stops) {
+            if (kg + p.getDemandKg(s) <= p.getCapacityKg() && m3 + p.getDemandM3(s) <= p.getCapacityM3()) {
+                kg += p.getDemandKg(s);
+                m3 += p.getDemandM3(s);
+                selected.add(s);
+            } else {
+                unassigned.add(s);
+            }
+        }
+        return selected;
+    }
+
+    // Cheapest insertion on travel time; time windows are left to the local search
+    private int[] construct(RoutingProblem p, List<Integer> stops) {
+        DistanceMatrix m = p.getMatrix();
+        boolean hasEnd = p.getEnd() != RoutingProblem.NONE;
+        int[] route = new int[stops.size() + (hasEnd ? 2 : 1)];
+        int len = 0;
+        route[len++] = p.getStart();
+        if (hasEnd) route[len++] = p.getEnd();
+        boolean[] inserted = new boolean[stops.size()];
+        for (int step = 0; step < stops.size(); step++) {
+            int bestStop = -1, bestPos = -1;
+            double bestDelta = Double.POSITIVE_INFINITY;
+            for (int si = 0; si < stops.size(); si++) {
+                if (inserted[si]) continue;
+                int s = stops.get(si);
+                for (int pos = 1; pos <= len; pos++) {
+                    if (hasEnd && pos == len) break;
+                    int prev = route[pos - 1];
+                    double delta;
+                    if (pos < len) {
+                        int next = route[pos];
+                        delta = m.duration(prev, s) + m.duration(s, next) - m.duration(prev, next);
+                    } else {
+                        delta = m.duration(prev, s);
+                    }
+                    if (delta < bestDelta) {
+                        bestDelta = delta;
+                        bestStop = si;
+                        bestPos = pos;
+                    }
+                }
+            }
+            System.arraycopy(route, bestPos, route, bestPos + 1, len - bestPos);
+            route[bestPos] = stops.get(bestStop);
+            inserted[bestStop] = true;
+            len++;
+        }
+        return route;
+    }
+
+    /**
+     * Returns {objective, duration, lateness}; fills arrival times per position when {@code arrivals} is non-null.
+     */
+    static double[] evaluate(RoutingProblem p, int[] route, double[] arrivals) {
+        DistanceMatrix m = p.getMatrix();
+        double t = 0, lateness = 0;
+        if (arrivals != null) arrivals[0] = 0;
+        for (int i = 1; i < route.length; i++) {
+            int node = route[i];
+            t += m.duration(route[i - 1], node);
+            if (arrivals != null) arrivals[i] = t;
+            if (t < p.getWindowStart(node)) t = p.getWindowStart(node);
+            if (t > p.getWindowEnd(node)) lateness += t - p.getWindowEnd(node);
+            t += p.getServiceSeconds(node);
+        }
+        return new double[]{t + p.getLatenessWeight() * lateness, t, lateness};
+    }
+
+    private static final class Search {
+        private final RoutingProblem problem;
+        private final long deadline;
+        private int[] route;
+        private final int first;
+        private final int last;
+        private double best;
+        private long evaluations;
+
+        Search(RoutingProblem problem, int[] route, long deadline) {
+            this.problem = problem;
+            this.route = route;
+            this.deadline = deadline;
+            this.first = 1;
+            this.last = route.length - (problem.getEnd() != RoutingProblem.NONE ? 2 : 1);
+            this.best = evaluate(problem, route, null)[0];
+        }
+
+        void run() {
+            if (last - first < 1) return;
+            boolean improved = true;
+            while (improved && !expired()) {
+                improved = twoOpt() || orOpt();
+            }
+        }
+
+        private boolean expired() {
+            return System.nanoTime() > deadline;
+        }
+
+        private boolean twoOpt() {
+            for (int i = first; i < last; i++) {
+                if (expired()) return false;
+                for (int j = i + 1; j <= last; j++) {
+                    reverse(route, i, j);
+                    evaluations++;
+                    double cost = evaluate(problem, route, null)[0];
+                    if (cost < best - 1e-9) {
+                        best = cost;
+                        return true;
+                    }
+                    reverse(route, i, j);
+                }
+            }
+            return false;
+        }
+
+        private boolean orOpt() {
+            int[] candidate = new int[route.length];
+            for (int len = 1; len <= MAX_OR_OPT_SEGMENT; len++) {
+                for (int i = first; i + len - 1 <= last; i++) {
+                    if (expired()) return false;
+                    // move segment [i, i+len) so that it starts right before the element currently at position k
+                    for (int k = first; k <= last + 1; k++) {
+                        if (k >= i && k <= i + len) continue;
+                        moveSegment(route, candidate, i, len, k);
+                        evaluations++;
+                        double cost = evaluate(problem, candidate, null)[0];
+                        if (cost < best - 1e-9) {
+                            best = cost;
+                            int[] tmp = route;
+                            route = candidate;
+                            candidate = tmp;
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+
+        private static void reverse(int[] a, int i, int j) {
+            while (i < j) {
+                int t = a[i];
+                a[i++] = a[j];
+                a[j--] = t;
+            }
+        }
+
+        private static void moveSegment(int[] src, int[] dst, int i, int len, int k) {
+            int d = 0;
+            for (int pos = 0; pos < src.length; pos++) {
+                if (pos == k) {
+                    for (int s = 0; s < len; s++) dst[d++] = src[i + s];
+                }
+                if (pos >= i && pos < i + len) continue;
+                dst[d++] = src[pos];
+            }
+            if (k == src.length) {
+                for (int s = 0; s < len; s++) dst[d++] = src[i + s];
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.donilogistics.routing;
+
+/**
+ * Orders the stops of a {@link RoutingProblem}. Implementations must return within roughly
+ * {@code timeBudgetMs} and always produce a feasible visiting order for the stops they keep.
+ */
+public interface RouteSolver {
+
+    RoutingSolution solve(RoutingProblem problem, long timeBudgetMs);
+}
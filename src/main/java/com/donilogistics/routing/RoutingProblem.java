@@ -0,0 +1,96 @@
+package com.donilogistics.routing;
+
+import java.util.Arrays;
+
+/**
+ * Single-vehicle routing problem over the nodes of a {@link DistanceMatrix}.
+ * Node {@code start} is where the vehicle departs (time 0); {@code end}, if set, is a fixed final node.
+ * Every other node is a stop that should be visited once. Times are seconds relative to departure.
+ */
+public class RoutingProblem {
+
+    public static final int NONE = -1;
+
+    private final DistanceMatrix matrix;
+    private final int start;
+    private final int end;
+    private final double[] demandKg;
+    private final double[] demandM3;
+    private final double[] serviceSeconds;
+    private final double[] windowStart;
+    private final double[] windowEnd;
+    private final int[] priority;
+    private double capacityKg = Double.POSITIVE_INFINITY;
+    private double capacityM3 = Double.POSITIVE_INFINITY;
+    private double latenessWeight = 10.0;
+
+    public RoutingProblem(DistanceMatrix matrix, int start, int end) {
+        int n = matrix.size();
+        if (start < 0 || start >= n) throw new IllegalArgumentException("start node out of range");
+        if (end != NONE && (end < 0 || end >= n || end == start)) throw new IllegalArgumentException("end node out of range");
+        this.matrix = matrix;
+        this.start = start;
+        this.end = end;
+        this.demandKg = new double[n];
+        this.demandM3 = new double[n];
+        this.serviceSeconds = new double[n];
+        this.windowStart = new double[n];
+        this.windowEnd = new double[n];
+        this.priority = new int[n];
+        Arrays.fill(windowEnd, Double.POSITIVE_INFINITY);
+    }
+
+    public RoutingProblem setDemand(int node, double kg, double m3) {
+        demandKg[node] = kg;
+        demandM3[node] = m3;
+        return this;
+    }
+
+    public RoutingProblem setTimeWindow(int node, double earliestSeconds, double latestSeconds) {
+        windowStart[node] = earliestSeconds;
+        windowEnd[node] = latestSeconds;
+        return this;
+    }
+
+    public RoutingProblem setServiceSeconds(int node, double seconds) {
+        serviceSeconds[node] = seconds;
+        return this;
+    }
+
+    public RoutingProblem setPriority(int node, int value) {
+        priority[node] = value;
+        return this;
+    }
+
+    public RoutingProblem setCapacity(double kg, double m3) {
+        this.capacityKg = kg > 0 ? kg : Double.POSITIVE_INFINITY;
+        this.capacityM3 = m3 > 0 ? m3 : Double.POSITIVE_INFINITY;
+        return this;
+    }
+
+    /**
+     * Cost of one second of lateness relative to one second of driving.
+     */
+    public RoutingProblem setLatenessWeight(double latenessWeight) {
+        this.latenessWeight = latenessWeight;
+        return this;
+    }
+
+    public DistanceMatrix getMatrix() { return matrix; }
+    public int getStart() { return start; }
+    public int getEnd() { return end; }
+    public int size() { return matrix.size(); }
+    public double getDemandKg(int node) { return demandKg[node]; }
+    public double getDemandM3(int node) { return demandM3[node]; }
+    public double getServiceSeconds(int node) { return serviceSeconds[node]; }
+    public double getWindowStart(int node) { return windowStart[node]; }
+    public double getWindowEnd(int node) { return windowEnd[node]; }
+    public int getPriority(int node) { return priority[node]; }
+    public double getCapacityKg() { return capacityKg; }
+    public double getCapacityM3() { return capacityM3; }
+    public double getLatenessWeight() { return latenessWeight; }
+
+    public boolean isStop(int node) {
+        return node != start && node != end;
+    }
+}
@@ -0,0 +1,48 @@
+package com.donilogistics.routing;
+
+import java.util.List;
+
+/**
+ * Result of {@link RouteSolver#solve}. {@code route} lists node indices in visiting order, starting with
+ * the start node and ending with the end node when the problem has one.
+ */
+public class RoutingSolution {
+
+    private final int[] route;
+    private final List<Integer> unassigned;
+    private final double[] arrivalSeconds;
+    private final double objective;
+    private final double distanceMeters;
+    private final double durationSeconds;
+    private final double latenessSeconds;
+    private final long iterations;
+    private final long solveTimeMs;
+    private final String solver;
+
+    public RoutingSolution(int[] route, List<Integer> unassigned, double[] arrivalSeconds, double objective,
+                           double distanceMeters, double durationSeconds, double latenessSeconds,
+                           long iterations, long solveTimeMs, String solver) {
+        this.route = route;
+        this.unassigned = unassigned;
+        this.arrivalSeconds = arrivalSeconds;
+        this.objective = objective;
+        this.distanceMeters = distanceMeters;
+        this.durationSeconds = durationSeconds;
+        this.latenessSeconds = latenessSeconds;
+        this.iterations = iterations;
+        this.solveTimeMs = solveTimeMs;
+        this.solver = solver;
+    }
+
+    public int[] getRoute() { return route; }
+    public List<Integer> getUnassigned() { return unassigned; }
+    /** Arrival time at each position of {@link #getRoute()}, seconds from departure. */
+    public double[] getArrivalSeconds() { return arrivalSeconds; }
+    public double getObjective() { return objective; }
+    public double getDistanceMeters() { return distanceMeters; }
+    public double getDurationSeconds() { return durationSeconds; }
+    public double getLatenessSeconds() { return latenessSeconds; }
+    public long getIterations() { return iterations; }
+    public long getSolveTimeMs() { return solveTimeMs; }
+    public String getSolver() { return solver; }
+}
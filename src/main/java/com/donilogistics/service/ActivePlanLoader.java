@@ -0,0 +1,151 @@
+package com.donilogistics.service;
+
+import com.donilogistics.geo.GeoUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Reads the route plans that position listeners follow: PLANNED or IN_PROGRESS plans with a vehicle or
+ * driver, oldest first. {@link #assign} picks the one plan a vehicle or driver is following when it has
+ * several, so every listener agrees on it.
+ */
+@Component
+public class ActivePlanLoader {
+
+    private static final String ACTIVE_STOPS_SQL = "select s.ID, s.ROUTE_PLAN_ID, s.SEQUENCE_NO, s.LAT, s.LON, s.SHIPMENT_ID, "
+            + "s.ARRIVED_AT, s.DEPARTED_AT, w.LATITUDE as W_LAT, w.LONGITUDE as W_LON, "
+            + "p.VEHICLE_ID, p.DRIVER_ID, p.ORGANIZATION_ID, p.ROUTE_STATUS "
+            + "from ROUTE_STOP s join ROUTE_PLAN p on p.ID = s.ROUTE_PLAN_ID "
+            + "left join WAREHOUSE w on w.ID = s.WAREHOUSE_ID "
+            + "where p.ROUTE_STATUS in ('PLANNED', 'IN_PROGRESS') and (p.VEHICLE_ID is not null or p.DRIVER_ID is not null) "
+            + "order by p.CREATED_AT, s.ROUTE_PLAN_ID, s.SEQUENCE_NO";
+    private static final String ACTIVE_PLANS_SQL = "select p.ID, p.VEHICLE_ID, p.DRIVER_ID, p.ORGANIZATION_ID, p.ROUTE_STATUS, p.SOLVER_META "
+            + "from ROUTE_PLAN p "
+            + "where p.ROUTE_STATUS in ('PLANNED', 'IN_PROGRESS') and (p.VEHICLE_ID is not null or p.DRIVER_ID is not null) "
+            + "order by p.CREATED_AT";
+
+    /**
+     * A plan as loaded; listeners wrap it in their own state.
+     */
+    public static final class Plan {
+        public final UUID planId;
+        public final UUID vehicleId;
+        public final UUID driverId;
+        public final UUID organizationId;
+        public final String status;
+        public final List<Stop> stops = new ArrayList<>();
+        // Only set by loadWithSolverMeta
+        public final String solverMeta;
+
+        Plan(UUID planId, UUID vehicleId, UUID driverId, UUID organizationId, String status, String solverMeta) {
+            this.planId = planId;
+            this.vehicleId = vehicleId;
+            this.driverId = driverId;
+            this.organizationId = organizationId;
+            this.status = status;
+            this.solverMeta = solverMeta;
+        }
+
+        public boolean isInProgress() {
+            return "IN_PROGRESS".equals(status);
+        }
+    }
+
+    public static final class Stop {
+        public final UUID stopId;
+        public final int sequenceNo;
+        public final double lat;
+        public final double lon;
+        public final UUID shipmentId;
+        public final boolean arrived;
+        public final boolean departed;
+
+        Stop(UUID stopId, int sequenceNo, double lat, double lon, UUID shipmentId, boolean arrived, boolean departed) {
+            this.stopId = stopId;
+            this.sequenceNo = sequenceNo;
+            this.lat = lat;
+            this.lon = lon;
+            this.shipmentId = shipmentId;
+            this.arrived = arrived;
+            this.departed = departed;
+        }
+    }
+
+    /**
+     * What {@link #assign} needs from a listener's per-plan state.
+     */
+    public interface Assignable {
+        UUID getVehicleId();
+
+        UUID getDriverId();
+
+        boolean isInProgress();
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ActivePlanLoader(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Active plans with their stops in sequence order. Stops without coordinates fall back to their
+     * warehouse and are skipped if that has none either; plans left without stops are not returned.
+     */
+    public List<Plan> loadWithStops() {
+        Map<UUID, Plan> plans = new LinkedHashMap<>();
+        jdbcTemplate.query(ACTIVE_STOPS_SQL, rs -> {
+            UUID planId = rs.getObject("ROUTE_PLAN_ID", UUID.class);
+            Plan p = plans.get(planId);
+            if (p == null) {
+                p = new Plan(planId, rs.getObject("VEHICLE_ID", UUID.class), rs.getObject("DRIVER_ID", UUID.class),
+                        rs.getObject("ORGANIZATION_ID", UUID.class), rs.getString("ROUTE_STATUS"), null);
+                plans.put(planId, p);
+            }
+            Double lat = getDouble(rs, "LAT");
+            Double lon = getDouble(rs, "LON");
+            if (lat == null || lon == null) {
+                lat = getDouble(rs, "W_LAT");
+                lon = getDouble(rs, "W_LON");
+            }
+            if (!GeoUtils.isValid(lat, lon)) return;
+            p.stops.add(new Stop(rs.getObject("ID", UUID.class), rs.getInt("SEQUENCE_NO"), lat, lon,
+                    rs.getObject("SHIPMENT_ID", UUID.class), rs.getTimestamp("ARRIVED_AT") != null,
+                    rs.getTimestamp("DEPARTED_AT") != null));
+        });
+        plans.values().removeIf(p -> p.stops.isEmpty());
+        return new ArrayList<>(plans.values());
+    }
+
+    /**
+     * Active plans without their stops, with ROUTE_PLAN.SOLVER_META.
+     */
+    public List<Plan> loadWithSolverMeta() {
+        return jdbcTemplate.query(ACTIVE_PLANS_SQL, (rs, i) -> new Plan(rs.getObject("ID", UUID.class),
+                rs.getObject("VEHICLE_ID", UUID.class), rs.getObject("DRIVER_ID", UUID.class),
+                rs.getObject("ORGANIZATION_ID", UUID.class), rs.getString("ROUTE_STATUS"), rs.getString("SOLVER_META")));
+    }
+
+    /**
+     * Adds {@code plan} to the vehicle and driver maps. Call in load order: the oldest open plan wins,
+     * unless a newer one is already under way.
+     */
+    public static <T extends Assignable> void assign(T plan, Map<UUID, T> byVehicle, Map<UUID, T> byDriver) {
+        if (plan.getVehicleId() != null) byVehicle.merge(plan.getVehicleId(), plan, ActivePlanLoader::preferred);
+        if (plan.getDriverId() != null) byDriver.merge(plan.getDriverId(), plan, ActivePlanLoader::preferred);
+    }
+
+    private static <T extends Assignable> T preferred(T a, T b) {
+        return b.isInProgress() && !a.isInProgress() ? b : a;
+    }
+
+    private static Double getDouble(ResultSet rs, String column) throws SQLException {
+        double v = rs.getDouble(column);
+        return rs.wasNull() ? null : v;
+    }
+}
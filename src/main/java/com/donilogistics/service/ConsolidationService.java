@@ -1,12 +1,19 @@
 package com.donilogistics.service;
 
 import com.donilogistics.entity.*;
+import com.donilogistics.routing.DistanceMatrix;
+import com.donilogistics.routing.RouteSolver;
+import com.donilogistics.routing.RoutingProblem;
+import com.donilogistics.routing.RoutingSolution;
 import io.jmix.core.DataManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.*;
 
 @Service
@@ -16,10 +23,21 @@ public class ConsolidationService {
 
     private final DataManager dataManager;
     private final GraphHopperService graphHopperService;
+    private final RouteSolver routeSolver;
+    private final DistanceMatrixService distanceMatrixService;
 
-    public ConsolidationService(DataManager dataManager, GraphHopperService graphHopperService) {
+    @Value("${app.routing.time-budget-ms:2000}")
+    private long timeBudgetMs;
+
+    @Value("${app.routing.service-seconds:300}")
+    private double serviceSeconds;
+
+    public ConsolidationService(DataManager dataManager, GraphHopperService graphHopperService, RouteSolver routeSolver,
+                                DistanceMatrixService distanceMatrixService) {
         this.dataManager = dataManager;
         this.graphHopperService = graphHopperService;
+        this.routeSolver = routeSolver;
+        this.distanceMatrixService = distanceMatrixService;
     }
 
     public UUID createConsolidationAndPlanRoute(UUID originAddressId, UUID destAddressId, List<UUID> shipmentIds, UUID vehicleId, UUID driverId, UUID organizationId) {
@@ -38,17 +56,11 @@ public class ConsolidationService {
         }
         cons = dataManager.save(cons);
 
-        // Attach shipments
         List<Shipment> shipments = new ArrayList<>();
         if (shipmentIds != null) {
             for (UUID sid : shipmentIds) {
                 try {
-                    Shipment s = dataManager.load(Shipment.class).id(sid).one();
-                    shipments.add(s);
-                    ConsolidationItem item = dataManager.create(ConsolidationItem.class);
-                    item.setConsolidation(cons);
-                    item.setShipment(s);
-                    dataManager.save(item);
+                    shipments.add(dataManager.load(Shipment.class).id(sid).one());
                 } catch (Exception ignored) {}
             }
         }
@@ -74,31 +86,54 @@ public class ConsolidationService {
             pointShipments.add(null);
         }
 
-        Map<String, Object> matrix = Collections.emptyMap();
-        try {
-            if (points.size() >= 2) {
-                matrix = graphHopperService.getMatrix(points);
-            }
-        } catch (Exception e) {
-            log.warn("GraphHopper matrix failed: {}", e.getMessage());
-        }
-
-        // Simple nearest-neighbor heuristic to order stops (respect free API)
-        List<Integer> order = new ArrayList<>();
-        for (int i = 0; i < points.size(); i++) order.add(i);
-        if (points.size() > 2) order = nearestNeighborOrder(points);
-
         RoutePlan plan = dataManager.create(RoutePlan.class);
         plan.setName("Consolidation " + cons.getId());
         plan.setVehicle(vehicle);
         plan.setDriver(driver);
         plan.setRouteStatus(RouteStatus.PLANNED);
+        if (vehicle != null && vehicle.getCapacity() != null) plan.setCapacityKg(BigDecimal.valueOf(toKg(vehicle.getCapacity(), vehicle.getCapacityUnit())));
+        if (vehicle != null && vehicle.getVolumeCapacity() != null) plan.setCapacityVolumeM3(BigDecimal.valueOf(vehicle.getVolumeCapacity()));
+
+        LocalDateTime departure = LocalDateTime.now();
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < points.size(); i++) order.add(i);
+        List<Double> arrivals = new ArrayList<>();
+        RoutingSolution solution = null;
+        DistanceMatrix distanceMatrix = null;
+        Set<Shipment> unassigned = new HashSet<>();
+        if (points.size() > 2 || (points.size() == 2 && !(hasOrigin && hasDest))) {
+            distanceMatrix = computeMatrix(points);
+            RoutingProblem problem = buildProblem(distanceMatrix, pointShipments, hasOrigin, hasDest, plan, departure);
+            solution = routeSolver.solve(problem, timeBudgetMs);
+            order = new ArrayList<>();
+            int[] route = solution.getRoute();
+            for (int i = 0; i < route.length; i++) {
+                // The free start added when there is no origin is not a real point
+                if (route[i] >= points.size()) continue;
+                order.add(route[i]);
+                arrivals.add(solution.getArrivalSeconds()[i]);
+            }
+            for (int idx : solution.getUnassigned()) unassigned.add(pointShipments.get(idx));
+        }
+
+        // Attach shipments that made it onto the vehicle
+        for (Shipment s : shipments) {
+            if (unassigned.contains(s)) continue;
+            ConsolidationItem item = dataManager.create(ConsolidationItem.class);
+            item.setConsolidation(cons);
+            item.setShipment(s);
+            dataManager.save(item);
+        }
+
         // Persist plan FIRST so children can reference a managed entity
         plan = dataManager.save(plan);
         List<Map<String, Object>> stopsJson = new ArrayList<>();
+        List<Map<String, Object>> etaJson = new ArrayList<>();
+        List<GraphHopperService.LatLon> orderedPoints = new ArrayList<>();
         int seq = 0;
         for (Integer idx : order) {
             GraphHopperService.LatLon p = points.get(idx);
+            orderedPoints.add(p);
             RouteStop stop = dataManager.create(RouteStop.class);
             stop.setRoutePlan(plan);
             stop.setSequenceNo(seq++);
@@ -122,11 +157,32 @@ public class ConsolidationService {
             j.put("lon", p.lon);
             j.put("sequence", stop.getSequenceNo());
             stopsJson.add(j);
+            if (solution != null) {
+                Map<String, Object> eta = new LinkedHashMap<>();
+                eta.put("sequence", stop.getSequenceNo());
+                eta.put("shipmentId", linked != null ? linked.getId() : null);
+                eta.put("eta", departure.plusSeconds(Math.round(arrivals.get(stop.getSequenceNo()))).toString());
+                etaJson.add(eta);
+            }
         }
         plan.setStops(toJson(stopsJson));
-        // Attach matrix and geometry for nicer visualization
+        if (solution != null) plan.setEstimatedTimes(toJson(etaJson));
+
+        Map<String, Object> meta = new LinkedHashMap<>();
+        if (solution != null) {
+            meta.put("solver", solution.getSolver());
+            meta.put("objective", solution.getObjective());
+            meta.put("distanceMeters", Math.round(solution.getDistanceMeters()));
+            meta.put("durationSeconds", Math.round(solution.getDurationSeconds()));
+            meta.put("latenessSeconds", Math.round(solution.getLatenessSeconds()));
+            meta.put("iterations", solution.getIterations());
+            meta.put("solveTimeMs", solution.getSolveTimeMs());
+            meta.put("matrixSource", distanceMatrix.getSource());
+            meta.put("unassignedShipmentIds", unassigned.stream().map(Shipment::getId).toList());
+        }
+        // Attach geometry (in visiting order) for nicer visualization
         try {
-            List<double[]> geometry = graphHopperService.getRouteGeometry(points);
+            List<double[]> geometry = orderedPoints.size() >= 2 ? graphHopperService.getRouteGeometry(orderedPoints) : List.of();
             if (geometry != null && !geometry.isEmpty()) {
                 List<Map<String, Object>> geom = new ArrayList<>();
                 for (double[] g : geometry) {
@@ -135,64 +191,67 @@ public class ConsolidationService {
                     pt.put("lon", g[1]);
                     geom.add(pt);
                 }
-                Map<String, Object> meta = new LinkedHashMap<>();
-                if (matrix != null) meta.put("matrix", matrix);
                 meta.put("geometry", geom);
-                plan.setSolverMeta(toJson(meta));
-            } else {
-                plan.setSolverMeta(matrix != null ? toJson(matrix) : null);
             }
         } catch (Exception e) {
             log.warn("Failed to fetch route geometry: {}", e.getMessage());
-            plan.setSolverMeta(matrix != null ? toJson(matrix) : null);
         }
+        plan.setSolverMeta(meta.isEmpty() ? null : toJson(meta));
         plan = dataManager.save(plan);
 
         return plan.getId();
     }
 
-    private String toJson(Object obj) {
-        try {
-            return new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsString(obj);
-        } catch (Exception e) {
-            return null;
+    // Without an origin node 0 is a delivery too, so the vehicle departs from a free start instead
+    private RoutingProblem buildProblem(DistanceMatrix matrix, List<Shipment> pointShipments, boolean hasOrigin, boolean hasDest,
+                                        RoutePlan plan, LocalDateTime departure) {
+        int n = matrix.size();
+        int end = hasDest ? n - 1 : RoutingProblem.NONE;
+        RoutingProblem problem = hasOrigin ? new RoutingProblem(matrix, 0, end) : new RoutingProblem(matrix.withFreeStart(), n, end);
+        for (int i = 0; i < n; i++) {
+            Shipment s = pointShipments.get(i);
+            if (s == null) continue;
+            problem.setDemand(i,
+                    s.getWeightKg() != null ? s.getWeightKg().doubleValue() : 0,
+                    s.getVolumeM3() != null ? s.getVolumeM3().doubleValue() : 0);
+            problem.setServiceSeconds(i, serviceSeconds);
+            if (s.getConsolidationPriority() != null) problem.setPriority(i, s.getConsolidationPriority());
+            if (s.getPreferredDeliveryFrom() != null || s.getPreferredDeliveryTo() != null) {
+                double from = s.getPreferredDeliveryFrom() != null
+                        ? Math.max(0, Duration.between(departure, s.getPreferredDeliveryFrom()).getSeconds()) : 0;
+                double to = s.getPreferredDeliveryTo() != null
+                        ? Math.max(0, Duration.between(departure, s.getPreferredDeliveryTo()).getSeconds()) : Double.POSITIVE_INFINITY;
+                problem.setTimeWindow(i, from, to);
+            }
         }
+        problem.setCapacity(
+                plan.getCapacityKg() != null ? plan.getCapacityKg().doubleValue() : 0,
+                plan.getCapacityVolumeM3() != null ? plan.getCapacityVolumeM3().doubleValue() : 0);
+        return problem;
     }
 
-    private List<Integer> nearestNeighborOrder(List<GraphHopperService.LatLon> points) {
+    private DistanceMatrix computeMatrix(List<GraphHopperService.LatLon> points) {
         int n = points.size();
-        boolean[] visited = new boolean[n];
-        List<Integer> route = new ArrayList<>();
-        int current = 0; // start at origin
-        route.add(current);
-        visited[current] = true;
-        for (int step = 1; step < n; step++) {
-            int next = -1;
-            double best = Double.MAX_VALUE;
-            for (int j = 0; j < n; j++) {
-                if (!visited[j]) {
-                    double d = haversine(points.get(current), points.get(j));
-                    if (d < best) { best = d; next = j; }
-                }
-            }
-            if (next == -1) break;
-            visited[next] = true;
-            route.add(next);
-            current = next;
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int i = 0; i < n; i++) {
+            lat[i] = points.get(i).lat.doubleValue();
+            lon[i] = points.get(i).lon.doubleValue();
         }
-        return route;
+        return distanceMatrixService.compute(lat, lon);
     }
 
-    private double haversine(GraphHopperService.LatLon a, GraphHopperService.LatLon b) {
-        double R = 6371e3; // meters
-        double phi1 = Math.toRadians(a.lat.doubleValue());
-        double phi2 = Math.toRadians(b.lat.doubleValue());
-        double dphi = Math.toRadians(b.lat.doubleValue() - a.lat.doubleValue());
-        double dlambda = Math.toRadians(b.lon.doubleValue() - a.lon.doubleValue());
-        double sa = Math.sin(dphi/2) * Math.sin(dphi/2) + Math.cos(phi1) * Math.cos(phi2) * Math.sin(dlambda/2) * Math.sin(dlambda/2);
-        double c = 2 * Math.atan2(Math.sqrt(sa), Math.sqrt(1-sa));
-        return R * c;
+    private static double toKg(double capacity, String unit) {
+        if (unit == null) return capacity;
+        String u = unit.trim().toLowerCase();
+        return u.startsWith("t") ? capacity * 1000.0 : capacity;
     }
-}
-
 
+    private String toJson(Object obj) {
+        try {
+            return new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsString(obj);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
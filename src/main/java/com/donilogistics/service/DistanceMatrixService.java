@@ -0,0 +1,50 @@
+package com.donilogistics.service;
+
+import com.donilogistics.routing.DistanceMatrix;
+import com.donilogistics.routing.DistanceMatrixProvider;
+import com.donilogistics.routing.LocalDistanceMatrixProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Picks the configured {@link DistanceMatrixProvider} (app.routing.matrix.provider) and falls back
+ * to the local provider when it is unavailable, too small for the request, or fails.
+ */
+@Service
+public class DistanceMatrixService {
+
+    private static final Logger log = LoggerFactory.getLogger(DistanceMatrixService.class);
+
+    private final Map<String, DistanceMatrixProvider> providers = new LinkedHashMap<>();
+    private final DistanceMatrixProvider fallback;
+
+    @Value("${app.routing.matrix.provider:local}")
+    private String preferred;
+
+    public DistanceMatrixService(List<DistanceMatrixProvider> providers, LocalDistanceMatrixProvider fallback) {
+        for (DistanceMatrixProvider p : providers) {
+            this.providers.put(p.getName(), p);
+        }
+        this.fallback = fallback;
+    }
+
+    public DistanceMatrix compute(double[] lat, double[] lon) {
+        DistanceMatrixProvider provider = providers.get(preferred);
+        if (provider == null) {
+            log.warn("Unknown distance matrix provider '{}', using {}", preferred, fallback.getName());
+        } else if (provider != fallback && provider.isAvailable() && provider.supports(lat, lon)) {
+            try {
+                return provider.compute(lat, lon);
+            } catch (Exception e) {
+                log.warn("Distance matrix provider {} failed, using {}: {}", provider.getName(), fallback.getName(), e.getMessage());
+            }
+        }
+        return fallback.compute(lat, lon);
+    }
+}
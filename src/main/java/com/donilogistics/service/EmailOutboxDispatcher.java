@@ -0,0 +1,286 @@
+package com.donilogistics.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains EMAIL_OUTBOX on a small worker pool. Due rows are claimed with a version check (so several
+ * nodes can poll safely) and leased for app.mail.outbox.lease-seconds; a node that dies mid-send
+ * simply lets the lease expire. Every claim counts as an attempt, so a message whose lease keeps
+ * expiring is dead-lettered like one that keeps failing. Results are only written while the row
+ * still has the claimed version: a send that outlives its lease cannot overwrite the outcome of the
+ * node that re-claimed it. Each worker sends its chunk over one SMTP connection. Failures are
+ * retried with exponential backoff and jitter until app.mail.outbox.max-attempts, then dead-lettered.
+ */
+@Component
+public class EmailOutboxDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+
+    private static final String SELECT_DUE_SQL = "select ID, VERSION, RECIPIENT, SUBJECT, BODY, ATTEMPTS from EMAIL_OUTBOX "
+            + "where STATUS in ('PENDING', 'SENDING') and NEXT_ATTEMPT_AT <= ? order by NEXT_ATTEMPT_AT";
+    private static final String CLAIM_SQL = "update EMAIL_OUTBOX set STATUS = 'SENDING', VERSION = VERSION + 1, ATTEMPTS = ATTEMPTS + 1, "
+            + "NEXT_ATTEMPT_AT = ? where ID = ? and VERSION = ?";
+    private static final String SENT_SQL = "update EMAIL_OUTBOX set STATUS = 'SENT', VERSION = VERSION + 1, SENT_AT = ?, "
+            + "LAST_ERROR = null where ID = ? and VERSION = ?";
+    private static final String FAILED_SQL = "update EMAIL_OUTBOX set STATUS = ?, VERSION = VERSION + 1, NEXT_ATTEMPT_AT = ?, "
+            + "LAST_ERROR = ? where ID = ? and VERSION = ?";
+    private static final String REVIVE_SQL = "update EMAIL_OUTBOX set STATUS = 'PENDING', VERSION = VERSION + 1, ATTEMPTS = 0, "
+            + "NEXT_ATTEMPT_AT = ? where ID = ? and STATUS = 'DEAD'";
+    private static final String COUNT_SQL = "select STATUS, count(*) from EMAIL_OUTBOX group by STATUS";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JavaMailSender mailSender;
+
+    @Value("${app.mail.from:noreply@localhost}")
+    private String fromAddress;
+
+    @Value("${app.mail.outbox.workers:2}")
+    private int workers;
+
+    @Value("${app.mail.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.mail.outbox.messages-per-connection:20}")
+    private int messagesPerConnection;
+
+    @Value("${app.mail.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.mail.outbox.backoff-base-seconds:30}")
+    private long backoffBaseSeconds;
+
+    @Value("${app.mail.outbox.backoff-max-seconds:3600}")
+    private long backoffMaxSeconds;
+
+    @Value("${app.mail.outbox.lease-seconds:300}")
+    private long leaseSeconds;
+
+    private ThreadPoolExecutor executor;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong dead = new AtomicLong();
+    private final AtomicLong leasesLost = new AtomicLong();
+
+    static final class OutboxRow {
+        final UUID id;
+        final int version;
+        final String recipient;
+        final String subject;
+        final String body;
+        final int attempts;
+
+        OutboxRow(UUID id, int version, String recipient, String subject, String body, int attempts) {
+            this.id = id;
+            this.version = version;
+            this.recipient = recipient;
+            this.subject = subject;
+            this.body = body;
+            this.attempts = attempts;
+        }
+
+        // The row as CLAIM_SQL leaves it
+        OutboxRow claimed() {
+            return new OutboxRow(id, version + 1, recipient, subject, body, attempts + 1);
+        }
+    }
+
+    public EmailOutboxDispatcher(DataSource dataSource, JavaMailSender mailSender) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.mailSender = mailSender;
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger n = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "email-outbox-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.mail.outbox.poll-ms:2000}", initialDelayString = "${app.mail.outbox.poll-ms:2000}")
+    public void poll() {
+        int capacity = batchSize - inFlight.get();
+        if (capacity <= 0) return;
+        List<OutboxRow> claimed;
+        try {
+            claimed = claimDue(capacity);
+        } catch (Exception e) {
+            log.warn("Email outbox poll failed: {}", e.getMessage());
+            return;
+        }
+        for (int i = 0; i < claimed.size(); i += messagesPerConnection) {
+            List<OutboxRow> chunk = claimed.subList(i, Math.min(claimed.size(), i + messagesPerConnection));
+            inFlight.addAndGet(chunk.size());
+            executor.execute(() -> {
+                try {
+                    send(chunk);
+                } finally {
+                    inFlight.addAndGet(-chunk.size());
+                }
+            });
+        }
+    }
+
+    private List<OutboxRow> claimDue(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxRow> due = jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_DUE_SQL);
+            ps.setMaxRows(limit);
+            ps.setTimestamp(1, Timestamp.valueOf(now));
+            return ps;
+        }, (rs, i) -> new OutboxRow(
+                rs.getObject("ID", UUID.class), rs.getInt("VERSION"), rs.getString("RECIPIENT"),
+                rs.getString("SUBJECT"), rs.getString("BODY"), rs.getInt("ATTEMPTS")));
+        Timestamp leaseUntil = Timestamp.valueOf(now.plusSeconds(leaseSeconds));
+        List<OutboxRow> claimed = new ArrayList<>(due.size());
+        for (OutboxRow r : due) {
+            // Failures dead-letter at max attempts, so this is a lease that expired on the last one
+            if (r.attempts >= maxAttempts) {
+                deadLetter(r, "lease expired", now);
+                continue;
+            }
+            if (jdbcTemplate.update(CLAIM_SQL, leaseUntil, r.id, r.version) == 1) claimed.add(r.claimed());
+        }
+        return claimed;
+    }
+
+    // One SMTP connection per chunk: JavaMailSenderImpl sends an array over a single transport
+    private void send(List<OutboxRow> chunk) {
+        SimpleMailMessage[] messages = new SimpleMailMessage[chunk.size()];
+        for (int i = 0; i < messages.length; i++) {
+            OutboxRow r = chunk.get(i);
+            SimpleMailMessage m = new SimpleMailMessage();
+            m.setFrom(fromAddress);
+            m.setTo(r.recipient);
+            m.setSubject(r.subject);
+            m.setText(r.body);
+            messages[i] = m;
+        }
+        Map<Object, Exception> failures = Map.of();
+        try {
+            mailSender.send(messages);
+        } catch (MailSendException e) {
+            failures = e.getFailedMessages();
+            if (failures.isEmpty()) failures = allFailed(messages, e);
+        } catch (Exception e) {
+            failures = allFailed(messages, e);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < messages.length; i++) {
+            OutboxRow r = chunk.get(i);
+            Exception error = failures.get(messages[i]);
+            try {
+                if (error == null) {
+                    if (record(r, jdbcTemplate.update(SENT_SQL, Timestamp.valueOf(now), r.id, r.version))) sent.incrementAndGet();
+                } else {
+                    markFailed(r, error, now);
+                }
+            } catch (Exception ex) {
+                log.warn("Failed to record outbox result for {}: {}", r.id, ex.getMessage());
+            }
+        }
+    }
+
+    private void markFailed(OutboxRow r, Exception error, LocalDateTime now) {
+        String message = truncate(String.valueOf(error.getMessage()), 1000);
+        if (r.attempts >= maxAttempts) {
+            deadLetter(r, message, now);
+            return;
+        }
+        long delay = backoffSeconds(r.attempts, backoffBaseSeconds, backoffMaxSeconds);
+        // +-20% jitter so a recovering SMTP server is not hit by the whole backlog at once
+        delay = Math.max(1, Math.round(delay * (0.8 + 0.4 * ThreadLocalRandom.current().nextDouble())));
+        if (!record(r, jdbcTemplate.update(FAILED_SQL, "PENDING", Timestamp.valueOf(now.plusSeconds(delay)), message, r.id, r.version))) return;
+        retried.incrementAndGet();
+        log.debug("Email {} attempt {} failed, retrying in {} s: {}", r.id, r.attempts, delay, message);
+    }
+
+    private void deadLetter(OutboxRow r, String message, LocalDateTime now) {
+        if (!record(r, jdbcTemplate.update(FAILED_SQL, "DEAD", Timestamp.valueOf(now), message, r.id, r.version))) return;
+        dead.incrementAndGet();
+        log.warn("Email {} to {} dead-lettered after {} attempts: {}", r.id, r.recipient, r.attempts, message);
+    }
+
+    // False when another node claimed the row after our lease expired; its result stands
+    private boolean record(OutboxRow r, int updated) {
+        if (updated == 1) return true;
+        leasesLost.incrementAndGet();
+        log.warn("Email {} was re-claimed before its result was recorded", r.id);
+        return false;
+    }
+
+    /**
+     * Delay before the next attempt after {@code attempts} failures: base, 2*base, 4*base, ... capped at max.
+     */
+    static long backoffSeconds(int attempts, long baseSeconds, long maxSeconds) {
+        if (attempts <= 0) return 0;
+        int shift = Math.min(attempts - 1, 30);
+        long delay = baseSeconds << shift;
+        return delay < 0 || delay > maxSeconds ? maxSeconds : delay;
+    }
+
+    /**
+     * Puts a dead-lettered email back in the queue. Returns false if it is not dead.
+     */
+    public boolean revive(UUID id) {
+        return jdbcTemplate.update(REVIVE_SQL, Timestamp.valueOf(LocalDateTime.now()), id) == 1;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        Map<String, Long> byStatus = new LinkedHashMap<>();
+        jdbcTemplate.query(COUNT_SQL, rs -> {
+            byStatus.put(rs.getString(1), rs.getLong(2));
+        });
+        m.put("byStatus", byStatus);
+        m.put("inFlight", inFlight.get());
+        m.put("sent", sent.get());
+        m.put("retried", retried.get());
+        m.put("deadLettered", dead.get());
+        m.put("leasesLost", leasesLost.get());
+        m.put("workers", workers);
+        return m;
+    }
+
+    private static Map<Object, Exception> allFailed(SimpleMailMessage[] messages, Exception e) {
+        Map<Object, Exception> out = new HashMap<>();
+        for (SimpleMailMessage m : messages) out.put(m, e);
+        return out;
+    }
+
+    private static String truncate(String s, int max) {
+        return s.length() <= max ? s : s.substring(0, max);
+    }
+}
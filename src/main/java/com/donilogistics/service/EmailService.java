@@ -1,24 +1,36 @@
 package com.donilogistics.service;
 
+import com.donilogistics.entity.EmailOutbox;
+import com.donilogistics.entity.EmailOutboxStatus;
 import com.donilogistics.entity.User;
+import io.jmix.core.DataManager;
+import io.jmix.core.security.SystemAuthenticator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import java.util.UUID;
+
+/**
+ * Composes application emails and queues them in EMAIL_OUTBOX. The row joins the caller's
+ * transaction, so a rolled-back registration never sends mail and a committed one always will;
+ * delivery, retries and dead-lettering happen in {@link EmailOutboxDispatcher}.
+ */
 @Service("doni_EmailService")
 public class EmailService {
 
-    private final JavaMailSender mailSender;
+    private static final Logger log = LoggerFactory.getLogger(EmailService.class);
 
-    @Value("${app.mail.from:noreply@localhost}")
-    private String fromAddress;
+    private final DataManager dataManager;
+    private final SystemAuthenticator systemAuthenticator;
 
     @Value("${app.public-url:http://localhost:3000}")
     private String publicUrl;
 
-    public EmailService(JavaMailSender mailSender) {
-        this.mailSender = mailSender;
+    public EmailService(DataManager dataManager, SystemAuthenticator systemAuthenticator) {
+        this.dataManager = dataManager;
+        this.systemAuthenticator = systemAuthenticator;
     }
 
     public void sendVerificationEmail(User user) {
@@ -30,19 +42,7 @@ public class EmailService {
                 + "Thanks for registering with Doni Logistics. Please verify your email by clicking the link below:\n\n"
                 + verifyLink + "\n\n"
                 + "If you did not sign up, please ignore this email.";
-
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromAddress);
-            message.setTo(user.getEmail());
-            message.setSubject(subject);
-            message.setText(text);
-            mailSender.send(message);
-        } catch (Exception ex) {
-            // Fallback to console logging in dev
-            System.out.println("[DEV] Could not send email via SMTP. Printing verification link instead.");
-            System.out.println("Verification email (to " + user.getEmail() + ") link: " + verifyLink);
-        }
+        enqueue(user.getEmail(), subject, text);
     }
 
     public void sendPasswordResetEmail(User user, String resetToken) {
@@ -50,15 +50,21 @@ public class EmailService {
         String subject = "Reset your Doni Logistics password";
         String text = "Hello " + (user.getFirstName() != null ? user.getFirstName() : user.getUsername()) + ",\n\n"
                 + "Use the link below to reset your password:\n\n" + resetLink;
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromAddress);
-            message.setTo(user.getEmail());
-            message.setSubject(subject);
-            message.setText(text);
-            mailSender.send(message);
-        } catch (Exception ex) {
-            System.out.println("[DEV] Could not send reset email via SMTP. Link: " + resetLink);
+        enqueue(user.getEmail(), subject, text);
+    }
+
+    public UUID enqueue(String recipient, String subject, String text) {
+        if (recipient == null || recipient.isBlank()) {
+            log.warn("Skipping email '{}' without a recipient", subject);
+            return null;
         }
+        return systemAuthenticator.withSystem(() -> {
+            EmailOutbox row = dataManager.create(EmailOutbox.class);
+            row.setRecipient(recipient);
+            row.setSubject(subject);
+            row.setBody(text);
+            row.setStatus(EmailOutboxStatus.PENDING);
+            return dataManager.save(row).getId();
+        });
     }
 }
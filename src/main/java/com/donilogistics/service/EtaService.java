@@ -0,0 +1,319 @@
+package com.donilogistics.service;
+
+import com.donilogistics.entity.TrackingEventType;
+import com.donilogistics.geo.GeoHash;
+import com.donilogistics.geo.GeoUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps ROUTE_PLAN.ESTIMATED_TIMES, CURRENT_LATITUDE/LONGITUDE and LAST_SEEN current for active plans.
+ * Leg times between consecutive stops are taken once per plan from the {@link LegCache} (or the local
+ * haversine model) and stored as prefix sums, so the remaining ETAs are: time to the next stop at the
+ * observed pace, plus a prefix-sum difference per later stop. A ping only updates the plan's position
+ * and an EWMA of its speed; ETAs are computed on the app.eta.tick-ms tick for plans that moved, written
+ * at most every app.eta.write-interval-ms per plan, and pushed when any stop moved by
+ * app.eta.min-change-seconds. The next stop comes from {@link GeofenceService}.
+ */
+@Service
+public class EtaService implements PositionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(EtaService.class);
+
+    // Like the ingestion position updates this does not bump VERSION, so admin edits of a plan are not
+    // rejected every few seconds while it is being driven
+    private static final String UPDATE_PLAN_SQL = "update ROUTE_PLAN set ESTIMATED_TIMES = ?, CURRENT_LATITUDE = ?, CURRENT_LONGITUDE = ?, "
+            + "GEOHASH = ?, LAST_SEEN = ? where ID = ?";
+
+    private static final double MIN_MOVING_KMH = 3.0;
+
+    static final class EtaPlan implements ActivePlanLoader.Assignable {
+        final UUID planId;
+        final UUID vehicleId;
+        final UUID driverId;
+        final UUID organizationId;
+        final boolean inProgress;
+        final List<Integer> sequence = new ArrayList<>();
+        final List<UUID> shipments = new ArrayList<>();
+        final List<double[]> points = new ArrayList<>();
+        // travelPrefix[i]: planned driving seconds from the first stop to stop i
+        double[] travelPrefix;
+
+        // Guarded by this
+        double lat = Double.NaN, lon = Double.NaN;
+        long seenAt;
+        double speedKmh = Double.NaN;
+        boolean moved;
+        long writtenAt;
+        long[] publishedEtas;
+
+        EtaPlan(UUID planId, UUID vehicleId, UUID driverId, UUID organizationId, boolean inProgress) {
+            this.planId = planId;
+            this.vehicleId = vehicleId;
+            this.driverId = driverId;
+            this.organizationId = organizationId;
+            this.inProgress = inProgress;
+        }
+
+        @Override
+        public UUID getVehicleId() {
+            return vehicleId;
+        }
+
+        @Override
+        public UUID getDriverId() {
+            return driverId;
+        }
+
+        @Override
+        public boolean isInProgress() {
+            return inProgress;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ActivePlanLoader activePlanLoader;
+    private final LegCache legCache;
+    private final GeofenceService geofenceService;
+    private final LivePushService livePushService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${app.routing.local.speed-kmh:40}")
+    private double localSpeedKmh;
+
+    @Value("${app.routing.local.road-factor:1.3}")
+    private double roadFactor;
+
+    @Value("${app.routing.service-seconds:300}")
+    private long serviceSeconds;
+
+    @Value("${app.eta.ewma-alpha:0.2}")
+    private double ewmaAlpha;
+
+    @Value("${app.eta.write-interval-ms:30000}")
+    private long writeIntervalMs;
+
+    @Value("${app.eta.min-change-seconds:60}")
+    private long minChangeSeconds;
+
+    private volatile Map<UUID, EtaPlan> byVehicle = Map.of();
+    private volatile Map<UUID, EtaPlan> byDriver = Map.of();
+    private volatile Map<UUID, EtaPlan> byPlan = Map.of();
+
+    private final AtomicLong computed = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+
+    public EtaService(DataSource dataSource, ActivePlanLoader activePlanLoader, LegCache legCache, GeofenceService geofenceService,
+                      LivePushService livePushService) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.activePlanLoader = activePlanLoader;
+        this.legCache = legCache;
+        this.geofenceService = geofenceService;
+        this.livePushService = livePushService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        reload();
+    }
+
+    @Scheduled(initialDelayString = "${app.eta.resync-ms:60000}", fixedDelayString = "${app.eta.resync-ms:60000}")
+    public void reload() {
+        try {
+            Map<UUID, EtaPlan> previous = byPlan;
+            Map<UUID, EtaPlan> vehicles = new HashMap<>();
+            Map<UUID, EtaPlan> drivers = new HashMap<>();
+            Map<UUID, EtaPlan> loaded = new HashMap<>();
+            for (ActivePlanLoader.Plan plan : activePlanLoader.loadWithStops()) {
+                EtaPlan p = new EtaPlan(plan.planId, plan.vehicleId, plan.driverId, plan.organizationId, plan.isInProgress());
+                for (ActivePlanLoader.Stop s : plan.stops) {
+                    p.sequence.add(s.sequenceNo);
+                    p.shipments.add(s.shipmentId);
+                    p.points.add(new double[]{s.lat, s.lon});
+                }
+                p.travelPrefix = travelPrefix(p.points);
+                EtaPlan old = previous.get(p.planId);
+                if (old != null) {
+                    synchronized (old) {
+                        p.lat = old.lat;
+                        p.lon = old.lon;
+                        p.seenAt = old.seenAt;
+                        p.speedKmh = old.speedKmh;
+                        p.moved = old.moved;
+                        p.writtenAt = old.writtenAt;
+                        p.publishedEtas = old.publishedEtas;
+                    }
+                }
+                loaded.put(p.planId, p);
+                ActivePlanLoader.assign(p, vehicles, drivers);
+            }
+            byPlan = loaded;
+            byVehicle = vehicles;
+            byDriver = drivers;
+        } catch (Exception e) {
+            log.warn("ETA plan reload failed: {}", e.getMessage());
+        }
+    }
+
+    // Cached router legs where we have them, the local road model otherwise
+    private double[] travelPrefix(List<double[]> points) {
+        double[] prefix = new double[points.size()];
+        for (int i = 1; i < points.size(); i++) {
+            double[] a = points.get(i - 1), b = points.get(i);
+            double[] leg = legCache.get(LegCache.pointKey(a[0], a[1]), LegCache.pointKey(b[0], b[1]));
+            double seconds = leg != null && !Double.isNaN(leg[0]) ? leg[0] : localSeconds(a[0], a[1], b[0], b[1]);
+            prefix[i] = prefix[i - 1] + seconds;
+        }
+        return prefix;
+    }
+
+    private double localSeconds(double lat1, double lon1, double lat2, double lon2) {
+        return GeoUtils.haversineMeters(lat1, lon1, lat2, lon2) * roadFactor / (localSpeedKmh / 3.6);
+    }
+
+    @Override
+    public void onPositions(List<GpsPing> batch) {
+        if (byPlan.isEmpty()) return;
+        for (GpsPing g : batch) {
+            if (g.eventType != TrackingEventType.LOCATION_UPDATE || g.latitude == null || g.longitude == null) continue;
+            EtaPlan p = g.vehicleId != null ? byVehicle.get(g.vehicleId) : null;
+            if (p == null && g.driverId != null) p = byDriver.get(g.driverId);
+            if (p == null) continue;
+            long t = Timestamp.valueOf(g.recordedAt).getTime();
+            synchronized (p) {
+                if (t < p.seenAt) continue;
+                Double sample = g.speed;
+                if (sample == null && p.seenAt > 0 && t > p.seenAt) {
+                    sample = GeoUtils.haversineMeters(p.lat, p.lon, g.latitude, g.longitude) / ((t - p.seenAt) / 1000.0) * 3.6;
+                }
+                // Only moving samples feed the pace; time spent standing is already covered by the clock moving on
+                if (sample != null && !sample.isNaN() && sample >= MIN_MOVING_KMH) {
+                    p.speedKmh = Double.isNaN(p.speedKmh) ? sample : ewmaAlpha * sample + (1 - ewmaAlpha) * p.speedKmh;
+                }
+                p.lat = g.latitude;
+                p.lon = g.longitude;
+                p.seenAt = t;
+                p.moved = true;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.eta.tick-ms:5000}", initialDelayString = "${app.eta.tick-ms:5000}")
+    public void tick() {
+        long now = System.currentTimeMillis();
+        List<Object[]> updates = new ArrayList<>();
+        List<Map<String, Object>> pushes = new ArrayList<>();
+        for (EtaPlan p : byPlan.values()) {
+            Integer next = geofenceService.nextStopSequence(p.planId);
+            synchronized (p) {
+                if (!p.moved || now - p.writtenAt < writeIntervalMs) continue;
+                int from = next == null ? 0 : next < 0 ? p.sequence.size() : Math.max(0, p.sequence.indexOf(next));
+                long[] etas = estimate(p, from, now);
+                computed.incrementAndGet();
+                String json = etaJson(p, etas);
+                updates.add(new Object[]{json, decimal(p.lat), decimal(p.lon), GeoHash.of(p.lat, p.lon),
+                        new Timestamp(p.seenAt), p.planId});
+                if (changed(p.publishedEtas, etas)) {
+                    p.publishedEtas = etas;
+                    Map<String, Object> m = new HashMap<>();
+                    m.put("planId", p.planId);
+                    m.put("vehicleId", p.vehicleId);
+                    m.put("organizationId", p.organizationId);
+                    m.put("latitude", p.lat);
+                    m.put("longitude", p.lon);
+                    m.put("speedKmh", Double.isNaN(p.speedKmh) ? null : p.speedKmh);
+                    m.put("estimatedTimes", json);
+                    pushes.add(m);
+                }
+                p.moved = false;
+                p.writtenAt = now;
+            }
+        }
+        if (!updates.isEmpty()) {
+            try {
+                jdbcTemplate.batchUpdate(UPDATE_PLAN_SQL, updates);
+                written.addAndGet(updates.size());
+            } catch (Exception e) {
+                log.warn("Failed to write ETAs for {} plans: {}", updates.size(), e.getMessage());
+            }
+        }
+        for (Map<String, Object> m : pushes) {
+            livePushService.pushRouteEta((UUID) m.get("organizationId"), m);
+            published.incrementAndGet();
+        }
+    }
+
+    /**
+     * Epoch-millis ETA per stop; stops before {@code from} are already reached and get 0.
+     */
+    long[] estimate(EtaPlan p, int from, long now) {
+        int n = p.points.size();
+        long[] etas = new long[n];
+        if (from >= n) return etas;
+        // Observed pace relative to the planning speed, bounded so a red light or a motorway stretch does not swing every ETA
+        double pace = Double.isNaN(p.speedKmh) ? 1.0 : Math.max(0.3, Math.min(1.5, p.speedKmh / localSpeedKmh));
+        double[] target = p.points.get(from);
+        double toNext = localSeconds(p.lat, p.lon, target[0], target[1]) / pace;
+        double base = now + toNext * 1000;
+        for (int i = from; i < n; i++) {
+            double travel = (p.travelPrefix[i] - p.travelPrefix[from]) / pace;
+            etas[i] = Math.round(base + (travel + (long) (i - from) * serviceSeconds) * 1000);
+        }
+        return etas;
+    }
+
+    private boolean changed(long[] before, long[] after) {
+        if (before == null || before.length != after.length) return true;
+        for (int i = 0; i < after.length; i++) {
+            if (Math.abs(after[i] - before[i]) >= minChangeSeconds * 1000) return true;
+        }
+        return false;
+    }
+
+    // Same shape ConsolidationService writes at planning time, plus whether the stop was reached
+    private String etaJson(EtaPlan p, long[] etas) {
+        List<Map<String, Object>> out = new ArrayList<>(etas.length);
+        for (int i = 0; i < etas.length; i++) {
+            Map<String, Object> e = new LinkedHashMap<>();
+            e.put("sequence", p.sequence.get(i));
+            e.put("shipmentId", p.shipments.get(i));
+            e.put("eta", etas[i] > 0 ? new Timestamp(etas[i]).toLocalDateTime().toString() : null);
+            e.put("reached", etas[i] == 0);
+            out.add(e);
+        }
+        try {
+            return objectMapper.writeValueAsString(out);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("activePlans", byPlan.size());
+        m.put("computed", computed.get());
+        m.put("written", written.get());
+        m.put("published", published.get());
+        m.put("writeIntervalMs", writeIntervalMs);
+        return m;
+    }
+
+    private static BigDecimal decimal(double v) {
+        return BigDecimal.valueOf(v).setScale(6, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,277 @@
+package com.donilogistics.service;
+
+import com.donilogistics.entity.DriverProfile;
+import com.donilogistics.entity.Vehicle;
+import com.donilogistics.geo.GeoGridIndex;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Live in-memory spatial index of driver and vehicle positions for nearest/radius lookups.
+ * Seeded from the database at startup, moved by every ingestion flush and periodically resynced
+ * so profile changes made elsewhere (activation, vehicle assignment) are picked up. Changes that
+ * arrive while a resync is reading the tables are replayed onto the new index before it is swapped in.
+ * Pings from ids with no profile row are remembered for app.fleet.index.unknown-ttl-seconds, so an
+ * unknown device costs one lookup per TTL rather than one per ping.
+ */
+@Service
+public class FleetLocationIndex implements PositionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(FleetLocationIndex.class);
+
+    private static final String DRIVER_SQL = "select ID, USER_ID, ORGANIZATION_ID, ACTIVE, CURRENT_LATITUDE, CURRENT_LONGITUDE from DRIVER_PROFILE";
+    private static final String VEHICLE_SQL = "select ID, ASSIGNED_DRIVER_ID, ORGANIZATION_ID, LICENSE_PLATE, CURRENT_LATITUDE, CURRENT_LONGITUDE from VEHICLE";
+
+    public static final class DriverRef {
+        public final UUID driverId;
+        public final UUID userId;
+        public final UUID organizationId;
+        public final boolean active;
+
+        public DriverRef(UUID driverId, UUID userId, UUID organizationId, boolean active) {
+            this.driverId = driverId;
+            this.userId = userId;
+            this.organizationId = organizationId;
+            this.active = active;
+        }
+    }
+
+    public static final class VehicleRef {
+        public final UUID vehicleId;
+        public final UUID assignedDriverUserId;
+        public final UUID organizationId;
+        public final String licensePlate;
+
+        public VehicleRef(UUID vehicleId, UUID assignedDriverUserId, UUID organizationId, String licensePlate) {
+            this.vehicleId = vehicleId;
+            this.assignedDriverUserId = assignedDriverUserId;
+            this.organizationId = organizationId;
+            this.licensePlate = licensePlate;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final double cellDeg;
+
+    private volatile GeoGridIndex<DriverRef> drivers;
+    private volatile GeoGridIndex<VehicleRef> vehicles;
+    private volatile long lastReloadMillis;
+    // Ids looked up and not found; keyed separately since a lookup only covers its own table
+    private final Cache<UUID, Boolean> unknownDrivers;
+    private final Cache<UUID, Boolean> unknownVehicles;
+    private final AtomicLong unknownSkipped = new AtomicLong();
+    // Changes made while reload() reads the tables; guarded by this
+    private List<Change> pending;
+
+    private interface Change {
+        void apply(GeoGridIndex<DriverRef> drivers, GeoGridIndex<VehicleRef> vehicles);
+    }
+
+    public FleetLocationIndex(DataSource dataSource, @Value("${app.fleet.index.cell-deg:0.02}") double cellDeg,
+                              @Value("${app.fleet.index.unknown-ttl-seconds:60}") long unknownTtlSeconds) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.cellDeg = cellDeg;
+        this.unknownDrivers = CacheBuilder.newBuilder().expireAfterWrite(unknownTtlSeconds, TimeUnit.SECONDS).maximumSize(100_000).build();
+        this.unknownVehicles = CacheBuilder.newBuilder().expireAfterWrite(unknownTtlSeconds, TimeUnit.SECONDS).maximumSize(100_000).build();
+        this.drivers = new GeoGridIndex<>(cellDeg);
+        this.vehicles = new GeoGridIndex<>(cellDeg);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        reload();
+    }
+
+    @Scheduled(initialDelayString = "${app.fleet.index.resync-ms:300000}", fixedDelayString = "${app.fleet.index.resync-ms:300000}")
+    public void reload() {
+        synchronized (this) {
+            if (pending != null) return;
+            pending = new ArrayList<>();
+        }
+        long started = System.currentTimeMillis();
+        try {
+            GeoGridIndex<DriverRef> d = new GeoGridIndex<>(cellDeg);
+            jdbcTemplate.query(DRIVER_SQL, rs -> {
+                Double lat = getDouble(rs, "CURRENT_LATITUDE");
+                Double lon = getDouble(rs, "CURRENT_LONGITUDE");
+                if (lat == null || lon == null) return;
+                UUID id = rs.getObject("ID", UUID.class);
+                d.put(id, lat, lon, new DriverRef(id, rs.getObject("USER_ID", UUID.class),
+                        rs.getObject("ORGANIZATION_ID", UUID.class), rs.getBoolean("ACTIVE")));
+            });
+            GeoGridIndex<VehicleRef> v = new GeoGridIndex<>(cellDeg);
+            jdbcTemplate.query(VEHICLE_SQL, rs -> {
+                Double lat = getDouble(rs, "CURRENT_LATITUDE");
+                Double lon = getDouble(rs, "CURRENT_LONGITUDE");
+                if (lat == null || lon == null) return;
+                UUID id = rs.getObject("ID", UUID.class);
+                v.put(id, lat, lon, new VehicleRef(id, rs.getObject("ASSIGNED_DRIVER_ID", UUID.class),
+                        rs.getObject("ORGANIZATION_ID", UUID.class), rs.getString("LICENSE_PLATE")));
+            });
+            synchronized (this) {
+                for (Change c : pending) c.apply(d, v);
+                drivers = d;
+                vehicles = v;
+            }
+            lastReloadMillis = System.currentTimeMillis() - started;
+            log.info("Fleet location index loaded: {} drivers, {} vehicles in {} ms", d.size(), v.size(), lastReloadMillis);
+        } catch (Exception e) {
+            log.warn("Fleet location index reload failed: {}", e.getMessage());
+        } finally {
+            synchronized (this) {
+                pending = null;
+            }
+        }
+    }
+
+    @Override
+    public void onPositions(List<GpsPing> batch) {
+        GeoGridIndex<DriverRef> d;
+        GeoGridIndex<VehicleRef> v;
+        synchronized (this) {
+            d = drivers;
+            v = vehicles;
+            if (pending != null) {
+                // The flusher reuses its batch list. Devices missing from the new index are loaded on their next ping
+                List<GpsPing> moved = new ArrayList<>(batch);
+                pending.add((nd, nv) -> {
+                    for (GpsPing p : moved) {
+                        if (p.driverId != null) nd.move(p.driverId, p.latitude, p.longitude);
+                        if (p.vehicleId != null) nv.move(p.vehicleId, p.latitude, p.longitude);
+                    }
+                });
+            }
+        }
+        for (GpsPing p : batch) {
+            if (p.driverId != null && !d.move(p.driverId, p.latitude, p.longitude)) loadDriver(d, p.driverId, p.latitude, p.longitude);
+            if (p.vehicleId != null && !v.move(p.vehicleId, p.latitude, p.longitude)) loadVehicle(v, p.vehicleId, p.latitude, p.longitude);
+        }
+    }
+
+    public void upsertDriver(DriverProfile d) {
+        if (d == null || d.getId() == null) return;
+        UUID id = d.getId();
+        unknownDrivers.invalidate(id);
+        if (d.getCurrentLatitude() == null || d.getCurrentLongitude() == null) {
+            removeDriver(id);
+            return;
+        }
+        double lat = d.getCurrentLatitude().doubleValue();
+        double lon = d.getCurrentLongitude().doubleValue();
+        DriverRef ref = new DriverRef(id, d.getUser() != null ? d.getUser().getId() : null,
+                d.getOrganization() != null ? d.getOrganization().getId() : null,
+                Boolean.TRUE.equals(d.getActive()));
+        change((di, vi) -> di.put(id, lat, lon, ref));
+    }
+
+    public void upsertVehicle(Vehicle v) {
+        if (v == null || v.getId() == null) return;
+        UUID id = v.getId();
+        unknownVehicles.invalidate(id);
+        if (v.getCurrentLatitude() == null || v.getCurrentLongitude() == null) {
+            removeVehicle(id);
+            return;
+        }
+        double lat = v.getCurrentLatitude();
+        double lon = v.getCurrentLongitude();
+        VehicleRef ref = new VehicleRef(id, v.getAssignedDriver() != null ? v.getAssignedDriver().getId() : null,
+                v.getOrganization() != null ? v.getOrganization().getId() : null, v.getLicensePlate());
+        change((di, vi) -> vi.put(id, lat, lon, ref));
+    }
+
+    public void removeDriver(UUID id) {
+        change((di, vi) -> di.remove(id));
+    }
+
+    public void removeVehicle(UUID id) {
+        change((di, vi) -> vi.remove(id));
+    }
+
+    private void change(Change c) {
+        GeoGridIndex<DriverRef> d;
+        GeoGridIndex<VehicleRef> v;
+        synchronized (this) {
+            d = drivers;
+            v = vehicles;
+            if (pending != null) pending.add(c);
+        }
+        c.apply(d, v);
+    }
+
+    public List<GeoGridIndex.Neighbor<DriverRef>> nearestDrivers(double lat, double lon, int k, double maxRadiusMeters, Predicate<DriverRef> filter) {
+        return drivers.nearest(lat, lon, k, maxRadiusMeters, filter);
+    }
+
+    public List<GeoGridIndex.Neighbor<VehicleRef>> nearestVehicles(double lat, double lon, int k, double maxRadiusMeters, Predicate<VehicleRef> filter) {
+        return vehicles.nearest(lat, lon, k, maxRadiusMeters, filter);
+    }
+
+    public List<GeoGridIndex.Neighbor<DriverRef>> driversWithin(double lat, double lon, double radiusMeters, Predicate<DriverRef> filter) {
+        return drivers.withinRadius(lat, lon, radiusMeters, filter);
+    }
+
+    public List<GeoGridIndex.Neighbor<VehicleRef>> vehiclesWithin(double lat, double lon, double radiusMeters, Predicate<VehicleRef> filter) {
+        return vehicles.withinRadius(lat, lon, radiusMeters, filter);
+    }
+
+    public List<GeoGridIndex.Entry<DriverRef>> driversInBox(double minLat, double minLon, double maxLat, double maxLon, Predicate<DriverRef> filter) {
+        return drivers.withinBox(minLat, minLon, maxLat, maxLon, filter);
+    }
+
+    public List<GeoGridIndex.Entry<VehicleRef>> vehiclesInBox(double minLat, double minLon, double maxLat, double maxLon, Predicate<VehicleRef> filter) {
+        return vehicles.withinBox(minLat, minLon, maxLat, maxLon, filter);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("drivers", drivers.size());
+        m.put("vehicles", vehicles.size());
+        m.put("cellDeg", cellDeg);
+        m.put("lastReloadMillis", lastReloadMillis);
+        m.put("unknownIds", unknownDrivers.size() + unknownVehicles.size());
+        m.put("unknownPingsSkipped", unknownSkipped.get());
+        return m;
+    }
+
+    // A device we have not seen yet (created after the last reload): pull its metadata once
+    private void loadDriver(GeoGridIndex<DriverRef> index, UUID id, double lat, double lon) {
+        if (unknownDrivers.getIfPresent(id) != null) {
+            unknownSkipped.incrementAndGet();
+            return;
+        }
+        List<DriverRef> refs = jdbcTemplate.query(DRIVER_SQL + " where ID = ?", (rs, i) ->
+                new DriverRef(id, rs.getObject("USER_ID", UUID.class), rs.getObject("ORGANIZATION_ID", UUID.class), rs.getBoolean("ACTIVE")), id);
+        if (refs.isEmpty()) unknownDrivers.put(id, Boolean.TRUE);
+        else index.put(id, lat, lon, refs.get(0));
+    }
+
+    private void loadVehicle(GeoGridIndex<VehicleRef> index, UUID id, double lat, double lon) {
+        if (unknownVehicles.getIfPresent(id) != null) {
+            unknownSkipped.incrementAndGet();
+            return;
+        }
+        List<VehicleRef> refs = jdbcTemplate.query(VEHICLE_SQL + " where ID = ?", (rs, i) ->
+                new VehicleRef(id, rs.getObject("ASSIGNED_DRIVER_ID", UUID.class), rs.getObject("ORGANIZATION_ID", UUID.class), rs.getString("LICENSE_PLATE")), id);
+        if (refs.isEmpty()) unknownVehicles.put(id, Boolean.TRUE);
+        else index.put(id, lat, lon, refs.get(0));
+    }
+
+    private static Double getDouble(java.sql.ResultSet rs, String column) throws java.sql.SQLException {
+        double v = rs.getDouble(column);
+        return rs.wasNull() ? null : v;
+    }
+}
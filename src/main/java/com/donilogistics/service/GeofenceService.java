@@ -0,0 +1,321 @@
+package com.donilogistics.service;
+
+import com.donilogistics.entity.TrackingEventType;
+import com.donilogistics.geo.GeoGridIndex;
+import com.donilogistics.geo.GeoUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Turns positions into ARRIVAL/DEPARTURE tracking events for the stops of active route plans.
+ * Stops of PLANNED and IN_PROGRESS plans live in a grid index and each route is keyed by its vehicle
+ * and driver, so a ping costs one map lookup and, when it is near its own route at all, one small
+ * radius query; nothing is loaded per ping. A stop is entered within app.geofence.radius-meters and
+ * left beyond radius * app.geofence.exit-factor, so GPS jitter at the fence edge does not flap.
+ * Arrivals and departures are written to ROUTE_STOP and re-submitted through the ingestion queue as
+ * tracking events. The cache is rebuilt every app.geofence.resync-ms to pick up new or reassigned plans.
+ */
+@Service
+public class GeofenceService implements PositionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(GeofenceService.class);
+
+    private static final String ARRIVED_SQL = "update ROUTE_STOP set ARRIVED_AT = ?, VERSION = VERSION + 1 where ID = ? and ARRIVED_AT is null";
+    private static final String DEPARTED_SQL = "update ROUTE_STOP set DEPARTED_AT = ?, VERSION = VERSION + 1 where ID = ? and DEPARTED_AT is null";
+    private static final String PLAN_STATUS_SQL = "update ROUTE_PLAN set ROUTE_STATUS = ?, VERSION = VERSION + 1, UPDATED_AT = ? "
+            + "where ID = ? and ROUTE_STATUS = ?";
+
+    static final class Fence {
+        final UUID stopId;
+        final UUID planId;
+        final int sequenceNo;
+        final double lat;
+        final double lon;
+        final UUID shipmentId;
+        // Progress flags are touched on the ingestion flusher thread and under the service lock on reload
+        boolean arrived;
+        boolean departed;
+
+        Fence(UUID stopId, UUID planId, int sequenceNo, double lat, double lon, UUID shipmentId) {
+            this.stopId = stopId;
+            this.planId = planId;
+            this.sequenceNo = sequenceNo;
+            this.lat = lat;
+            this.lon = lon;
+            this.shipmentId = shipmentId;
+        }
+    }
+
+    static final class ActiveRoute implements ActivePlanLoader.Assignable {
+        final UUID planId;
+        final UUID vehicleId;
+        final UUID driverId;
+        final UUID organizationId;
+        final List<Fence> fences = new ArrayList<>();
+        String status;
+        Fence inside;
+        // Published for EtaService, which reads it off the flusher thread without the service lock
+        volatile int nextSequence = -1;
+        double minLat = 90, minLon = 180, maxLat = -90, maxLon = -180;
+
+        ActiveRoute(UUID planId, UUID vehicleId, UUID driverId, UUID organizationId, String status) {
+            this.planId = planId;
+            this.vehicleId = vehicleId;
+            this.driverId = driverId;
+            this.organizationId = organizationId;
+            this.status = status;
+        }
+
+        void add(Fence f) {
+            fences.add(f);
+            minLat = Math.min(minLat, f.lat);
+            maxLat = Math.max(maxLat, f.lat);
+            minLon = Math.min(minLon, f.lon);
+            maxLon = Math.max(maxLon, f.lon);
+        }
+
+        // Cheap reject for pings between stops, which is nearly all of them
+        boolean near(double lat, double lon, double padDeg) {
+            double padLon = padDeg / Math.max(0.01, Math.cos(Math.toRadians(Math.min(89.9, Math.abs(lat)))));
+            return lat >= minLat - padDeg && lat <= maxLat + padDeg && lon >= minLon - padLon && lon <= maxLon + padLon;
+        }
+
+        boolean anyDeparted() {
+            for (Fence f : fences) if (f.departed) return true;
+            return false;
+        }
+
+        void updateNextSequence() {
+            int next = -1;
+            for (Fence f : fences) {
+                if (!f.arrived) {
+                    next = f.sequenceNo;
+                    break;
+                }
+            }
+            nextSequence = next;
+        }
+
+        @Override
+        public UUID getVehicleId() {
+            return vehicleId;
+        }
+
+        @Override
+        public UUID getDriverId() {
+            return driverId;
+        }
+
+        @Override
+        public boolean isInProgress() {
+            return "IN_PROGRESS".equals(status);
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ActivePlanLoader activePlanLoader;
+    private final TrackingIngestionService trackingIngestionService;
+    private final double cellDeg;
+
+    @Value("${app.geofence.radius-meters:150}")
+    private double radiusMeters;
+
+    @Value("${app.geofence.exit-factor:1.5}")
+    private double exitFactor;
+
+    private volatile Map<UUID, ActiveRoute> byVehicle = Map.of();
+    private volatile Map<UUID, ActiveRoute> byDriver = Map.of();
+    private volatile Map<UUID, ActiveRoute> byPlan = Map.of();
+    private volatile GeoGridIndex<Fence> fences;
+    private volatile long lastReloadMillis;
+
+    private final AtomicLong evaluated = new AtomicLong();
+    private final AtomicLong arrivals = new AtomicLong();
+    private final AtomicLong departures = new AtomicLong();
+
+    public GeofenceService(DataSource dataSource, ActivePlanLoader activePlanLoader, TrackingIngestionService trackingIngestionService,
+                           @Value("${app.geofence.cell-deg:0.01}") double cellDeg) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.activePlanLoader = activePlanLoader;
+        this.trackingIngestionService = trackingIngestionService;
+        this.cellDeg = cellDeg;
+        this.fences = new GeoGridIndex<>(cellDeg);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        reload();
+    }
+
+    @Scheduled(initialDelayString = "${app.geofence.resync-ms:60000}", fixedDelayString = "${app.geofence.resync-ms:60000}")
+    public void reload() {
+        long started = System.currentTimeMillis();
+        try {
+            List<ActiveRoute> plans = new ArrayList<>();
+            for (ActivePlanLoader.Plan plan : activePlanLoader.loadWithStops()) {
+                ActiveRoute r = new ActiveRoute(plan.planId, plan.vehicleId, plan.driverId, plan.organizationId, plan.status);
+                for (ActivePlanLoader.Stop s : plan.stops) {
+                    Fence f = new Fence(s.stopId, plan.planId, s.sequenceNo, s.lat, s.lon, s.shipmentId);
+                    f.arrived = s.arrived;
+                    f.departed = s.departed;
+                    if (f.arrived && !f.departed) r.inside = f;
+                    r.add(f);
+                }
+                plans.add(r);
+            }
+
+            GeoGridIndex<Fence> index = new GeoGridIndex<>(cellDeg);
+            Map<UUID, ActiveRoute> vehicles = new HashMap<>();
+            Map<UUID, ActiveRoute> drivers = new HashMap<>();
+            Map<UUID, ActiveRoute> loaded = new HashMap<>();
+            synchronized (this) {
+                Map<UUID, ActiveRoute> previous = byPlan;
+                for (ActiveRoute r : plans) {
+                    carryOver(previous.get(r.planId), r);
+                    r.updateNextSequence();
+                    loaded.put(r.planId, r);
+                    for (Fence f : r.fences) index.put(f.stopId, f.lat, f.lon, f);
+                    ActivePlanLoader.assign(r, vehicles, drivers);
+                }
+                fences = index;
+                byVehicle = vehicles;
+                byDriver = drivers;
+                byPlan = loaded;
+            }
+            lastReloadMillis = System.currentTimeMillis() - started;
+            log.info("Geofences loaded: {} active routes, {} stops in {} ms", plans.size(), index.size(), lastReloadMillis);
+        } catch (Exception e) {
+            log.warn("Geofence reload failed: {}", e.getMessage());
+        }
+    }
+
+    // In-memory progress may be ahead of the rows the reload read
+    private static void carryOver(ActiveRoute old, ActiveRoute fresh) {
+        if (old == null) return;
+        Map<UUID, Fence> oldFences = new HashMap<>();
+        for (Fence f : old.fences) oldFences.put(f.stopId, f);
+        for (Fence f : fresh.fences) {
+            Fence o = oldFences.get(f.stopId);
+            if (o == null) continue;
+            f.arrived |= o.arrived;
+            f.departed |= o.departed;
+        }
+        fresh.inside = null;
+        if (old.inside != null && !old.inside.departed) {
+            for (Fence f : fresh.fences) if (f.stopId.equals(old.inside.stopId)) fresh.inside = f;
+        }
+        if ("IN_PROGRESS".equals(old.status)) fresh.status = old.status;
+    }
+
+    @Override
+    public synchronized void onPositions(List<GpsPing> batch) {
+        if (byVehicle.isEmpty() && byDriver.isEmpty()) return;
+        double padDeg = radiusMeters / GeoUtils.METERS_PER_DEGREE_LAT;
+        for (GpsPing p : batch) {
+            // Our own ARRIVAL/DEPARTURE events come back through the queue; only raw positions are evaluated
+            if (p.eventType != TrackingEventType.LOCATION_UPDATE || p.latitude == null || p.longitude == null) continue;
+            ActiveRoute r = p.vehicleId != null ? byVehicle.get(p.vehicleId) : null;
+            if (r == null && p.driverId != null) r = byDriver.get(p.driverId);
+            if (r == null) continue;
+            evaluated.incrementAndGet();
+            try {
+                evaluate(r, p, padDeg);
+            } catch (Exception e) {
+                log.warn("Geofence evaluation for plan {} failed: {}", r.planId, e.getMessage());
+            }
+        }
+    }
+
+    private void evaluate(ActiveRoute r, GpsPing p, double padDeg) {
+        double lat = p.latitude, lon = p.longitude;
+        if (r.inside != null) {
+            double d = GeoUtils.haversineMeters(lat, lon, r.inside.lat, r.inside.lon);
+            if (d <= radiusMeters * exitFactor) return;
+            depart(r, r.inside, p);
+        }
+        if (!r.near(lat, lon, padDeg)) return;
+        Fence next = null;
+        for (var n : fences.withinRadius(lat, lon, radiusMeters, f -> f.planId.equals(r.planId) && !f.arrived)) {
+            Fence f = n.getValue();
+            if (next == null || f.sequenceNo < next.sequenceNo) next = f;
+        }
+        if (next == null) return;
+        Fence last = r.fences.get(r.fences.size() - 1);
+        // A route that starts on top of its final stop is not finished before it has left anywhere
+        if (next == last && r.fences.size() > 1 && !r.anyDeparted()) return;
+        arrive(r, next, p);
+        if (next == last) setStatus(r, "COMPLETED");
+    }
+
+    private void arrive(ActiveRoute r, Fence f, GpsPing p) {
+        f.arrived = true;
+        r.updateNextSequence();
+        r.inside = f;
+        arrivals.incrementAndGet();
+        jdbcTemplate.update(ARRIVED_SQL, Timestamp.valueOf(p.recordedAt), f.stopId);
+        if ("PLANNED".equals(r.status)) setStatus(r, "IN_PROGRESS");
+        emit(r, f, p, TrackingEventType.ARRIVAL);
+    }
+
+    private void depart(ActiveRoute r, Fence f, GpsPing p) {
+        f.departed = true;
+        r.inside = null;
+        departures.incrementAndGet();
+        jdbcTemplate.update(DEPARTED_SQL, Timestamp.valueOf(p.recordedAt), f.stopId);
+        if ("PLANNED".equals(r.status)) setStatus(r, "IN_PROGRESS");
+        emit(r, f, p, TrackingEventType.DEPARTURE);
+    }
+
+    private void setStatus(ActiveRoute r, String status) {
+        jdbcTemplate.update(PLAN_STATUS_SQL, status, Timestamp.valueOf(LocalDateTime.now()), r.planId, r.status);
+        r.status = status;
+    }
+
+    private void emit(ActiveRoute r, Fence f, GpsPing p, TrackingEventType type) {
+        GpsPing e = new GpsPing(r.vehicleId != null ? r.vehicleId : p.vehicleId, r.driverId != null ? r.driverId : p.driverId,
+                p.latitude, p.longitude, p.recordedAt, p.source);
+        e.shipmentId = f.shipmentId;
+        e.organizationId = r.organizationId != null ? r.organizationId : p.organizationId;
+        e.heading = p.heading;
+        e.speed = p.speed;
+        e.accuracy = p.accuracy;
+        e.eventType = type;
+        if (!trackingIngestionService.submit(e)) {
+            log.warn("{} event for stop {} of plan {} was dropped by the ingestion queue", type, f.stopId, r.planId);
+        }
+    }
+
+    /**
+     * Sequence number of the first stop of the plan not arrived at yet, -1 once every stop was reached,
+     * or null if the plan is not being tracked.
+     */
+    public Integer nextStopSequence(UUID planId) {
+        ActiveRoute r = byPlan.get(planId);
+        return r == null ? null : r.nextSequence;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("activeRoutes", byPlan.size());
+        m.put("stops", fences.size());
+        m.put("radiusMeters", radiusMeters);
+        m.put("exitRadiusMeters", radiusMeters * exitFactor);
+        m.put("evaluated", evaluated.get());
+        m.put("arrivals", arrivals.get());
+        m.put("departures", departures.get());
+        m.put("lastReloadMillis", lastReloadMillis);
+        return m;
+    }
+}
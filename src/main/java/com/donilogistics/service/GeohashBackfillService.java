@@ -0,0 +1,74 @@
+package com.donilogistics.service;
+
+import com.donilogistics.geo.GeoHash;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Fills GEOHASH for rows saved before geohashes were computed on save. Walks each table by ID in
+ * pages so it never holds a long-running cursor over a table that is being updated.
+ */
+@Service
+public class GeohashBackfillService {
+
+    private static final Logger log = LoggerFactory.getLogger(GeohashBackfillService.class);
+    private static final int PAGE_SIZE = 1000;
+
+    private static final String[][] TARGETS = {
+            {"ADDRESS", "LATITUDE", "LONGITUDE"},
+            {"WAREHOUSE", "LATITUDE", "LONGITUDE"},
+            {"DRIVER_PROFILE", "CURRENT_LATITUDE", "CURRENT_LONGITUDE"},
+            {"VEHICLE", "CURRENT_LATITUDE", "CURRENT_LONGITUDE"},
+            {"ROUTE_PLAN", "CURRENT_LATITUDE", "CURRENT_LONGITUDE"}
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public GeohashBackfillService(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setMaxRows(PAGE_SIZE);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        for (String[] t : TARGETS) {
+            try {
+                int n = backfill(t[0], t[1], t[2]);
+                if (n > 0) log.info("Backfilled GEOHASH for {} rows in {}", n, t[0]);
+            } catch (Exception e) {
+                log.warn("GEOHASH backfill for {} failed: {}", t[0], e.getMessage());
+            }
+        }
+    }
+
+    private int backfill(String table, String latColumn, String lonColumn) {
+        String select = "select ID, " + latColumn + ", " + lonColumn + " from " + table
+                + " where GEOHASH is null and " + latColumn + " is not null and " + lonColumn + " is not null and ID > ? order by ID";
+        String update = "update " + table + " set GEOHASH = ? where ID = ?";
+        UUID after = new UUID(0L, 0L);
+        int total = 0;
+        while (true) {
+            List<Object[]> page = jdbcTemplate.query(select, (rs, i) -> new Object[]{
+                    rs.getObject(1, UUID.class), rs.getDouble(2), rs.getDouble(3)}, after);
+            if (page.isEmpty()) return total;
+            List<Object[]> args = new ArrayList<>(page.size());
+            for (Object[] row : page) {
+                String hash = GeoHash.of((Double) row[1], (Double) row[2]);
+                if (hash != null) args.add(new Object[]{hash, row[0]});
+            }
+            if (!args.isEmpty()) jdbcTemplate.batchUpdate(update, args);
+            total += args.size();
+            if (page.size() < PAGE_SIZE) return total;
+            after = (UUID) page.get(page.size() - 1)[0];
+        }
+    }
+}
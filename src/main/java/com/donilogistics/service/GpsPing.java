@@ -0,0 +1,50 @@
+package com.donilogistics.service;
+
+import com.donilogistics.entity.TrackingEventType;
+import com.donilogistics.entity.TrackingSource;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A single position report from a device, as accepted by the ingestion endpoint.
+ * Kept as a plain mutable holder so Jackson can bind large batches without reflection-heavy setters.
+ */
+public class GpsPing {
+    public UUID vehicleId;
+    public UUID driverId;
+    public UUID shipmentId;
+    public UUID organizationId;
+    public Double latitude;
+    public Double longitude;
+    public Double heading;   // degrees
+    public Double speed;     // km/h
+    public Double accuracy;  // meters
+    public LocalDateTime recordedAt;
+    public LocalDateTime receivedAt;
+    public TrackingSource source = TrackingSource.GPS_DEVICE;
+    public TrackingEventType eventType = TrackingEventType.LOCATION_UPDATE;
+
+    public GpsPing() {
+    }
+
+    public GpsPing(UUID vehicleId, UUID driverId, double latitude, double longitude, LocalDateTime recordedAt, TrackingSource source) {
+        this.vehicleId = vehicleId;
+        this.driverId = driverId;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.recordedAt = recordedAt;
+        this.source = source;
+    }
+
+    // An explicit JSON null overrides the source and event type defaults; such pings would fail the whole insert batch
+    @JsonIgnore
+    public boolean isValid() {
+        return latitude != null && longitude != null
+                && source != null && eventType != null
+                && latitude >= -90 && latitude <= 90
+                && longitude >= -180 && longitude <= 180
+                && (vehicleId != null || driverId != null || shipmentId != null);
+    }
+}
@@ -0,0 +1,78 @@
+package com.donilogistics.service;
+
+import com.donilogistics.routing.DistanceMatrix;
+import com.donilogistics.routing.DistanceMatrixProvider;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Road travel times from the graphhopper.com Matrix API. Requests are limited to the plan's point cap,
+ * but legs already in the {@link LegCache} do not count, so re-planning a known set of stops still fits.
+ */
+@Component
+public class GraphHopperMatrixProvider implements DistanceMatrixProvider {
+
+    public static final String NAME = "graphhopper";
+
+    // Unreachable pairs come back as null; keep them finite so solver deltas stay well-defined
+    private static final double UNREACHABLE = 1e9;
+
+    private final GraphHopperService graphHopperService;
+
+    public GraphHopperMatrixProvider(GraphHopperService graphHopperService) {
+        this.graphHopperService = graphHopperService;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean supports(double[] lat, double[] lon) {
+        return graphHopperService.pointsToFetch(toPoints(lat, lon)) <= graphHopperService.getMatrixMaxPoints();
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return graphHopperService.isConfigured();
+    }
+
+    @Override
+    public DistanceMatrix compute(double[] lat, double[] lon) {
+        int n = lat.length;
+        Map<String, Object> body = graphHopperService.getMatrix(toPoints(lat, lon));
+        double[][] dur = readSquare(body.get("times"), n);
+        double[][] dist = readSquare(body.get("distances"), n);
+        return new DistanceMatrix(dur, dist, NAME);
+    }
+
+    private static List<GraphHopperService.LatLon> toPoints(double[] lat, double[] lon) {
+        List<GraphHopperService.LatLon> points = new ArrayList<>(lat.length);
+        for (int i = 0; i < lat.length; i++) {
+            points.add(new GraphHopperService.LatLon(BigDecimal.valueOf(lat[i]), BigDecimal.valueOf(lon[i])));
+        }
+        return points;
+    }
+
+    private static double[][] readSquare(Object value, int n) {
+        if (!(value instanceof List<?> rows) || rows.size() != n) {
+            throw new IllegalStateException("GraphHopper matrix response does not cover all " + n + " points");
+        }
+        double[][] out = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            if (!(rows.get(i) instanceof List<?> row) || row.size() != n) {
+                throw new IllegalStateException("GraphHopper matrix row " + i + " is incomplete");
+            }
+            for (int j = 0; j < n; j++) {
+                Object cell = row.get(j);
+                out[i][j] = cell instanceof Number num ? num.doubleValue() : UNREACHABLE;
+            }
+        }
+        return out;
+    }
+}
@@ -19,13 +19,15 @@ public class GraphHopperService {
     @Value("${graphhopper.api.key:}")
     private String apiKey;
 
-    // Simple in-memory cache to avoid repeat calls within a short window
-    private final Map<String, Object> cache = new LinkedHashMap<String, Object>() {
-        @Override
-        protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
-            return this.size() > 100; // cap cache size
-        }
-    };
+    // Free tier limits; callers that need more points should use another DistanceMatrixProvider
+    @Value("${graphhopper.matrix.max-points:5}")
+    private int matrixMaxPoints;
+
+    @Value("${graphhopper.route.max-points:15}")
+    private int routeMaxPoints;
+
+    private final RoutingResultCache cache;
+    private final LegCache legCache;
 
     public static class LatLon {
         public final BigDecimal lat;
@@ -33,31 +35,151 @@ public class GraphHopperService {
         public LatLon(BigDecimal lat, BigDecimal lon) { this.lat = lat; this.lon = lon; }
     }
 
+    public GraphHopperService(RoutingResultCache cache, LegCache legCache) {
+        this.cache = cache;
+        this.legCache = legCache;
+    }
+
+    public boolean isConfigured() {
+        return apiKey != null && !apiKey.isBlank();
+    }
+
+    public Map<String, Object> cacheStats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("results", cache.stats());
+        m.put("legs", legCache.stats());
+        return m;
+    }
+
+    public int getMatrixMaxPoints() {
+        return matrixMaxPoints;
+    }
+
+    /**
+     * Number of distinct points a remote request would need to complete the matrix for these points,
+     * given the legs already cached. Zero means the matrix can be assembled without a remote call.
+     */
+    public int pointsToFetch(List<LatLon> points) {
+        long[] keys = pointKeys(points);
+        Set<Integer> rows = new TreeSet<>();
+        Set<Integer> cols = new TreeSet<>();
+        findMissingLegs(keys, knownLegs(keys), rows, cols);
+        return distinct(keys, rows, cols).size();
+    }
+
+    /**
+     * Returns {"times": [[s]], "distances": [[m]]} for all points. Known legs come from the leg cache;
+     * only the rows/columns with missing legs are requested from the Matrix API.
+     */
     public Map<String, Object> getMatrix(List<LatLon> points) {
         if (apiKey == null || apiKey.isBlank()) {
             throw new IllegalStateException("GraphHopper API key is not configured");
         }
-        // Respect free tier: limit points aggressively
-        if (points.size() > 5) {
-            points = points.subList(0, 5);
+        if (points == null || points.size() < 2) {
+            throw new IllegalArgumentException("Not enough valid coordinates for matrix (need >= 2)");
+        }
+        String cacheKey = cache.key(RoutingResultCache.MATRIX, points);
+        Map<String, Object> cached = cache.getMatrix(cacheKey);
+        if (cached != null) {
+            return cached;
         }
-        String cacheKey = "matrix:" + points.toString();
-        if (cache.containsKey(cacheKey)) {
-            return (Map<String, Object>) cache.get(cacheKey);
+
+        long[] keys = pointKeys(points);
+        // Legs are read from the cache once and the matrix is built from this copy, so an eviction
+        // between finding the missing legs and assembling the matrix cannot leave a hole
+        double[][][] legs = knownLegs(keys);
+        Set<Integer> rows = new TreeSet<>();
+        Set<Integer> cols = new TreeSet<>();
+        findMissingLegs(keys, legs, rows, cols);
+        int fetched = 0;
+        if (!rows.isEmpty()) {
+            int needed = distinct(keys, rows, cols).size();
+            if (needed > matrixMaxPoints) {
+                throw new IllegalArgumentException("GraphHopper matrix accepts at most " + matrixMaxPoints + " points, "
+                        + needed + " needed for missing legs");
+            }
+            fetched = fetchLegs(points, keys, legs, new ArrayList<>(rows), new ArrayList<>(cols));
         }
 
-        String url = "https://graphhopper.com/api/1/matrix?key=" + apiKey;
-        Map<String, Object> payload = new HashMap<>();
-        List<List<Double>> pts = new ArrayList<>();
-        for (LatLon p : points) {
-            if (p == null || p.lat == null || p.lon == null) continue;
-            // GraphHopper Matrix expects [lat, lon]
-            pts.add(Arrays.asList(p.lat.doubleValue(), p.lon.doubleValue()));
+        int n = points.size();
+        List<List<Double>> times = new ArrayList<>(n);
+        List<List<Double>> distances = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            List<Double> t = new ArrayList<>(n);
+            List<Double> d = new ArrayList<>(n);
+            for (int j = 0; j < n; j++) {
+                double[] leg = legs[i][j];
+                if (leg == null) {
+                    // Neither cached nor in the response; a null here would be read as unreachable
+                    throw new IllegalStateException("GraphHopper matrix response did not cover leg " + i + " -> " + j);
+                }
+                boolean known = !Double.isNaN(leg[0]);
+                t.add(known ? leg[0] : null);
+                d.add(known ? leg[1] : null);
+            }
+            times.add(t);
+            distances.add(d);
         }
-        if (pts.size() < 2) {
-            throw new IllegalArgumentException("Not enough valid coordinates for matrix (need >= 2)");
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("times", times);
+        body.put("distances", distances);
+        body.put("legsFetched", fetched);
+        cache.putMatrix(cacheKey, body);
+        return body;
+    }
+
+    private long[] pointKeys(List<LatLon> points) {
+        long[] keys = new long[points.size()];
+        for (int i = 0; i < keys.length; i++) {
+            LatLon p = points.get(i);
+            if (p == null || p.lat == null || p.lon == null) {
+                throw new IllegalArgumentException("Matrix point " + i + " has no coordinates");
+            }
+            keys[i] = LegCache.pointKey(p.lat.doubleValue(), p.lon.doubleValue());
+        }
+        return keys;
+    }
+
+    private double[][][] knownLegs(long[] keys) {
+        int n = keys.length;
+        double[][][] legs = new double[n][n][];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                legs[i][j] = keys[i] == keys[j] ? new double[]{0, 0} : legCache.get(keys[i], keys[j]);
+            }
+        }
+        return legs;
+    }
+
+    // Every missing cell (i, j) has i in rows and j in cols, so one rows x cols request covers them all
+    private static void findMissingLegs(long[] keys, double[][][] legs, Set<Integer> rows, Set<Integer> cols) {
+        for (int i = 0; i < keys.length; i++) {
+            for (int j = 0; j < keys.length; j++) {
+                if (legs[i][j] == null) {
+                    rows.add(i);
+                    cols.add(j);
+                }
+            }
         }
-        payload.put("points", pts);
+    }
+
+    private static Set<Long> distinct(long[] keys, Set<Integer> rows, Set<Integer> cols) {
+        Set<Long> out = new HashSet<>();
+        for (int i : rows) out.add(keys[i]);
+        for (int j : cols) out.add(keys[j]);
+        return out;
+    }
+
+    private int fetchLegs(List<LatLon> points, long[] keys, double[][][] legs, List<Integer> rows, List<Integer> cols) {
+        String url = "https://graphhopper.com/api/1/matrix?key=" + apiKey;
+        Map<String, Object> payload = new HashMap<>();
+        // GraphHopper Matrix expects [lat, lon]
+        List<List<Double>> from = new ArrayList<>();
+        for (int i : rows) from.add(Arrays.asList(points.get(i).lat.doubleValue(), points.get(i).lon.doubleValue()));
+        List<List<Double>> to = new ArrayList<>();
+        for (int j : cols) to.add(Arrays.asList(points.get(j).lat.doubleValue(), points.get(j).lon.doubleValue()));
+        payload.put("from_points", from);
+        payload.put("to_points", to);
         payload.put("out_arrays", Arrays.asList("times", "distances"));
         payload.put("vehicle", "car");
 
@@ -65,15 +187,33 @@ public class GraphHopperService {
         headers.setContentType(MediaType.APPLICATION_JSON);
         HttpEntity<Map<String, Object>> entity = new HttpEntity<>(payload, headers);
 
+        Map<String, Object> body;
         try {
             ResponseEntity<Map> response = restTemplate.exchange(url, HttpMethod.POST, entity, Map.class);
-            Map<String, Object> body = response.getBody();
-            cache.put(cacheKey, body);
-            return body;
+            body = response.getBody();
         } catch (Exception e) {
             log.error("GraphHopper matrix call failed", e);
             throw new RuntimeException("GraphHopper matrix call failed: " + e.getMessage());
         }
+        if (body == null || !(body.get("times") instanceof List<?> times) || !(body.get("distances") instanceof List<?> distances)) {
+            throw new RuntimeException("GraphHopper matrix response has no times/distances");
+        }
+        int stored = 0;
+        for (int r = 0; r < rows.size() && r < times.size() && r < distances.size(); r++) {
+            if (!(times.get(r) instanceof List<?> tRow) || !(distances.get(r) instanceof List<?> dRow)) continue;
+            for (int c = 0; c < cols.size() && c < tRow.size() && c < dRow.size(); c++) {
+                int i = rows.get(r);
+                int j = cols.get(c);
+                if (keys[i] == keys[j]) continue;
+                // unreachable pairs come back as null; remember them so they are not re-requested
+                double seconds = tRow.get(c) instanceof Number t ? t.doubleValue() : Double.NaN;
+                double meters = dRow.get(c) instanceof Number d ? d.doubleValue() : Double.NaN;
+                legCache.put(keys[i], keys[j], seconds, meters);
+                legs[i][j] = new double[]{seconds, meters};
+                stored++;
+            }
+        }
+        return stored;
     }
 
     public List<double[]> getRouteGeometry(List<LatLon> points) {
@@ -83,11 +223,26 @@ public class GraphHopperService {
         if (points == null || points.size() < 2) {
             throw new IllegalArgumentException("Not enough points to build route (need >= 2)");
         }
-        // Limit number of points for free plan safety
-        if (points.size() > 15) {
-            points = points.subList(0, 15);
+        int chunk = Math.max(2, routeMaxPoints);
+        if (points.size() <= chunk) {
+            return fetchRouteGeometry(points);
+        }
+        // Split long routes into legs that share their boundary point and stitch the polylines together
+        List<double[]> result = new ArrayList<>();
+        for (int from = 0; from < points.size() - 1; from += chunk - 1) {
+            int to = Math.min(points.size(), from + chunk);
+            List<double[]> part = fetchRouteGeometry(points.subList(from, to));
+            result.addAll(result.isEmpty() || part.isEmpty() ? part : part.subList(1, part.size()));
         }
+        return result;
+    }
 
+    private List<double[]> fetchRouteGeometry(List<LatLon> points) {
+        String cacheKey = cache.key(RoutingResultCache.ROUTE, points);
+        List<double[]> cached = cache.getGeometry(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
         StringBuilder url = new StringBuilder("https://graphhopper.com/api/1/route?points_encoded=false&vehicle=car&locale=en&calc_points=true&key=")
                 .append(apiKey);
         for (LatLon p : points) {
@@ -117,6 +272,7 @@ public class GraphHopperService {
                     result.add(new double[]{lat, lon});
                 }
             }
+            cache.putGeometry(cacheKey, result);
             return result;
         } catch (Exception e) {
             log.error("GraphHopper route call failed", e);
@@ -124,11 +280,3 @@ public class GraphHopperService {
         }
     }
 }
-
-
-
-
-
-
-
-
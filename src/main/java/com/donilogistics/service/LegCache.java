@@ -0,0 +1,91 @@
+package com.donilogistics.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Origin -> destination travel legs (seconds, meters) learned from matrix responses, so a matrix over
+ * a mostly known point set only needs the new rows/columns from the remote API.
+ * Points are quantized to 1e-5 degrees (~1 m) and packed into a single long.
+ */
+@Component
+public class LegCache {
+
+    private static final double SCALE = 1e5;
+    private static final long LAT_OFFSET = 1L << 24; // |lat| * 1e5 < 2^24
+    private static final long LON_OFFSET = 1L << 25; // |lon| * 1e5 < 2^25
+
+    @Value("${graphhopper.legs.max-entries:500000}")
+    private long maxEntries;
+
+    @Value("${graphhopper.cache.ttl-minutes:720}")
+    private long ttlMinutes;
+
+    private Cache<LegKey, double[]> cache;
+
+    private static final class LegKey {
+        final long from;
+        final long to;
+
+        LegKey(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof LegKey k && k.from == from && k.to == to;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(from * 31 + to);
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                .recordStats()
+                .build();
+    }
+
+    public static long pointKey(double lat, double lon) {
+        long la = Math.round(lat * SCALE) + LAT_OFFSET;
+        long lo = Math.round(lon * SCALE) + LON_OFFSET;
+        return (la << 26) | lo;
+    }
+
+    /**
+     * Returns {seconds, meters} or null when the leg is unknown. NaN marks a pair the router could not connect.
+     */
+    public double[] get(long from, long to) {
+        return cache.getIfPresent(new LegKey(from, to));
+    }
+
+    public void put(long from, long to, double seconds, double meters) {
+        cache.put(new LegKey(from, to), new double[]{seconds, meters});
+    }
+
+    public Map<String, Object> stats() {
+        CacheStats s = cache.stats();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("entries", cache.size());
+        m.put("maxEntries", maxEntries);
+        m.put("hits", s.hitCount());
+        m.put("misses", s.missCount());
+        m.put("hitRate", s.hitRate());
+        m.put("evictions", s.evictionCount());
+        return m;
+    }
+}
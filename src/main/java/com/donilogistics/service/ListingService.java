@@ -0,0 +1,221 @@
+package com.donilogistics.service;
+
+import io.jmix.core.DataManager;
+import io.jmix.core.FetchPlan;
+import io.jmix.core.FetchPlanBuilder;
+import io.jmix.core.FluentLoader;
+import io.jmix.core.entity.EntityValues;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Keyset-paginated listing for admin endpoints. Each endpoint declares a {@link Spec}: the entity,
+ * the whitelisted sort properties, and the fetch plan its DTO needs, so a page is one bounded query.
+ * Rows are ordered by (sort property, id) with nulls last; the cursor carries the last row's key.
+ */
+@Service
+public class ListingService {
+
+    public static final int MAX_LIMIT = 500;
+
+    private static final String ALIAS = "e";
+
+    public static final class Spec<E> {
+        private final Class<E> entityClass;
+        private final Set<String> sortable = new LinkedHashSet<>();
+        private String defaultSort = "id";
+        private Consumer<FetchPlanBuilder> fetchPlan = fp -> fp.addFetchPlan(FetchPlan.BASE);
+
+        private Spec(Class<E> entityClass) {
+            this.entityClass = entityClass;
+            sortable.add("id");
+        }
+
+        public static <E> Spec<E> of(Class<E> entityClass) {
+            return new Spec<>(entityClass);
+        }
+
+        public Spec<E> sortable(String... properties) {
+            sortable.addAll(Arrays.asList(properties));
+            return this;
+        }
+
+        /**
+         * Sort used when the request has none, e.g. "name" or "-createdAt".
+         */
+        public Spec<E> defaultSort(String sort) {
+            this.defaultSort = sort;
+            return this;
+        }
+
+        public Spec<E> fetchPlan(Consumer<FetchPlanBuilder> fetchPlan) {
+            this.fetchPlan = fetchPlan;
+            return this;
+        }
+    }
+
+    /**
+     * Extra joins and conditions, written against the alias "e".
+     */
+    public static final class Criteria {
+        private final List<String> joins = new ArrayList<>();
+        private final List<String> conditions = new ArrayList<>();
+        private final Map<String, Object> params = new HashMap<>();
+
+        public Criteria join(String clause) {
+            joins.add(clause);
+            return this;
+        }
+
+        public Criteria where(String condition) {
+            conditions.add(condition);
+            return this;
+        }
+
+        public Criteria param(String name, Object value) {
+            params.put(name, value);
+            return this;
+        }
+
+        public Criteria eq(String property, Object value) {
+            if (value == null) return this;
+            String name = "p" + params.size();
+            return where(ALIAS + "." + property + " = :" + name).param(name, value);
+        }
+    }
+
+    public static final class Page<T> {
+        private final List<T> items;
+        private final String nextCursor;
+
+        Page(List<T> items, String nextCursor) {
+            this.items = items;
+            this.nextCursor = nextCursor;
+        }
+
+        public List<T> getItems() { return items; }
+        public String getNextCursor() { return nextCursor; }
+    }
+
+    private final DataManager dataManager;
+
+    public ListingService(DataManager dataManager) {
+        this.dataManager = dataManager;
+    }
+
+    /**
+     * @throws IllegalArgumentException for a sort outside the spec's whitelist or a malformed cursor
+     */
+    public <E> Page<E> list(Spec<E> spec, Criteria criteria, String sort, String cursor, int limit) {
+        String sortParam = sort == null || sort.isBlank() ? spec.defaultSort : sort.trim();
+        boolean desc = sortParam.startsWith("-");
+        String property = desc ? sortParam.substring(1) : sortParam;
+        if (!spec.sortable.contains(property)) {
+            throw new IllegalArgumentException("unsupported sort: " + property + ", allowed: " + spec.sortable);
+        }
+        int size = Math.max(1, Math.min(limit, MAX_LIMIT));
+        Criteria c = criteria != null ? criteria : new Criteria();
+
+        StringBuilder jpql = new StringBuilder("select ").append(ALIAS).append(" from ")
+                .append(spec.entityClass.getSimpleName()).append(' ').append(ALIAS);
+        for (String j : c.joins) jpql.append(' ').append(j);
+        List<String> where = new ArrayList<>(c.conditions);
+        Map<String, Object> params = new HashMap<>(c.params);
+        if (cursor != null && !cursor.isBlank()) {
+            where.add(keysetCondition(property, desc, decodeCursor(cursor, sortParam), params));
+        }
+        if (!where.isEmpty()) jpql.append(" where ").append(String.join(" and ", where));
+        String dir = desc ? " desc" : " asc";
+        jpql.append(" order by ");
+        if (!property.equals("id")) jpql.append(ALIAS).append('.').append(property).append(dir).append(" nulls last, ");
+        jpql.append(ALIAS).append(".id").append(dir);
+
+        FluentLoader.ByQuery<E> q = dataManager.load(spec.entityClass).query(jpql.toString())
+                .fetchPlan(spec.fetchPlan)
+                .maxResults(size + 1);
+        for (Map.Entry<String, Object> e : params.entrySet()) q = q.parameter(e.getKey(), e.getValue());
+        List<E> rows = q.list();
+
+        String next = null;
+        if (rows.size() > size) {
+            rows = new ArrayList<>(rows.subList(0, size));
+            E last = rows.get(size - 1);
+            Object key = property.equals("id") ? null : EntityValues.getValue(last, property);
+            next = encodeCursor(sortParam, key, (UUID) EntityValues.getId(last));
+        }
+        return new Page<>(rows, next);
+    }
+
+    // Rows after (v, id) in "prop dir nulls last, id dir" order
+    private static String keysetCondition(String property, boolean desc, Object[] key, Map<String, Object> params) {
+        String cmp = desc ? " < " : " > ";
+        String id = ALIAS + ".id";
+        params.put("kId", key[1]);
+        if (property.equals("id")) {
+            return id + cmp + ":kId";
+        }
+        String prop = ALIAS + "." + property;
+        if (key[0] == null) {
+            return "(" + prop + " is null and " + id + cmp + ":kId)";
+        }
+        params.put("kVal", key[0]);
+        return "(" + prop + cmp + ":kVal or (" + prop + " = :kVal and " + id + cmp + ":kId) or " + prop + " is null)";
+    }
+
+    static String encodeCursor(String sort, Object value, UUID id) {
+        String raw = sort + "\n" + id + "\n" + encodeValue(value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Object[] decodeCursor(String cursor, String expectedSort) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\n", 3);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("invalid cursor");
+        }
+        if (parts.length != 3 || !parts[0].equals(expectedSort)) {
+            throw new IllegalArgumentException("cursor does not match sort " + expectedSort);
+        }
+        try {
+            return new Object[]{decodeValue(parts[2]), UUID.fromString(parts[1])};
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("invalid cursor");
+        }
+    }
+
+    private static String encodeValue(Object v) {
+        if (v == null) return "n:";
+        if (v instanceof String s) return "s:" + s;
+        if (v instanceof LocalDateTime t) return "t:" + t;
+        if (v instanceof LocalDate d) return "d:" + d;
+        if (v instanceof Integer i) return "i:" + i;
+        if (v instanceof Long l) return "l:" + l;
+        if (v instanceof BigDecimal b) return "b:" + b.toPlainString();
+        if (v instanceof Boolean z) return "z:" + z;
+        if (v instanceof UUID u) return "u:" + u;
+        throw new IllegalStateException("unsupported sort value type: " + v.getClass().getName());
+    }
+
+    private static Object decodeValue(String s) {
+        String v = s.substring(2);
+        return switch (s.charAt(0)) {
+            case 'n' -> null;
+            case 's' -> v;
+            case 't' -> LocalDateTime.parse(v);
+            case 'd' -> LocalDate.parse(v);
+            case 'i' -> Integer.valueOf(v);
+            case 'l' -> Long.valueOf(v);
+            case 'b' -> new BigDecimal(v);
+            case 'z' -> Boolean.valueOf(v);
+            case 'u' -> UUID.fromString(v);
+            default -> throw new IllegalArgumentException("invalid cursor");
+        };
+    }
+}
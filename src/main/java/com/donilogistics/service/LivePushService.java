@@ -0,0 +1,140 @@
+package com.donilogistics.service;
+
+import com.donilogistics.entity.DriverProfile;
+import com.donilogistics.entity.Notification;
+import com.donilogistics.events.ShipmentStatusChange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Server-side STOMP pushes. Per-user messages go to /user/{userId}/queue/..., where the user is the
+ * principal authenticated at the handshake (see WebSocketConfig); organization-wide
+ * traffic goes to /topic/org/{orgId}/....
+ * Push is best effort: a failed send is logged and never fails the write that triggered it.
+ */
+@Service
+public class LivePushService {
+
+    private static final Logger log = LoggerFactory.getLogger(LivePushService.class);
+
+    public static final String USER_NOTIFICATIONS = "/queue/notifications";
+    public static final String USER_SHIPMENTS = "/queue/shipments";
+    public static final String USER_UNREAD = "/queue/notifications/unread";
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    public LivePushService(SimpMessagingTemplate messagingTemplate) {
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    public void pushNotification(Notification n) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("id", n.getId());
+        m.put("title", n.getTitle());
+        m.put("message", n.getMessage());
+        m.put("type", n.getType());
+        m.put("channel", n.getChannel());
+        m.put("status", n.getStatus());
+        m.put("read", n.getRead());
+        m.put("recipientUserId", n.getRecipient() != null ? n.getRecipient().getId() : null);
+        m.put("shipmentId", n.getShipment() != null ? n.getShipment().getId() : null);
+        m.put("organizationId", n.getOrganization() != null ? n.getOrganization().getId() : null);
+        m.put("createdAt", n.getCreatedAt());
+        if (n.getRecipient() != null) {
+            toUser(n.getRecipient().getId(), USER_NOTIFICATIONS, m);
+        }
+        if (n.getOrganization() != null) {
+            toTopic(orgTopic(n.getOrganization().getId(), "notifications"), m);
+        }
+    }
+
+    public void pushUnreadCounts(UUID userId, Map<String, Object> counts) {
+        toUser(userId, USER_UNREAD, counts);
+    }
+
+    public void pushShipmentStatus(ShipmentStatusChange change) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("shipmentId", change.shipmentId);
+        m.put("trackingNumber", change.trackingNumber);
+        m.put("fromStatus", change.fromStatus);
+        m.put("toStatus", change.toStatus);
+        m.put("changedAt", change.changedAt);
+        toTopic("/topic/shipments/status", m);
+        if (change.organizationId != null) {
+            toTopic(orgTopic(change.organizationId, "shipments"), m);
+        }
+        if (change.assignedDriverUserId != null) {
+            toUser(change.assignedDriverUserId, USER_SHIPMENTS, m);
+        }
+    }
+
+    public void pushLocation(GpsPing ping) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("vehicleId", ping.vehicleId);
+        m.put("driverId", ping.driverId);
+        m.put("latitude", ping.latitude);
+        m.put("longitude", ping.longitude);
+        m.put("speed", ping.speed);
+        m.put("heading", ping.heading);
+        m.put("recordedAt", ping.recordedAt);
+        toTopic("/topic/fleet/locations", m);
+        if (ping.organizationId != null) {
+            toTopic(orgTopic(ping.organizationId, "fleet/locations"), m);
+        }
+    }
+
+    public void pushDriver(DriverProfile d) {
+        if (d == null || d.getId() == null) return;
+        Map<String, Object> m = new HashMap<>();
+        m.put("driverId", d.getId());
+        m.put("userId", d.getUser() != null ? d.getUser().getId() : null);
+        m.put("active", d.getActive());
+        m.put("latitude", d.getCurrentLatitude());
+        m.put("longitude", d.getCurrentLongitude());
+        m.put("lastSeen", d.getLastSeen());
+        toTopic("/topic/fleet/drivers", m);
+        if (d.getOrganization() != null) {
+            toTopic(orgTopic(d.getOrganization().getId(), "drivers"), m);
+        }
+    }
+
+    public void pushRouteEta(UUID orgId, Map<String, Object> eta) {
+        toTopic("/topic/routes/eta", eta);
+        if (orgId != null) {
+            toTopic(orgTopic(orgId, "routes/eta"), eta);
+        }
+    }
+
+    public void pushRouteDeviation(UUID orgId, Map<String, Object> deviation) {
+        toTopic("/topic/routes/deviation", deviation);
+        if (orgId != null) {
+            toTopic(orgTopic(orgId, "routes/deviation"), deviation);
+        }
+    }
+
+    private static String orgTopic(UUID orgId, String suffix) {
+        return "/topic/org/" + orgId + "/" + suffix;
+    }
+
+    private void toTopic(String destination, Object payload) {
+        try {
+            messagingTemplate.convertAndSend(destination, payload);
+        } catch (Exception e) {
+            log.warn("Push to {} failed: {}", destination, e.getMessage());
+        }
+    }
+
+    private void toUser(UUID userId, String destination, Object payload) {
+        try {
+            messagingTemplate.convertAndSendToUser(userId.toString(), destination, payload);
+        } catch (Exception e) {
+            log.warn("Push to user {} {} failed: {}", userId, destination, e.getMessage());
+        }
+    }
+}
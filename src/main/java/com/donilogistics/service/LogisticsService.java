@@ -4,6 +4,8 @@ import com.donilogistics.entity.Shipment;
 import com.donilogistics.entity.ShipmentStatus;
 import com.donilogistics.entity.User;
 import com.donilogistics.entity.Vehicle;
+import com.donilogistics.events.ShipmentStatusChange;
+import com.donilogistics.events.TrackingEventBus;
 import io.jmix.core.DataManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -17,6 +19,9 @@ public class LogisticsService {
     @Autowired
     private DataManager dataManager;
 
+    @Autowired
+    private TrackingEventBus trackingEventBus;
+
     @Transactional
     public Shipment createShipment(Shipment shipmentData) {
         // Set initial status
@@ -26,7 +31,9 @@ public class LogisticsService {
         shipmentData.setCreatedAt(java.time.LocalDateTime.now());
         shipmentData.setUpdatedAt(java.time.LocalDateTime.now());
         
-        return dataManager.save(shipmentData);
+        Shipment saved = dataManager.save(shipmentData);
+        trackingEventBus.publishStatusChange(ShipmentStatusChange.of(saved, null));
+        return saved;
     }
 
     @Transactional
@@ -40,9 +47,11 @@ public class LogisticsService {
             return false;
         }
 
+        ShipmentStatus previousStatus = shipment.getStatus();
         shipment.setStatus(status);
         shipment.setUpdatedAt(java.time.LocalDateTime.now());
-        dataManager.save(shipment);
+        Shipment saved = dataManager.save(shipment);
+        if (previousStatus != status) trackingEventBus.publishStatusChange(ShipmentStatusChange.of(saved, previousStatus));
         return true;
     }
 }
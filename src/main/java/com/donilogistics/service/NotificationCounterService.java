@@ -0,0 +1,118 @@
+package com.donilogistics.service;
+
+import com.donilogistics.entity.NotificationType;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.jmix.core.DataManager;
+import io.jmix.core.entity.KeyValueEntity;
+import io.jmix.core.security.SystemAuthenticator;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-user unread notification counts by type. A user's counts are seeded once with a grouped count
+ * on (RECIPIENT_USER_ID, READ_) and then kept current by {@link NotificationService} on create and
+ * mark-read, so badge reads never touch the notification history. Entries expire after
+ * app.notifications.counters.ttl-minutes and are reseeded, which also heals any drift from writes
+ * made outside NotificationService.
+ */
+@Service
+public class NotificationCounterService {
+
+    private final DataManager dataManager;
+    private final SystemAuthenticator systemAuthenticator;
+    private final LivePushService livePushService;
+
+    @Value("${app.notifications.counters.max-users:100000}")
+    private long maxUsers;
+
+    @Value("${app.notifications.counters.ttl-minutes:30}")
+    private long ttlMinutes;
+
+    private Cache<UUID, Counts> cache;
+
+    static final class Counts {
+        private final EnumMap<NotificationType, Integer> byType = new EnumMap<>(NotificationType.class);
+
+        synchronized void add(NotificationType type, int delta) {
+            int v = Math.max(0, byType.getOrDefault(type, 0) + delta);
+            if (v == 0) byType.remove(type); else byType.put(type, v);
+        }
+
+        synchronized Map<String, Object> snapshot() {
+            Map<String, Integer> types = new LinkedHashMap<>();
+            int total = 0;
+            for (Map.Entry<NotificationType, Integer> e : byType.entrySet()) {
+                types.put(e.getKey().name(), e.getValue());
+                total += e.getValue();
+            }
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("total", total);
+            m.put("byType", types);
+            return m;
+        }
+    }
+
+    public NotificationCounterService(DataManager dataManager, SystemAuthenticator systemAuthenticator, LivePushService livePushService) {
+        this.dataManager = dataManager;
+        this.systemAuthenticator = systemAuthenticator;
+        this.livePushService = livePushService;
+    }
+
+    @PostConstruct
+    public void init() {
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                .build();
+    }
+
+    /**
+     * Returns {"total": n, "byType": {TYPE: n}} for the user's unread notifications.
+     */
+    public Map<String, Object> unread(UUID userId) {
+        try {
+            return cache.get(userId, () -> seed(userId)).snapshot();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to count unread notifications", e.getCause());
+        }
+    }
+
+    public void onCreated(UUID userId, NotificationType type) {
+        change(userId, type, 1);
+    }
+
+    public void onRead(UUID userId, NotificationType type) {
+        change(userId, type, -1);
+    }
+
+    // Users without a cached entry have not asked for their badge recently; their next read seeds from the database
+    private void change(UUID userId, NotificationType type, int delta) {
+        if (userId == null) return;
+        Counts counts = cache.getIfPresent(userId);
+        if (counts == null) return;
+        counts.add(type != null ? type : NotificationType.GENERAL, delta);
+        livePushService.pushUnreadCounts(userId, counts.snapshot());
+    }
+
+    private Counts seed(UUID userId) {
+        List<KeyValueEntity> rows = systemAuthenticator.withSystem(() -> dataManager.loadValues(
+                        "select n.type, count(n) from Notification n "
+                                + "where n.recipient.id = :userId and (n.read = false or n.read is null) group by n.type")
+                .properties("type", "cnt")
+                .parameter("userId", userId)
+                .list());
+        Counts counts = new Counts();
+        for (KeyValueEntity r : rows) {
+            NotificationType type = r.getValue("type");
+            Long cnt = r.getValue("cnt");
+            if (cnt != null) counts.add(type != null ? type : NotificationType.GENERAL, cnt.intValue());
+        }
+        return counts;
+    }
+}
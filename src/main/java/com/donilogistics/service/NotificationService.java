@@ -8,21 +8,38 @@ import com.donilogistics.entity.Organization;
 import com.donilogistics.entity.Shipment;
 import com.donilogistics.entity.User;
 import io.jmix.core.DataManager;
+import io.jmix.core.EntitySet;
+import io.jmix.core.FetchPlan;
+import io.jmix.core.SaveContext;
 import io.jmix.core.security.SystemAuthenticator;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import javax.sql.DataSource;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
-import java.util.UUID;
+import java.util.*;
 
 @Service
 public class NotificationService {
 
+    // Only the call that flips the flag gets a row count of 1 and adjusts the unread counter
+    private static final String MARK_READ_SQL = "update NOTIFICATION set READ_ = ?, READ_AT = ?, VERSION = VERSION + 1 "
+            + "where ID = ? and (READ_ is null or READ_ = ?)";
+
     private final DataManager dataManager;
+    private final JdbcTemplate jdbcTemplate;
     private final SystemAuthenticator systemAuthenticator;
+    private final LivePushService livePushService;
+    private final NotificationCounterService counterService;
 
-    public NotificationService(DataManager dataManager, SystemAuthenticator systemAuthenticator) {
+    public NotificationService(DataManager dataManager, DataSource dataSource, SystemAuthenticator systemAuthenticator,
+                               LivePushService livePushService, NotificationCounterService counterService) {
         this.dataManager = dataManager;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
         this.systemAuthenticator = systemAuthenticator;
+        this.livePushService = livePushService;
+        this.counterService = counterService;
     }
 
     public UUID notifyUser(UUID recipientUserId, String title, String message, NotificationType type, NotificationChannel channel, UUID shipmentId, UUID orgId) {
@@ -46,10 +63,89 @@ public class NotificationService {
                 n.setOrganization(o);
             }
             Notification saved = dataManager.save(n);
+            livePushService.pushNotification(saved);
+            if (recipientUserId != null) counterService.onCreated(recipientUserId, saved.getType());
             return saved.getId();
         });
     }
 
+    /**
+     * Sends the same notification to many users: recipients are resolved in one query and all rows are
+     * saved in one commit. Unknown ids are skipped. Returns recipient id -> notification id.
+     */
+    public Map<UUID, UUID> notifyUsers(Collection<UUID> recipientUserIds, String title, String message, NotificationType type,
+                                       NotificationChannel channel, UUID shipmentId, UUID orgId) {
+        Map<UUID, String> messages = new LinkedHashMap<>();
+        if (recipientUserIds != null) {
+            for (UUID id : recipientUserIds) if (id != null) messages.put(id, message);
+        }
+        return notifyUsers(messages, title, type, channel, shipmentId, orgId);
+    }
+
+    /**
+     * Bulk variant with a per-recipient message body and otherwise shared payload.
+     */
+    public Map<UUID, UUID> notifyUsers(Map<UUID, String> messageByRecipient, String title, NotificationType type,
+                                       NotificationChannel channel, UUID shipmentId, UUID orgId) {
+        if (messageByRecipient == null || messageByRecipient.isEmpty()) return new LinkedHashMap<>();
+        return systemAuthenticator.withSystem(() -> {
+            List<User> users = dataManager.load(User.class)
+                    .query("select u from User u where u.id in :ids")
+                    .parameter("ids", messageByRecipient.keySet())
+                    .list();
+            Map<UUID, User> byId = new HashMap<>();
+            for (User u : users) byId.put(u.getId(), u);
+            List<User> ordered = new ArrayList<>();
+            for (UUID id : messageByRecipient.keySet()) {
+                User u = byId.get(id);
+                if (u != null) ordered.add(u);
+            }
+            return saveAll(ordered, messageByRecipient, null, title, type, channel, shipmentId, orgId);
+        });
+    }
+
+    /**
+     * Org-wide alert: one notification per active user of the organization, saved in one commit.
+     */
+    public Map<UUID, UUID> notifyOrganization(UUID orgId, String title, String message, NotificationType type,
+                                              NotificationChannel channel, UUID shipmentId) {
+        return systemAuthenticator.withSystem(() -> {
+            List<User> users = dataManager.load(User.class)
+                    .query("select u from User u where u.organization.id = :orgId and (u.active = true or u.active is null)")
+                    .parameter("orgId", orgId)
+                    .list();
+            return saveAll(users, Map.of(), message, title, type, channel, shipmentId, orgId);
+        });
+    }
+
+    private Map<UUID, UUID> saveAll(List<User> recipients, Map<UUID, String> messages, String defaultMessage, String title,
+                                    NotificationType type, NotificationChannel channel, UUID shipmentId, UUID orgId) {
+        Map<UUID, UUID> result = new LinkedHashMap<>();
+        if (recipients.isEmpty()) return result;
+        Shipment shipment = shipmentId != null ? dataManager.load(Shipment.class).id(shipmentId).one() : null;
+        Organization org = orgId != null ? dataManager.load(Organization.class).id(orgId).one() : null;
+        SaveContext ctx = new SaveContext();
+        for (User u : recipients) {
+            Notification n = dataManager.create(Notification.class);
+            n.setTitle(title);
+            n.setMessage(messages.getOrDefault(u.getId(), defaultMessage));
+            n.setType(type);
+            n.setChannel(channel);
+            n.setStatus(NotificationStatus.PENDING);
+            n.setRecipient(u);
+            n.setShipment(shipment);
+            n.setOrganization(org);
+            ctx.saving(n);
+            result.put(u.getId(), n.getId());
+        }
+        EntitySet saved = dataManager.save(ctx);
+        for (Notification n : saved.getAll(Notification.class)) {
+            livePushService.pushNotification(n);
+            counterService.onCreated(n.getRecipient().getId(), n.getType());
+        }
+        return result;
+    }
+
     public void markDelivered(UUID notificationId) {
         systemAuthenticator.withSystem(() -> {
             Notification n = dataManager.load(Notification.class).id(notificationId).one();
@@ -62,13 +158,19 @@ public class NotificationService {
 
     public void markRead(UUID notificationId) {
         systemAuthenticator.withSystem(() -> {
-            Notification n = dataManager.load(Notification.class).id(notificationId).one();
-            n.setRead(Boolean.TRUE);
-            n.setReadAt(LocalDateTime.now());
-            dataManager.save(n);
+            Notification n = dataManager.load(Notification.class).id(notificationId)
+                    .fetchPlan(fp -> fp.addFetchPlan(FetchPlan.BASE).add("recipient", FetchPlan.INSTANCE_NAME))
+                    .one();
+            if (Boolean.TRUE.equals(n.getRead())) return null;
+            int updated = jdbcTemplate.update(MARK_READ_SQL, Boolean.TRUE, Timestamp.valueOf(LocalDateTime.now()), notificationId, Boolean.FALSE);
+            if (updated == 1 && n.getRecipient() != null) counterService.onRead(n.getRecipient().getId(), n.getType());
             return null;
         });
     }
+
+    public Map<String, Object> unreadCounts(UUID userId) {
+        return counterService.unread(userId);
+    }
 }
 
 
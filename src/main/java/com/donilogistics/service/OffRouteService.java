@@ -0,0 +1,248 @@
+package com.donilogistics.service;
+
+import com.donilogistics.entity.TrackingEventType;
+import com.donilogistics.geo.GeoUtils;
+import com.donilogistics.geo.PolylineIndex;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Flags vehicles that leave the road geometry of their active route plan. The geometry stored in
+ * ROUTE_PLAN.SOLVER_META at planning time is parsed once per plan into a {@link PolylineIndex}; each
+ * ping is snapped to the nearest segment, and after app.offroute.consecutive pings further than
+ * app.offroute.threshold-meters an OFF_ROUTE event is re-submitted through the ingestion queue and
+ * pushed to the plan's organization. The plan re-arms once a ping is back within 80% of the threshold.
+ * Plans planned without geometry (router unavailable) are not tracked.
+ */
+@Service
+public class OffRouteService implements PositionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(OffRouteService.class);
+
+    private static final double REARM_FACTOR = 0.8;
+
+    static final class TrackedPlan implements ActivePlanLoader.Assignable {
+        final UUID planId;
+        final UUID vehicleId;
+        final UUID driverId;
+        final UUID organizationId;
+        final boolean inProgress;
+        final PolylineIndex index;
+
+        // Guarded by this
+        int segment = -1;
+        int consecutive;
+        boolean offRoute;
+        double distanceMeters = Double.NaN;
+
+        TrackedPlan(UUID planId, UUID vehicleId, UUID driverId, UUID organizationId, boolean inProgress, PolylineIndex index) {
+            this.planId = planId;
+            this.vehicleId = vehicleId;
+            this.driverId = driverId;
+            this.organizationId = organizationId;
+            this.inProgress = inProgress;
+            this.index = index;
+        }
+
+        @Override
+        public UUID getVehicleId() {
+            return vehicleId;
+        }
+
+        @Override
+        public UUID getDriverId() {
+            return driverId;
+        }
+
+        @Override
+        public boolean isInProgress() {
+            return inProgress;
+        }
+    }
+
+    private final ActivePlanLoader activePlanLoader;
+    private final TrackingIngestionService trackingIngestionService;
+    private final LivePushService livePushService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${app.offroute.threshold-meters:150}")
+    private double thresholdMeters;
+
+    @Value("${app.offroute.consecutive:3}")
+    private int consecutive;
+
+    @Value("${app.offroute.max-accuracy-meters:100}")
+    private double maxAccuracyMeters;
+
+    private volatile Map<UUID, TrackedPlan> byVehicle = Map.of();
+    private volatile Map<UUID, TrackedPlan> byDriver = Map.of();
+    private volatile Map<UUID, TrackedPlan> byPlan = Map.of();
+
+    private final AtomicLong snapped = new AtomicLong();
+    private final AtomicLong deviations = new AtomicLong();
+    private final AtomicLong recoveries = new AtomicLong();
+
+    public OffRouteService(ActivePlanLoader activePlanLoader, TrackingIngestionService trackingIngestionService, LivePushService livePushService) {
+        this.activePlanLoader = activePlanLoader;
+        this.trackingIngestionService = trackingIngestionService;
+        this.livePushService = livePushService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        reload();
+    }
+
+    @Scheduled(initialDelayString = "${app.offroute.resync-ms:60000}", fixedDelayString = "${app.offroute.resync-ms:60000}")
+    public void reload() {
+        try {
+            Map<UUID, TrackedPlan> previous = byPlan;
+            Map<UUID, TrackedPlan> loaded = new HashMap<>();
+            Map<UUID, TrackedPlan> vehicles = new HashMap<>();
+            Map<UUID, TrackedPlan> drivers = new HashMap<>();
+            for (ActivePlanLoader.Plan plan : activePlanLoader.loadWithSolverMeta()) {
+                TrackedPlan old = previous.get(plan.planId);
+                // Geometry never changes after planning, so a plan already indexed is reused as is
+                PolylineIndex index = old != null ? old.index : parseGeometry(plan.planId, plan.solverMeta);
+                if (index == null) continue;
+                TrackedPlan p = new TrackedPlan(plan.planId, plan.vehicleId, plan.driverId, plan.organizationId, plan.isInProgress(), index);
+                if (old != null) {
+                    synchronized (old) {
+                        p.segment = old.segment;
+                        p.consecutive = old.consecutive;
+                        p.offRoute = old.offRoute;
+                        p.distanceMeters = old.distanceMeters;
+                    }
+                }
+                loaded.put(plan.planId, p);
+                ActivePlanLoader.assign(p, vehicles, drivers);
+            }
+            byPlan = loaded;
+            byVehicle = vehicles;
+            byDriver = drivers;
+        } catch (Exception e) {
+            log.warn("Off-route plan reload failed: {}", e.getMessage());
+        }
+    }
+
+    private PolylineIndex parseGeometry(UUID planId, String solverMeta) {
+        if (solverMeta == null || solverMeta.isBlank()) return null;
+        try {
+            JsonNode geometry = objectMapper.readTree(solverMeta).path("geometry");
+            if (!geometry.isArray() || geometry.size() < 2) return null;
+            double[] lat = new double[geometry.size()];
+            double[] lon = new double[geometry.size()];
+            int n = 0;
+            for (JsonNode pt : geometry) {
+                double la = pt.path("lat").asDouble(Double.NaN);
+                double lo = pt.path("lon").asDouble(Double.NaN);
+                if (!GeoUtils.isValid(la, lo)) continue;
+                lat[n] = la;
+                lon[n] = lo;
+                n++;
+            }
+            return n < 2 ? null : new PolylineIndex(Arrays.copyOf(lat, n), Arrays.copyOf(lon, n));
+        } catch (Exception e) {
+            log.warn("Unreadable route geometry for plan {}: {}", planId, e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void onPositions(List<GpsPing> batch) {
+        if (byPlan.isEmpty()) return;
+        for (GpsPing g : batch) {
+            if (g.eventType != TrackingEventType.LOCATION_UPDATE || g.latitude == null || g.longitude == null) continue;
+            // A fix this vague cannot tell a parallel street from the planned one
+            if (g.accuracy != null && g.accuracy > maxAccuracyMeters) continue;
+            TrackedPlan p = g.vehicleId != null ? byVehicle.get(g.vehicleId) : null;
+            if (p == null && g.driverId != null) p = byDriver.get(g.driverId);
+            if (p == null) continue;
+            Boolean transition = null;
+            synchronized (p) {
+                PolylineIndex.Match m = p.index.nearest(g.latitude, g.longitude, p.segment);
+                snapped.incrementAndGet();
+                p.distanceMeters = m.getDistanceMeters();
+                if (m.getDistanceMeters() > thresholdMeters) {
+                    // Keep the last on-route segment as the hint so the vehicle is re-acquired where it left
+                    if (++p.consecutive >= consecutive && !p.offRoute) {
+                        p.offRoute = true;
+                        transition = Boolean.TRUE;
+                    }
+                } else {
+                    p.segment = m.getSegment();
+                    p.consecutive = 0;
+                    if (p.offRoute && m.getDistanceMeters() <= thresholdMeters * REARM_FACTOR) {
+                        p.offRoute = false;
+                        transition = Boolean.FALSE;
+                    }
+                }
+            }
+            if (transition == null) continue;
+            if (transition) {
+                deviations.incrementAndGet();
+                emit(p, g);
+            } else {
+                recoveries.incrementAndGet();
+            }
+            push(p, g, transition);
+        }
+    }
+
+    private void emit(TrackedPlan p, GpsPing g) {
+        GpsPing e = new GpsPing(p.vehicleId != null ? p.vehicleId : g.vehicleId, p.driverId != null ? p.driverId : g.driverId,
+                g.latitude, g.longitude, g.recordedAt, g.source);
+        e.organizationId = p.organizationId != null ? p.organizationId : g.organizationId;
+        e.heading = g.heading;
+        e.speed = g.speed;
+        e.accuracy = g.accuracy;
+        e.eventType = TrackingEventType.OFF_ROUTE;
+        if (!trackingIngestionService.submit(e)) {
+            log.warn("OFF_ROUTE event for plan {} was dropped by the ingestion queue", p.planId);
+        }
+    }
+
+    private void push(TrackedPlan p, GpsPing g, boolean offRoute) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("planId", p.planId);
+        m.put("vehicleId", p.vehicleId);
+        m.put("driverId", p.driverId);
+        m.put("organizationId", p.organizationId);
+        m.put("offRoute", offRoute);
+        m.put("distanceMeters", Math.round(p.distanceMeters));
+        m.put("latitude", g.latitude);
+        m.put("longitude", g.longitude);
+        m.put("recordedAt", g.recordedAt);
+        livePushService.pushRouteDeviation(p.organizationId, m);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        long off = 0, segments = 0;
+        for (TrackedPlan p : byPlan.values()) {
+            segments += p.index.segmentCount();
+            synchronized (p) {
+                if (p.offRoute) off++;
+            }
+        }
+        m.put("trackedPlans", byPlan.size());
+        m.put("segments", segments);
+        m.put("offRouteNow", off);
+        m.put("snapped", snapped.get());
+        m.put("deviations", deviations.get());
+        m.put("recoveries", recoveries.get());
+        m.put("thresholdMeters", thresholdMeters);
+        m.put("consecutive", consecutive);
+        return m;
+    }
+}
@@ -0,0 +1,12 @@
+package com.donilogistics.service;
+
+import java.util.List;
+
+/**
+ * Receives every batch of pings after the ingestion pipeline has flushed it.
+ * Called on the flusher thread, so implementations must be quick and must not throw.
+ */
+public interface PositionListener {
+
+    void onPositions(List<GpsPing> batch);
+}
@@ -0,0 +1,105 @@
+package com.donilogistics.service;
+
+import com.donilogistics.entity.Address;
+import com.donilogistics.entity.Shipment;
+import com.donilogistics.entity.Warehouse;
+import com.donilogistics.geo.GeoHash;
+import com.donilogistics.geo.GeoUtils;
+import io.jmix.core.DataManager;
+import io.jmix.core.FetchPlan;
+import io.jmix.core.FluentLoader;
+import io.jmix.core.security.SystemAuthenticator;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Proximity queries over stored entities. Candidates are pruned in SQL with a geohash prefix LIKE
+ * over the centre cell and its neighbours (an indexed range scan), then filtered by exact haversine.
+ */
+@Service
+public class ProximityQueryService {
+
+    public static final class Hit<T> {
+        private final T entity;
+        private final double distanceMeters;
+
+        Hit(T entity, double distanceMeters) {
+            this.entity = entity;
+            this.distanceMeters = distanceMeters;
+        }
+
+        public T getEntity() { return entity; }
+        public double getDistanceMeters() { return distanceMeters; }
+    }
+
+    private final DataManager dataManager;
+    private final SystemAuthenticator systemAuthenticator;
+
+    public ProximityQueryService(DataManager dataManager, SystemAuthenticator systemAuthenticator) {
+        this.dataManager = dataManager;
+        this.systemAuthenticator = systemAuthenticator;
+    }
+
+    /**
+     * Shipments whose delivery (or pickup) address lies within {@code radiusKm} of the point, closest first.
+     */
+    public List<Hit<Shipment>> findShipmentsNear(double lat, double lon, double radiusKm, boolean byPickup, int limit) {
+        String addressPath = byPickup ? "s.pickupAddress" : "s.deliveryAddress";
+        List<String> prefixes = prefixes(lat, lon, radiusKm);
+        String jpql = "select s from Shipment s where " + addressPath + ".geohash is not null" + prefixClause(addressPath + ".geohash", prefixes);
+        List<Shipment> candidates = systemAuthenticator.withSystem(() -> {
+            FluentLoader.ByQuery<Shipment> q = dataManager.load(Shipment.class).query(jpql)
+                    .fetchPlan(fp -> fp.addFetchPlan(FetchPlan.BASE)
+                            .add("pickupAddress", FetchPlan.BASE)
+                            .add("deliveryAddress", FetchPlan.BASE)
+                            .add("customer", FetchPlan.INSTANCE_NAME));
+            for (int i = 0; i < prefixes.size(); i++) q = q.parameter("p" + i, prefixes.get(i) + "%");
+            return q.list();
+        });
+        return filterByDistance(candidates, s -> byPickup ? s.getPickupAddress() : s.getDeliveryAddress(),
+                Address::getLatitude, Address::getLongitude, lat, lon, radiusKm, limit);
+    }
+
+    public List<Hit<Warehouse>> findWarehousesNear(double lat, double lon, double radiusKm, int limit) {
+        List<String> prefixes = prefixes(lat, lon, radiusKm);
+        String jpql = "select w from Warehouse w where w.geohash is not null" + prefixClause("w.geohash", prefixes);
+        List<Warehouse> candidates = systemAuthenticator.withSystem(() -> {
+            FluentLoader.ByQuery<Warehouse> q = dataManager.load(Warehouse.class).query(jpql);
+            for (int i = 0; i < prefixes.size(); i++) q = q.parameter("p" + i, prefixes.get(i) + "%");
+            return q.list();
+        });
+        return filterByDistance(candidates, w -> w, Warehouse::getLatitude, Warehouse::getLongitude, lat, lon, radiusKm, limit);
+    }
+
+    // Empty when the radius is larger than any geohash cell: then nothing can be pruned
+    private static List<String> prefixes(double lat, double lon, double radiusKm) {
+        int precision = Math.min(GeoHash.precisionForRadius(radiusKm, lat), GeoHash.STORED_PRECISION);
+        if (precision == 0) return List.of();
+        return GeoHash.cellAndNeighbors(GeoHash.encode(lat, lon, precision));
+    }
+
+    private static String prefixClause(String column, List<String> prefixes) {
+        if (prefixes.isEmpty()) return "";
+        StringJoiner sj = new StringJoiner(" or ", " and (", ")");
+        for (int i = 0; i < prefixes.size(); i++) sj.add(column + " like :p" + i);
+        return sj.toString();
+    }
+
+    private static <T, P> List<Hit<T>> filterByDistance(List<T> candidates, Function<T, P> point,
+                                                         Function<P, BigDecimal> latOf, Function<P, BigDecimal> lonOf,
+                                                         double lat, double lon, double radiusKm, int limit) {
+        double radiusMeters = radiusKm * 1000.0;
+        List<Hit<T>> hits = new ArrayList<>();
+        for (T c : candidates) {
+            P p = point.apply(c);
+            if (p == null || latOf.apply(p) == null || lonOf.apply(p) == null) continue;
+            double d = GeoUtils.haversineMeters(lat, lon, latOf.apply(p).doubleValue(), lonOf.apply(p).doubleValue());
+            if (d <= radiusMeters) hits.add(new Hit<>(c, d));
+        }
+        hits.sort(Comparator.comparingDouble(Hit::getDistanceMeters));
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
+}
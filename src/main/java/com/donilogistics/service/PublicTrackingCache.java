@@ -0,0 +1,268 @@
+package com.donilogistics.service;
+
+import com.donilogistics.entity.Address;
+import com.donilogistics.entity.Organization;
+import com.donilogistics.entity.Shipment;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.jmix.core.DataManager;
+import io.jmix.core.FetchPlan;
+import io.jmix.core.event.EntityChangedEvent;
+import io.jmix.core.security.SystemAuthenticator;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache of the public tracking DTO by tracking number. Each entry holds the rendered
+ * body, an ETag (hash of the body) and a Last-Modified time, so repeat polls are answered from memory
+ * and mostly with 304. Entries are dropped after commit when the shipment, one of its addresses or its
+ * customer changes (all three publish EntityChangedEvents), through a reverse index from those ids to
+ * the tracking numbers rendered from them.
+ * As a backstop for writes made outside DataManager, entries are re-rendered after
+ * app.public.tracking-cache.refresh-seconds; a re-render with an unchanged body keeps its ETag and
+ * Last-Modified. Unknown tracking numbers are not cached.
+ * <p>
+ * A render can read a row just before another transaction commits a change to it. Every entry is
+ * registered under its ids before the render finishes, and an invalidation marks the entries it finds
+ * even if they are still loading; a render that overlapped any invalidation before it could register
+ * is marked too. {@link #get} never serves a marked entry twice.
+ */
+@Service
+public class PublicTrackingCache {
+
+    public static final class Entry {
+        private final String key;
+        private final Map<String, Object> body;
+        private final String etag;
+        private final long lastModified;
+        private final Set<UUID> dependsOn;
+        private volatile boolean stale;
+
+        Entry(String key, Map<String, Object> body, String etag, long lastModified, Set<UUID> dependsOn) {
+            this.key = key;
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.dependsOn = dependsOn;
+        }
+
+        public Map<String, Object> getBody() { return body; }
+        public String getEtag() { return etag; }
+        public long getLastModified() { return lastModified; }
+    }
+
+    // A loader cannot return null; misses are loaded as this marker and dropped straight away
+    private static final Entry MISSING = new Entry("", Map.of(), "", 0, Set.of());
+
+    private final DataManager dataManager;
+    private final SystemAuthenticator systemAuthenticator;
+    // Sorted keys so equal content always hashes the same, whatever the map's iteration order
+    private final ObjectMapper etagMapper = new ObjectMapper().findAndRegisterModules()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    @Value("${app.public.tracking-cache.max-size:50000}")
+    private long maxSize;
+
+    @Value("${app.public.tracking-cache.refresh-seconds:300}")
+    private long refreshSeconds;
+
+    @Value("${app.public.tracking-cache.idle-minutes:60}")
+    private long idleMinutes;
+
+    private LoadingCache<String, Entry> cache;
+    private final ConcurrentHashMap<UUID, Set<Entry>> dependents = new ConcurrentHashMap<>();
+    private final AtomicLong notFound = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    // Bumped before each invalidation looks up its entries
+    private final AtomicLong invalidationSeq = new AtomicLong();
+    private final AtomicLong staleLoads = new AtomicLong();
+
+    public PublicTrackingCache(DataManager dataManager, SystemAuthenticator systemAuthenticator) {
+        this.dataManager = dataManager;
+        this.systemAuthenticator = systemAuthenticator;
+    }
+
+    @PostConstruct
+    public void init() {
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .refreshAfterWrite(refreshSeconds, TimeUnit.SECONDS)
+                .expireAfterAccess(idleMinutes, TimeUnit.MINUTES)
+                .recordStats()
+                .removalListener((RemovalNotification<String, Entry> n) -> {
+                    // A refresh has registered its own entry already, so the replaced one is unlinked too
+                    Entry e = n.getValue();
+                    if (e == null) return;
+                    for (UUID id : e.dependsOn) {
+                        dependents.computeIfPresent(id, (k, entries) -> {
+                            entries.remove(e);
+                            return entries.isEmpty() ? null : entries;
+                        });
+                    }
+                })
+                .build(new CacheLoader<String, Entry>() {
+                    @Override
+                    public Entry load(String key) {
+                        return render(key, null);
+                    }
+
+                    @Override
+                    public ListenableFuture<Entry> reload(String key, Entry previous) {
+                        return Futures.immediateFuture(render(key, previous));
+                    }
+                });
+    }
+
+    /**
+     * Rendered tracking DTO for the tracking number, or null if no shipment has it.
+     */
+    public Entry get(String trackingNumber) {
+        Entry e = cache.getUnchecked(trackingNumber);
+        if (e.stale) {
+            // Render again once; if that one is marked too it is still newer than the change that marked this
+            cache.asMap().remove(trackingNumber, e);
+            e = cache.getUnchecked(trackingNumber);
+        }
+        if (e == MISSING) {
+            cache.invalidate(trackingNumber);
+            notFound.incrementAndGet();
+            return null;
+        }
+        return e;
+    }
+
+    private Entry render(String trackingNumber, Entry previous) {
+        long seq = invalidationSeq.get();
+        List<Shipment> list = systemAuthenticator.withSystem(() -> dataManager.load(Shipment.class)
+                .query("select s from Shipment s where s.trackingNumber = :tn")
+                .parameter("tn", trackingNumber)
+                .fetchPlan(fp -> fp.addFetchPlan(FetchPlan.BASE)
+                        .add("customer", FetchPlan.BASE)
+                        .add("pickupAddress", FetchPlan.BASE)
+                        .add("deliveryAddress", FetchPlan.BASE))
+                .list());
+        if (list.isEmpty()) return MISSING;
+        Shipment s = list.get(0);
+        Map<String, Object> res = new HashMap<>();
+        res.put("id", s.getId());
+        res.put("externalOrderId", s.getExternalOrderId());
+        res.put("trackingNumber", s.getTrackingNumber());
+        res.put("status", s.getStatus() != null ? s.getStatus().name() : null);
+        res.put("commodityType", s.getCommodityType());
+        res.put("weightKg", s.getWeightKg());
+        res.put("createdAt", s.getCreatedAt());
+        Set<UUID> dependsOn = new HashSet<>();
+        dependsOn.add(s.getId());
+        if (s.getCustomer() != null) {
+            res.put("customer", Map.of("id", s.getCustomer().getId(), "name", s.getCustomer().getName()));
+            dependsOn.add(s.getCustomer().getId());
+        }
+        if (s.getPickupAddress() != null) {
+            res.put("pickupAddress", addressDto(s.getPickupAddress()));
+            dependsOn.add(s.getPickupAddress().getId());
+        }
+        if (s.getDeliveryAddress() != null) {
+            res.put("deliveryAddress", addressDto(s.getDeliveryAddress()));
+            dependsOn.add(s.getDeliveryAddress().getId());
+        }
+        String etag = etag(res);
+        // Addresses carry no update time, so Last-Modified is when this body was first rendered
+        long lastModified = previous != null && previous.etag.equals(etag) ? previous.lastModified : System.currentTimeMillis();
+        Entry entry = new Entry(trackingNumber, Collections.unmodifiableMap(res), etag, lastModified, dependsOn);
+        for (UUID id : dependsOn) {
+            dependents.compute(id, (k, entries) -> {
+                if (entries == null) entries = ConcurrentHashMap.newKeySet();
+                entries.add(entry);
+                return entries;
+            });
+        }
+        // An invalidation from here on finds the entry; one before it may have been for a row read above
+        if (invalidationSeq.get() != seq) {
+            entry.stale = true;
+            staleLoads.incrementAndGet();
+        }
+        return entry;
+    }
+
+    private Map<String, Object> addressDto(Address a) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("id", a.getId());
+        m.put("name", a.getName());
+        m.put("contact", a.getContact());
+        m.put("phone", a.getPhone());
+        m.put("street", a.getStreet());
+        m.put("city", a.getCity());
+        m.put("state", a.getState());
+        m.put("country", a.getCountry());
+        m.put("postalCode", a.getPostalCode());
+        m.put("latitude", a.getLatitude());
+        m.put("longitude", a.getLongitude());
+        return m;
+    }
+
+    private String etag(Map<String, Object> body) {
+        try {
+            return "\"" + DigestUtils.md5DigestAsHex(etagMapper.writeValueAsBytes(body)) + "\"";
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @TransactionalEventListener
+    public void onShipmentChanged(EntityChangedEvent<Shipment> event) {
+        invalidate((UUID) event.getEntityId().getValue());
+    }
+
+    @TransactionalEventListener
+    public void onAddressChanged(EntityChangedEvent<Address> event) {
+        invalidate((UUID) event.getEntityId().getValue());
+    }
+
+    @TransactionalEventListener
+    public void onOrganizationChanged(EntityChangedEvent<Organization> event) {
+        invalidate((UUID) event.getEntityId().getValue());
+    }
+
+    private void invalidate(UUID id) {
+        invalidationSeq.incrementAndGet();
+        Set<Entry> entries = dependents.remove(id);
+        if (entries == null) return;
+        for (Entry e : entries) {
+            // Removing does nothing while the entry is still loading; the mark makes get drop it later
+            e.stale = true;
+            cache.asMap().remove(e.key, e);
+            invalidations.incrementAndGet();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        CacheStats s = cache.stats();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("entries", cache.size());
+        m.put("trackedIds", dependents.size());
+        m.put("hits", s.hitCount());
+        m.put("misses", s.missCount());
+        m.put("hitRate", s.hitRate());
+        m.put("loads", s.loadCount());
+        m.put("notFound", notFound.get());
+        m.put("invalidations", invalidations.get());
+        m.put("staleLoads", staleLoads.get());
+        m.put("refreshSeconds", refreshSeconds);
+        return m;
+    }
+}
@@ -0,0 +1,261 @@
+package com.donilogistics.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps NOTIFICATION and TRACKING_EVENT small by moving rows older than their retention window into
+ * day-bucketed archive files ({archive-dir}/{table}/{yyyy-MM-dd}.{part}.ndjson.gz), one JSON object
+ * per row. Each part is written and fsynced before its rows are deleted, so a crash can at worst
+ * archive a row twice; readers de-duplicate by ID. Archived history stays queryable through
+ * {@link #readArchive}, which only opens the files of the requested days.
+ */
+@Service
+public class RetentionService {
+
+    private static final Logger log = LoggerFactory.getLogger(RetentionService.class);
+
+    public enum ArchivedTable {
+        NOTIFICATION("NOTIFICATION", "CREATED_AT"),
+        TRACKING_EVENT("TRACKING_EVENT", "RECORDED_AT");
+
+        final String table;
+        final String timeColumn;
+
+        ArchivedTable(String table, String timeColumn) {
+            this.table = table;
+            this.timeColumn = timeColumn;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${app.retention.archive-dir:.jmix/archive}")
+    private String archiveDir;
+
+    @Value("${app.retention.notification-days:90}")
+    private int notificationDays;
+
+    @Value("${app.retention.tracking-event-days:30}")
+    private int trackingEventDays;
+
+    @Value("${app.retention.batch-size:5000}")
+    private int batchSize;
+
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    public RetentionService(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Scheduled(cron = "${app.retention.cron:0 30 3 * * *}")
+    public void scheduledRun() {
+        run();
+    }
+
+    /**
+     * Archives everything past its retention window. Returns rows archived per table, or null if a run is in progress.
+     */
+    public Map<String, Object> run() {
+        if (!running.compareAndSet(false, true)) return null;
+        long started = System.currentTimeMillis();
+        try {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put(ArchivedTable.NOTIFICATION.table, archive(ArchivedTable.NOTIFICATION, LocalDate.now().minusDays(notificationDays)));
+            result.put(ArchivedTable.TRACKING_EVENT.table, archive(ArchivedTable.TRACKING_EVENT, LocalDate.now().minusDays(trackingEventDays)));
+            result.put("tookMs", System.currentTimeMillis() - started);
+            result.put("finishedAt", LocalDateTime.now().toString());
+            lastRun = result;
+            log.info("Retention run finished: {}", result);
+            return result;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Archives whole days strictly before cutoff, oldest first
+    private long archive(ArchivedTable t, LocalDate cutoff) {
+        long total = 0;
+        try {
+            Timestamp oldest = jdbcTemplate.queryForObject(
+                    "select min(" + t.timeColumn + ") from " + t.table, Timestamp.class);
+            if (oldest == null) return 0;
+            for (LocalDate day = oldest.toLocalDateTime().toLocalDate(); day.isBefore(cutoff); day = day.plusDays(1)) {
+                total += archiveDay(t, day);
+            }
+        } catch (Exception e) {
+            log.warn("Retention of {} failed after {} rows: {}", t.table, total, e.getMessage());
+        }
+        return total;
+    }
+
+    private long archiveDay(ArchivedTable t, LocalDate day) throws Exception {
+        String select = "select * from " + t.table + " where " + t.timeColumn + " >= ? and " + t.timeColumn + " < ? order by " + t.timeColumn;
+        Timestamp from = Timestamp.valueOf(day.atStartOfDay());
+        Timestamp to = Timestamp.valueOf(day.plusDays(1).atStartOfDay());
+        long archived = 0;
+        while (true) {
+            List<Map<String, Object>> rows = jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(select);
+                ps.setMaxRows(batchSize);
+                ps.setTimestamp(1, from);
+                ps.setTimestamp(2, to);
+                return ps;
+            }, (rs, i) -> toRow(rs));
+            if (rows.isEmpty()) return archived;
+            writePart(t, day, rows);
+            List<Object[]> ids = new ArrayList<>(rows.size());
+            for (Map<String, Object> r : rows) ids.add(new Object[]{UUID.fromString(String.valueOf(r.get("ID")))});
+            jdbcTemplate.batchUpdate("delete from " + t.table + " where ID = ?", ids);
+            archived += rows.size();
+            if (rows.size() < batchSize) return archived;
+        }
+    }
+
+    private void writePart(ArchivedTable t, LocalDate day, List<Map<String, Object>> rows) throws Exception {
+        Path dir = Paths.get(archiveDir, t.table);
+        Files.createDirectories(dir);
+        int part = 0;
+        while (Files.exists(dir.resolve(day + "." + part + ".ndjson.gz"))) part++;
+        Path target = dir.resolve(day + "." + part + ".ndjson.gz");
+        Path tmp = dir.resolve(target.getFileName() + ".tmp");
+        try (var fileOut = Files.newOutputStream(tmp);
+             BufferedWriter w = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(fileOut), StandardCharsets.UTF_8))) {
+            for (Map<String, Object> r : rows) {
+                w.write(objectMapper.writeValueAsString(r));
+                w.write('\n');
+            }
+            w.flush();
+        }
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            ch.force(true);
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads archived rows of the given days (inclusive), optionally where {@code column} equals {@code value}.
+     * Rows come back oldest day first, de-duplicated by ID.
+     */
+    public List<Map<String, Object>> readArchive(ArchivedTable t, LocalDate fromDay, LocalDate toDay, String column, Object value, int limit) {
+        List<Map<String, Object>> out = new ArrayList<>();
+        Path dir = Paths.get(archiveDir, t.table);
+        if (!Files.isDirectory(dir) || fromDay.isAfter(toDay)) return out;
+        String expected = value != null ? value.toString() : null;
+        String col = column != null ? column.toUpperCase(Locale.ROOT) : null;
+        Set<String> seen = new HashSet<>();
+        List<Path> files;
+        try (Stream<Path> s = Files.list(dir)) {
+            files = s.filter(p -> p.getFileName().toString().endsWith(".ndjson.gz"))
+                    .filter(p -> {
+                        LocalDate d = dayOf(p);
+                        return d != null && !d.isBefore(fromDay) && !d.isAfter(toDay);
+                    })
+                    .sorted(Comparator.comparing((Path p) -> dayOf(p)).thenComparing(RetentionService::partOf))
+                    .toList();
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to list archive " + dir, e);
+        }
+        for (Path p : files) {
+            try (BufferedReader r = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(p)), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = r.readLine()) != null) {
+                    if (line.isBlank()) continue;
+                    Map<String, Object> row = objectMapper.readValue(line, new TypeReference<>() {});
+                    if (col != null && !Objects.equals(expected, row.get(col) != null ? row.get(col).toString() : null)) continue;
+                    if (!seen.add(String.valueOf(row.get("ID")))) continue;
+                    out.add(row);
+                    if (out.size() >= limit) return out;
+                }
+            } catch (Exception e) {
+                log.warn("Failed to read archive file {}: {}", p, e.getMessage());
+            }
+        }
+        return out;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("archiveDir", archiveDir);
+        m.put("notificationDays", notificationDays);
+        m.put("trackingEventDays", trackingEventDays);
+        m.put("running", running.get());
+        m.put("lastRun", lastRun);
+        for (ArchivedTable t : ArchivedTable.values()) {
+            Path dir = Paths.get(archiveDir, t.table);
+            long files = 0, bytes = 0;
+            if (Files.isDirectory(dir)) {
+                try (Stream<Path> s = Files.list(dir)) {
+                    for (Path p : s.toList()) {
+                        files++;
+                        bytes += Files.size(p);
+                    }
+                } catch (Exception ignored) {
+                }
+            }
+            m.put(t.table, Map.of("files", files, "bytes", bytes));
+        }
+        return m;
+    }
+
+    private static Map<String, Object> toRow(ResultSet rs) throws SQLException {
+        ResultSetMetaData md = rs.getMetaData();
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (int i = 1; i <= md.getColumnCount(); i++) {
+            Object v = rs.getObject(i);
+            if (v instanceof Timestamp ts) v = ts.toLocalDateTime().toString();
+            else if (v instanceof UUID u) v = u.toString();
+            else if (v instanceof Clob c) v = c.getSubString(1, (int) c.length());
+            row.put(md.getColumnLabel(i).toUpperCase(Locale.ROOT), v);
+        }
+        return row;
+    }
+
+    private static LocalDate dayOf(Path p) {
+        String name = p.getFileName().toString();
+        int dot = name.indexOf('.');
+        try {
+            return dot > 0 ? LocalDate.parse(name.substring(0, dot)) : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static int partOf(Path p) {
+        String[] parts = p.getFileName().toString().split("\\.");
+        try {
+            return parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
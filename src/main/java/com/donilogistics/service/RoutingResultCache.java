@@ -0,0 +1,214 @@
+package com.donilogistics.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Concurrent cache for remote routing results (matrix bodies and route geometries).
+ * Keys are built from coordinates rounded to graphhopper.cache.key-decimals, so the same depot
+ * corridor hits regardless of how the points were loaded. Bounded by weight (roughly the number
+ * of numbers held) and by TTL; optionally snapshotted to a gzip JSON file so it survives restarts.
+ */
+@Component
+public class RoutingResultCache {
+
+    private static final Logger log = LoggerFactory.getLogger(RoutingResultCache.class);
+
+    static final String MATRIX = "matrix";
+    static final String ROUTE = "route";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${graphhopper.cache.max-weight:2000000}")
+    private long maxWeight;
+
+    @Value("${graphhopper.cache.ttl-minutes:720}")
+    private long ttlMinutes;
+
+    @Value("${graphhopper.cache.key-decimals:5}")
+    private int keyDecimals;
+
+    @Value("${graphhopper.cache.file:}")
+    private String file;
+
+    private Cache<String, Cached> cache;
+
+    static final class Cached {
+        final String kind;
+        final Object value;
+        final long writtenAt;
+        final int weight;
+
+        Cached(String kind, Object value, long writtenAt, int weight) {
+            this.kind = kind;
+            this.value = value;
+            this.writtenAt = writtenAt;
+            this.weight = weight;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((String k, Cached v) -> v.weight)
+                .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                .recordStats()
+                .build();
+        load();
+    }
+
+    public String key(String kind, List<GraphHopperService.LatLon> points) {
+        double scale = Math.pow(10, keyDecimals);
+        StringBuilder sb = new StringBuilder(kind).append(':');
+        for (GraphHopperService.LatLon p : points) {
+            if (p == null || p.lat == null || p.lon == null) {
+                sb.append("_;");
+                continue;
+            }
+            sb.append(Math.round(p.lat.doubleValue() * scale)).append(',')
+                    .append(Math.round(p.lon.doubleValue() * scale)).append(';');
+        }
+        return sb.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> getMatrix(String key) {
+        Cached c = getFresh(key);
+        return c != null ? (Map<String, Object>) c.value : null;
+    }
+
+    public void putMatrix(String key, Map<String, Object> body) {
+        if (body == null) return;
+        cache.put(key, new Cached(MATRIX, body, System.currentTimeMillis(), matrixWeight(body)));
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<double[]> getGeometry(String key) {
+        Cached c = getFresh(key);
+        return c != null ? (List<double[]>) c.value : null;
+    }
+
+    public void putGeometry(String key, List<double[]> geometry) {
+        if (geometry == null || geometry.isEmpty()) return;
+        cache.put(key, new Cached(ROUTE, List.copyOf(geometry), System.currentTimeMillis(), 16 + 2 * geometry.size()));
+    }
+
+    private static int matrixWeight(Map<String, Object> body) {
+        int n = body.get("times") instanceof List<?> rows ? rows.size() : 1;
+        return 16 + 2 * n * n;
+    }
+
+    public Map<String, Object> stats() {
+        CacheStats s = cache.stats();
+        long weight = 0;
+        for (Cached c : cache.asMap().values()) weight += c.weight;
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("entries", cache.size());
+        m.put("weight", weight);
+        m.put("maxWeight", maxWeight);
+        m.put("hits", s.hitCount());
+        m.put("misses", s.missCount());
+        m.put("hitRate", s.hitRate());
+        m.put("evictions", s.evictionCount());
+        m.put("ttlMinutes", ttlMinutes);
+        m.put("file", file == null || file.isBlank() ? null : file);
+        return m;
+    }
+
+    // Snapshots survive restarts with their original write time, so TTL is still measured from the remote call
+    private Cached getFresh(String key) {
+        Cached c = cache.getIfPresent(key);
+        if (c != null && System.currentTimeMillis() - c.writtenAt > TimeUnit.MINUTES.toMillis(ttlMinutes)) {
+            cache.invalidate(key);
+            return null;
+        }
+        return c;
+    }
+
+    @Scheduled(fixedDelayString = "${graphhopper.cache.persist-ms:600000}", initialDelayString = "${graphhopper.cache.persist-ms:600000}")
+    public void scheduledPersist() {
+        persist();
+    }
+
+    @PreDestroy
+    public void persist() {
+        if (file == null || file.isBlank()) return;
+        Path target = Paths.get(file);
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (Map.Entry<String, Cached> e : cache.asMap().entrySet()) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("key", e.getKey());
+            m.put("kind", e.getValue().kind);
+            m.put("writtenAt", e.getValue().writtenAt);
+            m.put("value", e.getValue().value);
+            entries.add(m);
+        }
+        try {
+            if (target.getParent() != null) Files.createDirectories(target.getParent());
+            Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp))) {
+                objectMapper.writeValue(out, entries);
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Persisted {} routing cache entries to {}", entries.size(), target);
+        } catch (Exception e) {
+            log.warn("Failed to persist routing cache to {}: {}", target, e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void load() {
+        if (file == null || file.isBlank()) return;
+        Path source = Paths.get(file);
+        if (!Files.isRegularFile(source)) return;
+        long cutoff = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(ttlMinutes);
+        int loaded = 0;
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(source))) {
+            List<Map<String, Object>> entries = objectMapper.readValue(in, new TypeReference<>() {});
+            for (Map<String, Object> m : entries) {
+                long writtenAt = ((Number) m.get("writtenAt")).longValue();
+                if (writtenAt < cutoff) continue;
+                String key = (String) m.get("key");
+                Object value = m.get("value");
+                if (MATRIX.equals(m.get("kind")) && value instanceof Map) {
+                    Map<String, Object> body = (Map<String, Object>) value;
+                    cache.put(key, new Cached(MATRIX, body, writtenAt, matrixWeight(body)));
+                    loaded++;
+                } else if (ROUTE.equals(m.get("kind")) && value instanceof List<?> coords) {
+                    List<double[]> geometry = new ArrayList<>(coords.size());
+                    for (Object c : coords) {
+                        List<?> pt = (List<?>) c;
+                        geometry.add(new double[]{((Number) pt.get(0)).doubleValue(), ((Number) pt.get(1)).doubleValue()});
+                    }
+                    cache.put(key, new Cached(ROUTE, geometry, writtenAt, 16 + 2 * geometry.size()));
+                    loaded++;
+                }
+            }
+            log.info("Loaded {} routing cache entries from {}", loaded, source);
+        } catch (Exception e) {
+            log.warn("Failed to load routing cache from {}: {}", source, e.getMessage());
+        }
+    }
+}
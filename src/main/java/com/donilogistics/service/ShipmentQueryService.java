@@ -0,0 +1,95 @@
+package com.donilogistics.service;
+
+import com.donilogistics.entity.Shipment;
+import com.donilogistics.entity.ShipmentStatus;
+import io.jmix.core.FetchPlan;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Shipment listing on top of {@link ListingService}: newest first, filtered server-side, with the
+ * references shown in list views in the fetch plan so they load with the page, not per row.
+ */
+@Service
+public class ShipmentQueryService {
+
+    public static final ListingService.Spec<Shipment> SPEC = ListingService.Spec.of(Shipment.class)
+            .sortable("createdAt", "trackingNumber")
+            .defaultSort("-createdAt")
+            .fetchPlan(fp -> fp.addFetchPlan(FetchPlan.BASE)
+                    .add("customer", FetchPlan.BASE)
+                    .add("assignedDriver", FetchPlan.BASE)
+                    .add("pickupAddress", FetchPlan.BASE)
+                    .add("deliveryAddress", FetchPlan.BASE));
+
+    public static final class Filter {
+        public List<ShipmentStatus> statuses = new ArrayList<>();
+        public UUID customerId;
+        public UUID assignedDriverId;
+        public LocalDateTime createdFrom;   // inclusive
+        public LocalDateTime createdTo;     // exclusive
+        public UUID organizationId;         // org scope: customer or creator's organization
+    }
+
+    private final ListingService listingService;
+
+    public ShipmentQueryService(ListingService listingService) {
+        this.listingService = listingService;
+    }
+
+    public ListingService.Page<Shipment> list(Filter filter, String sort, String cursor, int limit) {
+        ListingService.Criteria c = new ListingService.Criteria();
+        if (filter.organizationId != null) {
+            c.join("left join e.createdByUser cu left join cu.organization cuo")
+                    .where("(e.customer.id = :orgId or cuo.id = :orgId)")
+                    .param("orgId", filter.organizationId);
+        }
+        if (!filter.statuses.isEmpty()) {
+            c.where("e.status in :statuses").param("statuses", filter.statuses);
+        }
+        c.eq("customer.id", filter.customerId);
+        c.eq("assignedDriver.id", filter.assignedDriverId);
+        if (filter.createdFrom != null) {
+            c.where("e.createdAt >= :createdFrom").param("createdFrom", filter.createdFrom);
+        }
+        if (filter.createdTo != null) {
+            c.where("e.createdAt < :createdTo").param("createdTo", filter.createdTo);
+        }
+        return listingService.list(SPEC, c, sort, cursor, limit);
+    }
+
+    /**
+     * Accepts an ISO date-time or a plain date. A plain date used as an upper bound covers that whole day.
+     */
+    public static LocalDateTime parseDateTime(String value, boolean upperBound) {
+        if (value == null || value.isBlank()) return null;
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException ignored) {
+        }
+        try {
+            LocalDate d = LocalDate.parse(value);
+            return upperBound ? d.plusDays(1).atStartOfDay() : d.atStartOfDay();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("invalid date: " + value);
+        }
+    }
+
+    public static List<ShipmentStatus> parseStatuses(String value) {
+        List<ShipmentStatus> out = new ArrayList<>();
+        if (value == null || value.isBlank()) return out;
+        for (String s : value.split(",")) {
+            if (s.isBlank()) continue;
+            try {
+                out.add(ShipmentStatus.valueOf(s.trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("invalid status: " + s.trim());
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,208 @@
+package com.donilogistics.service;
+
+import com.donilogistics.trackstore.TrackStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Streams historical positions of a vehicle or shipment as NDJSON or server-sent events.
+ * Vehicle history comes from the {@link TrackStore}, falling back to TRACKING_EVENT when the store
+ * has nothing for the range; shipments replay the track of the vehicle on their latest route plan,
+ * or else the events tagged with the shipment. The range is counted first and then decimated to at
+ * most {@code maxPoints} while streaming, keeping the last point, so memory use does not depend on
+ * the length of the range. Database rows are read with a cursor (fetch size, no auto-commit).
+ * <p>
+ * Output is a "meta" record, the points, then an "end" record.
+ */
+@Service
+public class TrackReplayService {
+
+    public enum Format { NDJSON, SSE }
+
+    private static final String COUNT_SQL = "select count(*) from TRACKING_EVENT where %s = ? and RECORDED_AT >= ? and RECORDED_AT < ?";
+    private static final String EVENTS_SQL = "select RECORDED_AT, LATITUDE, LONGITUDE, SPEED, HEADING, EVENT_TYPE from TRACKING_EVENT "
+            + "where %s = ? and RECORDED_AT >= ? and RECORDED_AT < ? order by RECORDED_AT";
+    private static final String SHIPMENT_VEHICLE_SQL = "select p.VEHICLE_ID from ROUTE_STOP s join ROUTE_PLAN p on p.ID = s.ROUTE_PLAN_ID "
+            + "where s.SHIPMENT_ID = ? and p.VEHICLE_ID is not null order by p.CREATED_AT desc";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TrackStore trackStore;
+
+    @Value("${app.tracking.replay.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${app.tracking.replay.flush-every:500}")
+    private int flushEvery;
+
+    public TrackReplayService(DataSource dataSource, TrackStore trackStore) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.trackStore = trackStore;
+    }
+
+    public void replayVehicle(UUID vehicleId, LocalDateTime from, LocalDateTime to, int maxPoints, Format format, OutputStream out) throws IOException {
+        long fromMillis = Timestamp.valueOf(from).getTime();
+        long toMillis = Timestamp.valueOf(to).getTime();
+        long total = trackStore.count(vehicleId, fromMillis, toMillis);
+        if (total > 0) {
+            streamTrack(vehicleId, fromMillis, toMillis, total, maxPoints, new Sink(out, format, flushEvery));
+        } else {
+            streamEvents("VEHICLE_ID", vehicleId, from, to, maxPoints, new Sink(out, format, flushEvery));
+        }
+    }
+
+    public void replayShipment(UUID shipmentId, LocalDateTime from, LocalDateTime to, int maxPoints, Format format, OutputStream out) throws IOException {
+        List<UUID> vehicles = jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SHIPMENT_VEHICLE_SQL);
+            ps.setMaxRows(1);
+            ps.setObject(1, shipmentId);
+            return ps;
+        }, (rs, i) -> rs.getObject(1, UUID.class));
+        if (!vehicles.isEmpty()) {
+            long fromMillis = Timestamp.valueOf(from).getTime();
+            long toMillis = Timestamp.valueOf(to).getTime();
+            long total = trackStore.count(vehicles.get(0), fromMillis, toMillis);
+            if (total > 0) {
+                streamTrack(vehicles.get(0), fromMillis, toMillis, total, maxPoints, new Sink(out, format, flushEvery));
+                return;
+            }
+        }
+        streamEvents("SHIPMENT_ID", shipmentId, from, to, maxPoints, new Sink(out, format, flushEvery));
+    }
+
+    private void streamTrack(UUID trackId, long fromMillis, long toMillis, long total, int maxPoints, Sink sink) throws IOException {
+        long stride = stride(total, maxPoints);
+        sink.meta("trackstore", total, stride);
+        long[] seen = {0};
+        try {
+            trackStore.read(trackId, fromMillis, toMillis, (time, lat, lon, speed, heading) -> {
+                long i = seen[0]++;
+                // The last counted record is always sent so the replay ends where the vehicle really was
+                if (i % stride == 0 || i == total - 1) {
+                    sink.point(time, lat, lon, Float.isNaN(speed) ? null : (double) speed,
+                            Float.isNaN(heading) ? null : (double) heading, null);
+                }
+                return i < total - 1;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        sink.end();
+    }
+
+    private void streamEvents(String column, UUID id, LocalDateTime from, LocalDateTime to, int maxPoints, Sink sink) throws IOException {
+        Long total = jdbcTemplate.queryForObject(String.format(COUNT_SQL, column), Long.class,
+                id, Timestamp.valueOf(from), Timestamp.valueOf(to));
+        long n = total != null ? total : 0;
+        long stride = stride(n, maxPoints);
+        sink.meta("events", n, stride);
+        try {
+            jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+                boolean autoCommit = con.getAutoCommit();
+                // Drivers such as PostgreSQL only honour the fetch size inside a transaction
+                con.setAutoCommit(false);
+                try (PreparedStatement ps = con.prepareStatement(String.format(EVENTS_SQL, column))) {
+                    ps.setFetchSize(fetchSize);
+                    ps.setObject(1, id);
+                    ps.setTimestamp(2, Timestamp.valueOf(from));
+                    ps.setTimestamp(3, Timestamp.valueOf(to));
+                    try (ResultSet rs = ps.executeQuery()) {
+                        long i = 0;
+                        while (rs.next()) {
+                            String type = rs.getString("EVENT_TYPE");
+                            boolean event = type != null && !"LOCATION_UPDATE".equals(type);
+                            // Arrivals, departures and status changes are never decimated away
+                            if (event || i % stride == 0 || i == n - 1) {
+                                sink.point(rs.getTimestamp("RECORDED_AT").getTime(), rs.getDouble("LATITUDE"), rs.getDouble("LONGITUDE"),
+                                        nullable(rs, "SPEED"), nullable(rs, "HEADING"), event ? type : null);
+                            }
+                            i++;
+                        }
+                    }
+                } finally {
+                    con.rollback();
+                    con.setAutoCommit(autoCommit);
+                }
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        sink.end();
+    }
+
+    static long stride(long total, int maxPoints) {
+        if (maxPoints <= 0 || total <= maxPoints) return 1;
+        return (total + maxPoints - 1) / maxPoints;
+    }
+
+    private static Double nullable(ResultSet rs, String column) throws SQLException {
+        double v = rs.getDouble(column);
+        return rs.wasNull() ? null : v;
+    }
+
+    // Hand-written JSON: only numbers, timestamps and enum names go out, and this runs per point
+    private static final class Sink {
+        private final Writer w;
+        private final Format format;
+        private final int flushEvery;
+        private long points;
+
+        Sink(OutputStream out, Format format, int flushEvery) {
+            this.w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 16 * 1024);
+            this.format = format;
+            this.flushEvery = Math.max(1, flushEvery);
+        }
+
+        void meta(String source, long total, long stride) throws IOException {
+            write("meta", "{\"kind\":\"meta\",\"source\":\"" + source + "\",\"total\":" + total + ",\"stride\":" + stride + "}");
+            w.flush();
+        }
+
+        void point(long timeMillis, double lat, double lon, Double speed, Double heading, String type) {
+            StringBuilder sb = new StringBuilder(128);
+            sb.append("{\"kind\":\"point\",\"t\":\"").append(new Timestamp(timeMillis).toLocalDateTime())
+                    .append("\",\"lat\":").append(lat).append(",\"lon\":").append(lon);
+            if (speed != null) sb.append(",\"speed\":").append(speed);
+            if (heading != null) sb.append(",\"heading\":").append(heading);
+            if (type != null) sb.append(",\"type\":\"").append(type).append('"');
+            sb.append('}');
+            try {
+                write(null, sb.toString());
+                if (++points % flushEvery == 0) w.flush();
+            } catch (IOException e) {
+                // Client went away; surfaces out of the visitor/row loop and ends the stream
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void end() throws IOException {
+            write("end", "{\"kind\":\"end\",\"points\":" + points + "}");
+            w.flush();
+        }
+
+        private void write(String event, String json) throws IOException {
+            if (format == Format.SSE) {
+                if (event != null) w.write("event: " + event + "\n");
+                w.write("data: ");
+                w.write(json);
+                w.write("\n\n");
+            } else {
+                w.write(json);
+                w.write('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.donilogistics.service;
+
+import com.donilogistics.entity.TrackingEventType;
+import com.donilogistics.entity.TrackingSource;
+import com.donilogistics.geo.GeoHash;
+import com.donilogistics.geo.TrajectorySimplifier;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Buffers GPS pings in a bounded queue and writes them to TRACKING_EVENT with JDBC batch inserts.
+ * A single flusher thread drains the queue whenever a batch fills up or the flush interval elapses.
+ * Latest positions are coalesced per device and written back to DRIVER_PROFILE / VEHICLE with
+ * plain UPDATEs, so a ping never loads an entity or bumps its optimistic-lock version.
+ * With app.tracking.simplify.enabled, only pings that a dead-reckoning check marks as significant
+ * (plus periodic keyframes) become TRACKING_EVENT rows; latest positions and position listeners
+ * still see every ping.
+ */
+@Service
+public class TrackingIngestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(TrackingIngestionService.class);
+
+    private static final String INSERT_EVENT_SQL = "insert into TRACKING_EVENT (ID, VERSION, SHIPMENT_ID, VEHICLE_ID, DRIVER_ID, ORGANIZATION_ID, "
+            + "EVENT_TYPE, LATITUDE, LONGITUDE, HEADING, SPEED, ACCURACY, RECORDED_AT, RECEIVED_AT, SOURCE) "
+            + "values (?, 1, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_DRIVER_SQL = "update DRIVER_PROFILE set CURRENT_LATITUDE = ?, CURRENT_LONGITUDE = ?, LAST_SEEN = ?, GEOHASH = ? "
+            + "where ID = ? and (LAST_SEEN is null or LAST_SEEN <= ?)";
+    private static final String UPDATE_VEHICLE_SQL = "update VEHICLE set CURRENT_LATITUDE = ?, CURRENT_LONGITUDE = ?, LAST_SEEN = ?, GEOHASH = ? "
+            + "where ID = ? and (LAST_SEEN is null or LAST_SEEN <= ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectProvider<PositionListener> positionListeners;
+
+    @Value("${app.tracking.ingest.queue-capacity:100000}")
+    private int queueCapacity;
+
+    @Value("${app.tracking.ingest.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.tracking.ingest.flush-interval-ms:250}")
+    private long flushIntervalMs;
+
+    @Value("${app.tracking.simplify.enabled:true}")
+    private boolean simplifyEnabled;
+
+    @Value("${app.tracking.simplify.keyframe-seconds:60}")
+    private long keyframeSeconds;
+
+    @Value("${app.tracking.simplify.tolerance-meters.gps-device:10}")
+    private double gpsDeviceToleranceMeters;
+
+    @Value("${app.tracking.simplify.tolerance-meters.mobile-app:25}")
+    private double mobileAppToleranceMeters;
+
+    @Value("${app.tracking.simplify.tolerance-meters.driver-app:25}")
+    private double driverAppToleranceMeters;
+
+    private BlockingQueue<GpsPing> queue;
+    private Thread flusher;
+    private volatile boolean running;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong persisted = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong simplified = new AtomicLong();
+    // Confined to the flusher thread
+    private TrajectorySimplifier simplifier;
+    private final Map<TrackingSource, Double> toleranceMeters = new EnumMap<>(TrackingSource.class);
+    private long lastPruneMillis;
+    private volatile long lastFlushMillis;
+
+    public TrackingIngestionService(DataSource dataSource, ObjectProvider<PositionListener> positionListeners) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.positionListeners = positionListeners;
+    }
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        simplifier = new TrajectorySimplifier(TimeUnit.SECONDS.toMillis(keyframeSeconds));
+        toleranceMeters.put(TrackingSource.GPS_DEVICE, gpsDeviceToleranceMeters);
+        toleranceMeters.put(TrackingSource.MOBILE_APP, mobileAppToleranceMeters);
+        toleranceMeters.put(TrackingSource.DRIVER_APP, driverAppToleranceMeters);
+        running = true;
+        flusher = new Thread(this::runFlusher, "tracking-ingest-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (flusher.isAlive()) {
+            flusher.interrupt();
+            log.warn("Tracking ingest flusher did not drain in time; {} pings left in queue", queue.size());
+        }
+    }
+
+    /**
+     * Enqueues a ping without blocking. Returns false if the ping is invalid or the buffer is full.
+     */
+    public boolean submit(GpsPing ping) {
+        if (ping == null || !ping.isValid()) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (ping.receivedAt == null) ping.receivedAt = now;
+        if (ping.recordedAt == null) ping.recordedAt = now;
+        if (!queue.offer(ping)) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        accepted.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Enqueues a batch of pings and returns how many were accepted.
+     */
+    public int submitAll(Collection<GpsPing> pings) {
+        int ok = 0;
+        if (pings == null) return 0;
+        for (GpsPing p : pings) {
+            if (submit(p)) ok++;
+        }
+        return ok;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("queued", queue.size());
+        m.put("queueCapacity", queueCapacity);
+        m.put("accepted", accepted.get());
+        m.put("dropped", dropped.get());
+        m.put("rejected", rejected.get());
+        m.put("persisted", persisted.get());
+        m.put("simplifiedAway", simplified.get());
+        m.put("simplifyEnabled", simplifyEnabled);
+        m.put("failed", failed.get());
+        m.put("batches", batches.get());
+        m.put("lastFlushMillis", lastFlushMillis);
+        return m;
+    }
+
+    private void runFlusher() {
+        List<GpsPing> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                GpsPing first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) continue;
+                    long waitNanos = deadline - System.nanoTime();
+                    if (waitNanos <= 0 || !running) break;
+                    GpsPing next = queue.poll(waitNanos, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+            if (Thread.currentThread().isInterrupted()) break;
+        }
+    }
+
+    private void flush(List<GpsPing> batch) {
+        long started = System.currentTimeMillis();
+        List<GpsPing> stored = simplifyEnabled ? significant(batch) : batch;
+        try {
+            if (!stored.isEmpty()) insertEvents(stored);
+            persisted.addAndGet(stored.size());
+        } catch (Exception e) {
+            failed.addAndGet(stored.size());
+            log.error("Failed to persist {} tracking events", stored.size(), e);
+        }
+        try {
+            updateLatestPositions(batch);
+        } catch (Exception e) {
+            log.warn("Failed to update latest positions: {}", e.getMessage());
+        }
+        List<GpsPing> view = Collections.unmodifiableList(batch);
+        positionListeners.orderedStream().forEach(l -> {
+            try {
+                l.onPositions(view);
+            } catch (Exception e) {
+                log.warn("Position listener {} failed: {}", l.getClass().getSimpleName(), e.getMessage());
+            }
+        });
+        batches.incrementAndGet();
+        lastFlushMillis = System.currentTimeMillis() - started;
+    }
+
+    // Non-location events (arrivals, status, sensors) are always stored and do not move the track anchor
+    private List<GpsPing> significant(List<GpsPing> batch) {
+        List<GpsPing> out = new ArrayList<>(batch.size());
+        for (GpsPing p : batch) {
+            UUID track = p.vehicleId != null ? p.vehicleId : p.driverId != null ? p.driverId : p.shipmentId;
+            if (p.eventType != TrackingEventType.LOCATION_UPDATE || track == null
+                    || simplifier.offer(track, p.latitude, p.longitude, Timestamp.valueOf(p.recordedAt).getTime(),
+                    p.speed, p.heading, toleranceMeters.getOrDefault(p.source, gpsDeviceToleranceMeters))) {
+                out.add(p);
+            }
+        }
+        simplified.addAndGet(batch.size() - out.size());
+        long now = System.currentTimeMillis();
+        long idleMillis = TimeUnit.SECONDS.toMillis(keyframeSeconds) * 10;
+        if (now - lastPruneMillis > idleMillis) {
+            simplifier.prune(idleMillis);
+            lastPruneMillis = now;
+        }
+        return out;
+    }
+
+    private void insertEvents(List<GpsPing> batch) {
+        jdbcTemplate.batchUpdate(INSERT_EVENT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                GpsPing p = batch.get(i);
+                int c = 1;
+                ps.setObject(c++, UUID.randomUUID());
+                setUuid(ps, c++, p.shipmentId);
+                setUuid(ps, c++, p.vehicleId);
+                setUuid(ps, c++, p.driverId);
+                setUuid(ps, c++, p.organizationId);
+                ps.setString(c++, p.eventType.name());
+                ps.setBigDecimal(c++, decimal(p.latitude, 6, 9999.999999));
+                ps.setBigDecimal(c++, decimal(p.longitude, 6, 9999.999999));
+                ps.setBigDecimal(c++, decimal(p.heading, 2, 360));
+                ps.setBigDecimal(c++, decimal(p.speed, 2, 999.99));
+                ps.setBigDecimal(c++, decimal(p.accuracy, 2, 999.99));
+                ps.setTimestamp(c++, Timestamp.valueOf(p.recordedAt));
+                ps.setTimestamp(c++, Timestamp.valueOf(p.receivedAt));
+                ps.setString(c, p.source.name());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return batch.size();
+            }
+        });
+    }
+
+    // Only the newest ping per device is written back, so a burst of N pings costs one UPDATE per device
+    private void updateLatestPositions(List<GpsPing> batch) {
+        Map<UUID, GpsPing> latestByDriver = new HashMap<>();
+        Map<UUID, GpsPing> latestByVehicle = new HashMap<>();
+        for (GpsPing p : batch) {
+            if (p.driverId != null) latestByDriver.merge(p.driverId, p, TrackingIngestionService::newer);
+            if (p.vehicleId != null) latestByVehicle.merge(p.vehicleId, p, TrackingIngestionService::newer);
+        }
+        if (!latestByDriver.isEmpty()) {
+            List<Object[]> args = new ArrayList<>(latestByDriver.size());
+            for (Map.Entry<UUID, GpsPing> e : latestByDriver.entrySet()) {
+                GpsPing p = e.getValue();
+                Timestamp seen = Timestamp.valueOf(p.recordedAt);
+                args.add(new Object[]{decimal(p.latitude, 6, 9999.999999), decimal(p.longitude, 6, 9999.999999), seen,
+                        GeoHash.of(p.latitude, p.longitude), e.getKey(), seen});
+            }
+            jdbcTemplate.batchUpdate(UPDATE_DRIVER_SQL, args);
+        }
+        if (!latestByVehicle.isEmpty()) {
+            List<Object[]> args = new ArrayList<>(latestByVehicle.size());
+            for (Map.Entry<UUID, GpsPing> e : latestByVehicle.entrySet()) {
+                GpsPing p = e.getValue();
+                Timestamp seen = Timestamp.valueOf(p.recordedAt);
+                args.add(new Object[]{decimal(p.latitude, 6, 9999.999999), decimal(p.longitude, 6, 9999.999999), seen,
+                        GeoHash.of(p.latitude, p.longitude), e.getKey(), seen});
+            }
+            jdbcTemplate.batchUpdate(UPDATE_VEHICLE_SQL, args);
+        }
+    }
+
+    private static GpsPing newer(GpsPing a, GpsPing b) {
+        return b.recordedAt.isBefore(a.recordedAt) ? a : b;
+    }
+
+    private static void setUuid(PreparedStatement ps, int index, UUID value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.OTHER);
+        } else {
+            ps.setObject(index, value);
+        }
+    }
+
+    private static BigDecimal decimal(Double value, int scale, double max) {
+        if (value == null || value.isNaN() || value.isInfinite()) return null;
+        double v = Math.max(-max, Math.min(max, value));
+        return BigDecimal.valueOf(v).setScale(scale, RoundingMode.HALF_UP);
+    }
+}
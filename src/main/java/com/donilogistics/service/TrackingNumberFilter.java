@@ -0,0 +1,214 @@
+package com.donilogistics.service;
+
+import com.donilogistics.entity.Shipment;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import io.jmix.core.event.EntityChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bloom filter of every SHIPMENT.TRACKING_NUMBER, so public lookups of numbers that definitely do not
+ * exist are rejected without a query. Built at startup and on app.tracking-filter.rebuild-cron (or the
+ * admin endpoint), sized for the current count times app.tracking-filter.growth-factor at
+ * app.tracking-filter.fpp. New and renumbered shipments are added after commit, from Shipment's
+ * EntityChangedEvents. A Bloom filter cannot forget, so deleted numbers keep passing until the next
+ * rebuild, which only costs a query.
+ * Until the first build completes every lookup passes.
+ */
+@Service
+public class TrackingNumberFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(TrackingNumberFilter.class);
+
+    private static final String ALL_SQL = "select TRACKING_NUMBER from SHIPMENT where TRACKING_NUMBER is not null";
+    private static final String BY_ID_SQL = "select TRACKING_NUMBER from SHIPMENT where ID = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.tracking-filter.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.tracking-filter.fpp:0.001}")
+    private double fpp;
+
+    @Value("${app.tracking-filter.growth-factor:2.0}")
+    private double growthFactor;
+
+    @Value("${app.tracking-filter.min-capacity:100000}")
+    private long minCapacity;
+
+    @Value("${app.tracking-filter.fetch-size:5000}")
+    private int fetchSize;
+
+    private volatile BloomFilter<CharSequence> filter;
+    private long capacity;
+    private long builtFrom;
+    private long builtAt;
+    private long buildMillis;
+    // Numbers added while a rebuild is reading the table; guarded by this
+    private List<String> pending;
+
+    private final AtomicLong added = new AtomicLong();
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+    private final AtomicLong deletedSinceRebuild = new AtomicLong();
+
+    public TrackingNumberFilter(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        rebuild();
+    }
+
+    @Scheduled(cron = "${app.tracking-filter.rebuild-cron:0 30 3 * * *}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    /**
+     * Re-reads every tracking number into a new filter and swaps it in.
+     *
+     * @return number of tracking numbers loaded, or -1 if disabled or the build failed
+     */
+    public long rebuild() {
+        if (!enabled) return -1;
+        synchronized (this) {
+            if (pending != null) return -1;
+            pending = new ArrayList<>();
+        }
+        long deletedBefore = deletedSinceRebuild.get();
+        long started = System.currentTimeMillis();
+        try {
+            Long count = jdbcTemplate.queryForObject("select count(*) from SHIPMENT where TRACKING_NUMBER is not null", Long.class);
+            long size = count != null ? count : 0;
+            long cap = Math.max(minCapacity, (long) (size * growthFactor));
+            BloomFilter<CharSequence> next = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), cap, fpp);
+            long loaded = jdbcTemplate.execute((ConnectionCallback<Long>) con -> {
+                boolean autoCommit = con.getAutoCommit();
+                // Drivers such as PostgreSQL only honour the fetch size inside a transaction
+                con.setAutoCommit(false);
+                try (PreparedStatement ps = con.prepareStatement(ALL_SQL)) {
+                    ps.setFetchSize(fetchSize);
+                    long n = 0;
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            next.put(rs.getString(1));
+                            n++;
+                        }
+                    }
+                    return n;
+                } finally {
+                    con.rollback();
+                    con.setAutoCommit(autoCommit);
+                }
+            });
+            synchronized (this) {
+                for (String tn : pending) next.put(tn);
+                filter = next;
+                capacity = cap;
+                builtFrom = loaded;
+                builtAt = System.currentTimeMillis();
+                buildMillis = builtAt - started;
+            }
+            rebuilds.incrementAndGet();
+            deletedSinceRebuild.addAndGet(-deletedBefore);
+            log.info("Tracking number filter built from {} numbers in {} ms (capacity {}, fpp {})", loaded, buildMillis, cap, fpp);
+            return loaded;
+        } catch (Exception e) {
+            log.warn("Tracking number filter rebuild failed: {}", e.getMessage());
+            return -1;
+        } finally {
+            synchronized (this) {
+                pending = null;
+            }
+        }
+    }
+
+    /**
+     * False only if no shipment has this tracking number.
+     */
+    public boolean mightExist(String trackingNumber) {
+        BloomFilter<CharSequence> f = filter;
+        if (!enabled || f == null) return true;
+        checks.incrementAndGet();
+        if (f.mightContain(trackingNumber)) return true;
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Called when a number that passed the filter turned out not to exist.
+     */
+    public void recordFalsePositive() {
+        if (filter != null) falsePositives.incrementAndGet();
+    }
+
+    // After commit, so a rebuild that starts before this runs already reads the row
+    @TransactionalEventListener
+    public void onShipmentChanged(EntityChangedEvent<Shipment> event) {
+        if (!enabled) return;
+        if (event.getType() == EntityChangedEvent.Type.DELETED) {
+            deletedSinceRebuild.incrementAndGet();
+            return;
+        }
+        if (event.getType() == EntityChangedEvent.Type.UPDATED && !event.getChanges().isChanged("trackingNumber")) return;
+        try {
+            List<String> numbers = jdbcTemplate.queryForList(BY_ID_SQL, String.class, event.getEntityId().getValue());
+            if (!numbers.isEmpty() && numbers.get(0) != null) add(numbers.get(0));
+        } catch (Exception e) {
+            log.warn("Failed to add shipment {} to the tracking number filter: {}", event.getEntityId().getValue(), e.getMessage());
+        }
+    }
+
+    public synchronized void add(String trackingNumber) {
+        BloomFilter<CharSequence> f = filter;
+        if (f != null) f.put(trackingNumber);
+        if (pending != null) pending.add(trackingNumber);
+        added.incrementAndGet();
+    }
+
+    public synchronized Map<String, Object> stats() {
+        BloomFilter<CharSequence> f = filter;
+        long negatives = rejected.get() + falsePositives.get();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("enabled", enabled);
+        m.put("ready", f != null);
+        m.put("capacity", capacity);
+        m.put("builtFrom", builtFrom);
+        m.put("builtAt", builtAt > 0 ? new Timestamp(builtAt).toLocalDateTime() : null);
+        m.put("buildMillis", buildMillis);
+        m.put("approximateCount", f != null ? f.approximateElementCount() : 0);
+        m.put("expectedFpp", f != null ? f.expectedFpp() : null);
+        m.put("configuredFpp", fpp);
+        m.put("addedSinceStart", added.get());
+        m.put("checks", checks.get());
+        m.put("rejected", rejected.get());
+        m.put("falsePositives", falsePositives.get());
+        // Of the lookups for numbers that do not exist, the share the filter let through
+        m.put("observedFpr", negatives > 0 ? (double) falsePositives.get() / negatives : null);
+        m.put("rebuilds", rebuilds.get());
+        m.put("deletedSinceRebuild", deletedSinceRebuild.get());
+        return m;
+    }
+}
@@ -0,0 +1,206 @@
+package com.donilogistics.service;
+
+import com.donilogistics.geo.GeoGridIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Live fleet map feed per STOMP session. A session registers a bounding box and gets a snapshot of
+ * the vehicles/drivers inside it, then only deltas: positions inside the box and "removed" markers
+ * for tracked ids that left it. Positions are coalesced per id (latest wins) and sent at most
+ * app.fleet.stream.max-rate-hz times per second per id, so a dashboard's bandwidth depends on what
+ * it looks at, not on fleet size.
+ */
+@Service
+public class ViewportStreamService implements PositionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ViewportStreamService.class);
+
+    public static final String DESTINATION = "/queue/fleet/viewport";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final FleetLocationIndex fleetLocationIndex;
+
+    @Value("${app.fleet.stream.max-rate-hz:1.0}")
+    private double maxRateHz;
+
+    @Value("${app.fleet.stream.max-items:1000}")
+    private int maxItems;
+
+    private final ConcurrentHashMap<String, Viewport> viewports = new ConcurrentHashMap<>();
+
+    static final class Viewport {
+        final double minLat, minLon, maxLat, maxLon;
+        final UUID organizationId;
+        final long minIntervalMs;
+        final Map<UUID, Map<String, Object>> pending = new ConcurrentHashMap<>();
+        // Last send time per id; touched only by the flusher thread
+        final Map<UUID, Long> lastSent = new HashMap<>();
+        final Set<UUID> visible = ConcurrentHashMap.newKeySet();
+
+        Viewport(double minLat, double minLon, double maxLat, double maxLon, UUID organizationId, long minIntervalMs) {
+            this.minLat = minLat;
+            this.minLon = minLon;
+            this.maxLat = maxLat;
+            this.maxLon = maxLon;
+            this.organizationId = organizationId;
+            this.minIntervalMs = minIntervalMs;
+        }
+
+        boolean contains(double lat, double lon) {
+            return GeoGridIndex.inBox(lat, lon, minLat, minLon, maxLat, maxLon);
+        }
+    }
+
+    public ViewportStreamService(SimpMessagingTemplate messagingTemplate, FleetLocationIndex fleetLocationIndex) {
+        this.messagingTemplate = messagingTemplate;
+        this.fleetLocationIndex = fleetLocationIndex;
+    }
+
+    /**
+     * Replaces the session's viewport and sends it a snapshot of what is inside.
+     *
+     * @param organizationId fleet to show, or null for all of it; the caller derives it from the session user
+     * @param rateHz client-requested update rate per id; capped by app.fleet.stream.max-rate-hz
+     */
+    public void subscribe(String sessionId, double minLat, double minLon, double maxLat, double maxLon,
+                          UUID organizationId, Double rateHz) {
+        if (minLat > maxLat || minLat < -90 || maxLat > 90) throw new IllegalArgumentException("invalid bounding box");
+        double hz = rateHz != null && rateHz > 0 ? Math.min(rateHz, maxRateHz) : maxRateHz;
+        long minIntervalMs = Math.max(1, Math.round(1000.0 / hz));
+        Viewport vp = new Viewport(minLat, minLon, maxLat, maxLon, organizationId, minIntervalMs);
+
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (var e : fleetLocationIndex.vehiclesInBox(minLat, minLon, maxLat, maxLon,
+                v -> organizationId == null || organizationId.equals(v.organizationId))) {
+            if (items.size() >= maxItems) break;
+            Map<String, Object> m = item(e.getId(), "vehicle", e.getLat(), e.getLon());
+            m.put("licensePlate", e.getValue().licensePlate);
+            items.add(m);
+            vp.visible.add(e.getId());
+        }
+        for (var e : fleetLocationIndex.driversInBox(minLat, minLon, maxLat, maxLon,
+                d -> d.active && (organizationId == null || organizationId.equals(d.organizationId)))) {
+            if (items.size() >= maxItems) break;
+            items.add(item(e.getId(), "driver", e.getLat(), e.getLon()));
+            vp.visible.add(e.getId());
+        }
+        viewports.put(sessionId, vp);
+
+        Map<String, Object> msg = new HashMap<>();
+        msg.put("type", "snapshot");
+        msg.put("items", items);
+        msg.put("truncated", items.size() >= maxItems);
+        msg.put("minIntervalMs", minIntervalMs);
+        send(sessionId, msg);
+    }
+
+    public void unsubscribe(String sessionId) {
+        viewports.remove(sessionId);
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        unsubscribe(event.getSessionId());
+    }
+
+    @Override
+    public void onPositions(List<GpsPing> batch) {
+        if (viewports.isEmpty()) return;
+        for (GpsPing p : batch) {
+            UUID id = p.vehicleId != null ? p.vehicleId : p.driverId;
+            if (id == null || p.latitude == null || p.longitude == null) continue;
+            for (Viewport vp : viewports.values()) {
+                if (vp.organizationId != null && !vp.organizationId.equals(p.organizationId)) continue;
+                if (vp.contains(p.latitude, p.longitude)) {
+                    Map<String, Object> m = item(id, p.vehicleId != null ? "vehicle" : "driver", p.latitude, p.longitude);
+                    m.put("heading", p.heading);
+                    m.put("speed", p.speed);
+                    m.put("recordedAt", p.recordedAt);
+                    vp.pending.put(id, m);
+                } else if (vp.visible.contains(id)) {
+                    Map<String, Object> m = new HashMap<>();
+                    m.put("id", id);
+                    m.put("removed", true);
+                    vp.pending.put(id, m);
+                }
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.fleet.stream.tick-ms:250}")
+    public void flush() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Viewport> s : viewports.entrySet()) {
+            Viewport vp = s.getValue();
+            if (vp.pending.isEmpty()) continue;
+            List<Map<String, Object>> items = new ArrayList<>();
+            for (Map.Entry<UUID, Map<String, Object>> e : vp.pending.entrySet()) {
+                if (items.size() >= maxItems) break;
+                UUID id = e.getKey();
+                Map<String, Object> value = e.getValue();
+                boolean removed = value.containsKey("removed");
+                Long last = vp.lastSent.get(id);
+                // Removals go out immediately; updates wait for the id's rate window and keep coalescing
+                if (!removed && last != null && now - last < vp.minIntervalMs) continue;
+                // A newer position that raced in stays pending for the next window
+                if (!vp.pending.remove(id, value)) continue;
+                items.add(value);
+                if (removed) {
+                    vp.visible.remove(id);
+                    vp.lastSent.remove(id);
+                } else {
+                    vp.visible.add(id);
+                    vp.lastSent.put(id, now);
+                }
+            }
+            if (items.isEmpty()) continue;
+            Map<String, Object> msg = new HashMap<>();
+            msg.put("type", "delta");
+            msg.put("items", items);
+            send(s.getKey(), msg);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("sessions", viewports.size());
+        m.put("pending", viewports.values().stream().mapToInt(v -> v.pending.size()).sum());
+        m.put("maxRateHz", maxRateHz);
+        return m;
+    }
+
+    private static Map<String, Object> item(UUID id, String kind, double lat, double lon) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("id", id);
+        m.put("kind", kind);
+        m.put("latitude", lat);
+        m.put("longitude", lon);
+        return m;
+    }
+
+    // Addressed by session id so each open map gets its own stream; the client subscribes to /user/queue/fleet/viewport
+    private void send(String sessionId, Object payload) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(sessionId);
+        headers.setLeaveMutable(true);
+        MessageHeaders messageHeaders = headers.getMessageHeaders();
+        try {
+            messagingTemplate.convertAndSendToUser(sessionId, DESTINATION, payload, messageHeaders);
+        } catch (Exception e) {
+            log.warn("Viewport push to session {} failed: {}", sessionId, e.getMessage());
+        }
+    }
+}
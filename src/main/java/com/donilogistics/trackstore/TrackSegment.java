@@ -0,0 +1,213 @@
+package com.donilogistics.trackstore;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * One append-only file of fixed-width records, written and read through a memory mapping.
+ * <pre>
+ * header (32 bytes): magic int, record size int, committed count long, sealed int, reserved
+ * record (32 bytes): time millis long, lat double, lon double, speed float, heading float
+ * </pre>
+ * The count is written after the record, so a reader or a restart never sees a half-written record.
+ * Every {@code indexStride}-th timestamp is kept in a sparse in-memory index; a time lookup is a
+ * binary search over that index and then over one stride of records. A single writer appends;
+ * readers only ever look below the volatile count.
+ */
+final class TrackSegment {
+
+    static final int MAGIC = 0x54524b31; // "TRK1"
+    static final int HEADER_BYTES = 32;
+    static final int RECORD_BYTES = 32;
+    private static final int COUNT_OFFSET = 8;
+    private static final int SEALED_OFFSET = 16;
+
+    final Path file;
+    final long firstTime;
+    private final int capacity;
+    private final int indexStride;
+    private volatile MappedByteBuffer buffer;
+    private volatile int count;
+    private volatile long lastTime;
+    private volatile long[] sparse;
+    private volatile boolean sealed;
+
+    private TrackSegment(Path file, long firstTime, int capacity, int indexStride) {
+        this.file = file;
+        this.firstTime = firstTime;
+        this.capacity = capacity;
+        this.indexStride = indexStride;
+    }
+
+    static TrackSegment create(Path file, long firstTime, int capacity, int indexStride) throws IOException {
+        TrackSegment s = new TrackSegment(file, firstTime, capacity, indexStride);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            s.buffer = ch.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) capacity * RECORD_BYTES);
+        }
+        s.buffer.order(ByteOrder.LITTLE_ENDIAN);
+        s.buffer.putInt(0, MAGIC);
+        s.buffer.putInt(4, RECORD_BYTES);
+        s.buffer.putLong(COUNT_OFFSET, 0);
+        s.buffer.putInt(SEALED_OFFSET, 0);
+        s.sparse = new long[16];
+        s.lastTime = Long.MIN_VALUE;
+        return s;
+    }
+
+    /**
+     * Opens an existing segment; unsealed segments are mapped writable so appending can resume.
+     */
+    static TrackSegment open(Path file, long firstTime, int capacity, int indexStride) throws IOException {
+        TrackSegment s = new TrackSegment(file, firstTime, capacity, indexStride);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = ch.size();
+            if (size < HEADER_BYTES) throw new IOException("Truncated track segment " + file);
+            MappedByteBuffer header = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != RECORD_BYTES) throw new IOException("Not a track segment: " + file);
+            int stored = (int) Math.min(header.getLong(COUNT_OFFSET), (size - HEADER_BYTES) / RECORD_BYTES);
+            s.sealed = header.getInt(SEALED_OFFSET) != 0 || stored >= capacity;
+            long mapped = s.sealed ? HEADER_BYTES + (long) stored * RECORD_BYTES : HEADER_BYTES + (long) capacity * RECORD_BYTES;
+            s.buffer = ch.map(s.sealed ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE, 0, mapped);
+            s.buffer.order(ByteOrder.LITTLE_ENDIAN);
+            s.sparse = new long[Math.max(16, stored / indexStride + 1)];
+            for (int i = 0; i < stored; i += indexStride) s.sparse[i / indexStride] = s.timeAt(i);
+            s.lastTime = stored > 0 ? s.timeAt(stored - 1) : Long.MIN_VALUE;
+            s.count = stored;
+        }
+        return s;
+    }
+
+    int count() {
+        return count;
+    }
+
+    long lastTime() {
+        return lastTime;
+    }
+
+    boolean isSealed() {
+        return sealed;
+    }
+
+    boolean isFull() {
+        return count >= capacity;
+    }
+
+    long mappedBytes() {
+        MappedByteBuffer b = buffer;
+        return b != null ? b.capacity() : 0;
+    }
+
+    void append(long timeMillis, double lat, double lon, float speedKmh, float headingDeg) {
+        int i = count;
+        MappedByteBuffer b = buffer;
+        int off = HEADER_BYTES + i * RECORD_BYTES;
+        b.putLong(off, timeMillis);
+        b.putDouble(off + 8, lat);
+        b.putDouble(off + 16, lon);
+        b.putFloat(off + 24, speedKmh);
+        b.putFloat(off + 28, headingDeg);
+        if (i % indexStride == 0) {
+            long[] idx = sparse;
+            int slot = i / indexStride;
+            if (slot >= idx.length) idx = Arrays.copyOf(idx, idx.length * 2);
+            idx[slot] = timeMillis;
+            sparse = idx;
+        }
+        lastTime = timeMillis;
+        b.putLong(COUNT_OFFSET, i + 1);
+        count = i + 1;
+    }
+
+    /**
+     * Flushes, marks the segment sealed and trims the file to the records it holds.
+     */
+    void seal() throws IOException {
+        if (sealed) return;
+        MappedByteBuffer b = buffer;
+        b.putInt(SEALED_OFFSET, 1);
+        b.force();
+        int n = count;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ch.truncate(HEADER_BYTES + (long) n * RECORD_BYTES);
+            MappedByteBuffer ro = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES + (long) n * RECORD_BYTES);
+            ro.order(ByteOrder.LITTLE_ENDIAN);
+            buffer = ro;
+        }
+        sealed = true;
+    }
+
+    void force() {
+        MappedByteBuffer b = buffer;
+        if (!sealed && b != null) b.force();
+    }
+
+    void delete() throws IOException {
+        buffer = null;
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Index of the first record with time >= {@code timeMillis}, or count if there is none.
+     */
+    int lowerBound(long timeMillis) {
+        int n = count;
+        long[] idx = sparse;
+        int slots = (n + indexStride - 1) / indexStride;
+        // Last sparse slot whose time is < timeMillis; the answer lies in the stride after it
+        int lo = 0, hi = slots - 1, slot = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (idx[mid] < timeMillis) {
+                slot = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        if (slot < 0) return 0;
+        int from = slot * indexStride;
+        int to = Math.min(n, from + indexStride);
+        lo = from;
+        hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timeAt(mid) < timeMillis) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Visits records with fromMillis <= time < toMillis. Returns false if the visitor stopped the read.
+     */
+    boolean read(long fromMillis, long toMillis, TrackVisitor visitor) {
+        MappedByteBuffer b = buffer;
+        if (b == null) return true;
+        int end = lowerBound(toMillis);
+        for (int i = lowerBound(fromMillis); i < end; i++) {
+            int off = HEADER_BYTES + i * RECORD_BYTES;
+            if (!visitor.visit(b.getLong(off), b.getDouble(off + 8), b.getDouble(off + 16), b.getFloat(off + 24), b.getFloat(off + 28))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Number of records with fromMillis <= time < toMillis.
+     */
+    int count(long fromMillis, long toMillis) {
+        return Math.max(0, lowerBound(toMillis) - lowerBound(fromMillis));
+    }
+
+    long timeAt(int i) {
+        return buffer.getLong(HEADER_BYTES + i * RECORD_BYTES);
+    }
+}
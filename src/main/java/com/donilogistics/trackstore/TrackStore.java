@@ -0,0 +1,333 @@
+package com.donilogistics.trackstore;
+
+import com.donilogistics.entity.TrackingEventType;
+import com.donilogistics.service.GpsPing;
+import com.donilogistics.service.PositionListener;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Embedded per-track time series of raw positions, kept next to TRACKING_EVENT for replay and ETA
+ * modelling. Each vehicle (or driver, for pings without a vehicle) has a directory of append-only
+ * {@link TrackSegment} files named by their first timestamp. Every position from the ingestion
+ * flusher is appended to the track's open segment; a segment is sealed and trimmed when it fills
+ * up or spans app.trackstore.roll-hours, and sealed segments past app.trackstore.retention-days
+ * are deleted by {@link #compact()}. Reads go straight from the mapped files to a
+ * {@link TrackVisitor}, with no ORM, JDBC or per-record objects involved.
+ * Records must arrive in time order per track; older ones are counted and skipped.
+ */
+@Service
+public class TrackStore implements PositionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(TrackStore.class);
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    @Value("${app.trackstore.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.trackstore.dir:.jmix/tracks}")
+    private String dir;
+
+    @Value("${app.trackstore.segment-records:32768}")
+    private int segmentRecords;
+
+    @Value("${app.trackstore.index-stride:128}")
+    private int indexStride;
+
+    @Value("${app.trackstore.roll-hours:24}")
+    private long rollHours;
+
+    @Value("${app.trackstore.retention-days:30}")
+    private long retentionDays;
+
+    @Value("${app.trackstore.idle-minutes:60}")
+    private long idleMinutes;
+
+    static final class Track {
+        final UUID id;
+        final CopyOnWriteArrayList<TrackSegment> segments = new CopyOnWriteArrayList<>();
+        volatile long touchedAt = System.currentTimeMillis();
+
+        Track(UUID id) {
+            this.id = id;
+        }
+
+        TrackSegment active() {
+            if (segments.isEmpty()) return null;
+            TrackSegment s = segments.get(segments.size() - 1);
+            return s.isSealed() ? null : s;
+        }
+
+        long lastTime() {
+            for (int i = segments.size() - 1; i >= 0; i--) {
+                TrackSegment s = segments.get(i);
+                if (s.count() > 0) return s.lastTime();
+            }
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private final ConcurrentHashMap<UUID, Track> tracks = new ConcurrentHashMap<>();
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong outOfOrder = new AtomicLong();
+    private final AtomicLong rolled = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+
+    @Override
+    public void onPositions(List<GpsPing> batch) {
+        if (!enabled) return;
+        for (GpsPing p : batch) {
+            if (p.eventType != TrackingEventType.LOCATION_UPDATE || p.latitude == null || p.longitude == null) continue;
+            UUID id = p.vehicleId != null ? p.vehicleId : p.driverId;
+            if (id == null) continue;
+            try {
+                append(id, Timestamp.valueOf(p.recordedAt).getTime(), p.latitude, p.longitude,
+                        p.speed != null ? p.speed.floatValue() : Float.NaN,
+                        p.heading != null ? p.heading.floatValue() : Float.NaN);
+            } catch (Exception e) {
+                log.warn("Track store append for {} failed: {}", id, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Appends one record. Called from a single writer thread (the ingestion flusher).
+     *
+     * @return false if the record is older than the track's last one and was skipped
+     */
+    public boolean append(UUID trackId, long timeMillis, double lat, double lon, float speedKmh, float headingDeg) throws IOException {
+        Track t = track(trackId);
+        t.touchedAt = System.currentTimeMillis();
+        if (timeMillis < t.lastTime()) {
+            outOfOrder.incrementAndGet();
+            return false;
+        }
+        TrackSegment s = t.active();
+        if (s != null && (s.isFull() || timeMillis - s.firstTime >= TimeUnit.HOURS.toMillis(rollHours))) {
+            s.seal();
+            rolled.incrementAndGet();
+            s = null;
+        }
+        if (s == null) {
+            s = TrackSegment.create(newSegmentFile(trackId, timeMillis), timeMillis, segmentRecords, indexStride);
+            t.segments.add(s);
+        }
+        s.append(timeMillis, lat, lon, speedKmh, headingDeg);
+        appended.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Visits the track's records with fromMillis <= time < toMillis in time order.
+     *
+     * @return number of records visited
+     */
+    public long read(UUID trackId, long fromMillis, long toMillis, TrackVisitor visitor) {
+        Track t = existingTrack(trackId);
+        if (t == null) return 0;
+        long[] visited = new long[1];
+        TrackVisitor counting = (time, lat, lon, speed, heading) -> {
+            visited[0]++;
+            return visitor.visit(time, lat, lon, speed, heading);
+        };
+        List<TrackSegment> segments = t.segments;
+        for (int i = 0; i < segments.size(); i++) {
+            TrackSegment s = segments.get(i);
+            if (s.count() == 0 || s.firstTime >= toMillis) break;
+            if (s.lastTime() < fromMillis) continue;
+            if (!s.read(fromMillis, toMillis, counting)) break;
+        }
+        return visited[0];
+    }
+
+    /**
+     * Number of records with fromMillis <= time < toMillis, answered from the sparse indexes.
+     */
+    public long count(UUID trackId, long fromMillis, long toMillis) {
+        Track t = existingTrack(trackId);
+        if (t == null) return 0;
+        long n = 0;
+        for (TrackSegment s : t.segments) {
+            if (s.count() == 0 || s.firstTime >= toMillis) break;
+            if (s.lastTime() < fromMillis) continue;
+            n += s.count(fromMillis, toMillis);
+        }
+        return n;
+    }
+
+    /**
+     * Deletes segments past retention and releases tracks that have been idle. A segment's records all
+     * precede the next segment's first timestamp, so tracks that are not open are pruned by file name alone.
+     */
+    @Scheduled(cron = "${app.trackstore.compact-cron:0 15 * * * *}")
+    public void compact() {
+        if (!enabled) return;
+        long cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retentionDays);
+        long idleCutoff = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(idleMinutes);
+        for (Track t : tracks.values()) {
+            try {
+                for (TrackSegment seg : t.segments) {
+                    if (seg.isSealed() && seg.lastTime() < cutoff) {
+                        t.segments.remove(seg);
+                        seg.delete();
+                        expired.incrementAndGet();
+                    }
+                }
+                if (t.touchedAt < idleCutoff) release(t);
+            } catch (Exception e) {
+                log.warn("Track store compaction of {} failed: {}", t.id, e.getMessage());
+            }
+        }
+        Path root = Paths.get(dir);
+        if (!Files.isDirectory(root)) return;
+        try (Stream<Path> s = Files.list(root)) {
+            for (Path d : s.toList()) {
+                UUID id = parseUuid(d.getFileName().toString());
+                if (id == null || tracks.containsKey(id)) continue;
+                expireClosed(d, cutoff);
+            }
+        } catch (IOException e) {
+            log.warn("Track store compaction failed: {}", e.getMessage());
+        }
+    }
+
+    private void expireClosed(Path trackDir, long cutoff) throws IOException {
+        List<Path> files = segmentFiles(trackDir);
+        long rollMillis = TimeUnit.HOURS.toMillis(rollHours);
+        for (int i = 0; i < files.size(); i++) {
+            long end = i + 1 < files.size() ? firstTimeOf(files.get(i + 1)) : firstTimeOf(files.get(i)) + rollMillis;
+            if (end > cutoff) break;
+            Files.deleteIfExists(files.get(i));
+            expired.incrementAndGet();
+        }
+        if (segmentFiles(trackDir).isEmpty()) Files.deleteIfExists(trackDir);
+    }
+
+    // The writer may race a release; it then simply reopens the track from disk on its next append
+    private void release(Track t) throws IOException {
+        TrackSegment active = t.active();
+        if (active != null) active.force();
+        tracks.remove(t.id, t);
+        if (t.segments.isEmpty()) Files.deleteIfExists(trackDir(t.id));
+    }
+
+    @PreDestroy
+    public void flush() {
+        for (Track t : tracks.values()) {
+            TrackSegment active = t.active();
+            if (active != null) active.force();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        long segments = 0, records = 0, mapped = 0;
+        for (Track t : tracks.values()) {
+            for (TrackSegment s : t.segments) {
+                segments++;
+                records += s.count();
+                mapped += s.mappedBytes();
+            }
+        }
+        m.put("enabled", enabled);
+        m.put("dir", dir);
+        m.put("openTracks", tracks.size());
+        m.put("openSegments", segments);
+        m.put("openRecords", records);
+        m.put("mappedBytes", mapped);
+        m.put("appended", appended.get());
+        m.put("outOfOrder", outOfOrder.get());
+        m.put("rolled", rolled.get());
+        m.put("expiredSegments", expired.get());
+        return m;
+    }
+
+    private Track existingTrack(UUID trackId) {
+        Track t = tracks.get(trackId);
+        if (t != null) return t;
+        if (!Files.isDirectory(trackDir(trackId))) return null;
+        try {
+            return track(trackId);
+        } catch (IOException e) {
+            log.warn("Failed to open track {}: {}", trackId, e.getMessage());
+            return null;
+        }
+    }
+
+    private Track track(UUID trackId) throws IOException {
+        Track t = tracks.get(trackId);
+        if (t != null) return t;
+        synchronized (tracks) {
+            t = tracks.get(trackId);
+            if (t != null) return t;
+            t = load(trackId);
+            tracks.put(trackId, t);
+            return t;
+        }
+    }
+
+    private Track load(UUID trackId) throws IOException {
+        Track t = new Track(trackId);
+        Path d = trackDir(trackId);
+        Files.createDirectories(d);
+        List<Path> files = segmentFiles(d);
+        for (int i = 0; i < files.size(); i++) {
+            Path f = files.get(i);
+            TrackSegment seg = TrackSegment.open(f, firstTimeOf(f), segmentRecords, indexStride);
+            // Only the newest segment may stay open for appends
+            if (i < files.size() - 1) seg.seal();
+            t.segments.add(seg);
+        }
+        return t;
+    }
+
+    private static List<Path> segmentFiles(Path trackDir) throws IOException {
+        try (Stream<Path> s = Files.list(trackDir)) {
+            return s.filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+    }
+
+    // {first time, zero-padded}.{n}.seg sorts by time; n only disambiguates a roll within the same millisecond
+    private Path newSegmentFile(UUID trackId, long firstTime) {
+        Path d = trackDir(trackId);
+        for (int n = 0; ; n++) {
+            Path f = d.resolve(String.format("%019d.%d", firstTime, n) + SEGMENT_SUFFIX);
+            if (!Files.exists(f)) return f;
+        }
+    }
+
+    private Path trackDir(UUID trackId) {
+        return Paths.get(dir, trackId.toString());
+    }
+
+    private static long firstTimeOf(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.indexOf('.');
+        return Long.parseLong(name.substring(0, dot));
+    }
+
+    private static UUID parseUuid(String s) {
+        try {
+            return UUID.fromString(s);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
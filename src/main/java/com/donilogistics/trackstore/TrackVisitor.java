@@ -0,0 +1,13 @@
+package com.donilogistics.trackstore;
+
+/**
+ * Receives track records straight from the mapped segment, without allocating per record.
+ */
+@FunctionalInterface
+public interface TrackVisitor {
+
+    /**
+     * @return false to stop the read
+     */
+    boolean visit(long timeMillis, double lat, double lon, float speedKmh, float headingDeg);
+}
@@ -0,0 +1,37 @@
+package com.donilogistics.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static com.donilogistics.config.WebSocketConfig.SubscriptionAuthorizationInterceptor.canSubscribe;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WebSocketConfigTest {
+
+    private static final UUID ORG = UUID.fromString("11111111-1111-1111-1111-111111111111");
+    private static final UUID OTHER_ORG = UUID.fromString("22222222-2222-2222-2222-222222222222");
+
+    @Test
+    void test_orgAdminOnlySubscribesToOwnOrganization() {
+        WebSocketConfig.SessionPrincipal orgAdmin = new WebSocketConfig.SessionPrincipal(UUID.randomUUID().toString(), ORG, false);
+        assertThat(canSubscribe(orgAdmin, "/topic/org/" + ORG + "/notifications")).isTrue();
+        assertThat(canSubscribe(orgAdmin, "/topic/org/" + ORG + "/fleet/locations")).isTrue();
+        assertThat(canSubscribe(orgAdmin, "/user/queue/notifications")).isTrue();
+
+        assertThat(canSubscribe(orgAdmin, "/topic/org/" + OTHER_ORG + "/notifications")).isFalse();
+        assertThat(canSubscribe(orgAdmin, "/topic/org/*/notifications")).isFalse();
+        assertThat(canSubscribe(orgAdmin, "/topic/org/" + ORG + "x/notifications")).isFalse();
+        for (String global : new String[]{"/topic/fleet/locations", "/topic/shipments/status", "/topic/routes/eta",
+                "/topic/routes/deviation", "/topic/fleet/drivers", "/topic/**", "/queue/viewport-user123"}) {
+            assertThat(canSubscribe(orgAdmin, global)).as(global).isFalse();
+        }
+    }
+
+    @Test
+    void test_devAdminSubscribesAnywhere() {
+        WebSocketConfig.SessionPrincipal devAdmin = new WebSocketConfig.SessionPrincipal("00000000-0000-0000-0000-000000000001", null, true);
+        assertThat(canSubscribe(devAdmin, "/topic/fleet/locations")).isTrue();
+        assertThat(canSubscribe(devAdmin, "/topic/org/" + OTHER_ORG + "/notifications")).isTrue();
+    }
+}
@@ -0,0 +1,59 @@
+package com.donilogistics.controller;
+
+import com.donilogistics.entity.Shipment;
+import com.donilogistics.service.LogisticsService;
+import com.donilogistics.service.TrackingNumberFilter;
+import com.donilogistics.test_support.AuthenticatedAsAdmin;
+import io.jmix.core.DataManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ExtendWith(AuthenticatedAsAdmin.class)
+public class PublicControllerTest {
+
+    @Autowired
+    DataManager dataManager;
+
+    @Autowired
+    LogisticsService logisticsService;
+
+    @Autowired
+    TrackingNumberFilter trackingNumberFilter;
+
+    @Autowired
+    PublicController publicController;
+
+    private final List<Shipment> saved = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (Shipment s : saved) dataManager.remove(s);
+    }
+
+    @Test
+    void test_shipmentCreatedAfterFilterBuildIsTrackable() {
+        assertThat(trackingNumberFilter.rebuild()).isNotNegative();
+        String trackingNumber = "PT-" + UUID.randomUUID();
+        assertThat(publicController.getByTracking(trackingNumber).getStatusCode().value()).isEqualTo(404);
+
+        Shipment s = dataManager.create(Shipment.class);
+        s.setTrackingNumber(trackingNumber);
+        saved.add(logisticsService.createShipment(s));
+
+        ResponseEntity<?> res = publicController.getByTracking(trackingNumber);
+        assertThat(res.getStatusCode().value()).isEqualTo(200);
+        assertThat(((Map<?, ?>) res.getBody()).get("trackingNumber")).isEqualTo(trackingNumber);
+    }
+}
@@ -0,0 +1,75 @@
+package com.donilogistics.events;
+
+import com.donilogistics.entity.ShipmentStatus;
+import com.donilogistics.entity.TrackingSource;
+import com.donilogistics.service.GpsPing;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Round-trips bus messages through an embedded broker and checks each consumer group receives them.
+ */
+@SpringBootTest(properties = {
+        "app.events.kafka.enabled=true",
+        "app.events.kafka.partitions=3",
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.auto-offset-reset=earliest"
+})
+@EmbeddedKafka(partitions = 3, topics = {"doni.tracking.location", "doni.shipment.status"})
+public class TrackingEventBusKafkaTest {
+
+    @Autowired
+    TrackingEventBus trackingEventBus;
+
+    @MockitoBean
+    LocationPersistenceConsumer persistenceConsumer;
+
+    @MockitoBean
+    ShipmentNotificationConsumer notificationConsumer;
+
+    @MockitoBean
+    DashboardPushConsumer dashboardConsumer;
+
+    @Test
+    void test_locationFansOutToPersistenceAndDashboard() {
+        UUID vehicleId = UUID.randomUUID();
+        GpsPing ping = new GpsPing(vehicleId, null, 9.03, 38.74, LocalDateTime.now(), TrackingSource.GPS_DEVICE);
+
+        trackingEventBus.publishLocation(ping);
+
+        ArgumentCaptor<GpsPing> captor = ArgumentCaptor.forClass(GpsPing.class);
+        verify(persistenceConsumer, timeout(15000)).onLocation(captor.capture());
+        verify(dashboardConsumer, timeout(15000)).onLocation(any(GpsPing.class));
+        assertThat(captor.getValue().vehicleId).isEqualTo(vehicleId);
+        assertThat(captor.getValue().latitude).isEqualTo(9.03);
+        verify(notificationConsumer, never()).onLocation(any());
+    }
+
+    @Test
+    void test_statusChangeFansOutToNotificationsAndDashboard() {
+        ShipmentStatusChange change = new ShipmentStatusChange();
+        change.shipmentId = UUID.randomUUID();
+        change.trackingNumber = "TRK-TEST";
+        change.fromStatus = ShipmentStatus.CREATED;
+        change.toStatus = ShipmentStatus.READY_FOR_CONSOLIDATION;
+        change.changedAt = LocalDateTime.now();
+
+        trackingEventBus.publishStatusChange(change);
+
+        ArgumentCaptor<ShipmentStatusChange> captor = ArgumentCaptor.forClass(ShipmentStatusChange.class);
+        verify(notificationConsumer, timeout(15000)).onStatusChange(captor.capture());
+        verify(dashboardConsumer, timeout(15000)).onStatusChange(any(ShipmentStatusChange.class));
+        assertThat(captor.getValue().shipmentId).isEqualTo(change.shipmentId);
+        assertThat(captor.getValue().toStatus).isEqualTo(ShipmentStatus.READY_FOR_CONSOLIDATION);
+    }
+}
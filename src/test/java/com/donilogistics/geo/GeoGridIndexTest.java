@@ -0,0 +1,122 @@
+package com.donilogistics.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GeoGridIndexTest {
+
+    @Test
+    void test_nearestMatchesBruteForce() {
+        Random rnd = new Random(42);
+        GeoGridIndex<String> index = new GeoGridIndex<>(0.02);
+        Map<UUID, double[]> points = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            UUID id = UUID.randomUUID();
+            double lat = 8.8 + rnd.nextDouble() * 0.5;
+            double lon = 38.6 + rnd.nextDouble() * 0.5;
+            points.put(id, new double[]{lat, lon});
+            index.put(id, lat, lon, "p" + i);
+        }
+        // move a subset to make sure cell bookkeeping follows updates
+        int moved = 0;
+        for (Map.Entry<UUID, double[]> e : points.entrySet()) {
+            if (moved++ > 500) break;
+            double lat = 8.8 + rnd.nextDouble() * 0.5;
+            double lon = 38.6 + rnd.nextDouble() * 0.5;
+            e.setValue(new double[]{lat, lon});
+            assertThat(index.move(e.getKey(), lat, lon)).isTrue();
+        }
+
+        for (int q = 0; q < 50; q++) {
+            double lat = 8.8 + rnd.nextDouble() * 0.5;
+            double lon = 38.6 + rnd.nextDouble() * 0.5;
+            List<UUID> expected = points.entrySet().stream()
+                    .sorted(Comparator.comparingDouble(e -> GeoUtils.haversineMeters(lat, lon, e.getValue()[0], e.getValue()[1])))
+                    .limit(10)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+            List<UUID> actual = index.nearest(lat, lon, 10, Double.MAX_VALUE, null).stream()
+                    .map(GeoGridIndex.Neighbor::getId)
+                    .collect(Collectors.toList());
+            assertThat(actual).containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    void test_radiusAndRemove() {
+        GeoGridIndex<String> index = new GeoGridIndex<>(0.02);
+        UUID near = UUID.randomUUID();
+        UUID far = UUID.randomUUID();
+        index.put(near, 9.0300, 38.7400, "near");
+        index.put(far, 9.3000, 38.7400, "far");
+
+        assertThat(index.withinRadius(9.03, 38.74, 5_000, null)).extracting(GeoGridIndex.Neighbor::getId).containsExactly(near);
+        assertThat(index.nearest(9.03, 38.74, 5, Double.MAX_VALUE, v -> !v.equals("near")))
+                .extracting(GeoGridIndex.Neighbor::getId).containsExactly(far);
+
+        index.remove(near);
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.withinRadius(9.03, 38.74, 5_000, null)).isEmpty();
+    }
+
+    @Test
+    void test_withinBoxMatchesBruteForce() {
+        Random rnd = new Random(7);
+        GeoGridIndex<String> index = new GeoGridIndex<>(0.02);
+        Map<UUID, double[]> points = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            UUID id = UUID.randomUUID();
+            double lat = 8.8 + rnd.nextDouble() * 0.5;
+            double lon = 38.6 + rnd.nextDouble() * 0.5;
+            points.put(id, new double[]{lat, lon});
+            index.put(id, lat, lon, "p" + i);
+        }
+        // small box walks cells, large box falls back to a scan
+        double[][] boxes = {{9.00, 38.70, 9.05, 38.78}, {8.0, 38.0, 10.0, 40.0}};
+        for (double[] b : boxes) {
+            Set<UUID> expected = points.entrySet().stream()
+                    .filter(e -> GeoGridIndex.inBox(e.getValue()[0], e.getValue()[1], b[0], b[1], b[2], b[3]))
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toSet());
+            Set<UUID> actual = index.withinBox(b[0], b[1], b[2], b[3], null).stream()
+                    .map(GeoGridIndex.Entry::getId)
+                    .collect(Collectors.toSet());
+            assertThat(actual).isEqualTo(expected);
+        }
+
+        UUID east = UUID.randomUUID();
+        index.put(east, 0.0, 179.99, "east");
+        assertThat(index.withinBox(-1, 179.9, 1, -179.9, null)).extracting(GeoGridIndex.Entry::getId).containsExactly(east);
+    }
+
+    @Test
+    void test_concurrentMovesBetweenFewCellsLoseNoPoints() throws Exception {
+        GeoGridIndex<String> index = new GeoGridIndex<>(0.01);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            index.put(id, 0.005, 0.005, "p" + i);
+        }
+        // Points keep emptying and refilling the same cells, so cell sets are removed and recreated constantly
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            Random rnd = new Random(t);
+            pool.submit(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    index.move(ids.get(rnd.nextInt(ids.size())), 0.005 + rnd.nextInt(3) * 0.01, 0.005);
+                }
+            });
+        }
+        pool.shutdown();
+        assertThat(pool.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+        assertThat(index.withinBox(0.001, 0.001, 0.039, 0.009, null)).hasSize(ids.size());
+    }
+}
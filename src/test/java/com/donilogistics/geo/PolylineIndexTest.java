@@ -0,0 +1,65 @@
+package com.donilogistics.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class PolylineIndexTest {
+
+    @Test
+    void test_nearestMatchesBruteForce() {
+        Random rnd = new Random(7);
+        // A winding road: a random walk of short steps around Addis Ababa
+        int n = 3000;
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        lat[0] = 9.0;
+        lon[0] = 38.75;
+        for (int i = 1; i < n; i++) {
+            lat[i] = lat[i - 1] + (rnd.nextDouble() - 0.5) * 0.002;
+            lon[i] = lon[i - 1] + (rnd.nextDouble() - 0.3) * 0.002;
+        }
+        PolylineIndex index = new PolylineIndex(lat, lon);
+        assertThat(index.segmentCount()).isEqualTo(n - 1);
+
+        int hint = -1;
+        for (int q = 0; q < 500; q++) {
+            int near = rnd.nextInt(n);
+            double qLat = lat[near] + (rnd.nextDouble() - 0.5) * 0.01;
+            double qLon = lon[near] + (rnd.nextDouble() - 0.5) * 0.01;
+            double expected = Double.POSITIVE_INFINITY;
+            for (int s = 0; s < n - 1; s++) {
+                expected = Math.min(expected, segmentDistance(qLat, qLon, lat[s], lon[s], lat[s + 1], lon[s + 1]));
+            }
+            PolylineIndex.Match m = index.nearest(qLat, qLon, hint);
+            assertThat(m.getDistanceMeters()).isCloseTo(expected, within(1e-6));
+            // A stale hint must never change the answer
+            assertThat(index.nearest(qLat, qLon, rnd.nextInt(n - 1)).getDistanceMeters()).isCloseTo(expected, within(1e-6));
+            hint = m.getSegment();
+        }
+    }
+
+    private static double segmentDistance(double qLat, double qLon, double lat1, double lon1, double lat2, double lon2) {
+        double m = GeoUtils.METERS_PER_DEGREE_LAT;
+        double cos = Math.cos(Math.toRadians(qLat));
+        double ax = (lon1 - qLon) * m * cos, ay = (lat1 - qLat) * m;
+        double dx = (lon2 - lon1) * m * cos, dy = (lat2 - lat1) * m;
+        double len2 = dx * dx + dy * dy;
+        double t = len2 == 0 ? 0 : Math.max(0, Math.min(1, -(ax * dx + ay * dy) / len2));
+        return Math.hypot(ax + t * dx, ay + t * dy);
+    }
+
+    @Test
+    void test_distanceToStraightSegment() {
+        // East-west segment on the equator; a point 0.001 deg north of its middle is ~111 m away
+        PolylineIndex index = new PolylineIndex(new double[]{0, 0, 0.01}, new double[]{0, 0.01, 0.01});
+        PolylineIndex.Match m = index.nearest(0.001, 0.005, -1);
+        assertThat(m.getSegment()).isEqualTo(0);
+        assertThat(m.getDistanceMeters()).isCloseTo(GeoUtils.METERS_PER_DEGREE_LAT * 0.001, within(0.5));
+        // Beyond the end of the line the distance is to the last vertex
+        assertThat(index.nearest(0.02, 0.01, -1).getDistanceMeters()).isCloseTo(GeoUtils.METERS_PER_DEGREE_LAT * 0.01, within(1.0));
+    }
+}
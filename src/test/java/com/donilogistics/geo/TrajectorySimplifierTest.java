@@ -0,0 +1,62 @@
+package com.donilogistics.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TrajectorySimplifierTest {
+
+    private static final double METERS_PER_DEG = GeoUtils.METERS_PER_DEGREE_LAT;
+
+    @Test
+    void test_straightConstantSpeedKeepsOnlyKeyframes() {
+        TrajectorySimplifier s = new TrajectorySimplifier(60_000);
+        UUID id = UUID.randomUUID();
+        int kept = 0;
+        // Due north at 15 m/s, one ping per second for 10 minutes, no reported speed/heading
+        for (int i = 0; i <= 600; i++) {
+            if (s.offer(id, 9.0 + i * 15 / METERS_PER_DEG, 38.7, i * 1000L, null, null, 10)) kept++;
+        }
+        // First point, the point that establishes velocity, then one keyframe per minute
+        assertThat(kept).isBetween(10, 13);
+    }
+
+    @Test
+    void test_turnIsKept() {
+        TrajectorySimplifier s = new TrajectorySimplifier(60_000);
+        UUID id = UUID.randomUUID();
+        for (int i = 0; i <= 10; i++) {
+            s.offer(id, 9.0 + i * 15 / METERS_PER_DEG, 38.7, i * 1000L, 54.0, 0.0, 10);
+        }
+        double lat = 9.0 + 10 * 15 / METERS_PER_DEG;
+        double lonStep = 15 / (METERS_PER_DEG * Math.cos(Math.toRadians(lat)));
+        // Turned east: after one second the prediction is ~21 m off
+        assertThat(s.offer(id, lat, 38.7 + lonStep, 11_000L, 54.0, 90.0, 10)).isTrue();
+        // Following the new heading is predictable again
+        assertThat(s.offer(id, lat, 38.7 + 2 * lonStep, 12_000L, 54.0, 90.0, 10)).isFalse();
+    }
+
+    @Test
+    void test_stationaryJitterWithinToleranceIsDropped() {
+        TrajectorySimplifier s = new TrajectorySimplifier(60_000);
+        UUID id = UUID.randomUUID();
+        assertThat(s.offer(id, 9.0, 38.7, 0, 0.0, 0.0, 10)).isTrue();
+        for (int i = 1; i < 60; i++) {
+            double jitter = (i % 2 == 0 ? 3 : -3) / METERS_PER_DEG;
+            assertThat(s.offer(id, 9.0 + jitter, 38.7, i * 1000L, 0.0, 0.0, 10)).isFalse();
+        }
+        assertThat(s.offer(id, 9.0, 38.7, 60_000L, 0.0, 0.0, 10)).isTrue();
+    }
+
+    @Test
+    void test_outOfOrderPointIsKeptWithoutMovingAnchor() {
+        TrajectorySimplifier s = new TrajectorySimplifier(60_000);
+        UUID id = UUID.randomUUID();
+        s.offer(id, 9.0, 38.7, 10_000, 0.0, 0.0, 10);
+        assertThat(s.offer(id, 9.0, 38.7, 5_000, 0.0, 0.0, 10)).isTrue();
+        assertThat(s.offer(id, 9.0, 38.7, 11_000, 0.0, 0.0, 10)).isFalse();
+        assertThat(s.size()).isEqualTo(1);
+    }
+}
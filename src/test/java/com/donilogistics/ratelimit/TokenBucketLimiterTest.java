@@ -0,0 +1,79 @@
+package com.donilogistics.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenBucketLimiterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void test_burstThenRefill() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(3, 1.0, 100);
+        long now = 42 * SECOND;
+        assertThat(limiter.tryAcquire("a", now)).isZero();
+        assertThat(limiter.tryAcquire("a", now)).isZero();
+        assertThat(limiter.tryAcquire("a", now)).isZero();
+        long wait = limiter.tryAcquire("a", now);
+        assertThat(wait).isEqualTo(SECOND);
+        // Other clients have their own bucket
+        assertThat(limiter.tryAcquire("b", now)).isZero();
+
+        assertThat(limiter.tryAcquire("a", now + SECOND / 2)).isEqualTo(SECOND / 2);
+        assertThat(limiter.tryAcquire("a", now + SECOND)).isZero();
+        assertThat(limiter.tryAcquire("a", now + SECOND)).isPositive();
+        // A long pause refills to capacity, never beyond
+        long later = now + 60 * SECOND;
+        for (int i = 0; i < 3; i++) assertThat(limiter.tryAcquire("a", later)).isZero();
+        assertThat(limiter.tryAcquire("a", later)).isPositive();
+        assertThat(limiter.getAllowed()).isEqualTo(8);
+        assertThat(limiter.getRejected()).isEqualTo(4);
+    }
+
+    @Test
+    void test_sweepDropsFullBucketsAndOverflowIsShared() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(2, 10.0, 2);
+        long now = -5 * SECOND; // nanoTime may be negative
+        limiter.tryAcquire("a", now);
+        limiter.tryAcquire("b", now);
+        assertThat(limiter.size()).isEqualTo(2);
+        // No room for more keys: c and d draw from the same overflow bucket
+        assertThat(limiter.tryAcquire("c", now)).isZero();
+        assertThat(limiter.tryAcquire("d", now)).isZero();
+        assertThat(limiter.tryAcquire("e", now)).isPositive();
+
+        assertThat(limiter.sweep(now)).isZero();
+        assertThat(limiter.sweep(now + SECOND)).isEqualTo(3);
+        assertThat(limiter.size()).isZero();
+    }
+
+    @Test
+    void test_concurrentCallersNeverExceedCapacity() throws Exception {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(100, 0.001, 10);
+        long now = System.nanoTime();
+        AtomicInteger granted = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < 8; t++) {
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 1000; i++) {
+                    if (limiter.tryAcquire("k", now) == 0) granted.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(granted.get()).isEqualTo(100);
+        assertThat(limiter.getRejected()).isEqualTo(8000 - 100);
+    }
+}
@@ -0,0 +1,35 @@
+package com.donilogistics.routing;
+
+import com.donilogistics.geo.GeoUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class DistanceMatrixTest {
+
+    @Test
+    void test_localProviderMatchesHaversine() {
+        Random rnd = new Random(11);
+        int n = 300;
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int i = 0; i < n; i++) {
+            lat[i] = 8.5 + rnd.nextDouble();
+            lon[i] = 38.4 + rnd.nextDouble();
+        }
+        DistanceMatrix m = new LocalDistanceMatrixProvider(36, 1.5).compute(lat, lon);
+
+        assertThat(m.size()).isEqualTo(n);
+        for (int k = 0; k < 1000; k++) {
+            int i = rnd.nextInt(n);
+            int j = rnd.nextInt(n);
+            double expected = GeoUtils.haversineMeters(lat[i], lon[i], lat[j], lon[j]) * 1.5;
+            assertThat(m.distance(i, j)).isCloseTo(expected, within(1e-6 * Math.max(1, expected)));
+            assertThat(m.duration(i, j)).isCloseTo(expected / 10.0, within(1e-6 * Math.max(1, expected)));
+            assertThat(m.distance(i, j)).isEqualTo(m.distance(j, i));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.donilogistics.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class LocalSearchRouteSolverTest {
+
+    private final LocalSearchRouteSolver solver = new LocalSearchRouteSolver();
+
+    @Test
+    void test_visitsEveryStopOnceWithFixedEndpoints() {
+        RoutingProblem problem = new RoutingProblem(randomMatrix(52, 1), 0, 51);
+        RoutingSolution solution = solver.solve(problem, 2000);
+
+        int[] route = solution.getRoute();
+        assertThat(route[0]).isEqualTo(0);
+        assertThat(route[route.length - 1]).isEqualTo(51);
+        Set<Integer> seen = new HashSet<>();
+        for (int node : route) assertThat(seen.add(node)).isTrue();
+        assertThat(seen).hasSize(52);
+        assertThat(solution.getUnassigned()).isEmpty();
+        assertThat(solution.getArrivalSeconds()).hasSize(route.length);
+    }
+
+    @Test
+    void test_notWorseThanNearestNeighbour() {
+        DistanceMatrix matrix = randomMatrix(80, 2);
+        RoutingProblem problem = new RoutingProblem(matrix, 0, RoutingProblem.NONE);
+        RoutingSolution solution = solver.solve(problem, 2000);
+
+        List<Integer> nn = new ArrayList<>(List.of(0));
+        Set<Integer> left = new HashSet<>();
+        for (int i = 1; i < matrix.size(); i++) left.add(i);
+        while (!left.isEmpty()) {
+            int cur = nn.get(nn.size() - 1);
+            int next = left.stream().min(Comparator.comparingDouble(j -> matrix.duration(cur, j))).orElseThrow();
+            nn.add(next);
+            left.remove(next);
+        }
+        double nnDuration = 0;
+        for (int i = 1; i < nn.size(); i++) nnDuration += matrix.duration(nn.get(i - 1), nn.get(i));
+
+        assertThat(solution.getDurationSeconds()).isLessThanOrEqualTo(nnDuration);
+    }
+
+    @Test
+    void test_capacityLeavesLowPriorityStopsUnassigned() {
+        RoutingProblem problem = new RoutingProblem(randomMatrix(6, 3), 0, RoutingProblem.NONE);
+        for (int i = 1; i < 6; i++) problem.setDemand(i, 100, 0);
+        problem.setPriority(5, 10);
+        problem.setCapacity(250, 0);
+
+        RoutingSolution solution = solver.solve(problem, 500);
+
+        assertThat(solution.getRoute()).hasSize(3).contains(5);
+        assertThat(solution.getUnassigned()).hasSize(3).doesNotContain(5);
+    }
+
+    @Test
+    void test_consolidationWithoutOriginStartsAtBestStop() {
+        // Six deliveries along one street in shuffled order and no origin: all six are stops
+        double[] offsets = {0.03, 0.0, 0.05, 0.01, 0.04, 0.02};
+        double[] lat = new double[offsets.length];
+        double[] lon = new double[offsets.length];
+        for (int i = 0; i < offsets.length; i++) {
+            lat[i] = 9.0;
+            lon[i] = 38.7 + offsets[i];
+        }
+        DistanceMatrix matrix = DistanceMatrix.haversine(lat, lon, 40, 1.3);
+        DistanceMatrix open = matrix.withFreeStart();
+        RoutingProblem problem = new RoutingProblem(open, matrix.size(), RoutingProblem.NONE);
+        for (int i = 0; i < matrix.size(); i++) assertThat(problem.isStop(i)).isTrue();
+
+        RoutingSolution solution = solver.solve(problem, 500);
+
+        int[] route = solution.getRoute();
+        assertThat(route[0]).isEqualTo(matrix.size());
+        assertThat(Arrays.stream(route).skip(1).sorted().toArray()).containsExactly(0, 1, 2, 3, 4, 5);
+        assertThat(solution.getArrivalSeconds()[1]).isZero();
+        // Best open path runs from one end of the street to the other
+        assertThat(solution.getDurationSeconds()).isCloseTo(matrix.duration(1, 2), within(0.01));
+    }
+
+    private static DistanceMatrix randomMatrix(int n, long seed) {
+        Random rnd = new Random(seed);
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int i = 0; i < n; i++) {
+            lat[i] = 8.85 + rnd.nextDouble() * 0.3;
+            lon[i] = 38.65 + rnd.nextDouble() * 0.3;
+        }
+        return DistanceMatrix.haversine(lat, lon, 40, 1.3);
+    }
+}
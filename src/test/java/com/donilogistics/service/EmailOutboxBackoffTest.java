@@ -0,0 +1,18 @@
+package com.donilogistics.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EmailOutboxBackoffTest {
+
+    @Test
+    void test_backoffDoublesUntilCap() {
+        assertThat(EmailOutboxDispatcher.backoffSeconds(0, 30, 3600)).isEqualTo(0);
+        assertThat(EmailOutboxDispatcher.backoffSeconds(1, 30, 3600)).isEqualTo(30);
+        assertThat(EmailOutboxDispatcher.backoffSeconds(2, 30, 3600)).isEqualTo(60);
+        assertThat(EmailOutboxDispatcher.backoffSeconds(5, 30, 3600)).isEqualTo(480);
+        assertThat(EmailOutboxDispatcher.backoffSeconds(8, 30, 3600)).isEqualTo(3600);
+        assertThat(EmailOutboxDispatcher.backoffSeconds(200, 30, 3600)).isEqualTo(3600);
+    }
+}
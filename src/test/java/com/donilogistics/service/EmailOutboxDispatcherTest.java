@@ -0,0 +1,170 @@
+package com.donilogistics.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs the dispatcher against the real EMAIL_OUTBOX table; only SMTP is stubbed. Polling is driven by the
+ * test, the scheduled poll is pushed out of the way.
+ */
+@SpringBootTest(properties = {
+        "app.mail.outbox.poll-ms=3600000",
+        "app.mail.outbox.max-attempts=3",
+        "app.mail.outbox.lease-seconds=300"
+})
+public class EmailOutboxDispatcherTest {
+
+    @Autowired
+    EmailOutboxDispatcher dispatcher;
+
+    @Autowired
+    DataSource dataSource;
+
+    @MockitoBean
+    JavaMailSender mailSender;
+
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.update("delete from EMAIL_OUTBOX");
+    }
+
+    @Test
+    void test_claimSendsOnceAndMarksSent() throws Exception {
+        UUID id = enqueue("a@example.com");
+
+        pollAndWait();
+        pollAndWait();
+
+        verify(mailSender, times(1)).send(any(SimpleMailMessage[].class));
+        Map<String, Object> row = row(id);
+        assertThat(row.get("STATUS")).isEqualTo("SENT");
+        assertThat(((Number) row.get("ATTEMPTS")).intValue()).isEqualTo(1);
+        assertThat(row.get("SENT_AT")).isNotNull();
+    }
+
+    @Test
+    void test_failureIsRetriedWithBackoff() throws Exception {
+        UUID id = enqueue("b@example.com");
+        doThrow(new MailSendException("smtp down")).doNothing().when(mailSender).send(any(SimpleMailMessage[].class));
+
+        pollAndWait();
+        Map<String, Object> failed = row(id);
+        assertThat(failed.get("STATUS")).isEqualTo("PENDING");
+        assertThat(((Number) failed.get("ATTEMPTS")).intValue()).isEqualTo(1);
+        assertThat(failed.get("LAST_ERROR")).isEqualTo("smtp down");
+        assertThat(((Timestamp) failed.get("NEXT_ATTEMPT_AT")).toLocalDateTime()).isAfter(LocalDateTime.now());
+
+        // Not due yet
+        pollAndWait();
+        verify(mailSender, times(1)).send(any(SimpleMailMessage[].class));
+
+        makeDue(id);
+        pollAndWait();
+        Map<String, Object> sent = row(id);
+        assertThat(sent.get("STATUS")).isEqualTo("SENT");
+        assertThat(((Number) sent.get("ATTEMPTS")).intValue()).isEqualTo(2);
+        assertThat(sent.get("LAST_ERROR")).isNull();
+    }
+
+    @Test
+    void test_deadLetteredAtMaxAttemptsThenRevived() throws Exception {
+        UUID id = enqueue("c@example.com");
+        doThrow(new MailSendException("mailbox unavailable")).when(mailSender).send(any(SimpleMailMessage[].class));
+
+        for (int i = 0; i < 3; i++) {
+            makeDue(id);
+            pollAndWait();
+        }
+        assertThat(row(id).get("STATUS")).isEqualTo("DEAD");
+        makeDue(id);
+        pollAndWait();
+        verify(mailSender, times(3)).send(any(SimpleMailMessage[].class));
+
+        assertThat(dispatcher.revive(id)).isTrue();
+        assertThat(dispatcher.revive(id)).isFalse();
+        doNothing().when(mailSender).send(any(SimpleMailMessage[].class));
+        pollAndWait();
+        Map<String, Object> sent = row(id);
+        assertThat(sent.get("STATUS")).isEqualTo("SENT");
+        assertThat(((Number) sent.get("ATTEMPTS")).intValue()).isEqualTo(1);
+    }
+
+    @Test
+    void test_expiredLeaseCountsAsAttempt() throws Exception {
+        UUID id = enqueue("d@example.com");
+        // Two claims whose sender died: the lease expired both times
+        jdbc.update("update EMAIL_OUTBOX set STATUS = 'SENDING', ATTEMPTS = 2 where ID = ?", id);
+
+        pollAndWait();
+        assertThat(row(id).get("STATUS")).isEqualTo("SENT");
+        assertThat(((Number) row(id).get("ATTEMPTS")).intValue()).isEqualTo(3);
+
+        UUID crashing = enqueue("e@example.com");
+        jdbc.update("update EMAIL_OUTBOX set STATUS = 'SENDING', ATTEMPTS = 3 where ID = ?", crashing);
+        pollAndWait();
+        assertThat(row(crashing).get("STATUS")).isEqualTo("DEAD");
+        assertThat(row(crashing).get("LAST_ERROR")).isEqualTo("lease expired");
+        verify(mailSender, times(1)).send(any(SimpleMailMessage[].class));
+    }
+
+    @Test
+    void test_sendThatOutlivesItsLeaseDoesNotOverwriteNewOwner() throws Exception {
+        UUID id = enqueue("f@example.com");
+        doAnswer(inv -> {
+            // Another node re-claims the row while this send is still running
+            jdbc.update("update EMAIL_OUTBOX set VERSION = VERSION + 1, ATTEMPTS = ATTEMPTS + 1 where ID = ?", id);
+            return null;
+        }).when(mailSender).send(any(SimpleMailMessage[].class));
+
+        pollAndWait();
+        Map<String, Object> row = row(id);
+        assertThat(row.get("STATUS")).isEqualTo("SENDING");
+        assertThat(row.get("SENT_AT")).isNull();
+        assertThat(((Number) dispatcher.stats().get("leasesLost")).longValue()).isPositive();
+    }
+
+    private UUID enqueue(String recipient) {
+        UUID id = UUID.randomUUID();
+        jdbc.update("insert into EMAIL_OUTBOX (ID, VERSION, RECIPIENT, SUBJECT, BODY, STATUS, ATTEMPTS, NEXT_ATTEMPT_AT, CREATED_AT) "
+                        + "values (?, 1, ?, 'Subject', 'Body', 'PENDING', 0, ?, ?)",
+                id, recipient, Timestamp.valueOf(LocalDateTime.now().minusSeconds(1)), Timestamp.valueOf(LocalDateTime.now()));
+        return id;
+    }
+
+    private void makeDue(UUID id) {
+        jdbc.update("update EMAIL_OUTBOX set NEXT_ATTEMPT_AT = ? where ID = ?", Timestamp.valueOf(LocalDateTime.now().minusSeconds(1)), id);
+    }
+
+    private Map<String, Object> row(UUID id) {
+        return jdbc.queryForMap("select STATUS, ATTEMPTS, SENT_AT, NEXT_ATTEMPT_AT, LAST_ERROR from EMAIL_OUTBOX where ID = ?", id);
+    }
+
+    private void pollAndWait() throws InterruptedException {
+        dispatcher.poll();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (((Number) dispatcher.stats().get("inFlight")).intValue() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(((Number) dispatcher.stats().get("inFlight")).intValue()).isZero();
+    }
+}
@@ -0,0 +1,27 @@
+package com.donilogistics.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GpsPingTest {
+
+    private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void test_defaultsApplyWhenFieldsAreMissing() throws Exception {
+        GpsPing p = mapper.readValue("{\"vehicleId\":\"6f1c2d1e-0000-4000-8000-000000000001\",\"latitude\":9.03,\"longitude\":38.74}", GpsPing.class);
+        assertThat(p.isValid()).isTrue();
+    }
+
+    @Test
+    void test_explicitNullSourceOrEventTypeIsRejected() throws Exception {
+        GpsPing noSource = mapper.readValue("{\"vehicleId\":\"6f1c2d1e-0000-4000-8000-000000000001\",\"latitude\":9.03,\"longitude\":38.74,\"source\":null}", GpsPing.class);
+        assertThat(noSource.source).isNull();
+        assertThat(noSource.isValid()).isFalse();
+
+        GpsPing noType = mapper.readValue("{\"driverId\":\"6f1c2d1e-0000-4000-8000-000000000002\",\"latitude\":9.03,\"longitude\":38.74,\"eventType\":null}", GpsPing.class);
+        assertThat(noType.isValid()).isFalse();
+    }
+}
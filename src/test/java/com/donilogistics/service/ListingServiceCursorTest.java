@@ -0,0 +1,35 @@
+package com.donilogistics.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ListingServiceCursorTest {
+
+    @Test
+    void test_cursorRoundTripsTypedValues() {
+        UUID id = UUID.randomUUID();
+        Object[] values = {"Addis\nAbaba", LocalDateTime.of(2025, 3, 1, 10, 15, 30, 123_000), 42, 7L,
+                new BigDecimal("12.50"), true, UUID.randomUUID(), null};
+        for (Object v : values) {
+            String cursor = ListingService.encodeCursor("-createdAt", v, id);
+            Object[] key = ListingService.decodeCursor(cursor, "-createdAt");
+            assertThat(key[0]).isEqualTo(v);
+            assertThat(key[1]).isEqualTo(id);
+        }
+    }
+
+    @Test
+    void test_cursorRejectedForDifferentSort() {
+        String cursor = ListingService.encodeCursor("name", "Acme", UUID.randomUUID());
+        assertThatThrownBy(() -> ListingService.decodeCursor(cursor, "-name"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ListingService.decodeCursor("not-a-cursor", "name"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
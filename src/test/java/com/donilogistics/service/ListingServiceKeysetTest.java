@@ -0,0 +1,102 @@
+package com.donilogistics.service;
+
+import com.donilogistics.entity.Organization;
+import com.donilogistics.entity.OrganizationType;
+import com.donilogistics.test_support.AuthenticatedAsAdmin;
+import io.jmix.core.DataManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pages through real rows: ties on the sort value, nulls last, both directions.
+ */
+@SpringBootTest
+@ExtendWith(AuthenticatedAsAdmin.class)
+public class ListingServiceKeysetTest {
+
+    private static final ListingService.Spec<Organization> SPEC = ListingService.Spec.of(Organization.class)
+            .sortable("description", "createdDate");
+
+    @Autowired
+    DataManager dataManager;
+
+    @Autowired
+    ListingService listingService;
+
+    private final String prefix = "keyset-" + System.currentTimeMillis() + "-";
+    private final List<Organization> saved = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        String[] descriptions = {"b", null, "a", "b", "c", null, "b", "a", null, "b", "c", "b", null, "a", "b", "c", null, "b", "a", "b", null, "c", "b"};
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 8, 0);
+        for (int i = 0; i < descriptions.length; i++) {
+            Organization o = dataManager.create(Organization.class);
+            o.setName("Keyset " + i);
+            o.setCode(prefix + i);
+            o.setOrgType(OrganizationType.SHIPPER);
+            o.setDescription(descriptions[i]);
+            o.setCreatedDate(i % 4 == 0 ? null : base.plusHours(i % 3));
+            saved.add(dataManager.save(o));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (Organization o : saved) dataManager.remove(o);
+    }
+
+    @Test
+    void test_pagesMatchUnpagedOrderWithTiesAndNulls() {
+        for (String sort : List.of("description", "-description", "createdDate", "-createdDate", "id", "-id")) {
+            List<UUID> all = ids(listingService.list(SPEC, criteria(), sort, null, ListingService.MAX_LIMIT));
+            assertThat(all).hasSize(saved.size()).doesNotHaveDuplicates();
+
+            List<UUID> paged = new ArrayList<>();
+            String cursor = null;
+            int pages = 0;
+            do {
+                ListingService.Page<Organization> page = listingService.list(SPEC, criteria(), sort, cursor, 4);
+                assertThat(page.getItems()).hasSizeLessThanOrEqualTo(4);
+                paged.addAll(ids(page));
+                cursor = page.getNextCursor();
+                assertThat(++pages).isLessThanOrEqualTo(saved.size());
+            } while (cursor != null);
+
+            assertThat(paged).as(sort).containsExactlyElementsOf(all);
+        }
+    }
+
+    @Test
+    void test_nullsSortLastInBothDirections() {
+        for (String sort : List.of("description", "-description")) {
+            List<Organization> rows = listingService.list(SPEC, criteria(), sort, null, ListingService.MAX_LIMIT).getItems();
+            List<String> values = rows.stream().map(Organization::getDescription).toList();
+            int firstNull = values.indexOf(null);
+            assertThat(firstNull).isPositive();
+            assertThat(values.subList(firstNull, values.size())).containsOnlyNulls();
+
+            List<String> nonNull = values.subList(0, firstNull);
+            List<String> expected = new ArrayList<>(nonNull);
+            expected.sort(sort.startsWith("-") ? Comparator.reverseOrder() : Comparator.naturalOrder());
+            assertThat(nonNull).as(sort).containsExactlyElementsOf(expected);
+        }
+    }
+
+    private ListingService.Criteria criteria() {
+        return new ListingService.Criteria().where("e.code like :prefix").param("prefix", prefix + "%");
+    }
+
+    private static List<UUID> ids(ListingService.Page<Organization> page) {
+        return page.getItems().stream().map(Organization::getId).toList();
+    }
+}
@@ -0,0 +1,86 @@
+package com.donilogistics.service;
+
+import com.donilogistics.entity.Address;
+import com.donilogistics.entity.Shipment;
+import com.donilogistics.entity.ShipmentStatus;
+import com.donilogistics.test_support.AuthenticatedAsAdmin;
+import io.jmix.core.DataManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Changes committed through DataManager must show up on the next lookup, not after the refresh.
+ */
+@SpringBootTest
+@ExtendWith(AuthenticatedAsAdmin.class)
+public class PublicTrackingCacheTest {
+
+    @Autowired
+    DataManager dataManager;
+
+    @Autowired
+    LogisticsService logisticsService;
+
+    @Autowired
+    PublicTrackingCache publicTrackingCache;
+
+    private Shipment shipment;
+    private Address address;
+
+    @AfterEach
+    void tearDown() {
+        if (shipment != null) dataManager.remove(dataManager.load(Shipment.class).id(shipment.getId()).one());
+        if (address != null) dataManager.remove(dataManager.load(Address.class).id(address.getId()).one());
+    }
+
+    @Test
+    void test_statusUpdateChangesBodyAndEtag() {
+        String trackingNumber = "PTC-" + UUID.randomUUID();
+        Shipment s = dataManager.create(Shipment.class);
+        s.setTrackingNumber(trackingNumber);
+        shipment = logisticsService.createShipment(s);
+
+        PublicTrackingCache.Entry before = publicTrackingCache.get(trackingNumber);
+        assertThat(before.getBody().get("status")).isEqualTo(ShipmentStatus.CREATED.name());
+        assertThat(publicTrackingCache.get(trackingNumber)).isSameAs(before);
+
+        assertThat(logisticsService.updateShipmentStatus(shipment.getId(), ShipmentStatus.IN_TRANSIT)).isTrue();
+
+        PublicTrackingCache.Entry after = publicTrackingCache.get(trackingNumber);
+        assertThat(after.getBody().get("status")).isEqualTo(ShipmentStatus.IN_TRANSIT.name());
+        assertThat(after.getEtag()).isNotEqualTo(before.getEtag());
+    }
+
+    @Test
+    void test_addressUpdateChangesBody() {
+        Address a = dataManager.create(Address.class);
+        a.setStreet("1 Old Road");
+        a.setCity("Lagos");
+        a.setCountry("NG");
+        address = dataManager.save(a);
+        String trackingNumber = "PTC-" + UUID.randomUUID();
+        Shipment s = dataManager.create(Shipment.class);
+        s.setTrackingNumber(trackingNumber);
+        s.setDeliveryAddress(address);
+        shipment = logisticsService.createShipment(s);
+
+        PublicTrackingCache.Entry before = publicTrackingCache.get(trackingNumber);
+        assertThat(((Map<?, ?>) before.getBody().get("deliveryAddress")).get("city")).isEqualTo("Lagos");
+
+        Address loaded = dataManager.load(Address.class).id(address.getId()).one();
+        loaded.setCity("Abuja");
+        dataManager.save(loaded);
+
+        PublicTrackingCache.Entry after = publicTrackingCache.get(trackingNumber);
+        assertThat(((Map<?, ?>) after.getBody().get("deliveryAddress")).get("city")).isEqualTo("Abuja");
+        assertThat(after.getEtag()).isNotEqualTo(before.getEtag());
+    }
+}
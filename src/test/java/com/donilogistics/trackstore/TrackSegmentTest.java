@@ -0,0 +1,73 @@
+package com.donilogistics.trackstore;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TrackSegmentTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void test_rangeReadsMatchBruteForceBeforeAndAfterSeal() throws Exception {
+        Random rnd = new Random(7);
+        List<Long> times = new ArrayList<>();
+        TrackSegment seg = TrackSegment.create(dir.resolve("0.0.seg"), 1_000, 5_000, 16);
+        long t = 1_000;
+        for (int i = 0; i < 3_000; i++) {
+            t += rnd.nextInt(3); // duplicates on purpose
+            seg.append(t, 9 + i * 1e-5, 38 + i * 1e-5, i, i % 360);
+            times.add(t);
+        }
+        for (int q = 0; q < 500; q++) {
+            long from = 1_000 + rnd.nextInt(3_200);
+            long to = from + rnd.nextInt(600);
+            long expected = times.stream().filter(x -> x >= from && x < to).count();
+            assertThat(seg.count(from, to)).isEqualTo((int) expected);
+            long[] seen = {0, Long.MIN_VALUE};
+            seg.read(from, to, (time, lat, lon, speed, heading) -> {
+                assertThat(time).isBetween(from, to - 1).isGreaterThanOrEqualTo(seen[1]);
+                seen[0]++;
+                seen[1] = time;
+                return true;
+            });
+            assertThat(seen[0]).isEqualTo(expected);
+        }
+
+        seg.seal();
+        assertThat(Files.size(dir.resolve("0.0.seg"))).isEqualTo(TrackSegment.HEADER_BYTES + 3_000L * TrackSegment.RECORD_BYTES);
+        TrackSegment reopened = TrackSegment.open(dir.resolve("0.0.seg"), 1_000, 5_000, 16);
+        assertThat(reopened.isSealed()).isTrue();
+        assertThat(reopened.count()).isEqualTo(3_000);
+        assertThat(reopened.count(0, Long.MAX_VALUE)).isEqualTo(3_000);
+        assertThat(reopened.lastTime()).isEqualTo(times.get(times.size() - 1));
+    }
+
+    @Test
+    void test_unsealedSegmentResumesAppendingAfterReopen() throws Exception {
+        Path file = dir.resolve("0.0.seg");
+        TrackSegment seg = TrackSegment.create(file, 0, 100, 8);
+        for (int i = 0; i < 10; i++) seg.append(i * 1000L, 9, 38, 50f, 90f);
+        seg.force();
+
+        TrackSegment reopened = TrackSegment.open(file, 0, 100, 8);
+        assertThat(reopened.isSealed()).isFalse();
+        assertThat(reopened.count()).isEqualTo(10);
+        reopened.append(10_000L, 9.5, 38.5, 60f, 180f);
+        float[] last = new float[1];
+        reopened.read(10_000L, 10_001L, (time, lat, lon, speed, heading) -> {
+            last[0] = speed;
+            return true;
+        });
+        assertThat(last[0]).isEqualTo(60f);
+        assertThat(reopened.count(0, Long.MAX_VALUE)).isEqualTo(11);
+    }
+}